@@ -18,6 +18,7 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import com.screenmirror.samsung.capture.StartupMetrics;
 import com.screenmirror.samsung.service.ScreenCaptureService;
 import com.screenmirror.samsung.service.StreamingService;
 import com.screenmirror.samsung.service.TouchInputService;
@@ -40,12 +41,28 @@ public class MainActivity extends Activity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        StartupMetrics.getInstance().markLaunch();
         setContentView(R.layout.activity_main);
         
         initializeViews();
         setupClickListeners();
         updateUI();
         checkPermissions();
+        warmStart();
+    }
+    
+    /**
+     * Brings up everything that doesn't need projection consent: the WebSocket
+     * server, frame pool and encoder (StreamingService) and the discovery
+     * announcement. Consent then only has to start the capture itself.
+     */
+    private void warmStart() {
+        try {
+            startService(new Intent(this, StreamingService.class));
+            startService(new Intent(this, DiscoveryService.class));
+        } catch (Exception e) {
+            Log.e(TAG, "Error warm-starting services", e);
+        }
     }
     
     private void initializeViews() {
@@ -85,7 +102,7 @@ public class MainActivity extends Activity {
         try {
             WifiManager wifiManager = (WifiManager) getApplicationContext().getSystemService(Context.WIFI_SERVICE);
             String ipAddress = Formatter.formatIpAddress(wifiManager.getConnectionInfo().getIpAddress());
-            ipAddressText.setText("Device IP: " + ipAddress + ":8080");
+            ipAddressText.setText("Device IP: " + ipAddress + ":" + StreamingService.WEBSOCKET_PORT);
         } catch (Exception e) {
             ipAddressText.setText("IP Address: Unable to determine");
             Log.e(TAG, "Error getting IP address", e);
@@ -121,6 +138,9 @@ public class MainActivity extends Activity {
             return;
         }
         
+        // Services may have been stopped since launch; re-warm while the consent prompt is up.
+        warmStart();
+        
         MediaProjectionManager mediaProjectionManager = (MediaProjectionManager) getSystemService(Context.MEDIA_PROJECTION_SERVICE);
         Intent intent = mediaProjectionManager.createScreenCaptureIntent();
         startActivityForResult(intent, REQUEST_MEDIA_PROJECTION);
@@ -149,35 +169,21 @@ public class MainActivity extends Activity {
         
         if (requestCode == REQUEST_MEDIA_PROJECTION) {
             if (resultCode == RESULT_OK) {
-                Toast.makeText(this, "Starting services...", Toast.LENGTH_SHORT).show();
+                StartupMetrics.getInstance().markConsentGranted();
                 
-                // Start ScreenCaptureService with proper data
+                // Streaming and discovery are already warm; only capture waited for consent.
                 Intent screenCaptureIntent = new Intent(this, ScreenCaptureService.class);
                 screenCaptureIntent.putExtra("resultCode", resultCode);
                 screenCaptureIntent.putExtra("data", data);
                 
                 try {
                     startForegroundService(screenCaptureIntent);
-                    Toast.makeText(this, "ScreenCaptureService started", Toast.LENGTH_SHORT).show();
-                } catch (Exception e) {
-                    Toast.makeText(this, "Failed to start ScreenCaptureService: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                    Log.e(TAG, "Error starting ScreenCaptureService", e);
-                    return;
-                }
-                
-                // Start other services
-                try {
-                    startService(new Intent(this, StreamingService.class));
-                    startService(new Intent(this, DiscoveryService.class));
                     
                     isServiceRunning = true;
                     updateUI();
-                    
-                    Toast.makeText(this, "All services started successfully", Toast.LENGTH_SHORT).show();
-                    
                 } catch (Exception e) {
-                    Toast.makeText(this, "Error starting other services: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                    Log.e(TAG, "Error starting other services", e);
+                    Toast.makeText(this, "Failed to start ScreenCaptureService: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                    Log.e(TAG, "Error starting ScreenCaptureService", e);
                 }
                 
             } else {
@@ -219,6 +225,16 @@ public class MainActivity extends Activity {
         }
     }
     
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // Don't keep a warm server around for a session that never started.
+        if (!isServiceRunning && !isChangingConfigurations()) {
+            stopService(new Intent(this, StreamingService.class));
+            stopService(new Intent(this, DiscoveryService.class));
+        }
+    }
+    
     @Override
     protected void onResume() {
         super.onResume();
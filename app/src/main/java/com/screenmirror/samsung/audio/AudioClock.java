@@ -0,0 +1,56 @@
+package com.screenmirror.samsung.audio;
+
+/**
+ * Maps audio frame positions onto the capture clock the video frames use.
+ *
+ * Video presentation times are image timestamps on the monotonic clock
+ * ({@code System.nanoTime()}). AudioRecord can report the same clock for a
+ * frame position, which pins every following frame to it at the sample rate.
+ * Without such a report the clock falls back to the read time of the newest
+ * frame, which runs late by the capture buffer but never drifts.
+ */
+public final class AudioClock {
+
+    private final int sampleRate;
+    private long anchorFrame = -1;
+    private long anchorNanos;
+    private boolean anchoredByTimestamp;
+
+    public AudioClock(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    /** A platform timestamp: frame {@code framePosition} was captured at {@code nanoTime}. */
+    public void onTimestamp(long framePosition, long nanoTime) {
+        anchorFrame = framePosition;
+        anchorNanos = nanoTime;
+        anchoredByTimestamp = true;
+    }
+
+    /** {@code framesRead} frames have been read so far and the read returned at {@code nowNanos}. */
+    public void onRead(long framesRead, long nowNanos) {
+        if (!anchoredByTimestamp) {
+            anchorFrame = framesRead;
+            anchorNanos = nowNanos;
+        }
+    }
+
+    public boolean isAnchored() {
+        return anchorFrame >= 0;
+    }
+
+    public boolean isAnchoredByTimestamp() {
+        return anchoredByTimestamp;
+    }
+
+    /** Capture time of frame {@code frameIndex}, counted from the start of recording. */
+    public long ptsNanos(long frameIndex) {
+        return anchorNanos + (frameIndex - anchorFrame) * 1000000000L / sampleRate;
+    }
+
+    public void reset() {
+        anchorFrame = -1;
+        anchorNanos = 0;
+        anchoredByTimestamp = false;
+    }
+}
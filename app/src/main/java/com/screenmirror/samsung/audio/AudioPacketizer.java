@@ -0,0 +1,84 @@
+package com.screenmirror.samsung.audio;
+
+import com.screenmirror.samsung.stream.AudioPacket;
+
+/**
+ * Cuts captured PCM into fixed-duration ADPCM packets stamped on the video clock.
+ *
+ * Reads from AudioRecord come in whatever sizes the platform hands out; the
+ * packetizer buffers them into {@code framesPerPacket} frames, the unit the
+ * client schedules, and stamps each packet with the capture time of its first
+ * frame. Pure Java; single-threaded (the audio capture thread).
+ */
+public final class AudioPacketizer {
+
+    public interface Sink {
+        void onAudioPacket(byte[] packet);
+    }
+
+    private final int sampleRate;
+    private final int channels;
+    private final int framesPerPacket;
+    private final Sink sink;
+    private final AudioClock clock;
+    private final ImaAdpcm codec;
+    private final short[] packetPcm;
+    private final byte[] block;
+
+    private int bufferedFrames;
+    private long framesRead;
+    private long sequence;
+
+    public AudioPacketizer(int sampleRate, int channels, int framesPerPacket, Sink sink) {
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.framesPerPacket = framesPerPacket;
+        this.sink = sink;
+        this.clock = new AudioClock(sampleRate);
+        this.codec = new ImaAdpcm(channels);
+        this.packetPcm = new short[framesPerPacket * channels];
+        this.block = new byte[ImaAdpcm.blockSize(channels, framesPerPacket)];
+    }
+
+    public AudioClock getClock() {
+        return clock;
+    }
+
+    public long getFramesRead() {
+        return framesRead;
+    }
+
+    public long getPacketsWritten() {
+        return sequence;
+    }
+
+    /** Adds {@code frames} interleaved frames, emitting every packet that fills up. */
+    public void write(short[] pcm, int frames) {
+        int consumed = 0;
+        while (consumed < frames) {
+            int take = Math.min(frames - consumed, framesPerPacket - bufferedFrames);
+            System.arraycopy(pcm, consumed * channels, packetPcm, bufferedFrames * channels, take * channels);
+            bufferedFrames += take;
+            consumed += take;
+            if (bufferedFrames == framesPerPacket) {
+                emit(framesRead + consumed - framesPerPacket);
+                bufferedFrames = 0;
+            }
+        }
+        framesRead += frames;
+    }
+
+    private void emit(long firstFrame) {
+        int length = codec.encode(packetPcm, framesPerPacket, block, 0);
+        long ptsMicros = clock.ptsNanos(firstFrame) / 1000;
+        sink.onAudioPacket(AudioPacket.encode(++sequence, ptsMicros, sampleRate, channels, framesPerPacket, block, length));
+    }
+
+    /** Drops any partial packet; the next packet starts a fresh predictor and clock. */
+    public void reset() {
+        bufferedFrames = 0;
+        framesRead = 0;
+        codec.reset();
+        clock.reset();
+    }
+}
@@ -0,0 +1,133 @@
+package com.screenmirror.samsung.audio;
+
+/**
+ * IMA ADPCM, 4 bits per sample, for short low-latency audio packets.
+ *
+ * Chosen over a transform codec because it has no look-ahead, no frame delay
+ * and a decoder small enough to run per packet in the browser. Every block
+ * starts with the per-channel predictor and step index, so each packet decodes
+ * on its own and a lost or skipped packet never corrupts the next one.
+ *
+ * Block layout: for each channel {@code i16 predictor, u8 stepIndex, u8 0},
+ * then one nibble per interleaved sample, low nibble first.
+ */
+public final class ImaAdpcm {
+
+    private static final int[] STEP_TABLE = {
+        7, 8, 9, 10, 11, 12, 13, 14, 16, 17, 19, 21, 23, 25, 28, 31, 34, 37, 41, 45,
+        50, 55, 60, 66, 73, 80, 88, 97, 107, 118, 130, 143, 157, 173, 190, 209, 230, 253, 279, 307,
+        337, 371, 408, 449, 494, 544, 598, 658, 724, 796, 876, 963, 1060, 1166, 1282, 1411, 1552, 1707, 1878, 2066,
+        2272, 2499, 2749, 3024, 3327, 3660, 4026, 4428, 4871, 5358, 5894, 6484, 7132, 7845, 8630, 9493, 10442, 11487, 12635, 13899,
+        15289, 16818, 18500, 20350, 22385, 24623, 27086, 29794, 32767
+    };
+
+    private static final int[] INDEX_TABLE = {-1, -1, -1, -1, 2, 4, 6, 8, -1, -1, -1, -1, 2, 4, 6, 8};
+
+    private static final int CHANNEL_HEADER_BYTES = 4;
+
+    private final int channels;
+    private final int[] predictor;
+    private final int[] stepIndex;
+
+    public ImaAdpcm(int channels) {
+        this.channels = channels;
+        this.predictor = new int[channels];
+        this.stepIndex = new int[channels];
+    }
+
+    public static int blockSize(int channels, int frames) {
+        return channels * CHANNEL_HEADER_BYTES + (channels * frames + 1) / 2;
+    }
+
+    public void reset() {
+        for (int channel = 0; channel < channels; channel++) {
+            predictor[channel] = 0;
+            stepIndex[channel] = 0;
+        }
+    }
+
+    /**
+     * Encodes {@code frames} interleaved 16-bit frames into {@code out} at
+     * {@code offset}; returns the block size. State carries over, so blocks cut
+     * from a continuous stream start where the previous one left off.
+     */
+    public int encode(short[] pcm, int frames, byte[] out, int offset) {
+        int position = offset;
+        for (int channel = 0; channel < channels; channel++) {
+            out[position++] = (byte) predictor[channel];
+            out[position++] = (byte) (predictor[channel] >> 8);
+            out[position++] = (byte) stepIndex[channel];
+            out[position++] = 0;
+        }
+        int samples = frames * channels;
+        for (int i = 0; i < samples; i++) {
+            int nibble = encodeSample(i % channels, pcm[i]);
+            if ((i & 1) == 0) {
+                out[position + (i >> 1)] = (byte) nibble;
+            } else {
+                out[position + (i >> 1)] |= (byte) (nibble << 4);
+            }
+        }
+        return position + (samples + 1) / 2 - offset;
+    }
+
+    private int encodeSample(int channel, int sample) {
+        int step = STEP_TABLE[stepIndex[channel]];
+        int diff = sample - predictor[channel];
+        int nibble = 0;
+        if (diff < 0) {
+            nibble = 8;
+            diff = -diff;
+        }
+        int delta = step >> 3;
+        if (diff >= step) {
+            nibble |= 4;
+            diff -= step;
+            delta += step;
+        }
+        step >>= 1;
+        if (diff >= step) {
+            nibble |= 2;
+            diff -= step;
+            delta += step;
+        }
+        step >>= 1;
+        if (diff >= step) {
+            nibble |= 1;
+            delta += step;
+        }
+        // Track the decoder's reconstruction, not the input, so errors don't accumulate.
+        predictor[channel] = clamp((nibble & 8) != 0 ? predictor[channel] - delta : predictor[channel] + delta);
+        stepIndex[channel] = Math.max(0, Math.min(STEP_TABLE.length - 1, stepIndex[channel] + INDEX_TABLE[nibble]));
+        return nibble;
+    }
+
+    /** Decodes one block into interleaved 16-bit frames; the reference for the web client's decoder. */
+    public static void decode(byte[] block, int offset, int channels, int frames, short[] pcm) {
+        int[] predictor = new int[channels];
+        int[] index = new int[channels];
+        int position = offset;
+        for (int channel = 0; channel < channels; channel++) {
+            predictor[channel] = (short) ((block[position] & 0xFF) | (block[position + 1] << 8));
+            index[channel] = Math.min(STEP_TABLE.length - 1, block[position + 2] & 0xFF);
+            position += CHANNEL_HEADER_BYTES;
+        }
+        int samples = frames * channels;
+        for (int i = 0; i < samples; i++) {
+            int channel = i % channels;
+            int nibble = (block[position + (i >> 1)] >> ((i & 1) * 4)) & 0x0F;
+            int step = STEP_TABLE[index[channel]];
+            int delta = step >> 3;
+            if ((nibble & 4) != 0) delta += step;
+            if ((nibble & 2) != 0) delta += step >> 1;
+            if ((nibble & 1) != 0) delta += step >> 2;
+            predictor[channel] = clamp((nibble & 8) != 0 ? predictor[channel] - delta : predictor[channel] + delta);
+            index[channel] = Math.max(0, Math.min(STEP_TABLE.length - 1, index[channel] + INDEX_TABLE[nibble]));
+            pcm[i] = (short) predictor[channel];
+        }
+    }
+
+    private static int clamp(int value) {
+        return Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+    }
+}
@@ -0,0 +1,141 @@
+package com.screenmirror.samsung.audio;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioPlaybackCaptureConfiguration;
+import android.media.AudioRecord;
+import android.media.AudioTimestamp;
+import android.media.projection.MediaProjection;
+import android.os.Build;
+import android.os.Process;
+import android.util.Log;
+
+/**
+ * Captures what the device is playing through the screen-capture MediaProjection
+ * (Android 10+) and hands it to an {@link AudioPacketizer} on its own thread.
+ *
+ * Reads are one packet long so a packet leaves as soon as its last frame is
+ * captured; the AudioRecord buffer is only a few packets deep for the same reason.
+ */
+public final class PlaybackAudioCapture {
+
+    private static final String TAG = "PlaybackAudioCapture";
+    public static final int SAMPLE_RATE = 48000;
+    public static final int CHANNELS = 2;
+    // 10 ms: short enough to keep A/V skew small, long enough to keep header overhead low.
+    public static final int FRAMES_PER_PACKET = SAMPLE_RATE / 100;
+    private static final int BUFFER_PACKETS = 4;
+
+    private final Context context;
+    private final AudioPacketizer packetizer;
+    private AudioRecord audioRecord;
+    private Thread thread;
+    private volatile boolean running;
+
+    public PlaybackAudioCapture(Context context, AudioPacketizer.Sink sink) {
+        this.context = context;
+        this.packetizer = new AudioPacketizer(SAMPLE_RATE, CHANNELS, FRAMES_PER_PACKET, sink);
+    }
+
+    public static boolean isSupported(Context context) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+            && context.checkSelfPermission(Manifest.permission.RECORD_AUDIO) == PackageManager.PERMISSION_GRANTED;
+    }
+
+    public synchronized boolean start(MediaProjection projection) {
+        if (running) {
+            return true;
+        }
+        if (projection == null || !isSupported(context)) {
+            Log.w(TAG, "Playback capture unavailable (needs Android 10 and RECORD_AUDIO)");
+            return false;
+        }
+        AudioPlaybackCaptureConfiguration config = new AudioPlaybackCaptureConfiguration.Builder(projection)
+            .addMatchingUsage(AudioAttributes.USAGE_MEDIA)
+            .addMatchingUsage(AudioAttributes.USAGE_GAME)
+            .addMatchingUsage(AudioAttributes.USAGE_UNKNOWN)
+            .build();
+        AudioFormat format = new AudioFormat.Builder()
+            .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+            .setSampleRate(SAMPLE_RATE)
+            .setChannelMask(AudioFormat.CHANNEL_IN_STEREO)
+            .build();
+        int packetBytes = FRAMES_PER_PACKET * CHANNELS * 2;
+        int minBuffer = AudioRecord.getMinBufferSize(SAMPLE_RATE, AudioFormat.CHANNEL_IN_STEREO, AudioFormat.ENCODING_PCM_16BIT);
+        try {
+            audioRecord = new AudioRecord.Builder()
+                .setAudioFormat(format)
+                .setBufferSizeInBytes(Math.max(minBuffer, packetBytes * BUFFER_PACKETS))
+                .setAudioPlaybackCaptureConfig(config)
+                .build();
+            audioRecord.startRecording();
+        } catch (UnsupportedOperationException | IllegalStateException | SecurityException e) {
+            Log.e(TAG, "Could not start playback capture: " + e.getMessage());
+            release();
+            return false;
+        }
+
+        packetizer.reset();
+        running = true;
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                captureLoop();
+            }
+        }, "AudioCapture");
+        thread.start();
+        Log.d(TAG, "Playback capture started: " + SAMPLE_RATE + "Hz x" + CHANNELS + ", " + FRAMES_PER_PACKET + " frames/packet");
+        return true;
+    }
+
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        if (audioRecord != null) {
+            // Unblocks a pending read.
+            audioRecord.stop();
+        }
+        try {
+            thread.join(500);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        release();
+        Log.d(TAG, "Playback capture stopped after " + packetizer.getPacketsWritten() + " packet(s)");
+    }
+
+    private void captureLoop() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+        short[] pcm = new short[FRAMES_PER_PACKET * CHANNELS];
+        AudioTimestamp timestamp = new AudioTimestamp();
+        AudioClock clock = packetizer.getClock();
+        while (running) {
+            int samples = audioRecord.read(pcm, 0, pcm.length, AudioRecord.READ_BLOCKING);
+            if (samples <= 0) {
+                if (running) {
+                    Log.w(TAG, "AudioRecord read failed: " + samples);
+                }
+                break;
+            }
+            int frames = samples / CHANNELS;
+            if (audioRecord.getTimestamp(timestamp, AudioTimestamp.TIMEBASE_MONOTONIC) == AudioRecord.SUCCESS) {
+                clock.onTimestamp(timestamp.framePosition, timestamp.nanoTime);
+            } else {
+                clock.onRead(packetizer.getFramesRead() + frames, System.nanoTime());
+            }
+            packetizer.write(pcm, frames);
+        }
+    }
+
+    private void release() {
+        if (audioRecord != null) {
+            audioRecord.release();
+            audioRecord = null;
+        }
+    }
+}
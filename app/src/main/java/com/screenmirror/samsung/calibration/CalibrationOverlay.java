@@ -0,0 +1,96 @@
+package com.screenmirror.samsung.calibration;
+
+import android.accessibilityservice.AccessibilityService;
+import android.graphics.Color;
+import android.graphics.PixelFormat;
+import android.util.DisplayMetrics;
+import android.view.Gravity;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.WindowManager;
+
+/**
+ * Square target drawn over everything while touch-to-photon calibration runs.
+ *
+ * Each touch flips it between black and white, a change the
+ * {@link TouchToPhotonMeter} can spot in the captured frame with a handful of
+ * samples. It is an accessibility overlay, so it needs no extra permission and
+ * receives the gestures the same service injects. Main thread only.
+ */
+public final class CalibrationOverlay {
+
+    // Fraction of the shorter display side; large enough to survive a scaled-down capture.
+    private static final float TARGET_FRACTION = 0.2f;
+
+    private final AccessibilityService service;
+    private final TouchToPhotonMeter meter;
+    private final WindowManager windowManager;
+    private View target;
+    private boolean lit;
+
+    public CalibrationOverlay(AccessibilityService service, TouchToPhotonMeter meter) {
+        this.service = service;
+        this.meter = meter;
+        this.windowManager = (WindowManager) service.getSystemService(AccessibilityService.WINDOW_SERVICE);
+    }
+
+    public void show() {
+        if (target != null) {
+            return;
+        }
+        DisplayMetrics metrics = new DisplayMetrics();
+        windowManager.getDefaultDisplay().getRealMetrics(metrics);
+        int size = Math.round(Math.min(metrics.widthPixels, metrics.heightPixels) * TARGET_FRACTION);
+
+        WindowManager.LayoutParams params = new WindowManager.LayoutParams(
+            size, size,
+            WindowManager.LayoutParams.TYPE_ACCESSIBILITY_OVERLAY,
+            WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE
+                | WindowManager.LayoutParams.FLAG_NOT_TOUCH_MODAL
+                | WindowManager.LayoutParams.FLAG_LAYOUT_IN_SCREEN
+                | WindowManager.LayoutParams.FLAG_LAYOUT_NO_LIMITS,
+            PixelFormat.OPAQUE);
+        params.gravity = Gravity.TOP | Gravity.START;
+        params.x = (metrics.widthPixels - size) / 2;
+        params.y = (metrics.heightPixels - size) / 2;
+
+        final View view = new View(service);
+        view.setBackgroundColor(Color.BLACK);
+        view.setOnTouchListener(new View.OnTouchListener() {
+            @Override
+            public boolean onTouch(View v, MotionEvent event) {
+                if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+                    meter.onTargetTouched(System.nanoTime());
+                    lit = !lit;
+                    v.setBackgroundColor(lit ? Color.WHITE : Color.BLACK);
+                }
+                return true;
+            }
+        });
+        windowManager.addView(view, params);
+        target = view;
+
+        // Report where the window really landed; cutouts and insets can move it.
+        view.post(new Runnable() {
+            @Override
+            public void run() {
+                if (target != view) {
+                    return;
+                }
+                int[] location = new int[2];
+                view.getLocationOnScreen(location);
+                meter.start(location[0], location[1], view.getWidth(), view.getHeight());
+            }
+        });
+    }
+
+    public void hide() {
+        meter.stop();
+        if (target == null) {
+            return;
+        }
+        windowManager.removeView(target);
+        target = null;
+        lit = false;
+    }
+}
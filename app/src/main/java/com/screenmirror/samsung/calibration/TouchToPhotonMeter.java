@@ -0,0 +1,192 @@
+package com.screenmirror.samsung.calibration;
+
+import java.util.Locale;
+
+/**
+ * Measures how long a calibration tap takes from reaching the server to leaving
+ * it again as a frame that shows its effect.
+ *
+ * A probe is armed with the tap's input sequence when the touch message arrives.
+ * The calibration target reports when the injected gesture reached it; every
+ * captured frame is checked for a step change in the target region, and the
+ * first encoded frame at or after that capture completes the probe. The client
+ * owns the two network legs, so the server side reports three spans:
+ * gesture dispatch (received to delivered), compositor (delivered to captured)
+ * and encode (captured to published).
+ *
+ * Pure Java; one probe is in flight at a time and arming a new one abandons the last.
+ */
+public final class TouchToPhotonMeter {
+
+    /** Mean R+G+B step (0..765) that counts as the target having changed. */
+    private static final int CHANGE_THRESHOLD = 96;
+    /** Region samples per axis; the target is a flat colour, so a sparse grid is plenty. */
+    private static final int SAMPLES_PER_AXIS = 16;
+
+    public interface Listener {
+        /** The target is on screen at this display-pixel rectangle. */
+        void onTargetReady(int x, int y, int width, int height);
+
+        void onMeasured(Measurement measurement);
+    }
+
+    public static final class Measurement {
+        public final long inputSequence;
+        public final long frameSequence;
+        public final long dispatchNanos;
+        public final long compositorNanos;
+        public final long encodeNanos;
+
+        Measurement(long inputSequence, long frameSequence, long dispatchNanos, long compositorNanos, long encodeNanos) {
+            this.inputSequence = inputSequence;
+            this.frameSequence = frameSequence;
+            this.dispatchNanos = dispatchNanos;
+            this.compositorNanos = compositorNanos;
+            this.encodeNanos = encodeNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "seq=%d frame=%d dispatch=%.1fms compositor=%.1fms encode=%.1fms",
+                inputSequence, frameSequence, dispatchNanos / 1e6, compositorNanos / 1e6, encodeNanos / 1e6);
+        }
+    }
+
+    private final Listener listener;
+
+    private volatile boolean active;
+    // Target in display pixels.
+    private int targetX, targetY, targetWidth, targetHeight;
+    private int lastSignature = -1;
+
+    private long armedSequence = -1;
+    private long receivedNanos;
+    private long touchedNanos;
+    private long capturedNanos;
+    private long capturedFrameSequence = -1;
+
+    private long measurements;
+
+    public TouchToPhotonMeter(Listener listener) {
+        this.listener = listener;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public long getMeasurements() {
+        return measurements;
+    }
+
+    /** Called once the target is laid out; frames are compared from here on. */
+    public void start(int x, int y, int width, int height) {
+        synchronized (this) {
+            targetX = x;
+            targetY = y;
+            targetWidth = width;
+            targetHeight = height;
+            lastSignature = -1;
+            disarm();
+            measurements = 0;
+            active = true;
+        }
+        listener.onTargetReady(x, y, width, height);
+    }
+
+    public synchronized void stop() {
+        active = false;
+        disarm();
+    }
+
+    /** A calibration tap with {@code inputSequence} arrived and is about to be dispatched. */
+    public synchronized void arm(long inputSequence, long nowNanos) {
+        if (!active) {
+            return;
+        }
+        disarm();
+        armedSequence = inputSequence;
+        receivedNanos = nowNanos;
+    }
+
+    /** The injected gesture reached the target view. */
+    public synchronized void onTargetTouched(long nowNanos) {
+        if (armedSequence >= 0 && touchedNanos == 0) {
+            touchedNanos = nowNanos;
+        }
+    }
+
+    /**
+     * Checks a captured RGBA frame for the target's change. {@code displayWidth}
+     * maps the display-pixel target onto a frame captured at a reduced scale.
+     */
+    public void onFrameCaptured(byte[] rgba, int stride, int width, int height, int displayWidth,
+                                long frameSequence, long timestampNanos) {
+        if (!active) {
+            return;
+        }
+        synchronized (this) {
+            int signature = signature(rgba, stride, width, height, displayWidth > 0 ? width / (float) displayWidth : 1f);
+            int previous = lastSignature;
+            lastSignature = signature;
+            if (armedSequence < 0 || touchedNanos == 0 || capturedFrameSequence >= 0 || previous < 0) {
+                return;
+            }
+            if (Math.abs(signature - previous) >= CHANGE_THRESHOLD) {
+                capturedFrameSequence = frameSequence;
+                // Frames queued before the touch can still arrive after it; never report a negative span.
+                capturedNanos = Math.max(timestampNanos, touchedNanos);
+            }
+        }
+    }
+
+    /** A frame captured as {@code captureSequence} went out as {@code encodedSequence}. */
+    public void onFrameEncoded(long captureSequence, long encodedSequence, long nowNanos) {
+        if (!active) {
+            return;
+        }
+        Measurement measurement;
+        synchronized (this) {
+            if (capturedFrameSequence < 0 || captureSequence < capturedFrameSequence) {
+                return;
+            }
+            measurement = new Measurement(armedSequence, encodedSequence,
+                touchedNanos - receivedNanos, capturedNanos - touchedNanos, nowNanos - capturedNanos);
+            measurements++;
+            disarm();
+        }
+        listener.onMeasured(measurement);
+    }
+
+    private void disarm() {
+        armedSequence = -1;
+        receivedNanos = 0;
+        touchedNanos = 0;
+        capturedNanos = 0;
+        capturedFrameSequence = -1;
+    }
+
+    /** Mean R+G+B over a sparse grid inside the target, inset from its edges. */
+    private int signature(byte[] rgba, int stride, int width, int height, float scale) {
+        int left = Math.round((targetX + targetWidth / 4f) * scale);
+        int top = Math.round((targetY + targetHeight / 4f) * scale);
+        int right = Math.min(width - 1, Math.round((targetX + targetWidth * 3 / 4f) * scale));
+        int bottom = Math.min(height - 1, Math.round((targetY + targetHeight * 3 / 4f) * scale));
+        if (left < 0 || top < 0 || right <= left || bottom <= top) {
+            return 0;
+        }
+        int stepX = Math.max(1, (right - left) / SAMPLES_PER_AXIS);
+        int stepY = Math.max(1, (bottom - top) / SAMPLES_PER_AXIS);
+        long sum = 0;
+        int count = 0;
+        for (int y = top; y <= bottom; y += stepY) {
+            int row = y * stride;
+            for (int x = left; x <= right; x += stepX) {
+                int offset = row + x * 4;
+                sum += (rgba[offset] & 0xFF) + (rgba[offset + 1] & 0xFF) + (rgba[offset + 2] & 0xFF);
+                count++;
+            }
+        }
+        return (int) (sum / count);
+    }
+}
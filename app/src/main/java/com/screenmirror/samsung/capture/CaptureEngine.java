@@ -0,0 +1,347 @@
+package com.screenmirror.samsung.capture;
+
+import android.graphics.PixelFormat;
+import android.hardware.display.DisplayManager;
+import android.hardware.display.VirtualDisplay;
+import android.media.Image;
+import android.media.ImageReader;
+import android.media.projection.MediaProjection;
+import android.os.Handler;
+import android.util.Log;
+
+import com.screenmirror.samsung.trace.Tracer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Single owner of the MediaProjection capture pipeline.
+ *
+ * Exactly one ImageReader / VirtualDisplay pair exists per process. Each image
+ * is copied once into a pooled {@link CaptureFrame} and then fanned out to all
+ * registered {@link FrameSink}s, so adding a consumer never adds a capture or a copy.
+ */
+public final class CaptureEngine {
+
+    private static final String TAG = "CaptureEngine";
+    private static final int DEFAULT_READER_IMAGES = 2;
+    // Being filled, pending encode, being encoded, and the delta encoder's reference frame.
+    private static final int MAX_POOLED_FRAMES = 4;
+    private static final long ERROR_REPORT_INTERVAL_MS = 5000;
+    // Warm start fills the buffers the steady state always holds: one in flight, one reference.
+    private static final int PREALLOCATED_FRAMES = 2;
+
+    private static final Tracer TRACER = Tracer.getInstance();
+    private static final int TRACE_ACQUIRE = TRACER.event("capture.acquire");
+    private static final int TRACE_CONVERT = TRACER.event("capture.convert");
+    private static final int TRACE_DISPATCH = TRACER.event("capture.dispatch");
+    private static final int TRACE_POOL_EXHAUSTED = TRACER.event("capture.poolExhausted");
+
+    private static final CaptureEngine INSTANCE = new CaptureEngine();
+
+    public static CaptureEngine getInstance() {
+        return INSTANCE;
+    }
+
+    private final CopyOnWriteArrayList<FrameSink> sinks = new CopyOnWriteArrayList<>();
+    private final FrameBufferPool framePool = new FrameBufferPool(MAX_POOLED_FRAMES);
+
+    // Touched only on the capture thread; reported at most once per interval.
+    private final ErrorCounter acquireErrors = new ErrorCounter("acquire", ERROR_REPORT_INTERVAL_MS);
+    private final ErrorCounter dispatchErrors = new ErrorCounter("dispatch", ERROR_REPORT_INTERVAL_MS);
+    private final ErrorCounter poolExhausted = new ErrorCounter("poolExhausted", ERROR_REPORT_INTERVAL_MS);
+
+    private MediaProjection mediaProjection;
+    private volatile ImageReader imageReader;
+    private VirtualDisplay virtualDisplay;
+    private volatile boolean running;
+    private Handler handler;
+    private volatile int width;
+    private volatile int height;
+    private int displayWidth;
+    private int displayHeight;
+    private int displayDensity;
+    private volatile float captureScale = 1f;
+    private volatile int readerImages = DEFAULT_READER_IMAGES;
+    // Depth of the live ImageReader; guarded by this.
+    private int currentReaderImages;
+    private long frameSequence;
+
+    private CaptureEngine() {
+    }
+
+    public void addSink(FrameSink sink) {
+        if (sinks.addIfAbsent(sink) && running) {
+            sink.onCaptureStarted(width, height);
+        }
+    }
+
+    public void removeSink(FrameSink sink) {
+        sinks.remove(sink);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public FrameBufferPool getFramePool() {
+        return framePool;
+    }
+
+    public String getErrorSummary() {
+        return acquireErrors + " " + dispatchErrors + " " + poolExhausted;
+    }
+
+    /**
+     * Allocates frame buffers for the expected capture size before projection
+     * consent, so the first captured frame doesn't wait on the allocator.
+     */
+    public void prepare(int width, int height) {
+        framePool.preallocate(width, height, PREALLOCATED_FRAMES);
+        Log.d(TAG, "Frame pool prepared: " + framePool.getFreeCount() + " x " + width + "x" + height);
+    }
+
+    /**
+     * Starts capturing. {@code handler} receives the ImageReader and VirtualDisplay
+     * callbacks and must belong to a dedicated capture thread, never the main looper.
+     * {@code width} and {@code height} are the display size; frames come out at
+     * that size times the current {@link #setCaptureScale capture scale}.
+     */
+    public synchronized void start(MediaProjection projection, int width, int height, int density, Handler handler) {
+        if (running) {
+            Log.w(TAG, "Capture already running, ignoring start.");
+            return;
+        }
+        this.mediaProjection = projection;
+        this.displayWidth = width;
+        this.displayHeight = height;
+        this.displayDensity = density;
+        this.handler = handler;
+        this.width = scaled(width);
+        this.height = scaled(height);
+
+        imageReader = newImageReader(this.width, this.height);
+        virtualDisplay = projection.createVirtualDisplay(
+            "ScreenMirror",
+            this.width,
+            this.height,
+            scaled(density),
+            DisplayManager.VIRTUAL_DISPLAY_FLAG_AUTO_MIRROR,
+            imageReader.getSurface(),
+            null,
+            handler
+        );
+
+        running = true;
+        StartupMetrics.getInstance().markCaptureStarted();
+        for (FrameSink sink : sinks) {
+            sink.onCaptureStarted(this.width, this.height);
+        }
+        Log.d(TAG, "Capture started: " + this.width + "x" + this.height + " @" + density + "dpi, scale " + captureScale);
+    }
+
+    /**
+     * Scales the captured frames relative to the display, e.g. to shed load when
+     * the device runs hot. The projection stays up: the virtual display is resized
+     * and pointed at a new ImageReader between two frames on the capture thread,
+     * and sinks see {@link FrameSink#onCaptureStarted} with the new size.
+     */
+    public synchronized void setCaptureScale(float scale) {
+        configure(scale, readerImages);
+    }
+
+    /**
+     * Sets capture scale and ImageReader depth together, so a profile switch
+     * replaces the reader once rather than once per setting. Like a scale
+     * change, a new depth takes effect between two frames without touching
+     * the projection.
+     *
+     * @param readerImages images the reader can hold; at least 2 for acquireLatestImage
+     */
+    public synchronized void configure(float scale, int readerImages) {
+        if (!(scale > 0 && scale <= 1)) {
+            throw new IllegalArgumentException("Capture scale must be in (0, 1]: " + scale);
+        }
+        if (readerImages < 2) {
+            throw new IllegalArgumentException("ImageReader needs at least 2 images: " + readerImages);
+        }
+        captureScale = scale;
+        this.readerImages = readerImages;
+        if (running) {
+            handler.post(resizeTask);
+        }
+    }
+
+    public float getCaptureScale() {
+        return captureScale;
+    }
+
+    public int getDisplayWidth() {
+        return displayWidth;
+    }
+
+    public int getDisplayHeight() {
+        return displayHeight;
+    }
+
+    /** The running projection, for consumers that capture more than video from it; null when stopped. */
+    public synchronized MediaProjection getMediaProjection() {
+        return running ? mediaProjection : null;
+    }
+
+    private final Runnable resizeTask = new Runnable() {
+        @Override
+        public void run() {
+            applyCaptureScale();
+        }
+    };
+
+    private synchronized void applyCaptureScale() {
+        int newWidth = scaled(displayWidth);
+        int newHeight = scaled(displayHeight);
+        boolean resized = newWidth != width || newHeight != height;
+        if (!running || (!resized && readerImages == currentReaderImages)) {
+            return;
+        }
+        ImageReader previous = imageReader;
+        imageReader = newImageReader(newWidth, newHeight);
+        if (resized) {
+            virtualDisplay.resize(newWidth, newHeight, scaled(displayDensity));
+        }
+        virtualDisplay.setSurface(imageReader.getSurface());
+        previous.close();
+        if (!resized) {
+            Log.d(TAG, "Capture reader depth: " + currentReaderImages);
+            return;
+        }
+        width = newWidth;
+        height = newHeight;
+        // Idle buffers are the old size; let the pool reallocate at the new one.
+        framePool.trim();
+        for (FrameSink sink : sinks) {
+            sink.onCaptureStarted(newWidth, newHeight);
+        }
+        Log.d(TAG, "Capture resized: " + newWidth + "x" + newHeight + ", scale " + captureScale
+            + ", reader depth " + currentReaderImages);
+    }
+
+    private ImageReader newImageReader(int width, int height) {
+        currentReaderImages = readerImages;
+        ImageReader reader = ImageReader.newInstance(width, height, PixelFormat.RGBA_8888, currentReaderImages);
+        reader.setOnImageAvailableListener(new ImageReader.OnImageAvailableListener() {
+            @Override
+            public void onImageAvailable(ImageReader reader) {
+                dispatchLatestImage(reader);
+            }
+        }, handler);
+        return reader;
+    }
+
+    /** Scaled size, kept even so chroma-subsampled encoders never see odd dimensions. */
+    private int scaled(int size) {
+        return Math.max(2, Math.round(size * captureScale) & ~1);
+    }
+
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+
+        if (virtualDisplay != null) {
+            virtualDisplay.release();
+            virtualDisplay = null;
+        }
+        if (imageReader != null) {
+            imageReader.close();
+            imageReader = null;
+        }
+        if (mediaProjection != null) {
+            mediaProjection.stop();
+            mediaProjection = null;
+        }
+        for (FrameSink sink : sinks) {
+            sink.onCaptureStopped();
+        }
+        framePool.trim();
+        Log.d(TAG, "Capture stopped.");
+    }
+
+    private void dispatchLatestImage(ImageReader reader) {
+        if (reader != imageReader) {
+            // A callback for a reader replaced by a resize was still queued.
+            return;
+        }
+        Image image = null;
+        try {
+            long traceStart = TRACER.begin();
+            image = reader.acquireLatestImage();
+            TRACER.end(TRACE_ACQUIRE, traceStart);
+            if (image == null || sinks.isEmpty()) {
+                return;
+            }
+
+            CaptureFrame frame = framePool.acquire(width, height, image.getTimestamp(), frameSequence++);
+            if (frame == null) {
+                // Every buffer is still held by a slow sink; skip rather than stall the reader.
+                TRACER.instant(TRACE_POOL_EXHAUSTED);
+                if (poolExhausted.record(System.nanoTime())) {
+                    Log.w(TAG, "Frame pool exhausted, dropped " + poolExhausted.drainUnreported()
+                        + " frame(s) (total " + poolExhausted.getTotal() + ")");
+                }
+                return;
+            }
+            try {
+                long convertStart = TRACER.begin();
+                copyPlane(image.getPlanes()[0], frame);
+                TRACER.end(TRACE_CONVERT, convertStart);
+                StartupMetrics.getInstance().markFirstFrameCaptured();
+                long dispatchStart = TRACER.begin();
+                for (FrameSink sink : sinks) {
+                    sink.onFrame(frame);
+                }
+                TRACER.end(TRACE_DISPATCH, dispatchStart);
+            } finally {
+                frame.release();
+            }
+        } catch (IllegalStateException e) {
+            if (acquireErrors.record(System.nanoTime())) {
+                Log.w(TAG, "ImageReader acquire error x" + acquireErrors.drainUnreported()
+                    + " (total " + acquireErrors.getTotal() + "): " + e.getMessage());
+            }
+        } catch (Exception e) {
+            if (dispatchErrors.record(System.nanoTime())) {
+                Log.e(TAG, "Error dispatching frame x" + dispatchErrors.drainUnreported()
+                    + " (total " + dispatchErrors.getTotal() + ")", e);
+            }
+        } finally {
+            if (image != null) {
+                image.close();
+            }
+        }
+    }
+
+    private static void copyPlane(Image.Plane plane, CaptureFrame frame) {
+        ByteBuffer buffer = plane.getBuffer();
+        byte[] dst = frame.getData();
+        int rowBytes = frame.getStride();
+        int rowStride = plane.getRowStride();
+
+        if (rowStride == rowBytes) {
+            buffer.get(dst, 0, rowBytes * frame.getHeight());
+            return;
+        }
+        for (int row = 0; row < frame.getHeight(); row++) {
+            buffer.position(row * rowStride);
+            buffer.get(dst, row * rowBytes, rowBytes);
+        }
+    }
+}
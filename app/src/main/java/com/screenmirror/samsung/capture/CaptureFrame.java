@@ -0,0 +1,82 @@
+package com.screenmirror.samsung.capture;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reference-counted RGBA frame buffer owned by a {@link FrameBufferPool}.
+ *
+ * Pixels are tightly packed (stride == width * 4) so sinks never have to care
+ * about the row padding of the ImageReader plane they were copied from.
+ */
+public final class CaptureFrame {
+
+    private final FrameBufferPool pool;
+    private final AtomicInteger refCount = new AtomicInteger();
+
+    private byte[] data;
+    private int width;
+    private int height;
+    private long timestampNanos;
+    private long sequence;
+
+    CaptureFrame(FrameBufferPool pool) {
+        this.pool = pool;
+    }
+
+    void reset(int width, int height, long timestampNanos, long sequence) {
+        resize(width, height);
+        this.width = width;
+        this.height = height;
+        this.timestampNanos = timestampNanos;
+        this.sequence = sequence;
+        refCount.set(1);
+    }
+
+    void resize(int width, int height) {
+        int size = width * height * 4;
+        if (data == null || data.length != size) {
+            data = new byte[size];
+        }
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getStride() {
+        return width * 4;
+    }
+
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public CaptureFrame retain() {
+        if (refCount.getAndIncrement() <= 0) {
+            refCount.decrementAndGet();
+            throw new IllegalStateException("Frame " + sequence + " already released");
+        }
+        return this;
+    }
+
+    public void release() {
+        int remaining = refCount.decrementAndGet();
+        if (remaining == 0) {
+            pool.recycle(this);
+        } else if (remaining < 0) {
+            throw new IllegalStateException("Frame " + sequence + " released too many times");
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.screenmirror.samsung.capture;
+
+/**
+ * Counts recurring errors on a hot path and decides when they are worth reporting.
+ *
+ * {@link #record(long)} is cheap and lock-free for the single capture thread that
+ * calls it. It returns {@code true} at most once per interval; the caller then
+ * logs {@link #drainUnreported()} occurrences in one line instead of one line
+ * (or one Toast) per frame.
+ */
+public final class ErrorCounter {
+
+    private final String name;
+    private final long reportIntervalNanos;
+
+    private volatile long total;
+    private long unreported;
+    private long lastReportNanos;
+    private boolean reportedOnce;
+
+    public ErrorCounter(String name, long reportIntervalMillis) {
+        this.name = name;
+        this.reportIntervalNanos = reportIntervalMillis * 1_000_000L;
+    }
+
+    public boolean record(long nowNanos) {
+        total++;
+        unreported++;
+        if (!reportedOnce || nowNanos - lastReportNanos >= reportIntervalNanos) {
+            reportedOnce = true;
+            lastReportNanos = nowNanos;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the occurrences since the previous drain and resets that count.
+     */
+    public long drainUnreported() {
+        long count = unreported;
+        unreported = 0;
+        return count;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return name + "=" + total;
+    }
+}
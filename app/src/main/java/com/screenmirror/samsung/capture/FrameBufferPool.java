@@ -0,0 +1,83 @@
+package com.screenmirror.samsung.capture;
+
+import java.util.ArrayDeque;
+
+/**
+ * Bounded pool of {@link CaptureFrame} buffers shared by every sink.
+ *
+ * A full-resolution RGBA frame is tens of megabytes, so the pool never grows
+ * past {@code maxFrames}. When every buffer is still referenced the capture
+ * side drops the frame instead of allocating or blocking.
+ */
+public final class FrameBufferPool {
+
+    private final int maxFrames;
+    private final ArrayDeque<CaptureFrame> free = new ArrayDeque<>();
+    private int allocated;
+    private long exhaustedCount;
+
+    public FrameBufferPool(int maxFrames) {
+        if (maxFrames < 1) {
+            throw new IllegalArgumentException("maxFrames must be positive: " + maxFrames);
+        }
+        this.maxFrames = maxFrames;
+    }
+
+    /**
+     * Returns a frame holding one reference, or {@code null} if all buffers are in use.
+     */
+    public synchronized CaptureFrame acquire(int width, int height, long timestampNanos, long sequence) {
+        CaptureFrame frame = free.pollFirst();
+        if (frame == null) {
+            if (allocated >= maxFrames) {
+                exhaustedCount++;
+                return null;
+            }
+            frame = new CaptureFrame(this);
+            allocated++;
+        }
+        frame.reset(width, height, timestampNanos, sequence);
+        return frame;
+    }
+
+    /**
+     * Allocates idle buffers ahead of capture so the first frames don't pay for
+     * multi-megabyte allocations. Never exceeds {@code maxFrames}.
+     */
+    public synchronized void preallocate(int width, int height, int count) {
+        int target = Math.min(count, maxFrames);
+        for (CaptureFrame frame : free) {
+            frame.resize(width, height);
+        }
+        while (free.size() < target && allocated < maxFrames) {
+            CaptureFrame frame = new CaptureFrame(this);
+            frame.resize(width, height);
+            free.addLast(frame);
+            allocated++;
+        }
+    }
+
+    synchronized void recycle(CaptureFrame frame) {
+        free.addFirst(frame);
+    }
+
+    /**
+     * Drops idle buffers, e.g. after the capture resolution changed.
+     */
+    public synchronized void trim() {
+        allocated -= free.size();
+        free.clear();
+    }
+
+    public synchronized int getAllocatedCount() {
+        return allocated;
+    }
+
+    public synchronized int getFreeCount() {
+        return free.size();
+    }
+
+    public synchronized long getExhaustedCount() {
+        return exhaustedCount;
+    }
+}
@@ -0,0 +1,17 @@
+package com.screenmirror.samsung.capture;
+
+/**
+ * Consumer of captured frames registered with {@link CaptureEngine}.
+ *
+ * Callbacks run on the capture thread and must return quickly. A sink that
+ * needs the pixels after {@link #onFrame} returns has to {@link CaptureFrame#retain()}
+ * the frame and {@link CaptureFrame#release()} it once done.
+ */
+public interface FrameSink {
+
+    void onCaptureStarted(int width, int height);
+
+    void onFrame(CaptureFrame frame);
+
+    void onCaptureStopped();
+}
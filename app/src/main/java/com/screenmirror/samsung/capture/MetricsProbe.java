@@ -0,0 +1,69 @@
+package com.screenmirror.samsung.capture;
+
+import java.util.Locale;
+
+/**
+ * Lightweight {@link FrameSink} that tracks capture rate and pool pressure.
+ *
+ * It never retains frames, so it adds no copies and no buffer pressure.
+ */
+public final class MetricsProbe implements FrameSink {
+
+    private final FrameBufferPool pool;
+
+    private volatile long framesCaptured;
+    private volatile long lastFrameNanos;
+    private volatile double averageIntervalMillis;
+    private volatile long captureStartNanos;
+
+    public MetricsProbe(FrameBufferPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void onCaptureStarted(int width, int height) {
+        framesCaptured = 0;
+        lastFrameNanos = 0;
+        averageIntervalMillis = 0;
+        captureStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void onFrame(CaptureFrame frame) {
+        long now = frame.getTimestampNanos();
+        if (lastFrameNanos != 0) {
+            double interval = (now - lastFrameNanos) / 1_000_000.0;
+            averageIntervalMillis = averageIntervalMillis == 0
+                ? interval
+                : averageIntervalMillis * 0.9 + interval * 0.1;
+        }
+        lastFrameNanos = now;
+        framesCaptured++;
+    }
+
+    @Override
+    public void onCaptureStopped() {
+    }
+
+    public long getFramesCaptured() {
+        return framesCaptured;
+    }
+
+    public double getAverageFps() {
+        return averageIntervalMillis > 0 ? 1000.0 / averageIntervalMillis : 0;
+    }
+
+    public long getFramesDropped() {
+        return pool.getExhaustedCount();
+    }
+
+    public long getUptimeMillis() {
+        return captureStartNanos == 0 ? 0 : (System.nanoTime() - captureStartNanos) / 1_000_000;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "frames=%d fps=%.1f dropped=%d pooled=%d",
+            framesCaptured, getAverageFps(), getFramesDropped(), pool.getAllocatedCount());
+    }
+}
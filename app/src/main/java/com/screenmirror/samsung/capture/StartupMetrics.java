@@ -0,0 +1,117 @@
+package com.screenmirror.samsung.capture;
+
+import java.util.Locale;
+
+/**
+ * Timeline of one mirroring start, from app launch to the first frame on the wire.
+ *
+ * The server, buffer pool and encoder are warmed up at launch, before the user
+ * grants screen capture, so what remains after consent should be little more
+ * than projection and encoder start-up. The headline number is
+ * {@link #getTimeToFirstFrameMillis()}: consent to the first encoded frame.
+ * Frames are only encoded once a viewer or sink wants them, so time spent
+ * waiting for the first viewer is reported as its own span and left out of
+ * the headline.
+ *
+ * Marks are cheap and idempotent per session; {@link #markConsentGranted()}
+ * starts a new session.
+ */
+public final class StartupMetrics {
+
+    private static final StartupMetrics INSTANCE = new StartupMetrics();
+
+    public static StartupMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    private volatile long launchNanos;
+    private volatile long warmNanos;
+    private volatile long consentNanos;
+    private volatile long captureStartedNanos;
+    private volatile long firstCapturedNanos;
+    private volatile long firstAcceptedNanos;
+    private volatile long firstEncodedNanos;
+
+    private StartupMetrics() {
+    }
+
+    public void markLaunch() {
+        if (launchNanos == 0) {
+            launchNanos = System.nanoTime();
+        }
+    }
+
+    public void markWarm() {
+        warmNanos = System.nanoTime();
+    }
+
+    public synchronized void markConsentGranted() {
+        consentNanos = System.nanoTime();
+        captureStartedNanos = 0;
+        firstCapturedNanos = 0;
+        firstAcceptedNanos = 0;
+        firstEncodedNanos = 0;
+    }
+
+    public void markCaptureStarted() {
+        if (captureStartedNanos == 0) {
+            captureStartedNanos = System.nanoTime();
+        }
+    }
+
+    public void markFirstFrameCaptured() {
+        if (firstCapturedNanos == 0) {
+            firstCapturedNanos = System.nanoTime();
+        }
+    }
+
+    /** The first captured frame that a viewer or sink was there to take. */
+    public void markFirstFrameAccepted() {
+        if (firstAcceptedNanos == 0) {
+            firstAcceptedNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Returns {@code true} exactly once per session, for the caller to report the timeline.
+     */
+    public synchronized boolean markFirstFrameEncoded() {
+        if (firstEncodedNanos != 0 || consentNanos == 0) {
+            return false;
+        }
+        firstEncodedNanos = System.nanoTime();
+        return true;
+    }
+
+    public boolean isWarm() {
+        return warmNanos != 0;
+    }
+
+    /** Consent to first encoded frame, less any wait for a viewer, or -1 if not reached yet. */
+    public long getTimeToFirstFrameMillis() {
+        long total = span(consentNanos, firstEncodedNanos);
+        return total < 0 ? -1 : total - Math.max(0, getViewerWaitMillis());
+    }
+
+    /** First captured frame to the first one a viewer took, or -1 if not reached yet. */
+    public long getViewerWaitMillis() {
+        return span(firstCapturedNanos, firstAcceptedNanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+            "timeToFirstFrame=%dms (consent->capture=%dms capture->frame=%dms accepted->encoded=%dms) viewerWait=%dms warmUp=%dms warmBeforeConsent=%b",
+            getTimeToFirstFrameMillis(),
+            span(consentNanos, captureStartedNanos),
+            span(captureStartedNanos, firstCapturedNanos),
+            span(firstAcceptedNanos, firstEncodedNanos),
+            getViewerWaitMillis(),
+            span(launchNanos, warmNanos),
+            warmNanos != 0 && warmNanos <= consentNanos);
+    }
+
+    private static long span(long fromNanos, long toNanos) {
+        return fromNanos == 0 || toNanos == 0 ? -1 : (toNanos - fromNanos) / 1_000_000L;
+    }
+}
@@ -0,0 +1,198 @@
+package com.screenmirror.samsung.codec;
+
+/**
+ * Finds the tiles of the current frame that differ from the client's reference
+ * image, i.e. the previous frame with an optional {@link Motion} already applied.
+ *
+ * Rows whose hash matches the corresponding reference row are skipped without
+ * touching pixels, so a scroll only costs a pixel compare on the exposed strip.
+ * Dirty tiles are merged into horizontal runs and then stacked vertically when
+ * consecutive runs share the same span, which keeps the rectangle count low.
+ *
+ * Results are kept in a flat {@code x, y, width, height} array that is reused
+ * between frames. Not thread-safe.
+ */
+public final class DamageTracker {
+
+    private final int tileSize;
+
+    private int[] rects = new int[64];
+    private int rectCount;
+    private long dirtyPixels;
+    private boolean[] dirtyRows = new boolean[0];
+    private boolean[] tileDirty = new boolean[0];
+
+    public DamageTracker(int tileSize) {
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * @param prevRowHashes row hashes of {@code previous}, as produced by {@link ScrollDetector}
+     * @param curRowHashes  row hashes of {@code current}
+     * @param motion        shift already applied to the reference, or {@code null}
+     * @return the number of dirty pixels, rounded up to whole tiles
+     */
+    public long compute(byte[] previous, byte[] current, int width, int height,
+                        int[] prevRowHashes, int[] curRowHashes, Motion motion) {
+        return compute(previous, current, width, height, prevRowHashes, curRowHashes, motion, null);
+    }
+
+    /**
+     * Same as above, but only looks at the tile-aligned {@code clip}
+     * ({@code null} for the whole frame); damage outside it is not reported.
+     */
+    public long compute(byte[] previous, byte[] current, int width, int height,
+                        int[] prevRowHashes, int[] curRowHashes, Motion motion, Viewport clip) {
+        rectCount = 0;
+        dirtyPixels = 0;
+        int clipX0 = clip == null ? 0 : clip.x;
+        int clipY0 = clip == null ? 0 : clip.y;
+        int clipX1 = clip == null ? width : clip.x + clip.width;
+        int clipY1 = clip == null ? height : clip.y + clip.height;
+        if (dirtyRows.length < height) {
+            dirtyRows = new boolean[height];
+        }
+        for (int y = clipY0; y < clipY1; y++) {
+            dirtyRows[y] = !rowMatchesReference(y, height, prevRowHashes, curRowHashes, motion);
+        }
+
+        int tilesX = (width + tileSize - 1) / tileSize;
+        if (tileDirty.length < tilesX) {
+            tileDirty = new boolean[tilesX];
+        }
+        int firstTileX = clipX0 / tileSize;
+        int lastTileX = (clipX1 + tileSize - 1) / tileSize;
+        for (int y0 = clipY0; y0 < clipY1; y0 += tileSize) {
+            int y1 = Math.min(clipY1, y0 + tileSize);
+            boolean anyDirtyRow = false;
+            for (int y = y0; y < y1 && !anyDirtyRow; y++) {
+                anyDirtyRow = dirtyRows[y];
+            }
+            if (!anyDirtyRow) {
+                continue;
+            }
+            for (int tx = firstTileX; tx < lastTileX; tx++) {
+                int x0 = tx * tileSize;
+                int x1 = Math.min(clipX1, x0 + tileSize);
+                tileDirty[tx] = !tileMatchesReference(previous, current, width, x0, x1, y0, y1, motion);
+            }
+            int rowRectsStart = rectCount;
+            for (int tx = firstTileX; tx < lastTileX; tx++) {
+                if (!tileDirty[tx]) {
+                    continue;
+                }
+                int end = tx;
+                while (end + 1 < lastTileX && tileDirty[end + 1]) {
+                    end++;
+                }
+                int x0 = tx * tileSize;
+                int x1 = Math.min(clipX1, (end + 1) * tileSize);
+                dirtyPixels += (long) (x1 - x0) * (y1 - y0);
+                if (!extendAbove(rowRectsStart, x0, x1 - x0, y0, y1 - y0)) {
+                    addRect(x0, y0, x1 - x0, y1 - y0);
+                }
+                tx = end;
+            }
+        }
+        return dirtyPixels;
+    }
+
+    public int getRectCount() {
+        return rectCount;
+    }
+
+    /** Flat {@code x, y, width, height} quadruples; valid up to {@link #getRectCount()}. */
+    public int[] getRects() {
+        return rects;
+    }
+
+    public long getDirtyPixels() {
+        return dirtyPixels;
+    }
+
+    private boolean rowMatchesReference(int y, int height, int[] prevRowHashes, int[] curRowHashes, Motion motion) {
+        if (motion == null || y < motion.y || y >= motion.y + motion.height) {
+            return curRowHashes[y] == prevRowHashes[y];
+        }
+        if (motion.dx != 0 || motion.x != 0) {
+            // A horizontal shift (or a partial-width band) cannot be checked by row hash.
+            return false;
+        }
+        int source = y + motion.dy;
+        return source >= 0 && source < height && curRowHashes[y] == prevRowHashes[source];
+    }
+
+    private boolean tileMatchesReference(byte[] previous, byte[] current, int width,
+                                         int x0, int x1, int y0, int y1, Motion motion) {
+        for (int y = y0; y < y1; y++) {
+            if (!dirtyRows[y]) {
+                continue;
+            }
+            if (motion == null || y < motion.y || y >= motion.y + motion.height) {
+                if (!segmentEquals(previous, current, width, x0, x1, y, 0, 0)) {
+                    return false;
+                }
+                continue;
+            }
+            int inStart = Math.max(x0, motion.x);
+            int inEnd = Math.min(x1, motion.x + motion.width);
+            if (inStart >= inEnd) {
+                if (!segmentEquals(previous, current, width, x0, x1, y, 0, 0)) {
+                    return false;
+                }
+                continue;
+            }
+            if (!segmentEquals(previous, current, width, x0, inStart, y, 0, 0)
+                    || !segmentEquals(previous, current, width, inStart, inEnd, y, motion.dx, motion.dy)
+                    || !segmentEquals(previous, current, width, inEnd, x1, y, 0, 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean segmentEquals(byte[] previous, byte[] current, int width,
+                                         int x0, int x1, int y, int dx, int dy) {
+        if (x0 >= x1) {
+            return true;
+        }
+        int cur = (y * width + x0) * 4;
+        int prev = ((y + dy) * width + x0 + dx) * 4;
+        if (prev < 0 || prev + (x1 - x0) * 4 > previous.length) {
+            return false;
+        }
+        int end = cur + (x1 - x0) * 4;
+        while (cur < end) {
+            if (current[cur++] != previous[prev++]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Grows a rectangle ending on the previous tile row when it has exactly the same span. */
+    private boolean extendAbove(int limit, int x, int w, int y, int h) {
+        for (int i = 0; i < limit; i++) {
+            int base = i * 4;
+            if (rects[base] == x && rects[base + 2] == w && rects[base + 1] + rects[base + 3] == y) {
+                rects[base + 3] += h;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addRect(int x, int y, int w, int h) {
+        int base = rectCount * 4;
+        if (base + 4 > rects.length) {
+            int[] grown = new int[rects.length * 2];
+            System.arraycopy(rects, 0, grown, 0, rects.length);
+            rects = grown;
+        }
+        rects[base] = x;
+        rects[base + 1] = y;
+        rects[base + 2] = w;
+        rects[base + 3] = h;
+        rectCount++;
+    }
+}
@@ -0,0 +1,102 @@
+package com.screenmirror.samsung.codec;
+
+import java.util.Arrays;
+
+/**
+ * Builds the payload of a delta frame: an ordered list of drawing operations
+ * the client applies to its copy of the previous frame.
+ * <pre>
+ *   u32 baseSequence     sequence of the frame this delta applies to
+ *   u16 opCount
+ *   op* :
+ *     u8 OP_COPY_RECT    u16 x, y, width, height; s16 dx, dy
+ *                        (copies the reference at x+dx, y+dy to x, y)
+ *     u8 OP_JPEG_RECT    u16 x, y, width, height; u32 length; JPEG bytes
+ *     u8 OP_TILE_RECT    u16 x, y, width, height; u32 length; {@link TileCodec} bytes
+ * </pre>
+ * All integers are big-endian. Copy operations always come first because they
+ * read from the reference image that later operations overwrite.
+ */
+public final class DeltaFrameWriter {
+
+    public static final int OP_COPY_RECT = 1;
+    public static final int OP_JPEG_RECT = 2;
+    public static final int OP_TILE_RECT = 3;
+
+    private static final int HEADER_LENGTH = 6;
+
+    private byte[] buffer = new byte[64 * 1024];
+    private int position;
+    private int opCount;
+
+    public void begin(long baseSequence) {
+        position = HEADER_LENGTH;
+        opCount = 0;
+        putInt(0, (int) baseSequence);
+    }
+
+    public void copyRect(Motion motion) {
+        ensure(13);
+        buffer[position++] = OP_COPY_RECT;
+        putRect(motion.x, motion.y, motion.width, motion.height);
+        putShort(position, motion.dx);
+        putShort(position + 2, motion.dy);
+        position += 4;
+        opCount++;
+    }
+
+    public void jpegRect(int x, int y, int width, int height, byte[] jpeg, int length) {
+        dataRect(OP_JPEG_RECT, x, y, width, height, jpeg, length);
+    }
+
+    public void tileRect(int x, int y, int width, int height, byte[] tile, int length) {
+        dataRect(OP_TILE_RECT, x, y, width, height, tile, length);
+    }
+
+    private void dataRect(int op, int x, int y, int width, int height, byte[] data, int length) {
+        ensure(13 + length);
+        buffer[position++] = (byte) op;
+        putRect(x, y, width, height);
+        putInt(position, length);
+        position += 4;
+        System.arraycopy(data, 0, buffer, position, length);
+        position += length;
+        opCount++;
+    }
+
+    public int getOpCount() {
+        return opCount;
+    }
+
+    /** Returns a copy of the finished payload; the writer can be reused afterwards. */
+    public byte[] finish() {
+        putShort(4, opCount);
+        return Arrays.copyOf(buffer, position);
+    }
+
+    private void putRect(int x, int y, int width, int height) {
+        putShort(position, x);
+        putShort(position + 2, y);
+        putShort(position + 4, width);
+        putShort(position + 6, height);
+        position += 8;
+    }
+
+    private void ensure(int bytes) {
+        if (position + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+        }
+    }
+
+    private void putShort(int offset, int value) {
+        buffer[offset] = (byte) (value >>> 8);
+        buffer[offset + 1] = (byte) value;
+    }
+
+    private void putInt(int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+}
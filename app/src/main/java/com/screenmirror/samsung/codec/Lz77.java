@@ -0,0 +1,144 @@
+package com.screenmirror.samsung.codec;
+
+import java.util.Arrays;
+
+/**
+ * Small LZ77 block compressor in the LZ4 token style, used for palette index streams.
+ *
+ * Each sequence is a token byte (literal length in the high nibble, match
+ * length minus {@value #MIN_MATCH} in the low nibble; 15 means "more length
+ * bytes follow", each 255 continuing), the literals, then a big-endian u16
+ * offset back into the output. Offsets may be shorter than the match, which is
+ * how runs of a single index (flat UI areas) collapse to a few bytes. The last
+ * sequence carries literals only.
+ *
+ * The caller provides the hash table so compressing a tile never allocates.
+ */
+public final class Lz77 {
+
+    private static final int HASH_BITS = 12;
+    public static final int HASH_TABLE_SIZE = 1 << HASH_BITS;
+
+    private static final int MIN_MATCH = 4;
+    private static final int MAX_OFFSET = 0xFFFF;
+
+    private Lz77() {
+    }
+
+    /** Upper bound on the compressed size of {@code length} input bytes. */
+    public static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * @param table scratch array of {@link #HASH_TABLE_SIZE} ints
+     * @return bytes written to {@code dst}
+     */
+    public static int compress(byte[] src, int length, byte[] dst, int dstOffset, int[] table) {
+        Arrays.fill(table, -1);
+        int out = dstOffset;
+        int anchor = 0;
+        int i = 0;
+        int limit = length - MIN_MATCH;
+        while (i <= limit) {
+            int sequence = read4(src, i);
+            int slot = hash(sequence);
+            int candidate = table[slot];
+            table[slot] = i;
+            if (candidate < 0 || i - candidate > MAX_OFFSET || read4(src, candidate) != sequence) {
+                i++;
+                continue;
+            }
+            int matchLength = MIN_MATCH;
+            while (i + matchLength < length && src[candidate + matchLength] == src[i + matchLength]) {
+                matchLength++;
+            }
+            out = writeSequence(src, anchor, i - anchor, dst, out, i - candidate, matchLength);
+            i += matchLength;
+            anchor = i;
+        }
+        return writeSequence(src, anchor, length - anchor, dst, out, 0, 0) - dstOffset;
+    }
+
+    /**
+     * @return bytes written to {@code dst}, at most {@code dstLength}
+     */
+    public static int decompress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstLength) {
+        int in = srcOffset;
+        int end = srcOffset + srcLength;
+        int out = 0;
+        while (in < end) {
+            int token = src[in++] & 0xFF;
+            int literals = token >>> 4;
+            if (literals == 15) {
+                int b;
+                do {
+                    b = src[in++] & 0xFF;
+                    literals += b;
+                } while (b == 255);
+            }
+            literals = Math.min(literals, dstLength - out);
+            System.arraycopy(src, in, dst, out, literals);
+            in += literals;
+            out += literals;
+            if (in >= end || out >= dstLength) {
+                break;
+            }
+            int offset = ((src[in] & 0xFF) << 8) | (src[in + 1] & 0xFF);
+            in += 2;
+            int matchLength = token & 0x0F;
+            if (matchLength == 15) {
+                int b;
+                do {
+                    b = src[in++] & 0xFF;
+                    matchLength += b;
+                } while (b == 255);
+            }
+            matchLength = Math.min(matchLength + MIN_MATCH, dstLength - out);
+            // Byte by byte: the source may overlap the bytes being written.
+            for (int k = 0; k < matchLength; k++, out++) {
+                dst[out] = dst[out - offset];
+            }
+        }
+        return out;
+    }
+
+    private static int writeSequence(byte[] src, int literalStart, int literals, byte[] dst, int out,
+                                     int offset, int matchLength) {
+        int tokenPosition = out++;
+        int token = Math.min(literals, 15) << 4;
+        if (literals >= 15) {
+            out = writeLength(dst, out, literals - 15);
+        }
+        System.arraycopy(src, literalStart, dst, out, literals);
+        out += literals;
+        if (matchLength > 0) {
+            dst[out++] = (byte) (offset >>> 8);
+            dst[out++] = (byte) offset;
+            int extra = matchLength - MIN_MATCH;
+            token |= Math.min(extra, 15);
+            if (extra >= 15) {
+                out = writeLength(dst, out, extra - 15);
+            }
+        }
+        dst[tokenPosition] = (byte) token;
+        return out;
+    }
+
+    private static int writeLength(byte[] dst, int out, int remaining) {
+        while (remaining >= 255) {
+            dst[out++] = (byte) 255;
+            remaining -= 255;
+        }
+        dst[out++] = (byte) remaining;
+        return out;
+    }
+
+    private static int read4(byte[] src, int i) {
+        return (src[i] & 0xFF) | (src[i + 1] & 0xFF) << 8 | (src[i + 2] & 0xFF) << 16 | (src[i + 3] & 0xFF) << 24;
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * 0x9E3779B1) >>> (32 - HASH_BITS);
+    }
+}
@@ -0,0 +1,34 @@
+package com.screenmirror.samsung.codec;
+
+/**
+ * A rectangle of the current frame whose pixels equal the previous frame
+ * shifted by ({@code dx}, {@code dy}): {@code cur(x, y) == prev(x + dx, y + dy)}.
+ * The client reproduces it with a single canvas self-blit.
+ */
+public final class Motion {
+
+    public final int x;
+    public final int y;
+    public final int width;
+    public final int height;
+    public final int dx;
+    public final int dy;
+
+    public Motion(int x, int y, int width, int height, int dx, int dy) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.dx = dx;
+        this.dy = dy;
+    }
+
+    public boolean contains(int px, int py) {
+        return px >= x && px < x + width && py >= y && py < y + height;
+    }
+
+    @Override
+    public String toString() {
+        return "Motion[" + x + "," + y + " " + width + "x" + height + " from " + dx + "," + dy + "]";
+    }
+}
@@ -0,0 +1,94 @@
+package com.screenmirror.samsung.codec;
+
+import java.util.Arrays;
+
+/**
+ * Marks the tiles the user is most likely looking at: those around the latest
+ * touch point (for a short while after the touch) and those that kept changing
+ * over the last few frames (typing, spinners, video).
+ *
+ * {@link #onTouch} may be called from any thread; everything else runs on the
+ * encoder thread.
+ */
+public final class RoiMap {
+
+    private final int radius;
+    private final long holdNanos;
+    private final int recentFrames;
+
+    private volatile float touchX;
+    private volatile float touchY;
+    private volatile long touchNanos = Long.MIN_VALUE;
+
+    private int tileSize;
+    private int tilesX;
+    private int[] lastDamagedFrame = new int[0];
+    private int frameIndex;
+    // Frame that "recent" is measured from: this capture, or for a refinement the one after the latest capture.
+    private int interestFrame;
+    private boolean touchActive;
+    private int touchTileX0;
+    private int touchTileX1;
+    private int touchTileY0;
+    private int touchTileY1;
+
+    /**
+     * @param radius       distance in pixels around the touch point that counts as interest
+     * @param holdMillis   how long a touch keeps its surroundings interesting
+     * @param recentFrames a tile damaged within this many frames counts as interest
+     */
+    public RoiMap(int radius, long holdMillis, int recentFrames) {
+        this.radius = radius;
+        this.holdNanos = holdMillis * 1000000L;
+        this.recentFrames = recentFrames;
+    }
+
+    /** Records a touch at screen pixel ({@code x}, {@code y}). */
+    public void onTouch(float x, float y, long nowNanos) {
+        touchX = x;
+        touchY = y;
+        touchNanos = nowNanos;
+    }
+
+    /**
+     * @param captured whether this is a newly captured frame; only those advance
+     *                 the frame count that "recently damaged" is measured in
+     */
+    void beginFrame(int width, int height, int tileSize, long nowNanos, boolean captured) {
+        int tilesX = (width + tileSize - 1) / tileSize;
+        int tilesY = (height + tileSize - 1) / tileSize;
+        if (tileSize != this.tileSize || tilesX != this.tilesX || lastDamagedFrame.length != tilesX * tilesY) {
+            this.tileSize = tileSize;
+            this.tilesX = tilesX;
+            lastDamagedFrame = new int[tilesX * tilesY];
+            Arrays.fill(lastDamagedFrame, Integer.MIN_VALUE / 2);
+        }
+        if (captured) {
+            frameIndex++;
+        }
+        interestFrame = captured ? frameIndex : frameIndex + 1;
+
+        long touchedAt = touchNanos;
+        touchActive = touchedAt != Long.MIN_VALUE && nowNanos - touchedAt <= holdNanos;
+        if (touchActive) {
+            float x = touchX;
+            float y = touchY;
+            touchTileX0 = (int) Math.max(0, (x - radius) / tileSize);
+            touchTileX1 = (int) Math.min(tilesX - 1, (x + radius) / tileSize);
+            touchTileY0 = (int) Math.max(0, (y - radius) / tileSize);
+            touchTileY1 = (int) Math.min(tilesY - 1, (y + radius) / tileSize);
+        }
+    }
+
+    boolean isInterest(int tileX, int tileY) {
+        if (touchActive && tileX >= touchTileX0 && tileX <= touchTileX1 && tileY >= touchTileY0 && tileY <= touchTileY1) {
+            return true;
+        }
+        int last = lastDamagedFrame[tileY * tilesX + tileX];
+        return last < interestFrame && interestFrame - last <= recentFrames;
+    }
+
+    void markDamaged(int tileX, int tileY) {
+        lastDamagedFrame[tileY * tilesX + tileX] = frameIndex;
+    }
+}
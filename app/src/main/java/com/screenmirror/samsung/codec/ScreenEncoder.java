@@ -0,0 +1,507 @@
+package com.screenmirror.samsung.codec;
+
+import android.graphics.Bitmap;
+
+import com.screenmirror.samsung.capture.CaptureFrame;
+import com.screenmirror.samsung.stream.EncodedFrame;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Turns captured frames into key frames (full JPEG) or delta frames.
+ *
+ * A delta frame moves scrolled content with a copy-rect operation and re-sends
+ * only the tiles that still differ afterwards, typically the strip a scroll
+ * exposed. Changed tiles with few colours (text, icons, flat UI) are coded
+ * losslessly with {@link TileCodec}; photographic ones fall back to JPEG. Tiles
+ * the client only has as JPEG are then refined losslessly a few at a time,
+ * either alongside the next frame or through {@link #refine()} when the screen
+ * is idle.
+ *
+ * Tiles near the latest touch or that changed recently ({@link RoiMap}) get a
+ * higher JPEG quality. While the link is constrained other damaged tiles are
+ * marked stale and flushed together at a lower quality and rate, and lossless
+ * refinement pauses, so the area the user is interacting with stays live
+ * without raising the bitrate.
+ *
+ * A zoomed-in client can restrict encoding to its {@link Viewport}: damage is
+ * only computed and sent inside it, at a higher quality, and everything outside
+ * is treated as stale until it becomes visible again.
+ *
+ * The previous captured frame is kept (retained from the pool) as the reference
+ * the client is assumed to hold. Key frames are sent on the first frame, on
+ * request, on a fixed interval and whenever a delta would cover most of the screen.
+ *
+ * Must only be used from the encoder thread, except where noted.
+ */
+public final class ScreenEncoder {
+
+    private static final int TILE_SIZE = 64;
+    private static final int MAX_SCROLL_SHIFT = 1024;
+    private static final int MIN_SCROLL_LINES = 32;
+    // Past this share of the screen a full JPEG is both smaller and cheaper to encode.
+    private static final float MAX_DELTA_AREA = 0.5f;
+    private static final int MAX_DELTA_RECTS = 64;
+    private static final int MAX_TILE_COLORS = 256;
+    // A lossless tile larger than one byte per pixel is better off as JPEG.
+    private static final int MAX_TILE_BYTES_PER_PIXEL = 1;
+    private static final int REFINE_TILES_PER_FRAME = 24;
+    private static final int ROI_RADIUS = 256;
+    private static final long ROI_HOLD_MS = 1500;
+    private static final int ROI_RECENT_FRAMES = 6;
+    private static final int ROI_JPEG_QUALITY_BOOST = 10;
+    private static final int BACKGROUND_JPEG_QUALITY_DROP = 25;
+    private static final long BACKGROUND_REFRESH_NANOS = 250 * 1000000L;
+    // A viewport under this share of the screen spends the saved bytes on quality instead.
+    private static final float VIEWPORT_BOOST_AREA = 0.5f;
+    private static final int VIEWPORT_JPEG_QUALITY_BOOST = 12;
+
+    private volatile int baseJpegQuality;
+    // Per-frame qualities; the base is raised while a small viewport is active.
+    private int jpegQuality;
+    private int roiJpegQuality;
+    private int backgroundJpegQuality;
+    private volatile Viewport requestedViewport;
+    private Viewport viewport;
+    private volatile long keyFrameIntervalNanos;
+    private volatile boolean constrained;
+    private volatile boolean deltaFramesEnabled = true;
+    private volatile boolean refinementEnabled = true;
+    private final ScrollDetector scrollDetector = new ScrollDetector(MAX_SCROLL_SHIFT, MIN_SCROLL_LINES);
+    private final DamageTracker damageTracker = new DamageTracker(TILE_SIZE);
+    private final TileCodec tileCodec = new TileCodec(TILE_SIZE * TILE_SIZE, MAX_TILE_COLORS);
+    private final TileQualityMap quality = new TileQualityMap(TILE_SIZE);
+    private final RoiMap roi = new RoiMap(ROI_RADIUS, ROI_HOLD_MS, ROI_RECENT_FRAMES);
+    private final DeltaFrameWriter deltaWriter = new DeltaFrameWriter();
+    private final JpegStream jpegStream = new JpegStream();
+
+    private CaptureFrame reference;
+    private long outputSequence;
+    private long inputSequence;
+    private long lastKeyFrameNanos;
+    private volatile boolean keyFrameRequested;
+    private Bitmap fullBitmap;
+    private Bitmap runBitmap;
+    private byte[] rectScratch;
+    private long lastBackgroundFlushNanos;
+
+    // Pending run of adjacent photographic tiles that will share one JPEG.
+    private int runX0 = -1;
+    private int runX1;
+    private int runY;
+    private int runHeight;
+    private int runQuality;
+
+    private long keyFrames;
+    private long deltaFrames;
+    private long copyRects;
+    private long losslessTiles;
+    private long jpegTiles;
+    private long deferredTiles;
+
+    public ScreenEncoder(int jpegQuality, long keyFrameIntervalMillis) {
+        this.baseJpegQuality = jpegQuality;
+        setJpegQuality(jpegQuality);
+        setKeyFrameInterval(keyFrameIntervalMillis);
+    }
+
+    /**
+     * Changes the JPEG quality used for ordinary tiles and key frames; the ROI,
+     * background and viewport adjustments stay relative to it. Takes effect on
+     * the next frame. Safe to call from any thread.
+     */
+    public void setBaseJpegQuality(int quality) {
+        baseJpegQuality = Math.max(1, Math.min(100, quality));
+    }
+
+    /**
+     * Restricts encoding to the given screen region, or to the full screen for
+     * {@code null}. Takes effect on the next frame. Safe to call from any thread.
+     */
+    public void setViewport(Viewport viewport) {
+        requestedViewport = viewport;
+    }
+
+    /** Records the latest touch in screen pixels. Safe to call from any thread. */
+    public void onTouch(float x, float y) {
+        roi.onTouch(x, y, System.nanoTime());
+    }
+
+    /**
+     * Whether the outgoing link is backing up. Set before each {@link #encode}.
+     * Safe to call from any thread.
+     */
+    public void setConstrained(boolean constrained) {
+        this.constrained = constrained;
+    }
+
+    /** Safe to call from any thread. */
+    public void setKeyFrameInterval(long millis) {
+        keyFrameIntervalNanos = millis * 1000000L;
+    }
+
+    /**
+     * With deltas off every frame is a full JPEG key frame and nothing is
+     * refined. Takes effect on the next frame. Safe to call from any thread.
+     */
+    public void setDeltaFrames(boolean enabled) {
+        deltaFramesEnabled = enabled;
+    }
+
+    /**
+     * Whether JPEG tiles of low-colour content are re-sent losslessly. Stale
+     * tiles are still flushed either way. Safe to call from any thread.
+     */
+    public void setLosslessRefinement(boolean enabled) {
+        refinementEnabled = enabled;
+    }
+
+    /** Makes the next encoded frame a key frame. Safe to call from any thread. */
+    public void requestKeyFrame() {
+        keyFrameRequested = true;
+    }
+
+    /**
+     * Encodes {@code frame}. The caller keeps its own reference; the encoder
+     * retains the frame as the next reference.
+     *
+     * Sequence numbers of the returned frames are the encoder's own and strictly
+     * increasing, so idle refinements fit between captured frames.
+     *
+     * @param inputSequence last viewer input applied before {@code frame} was captured
+     * @return the encoded frame, or {@code null} when nothing changed since the last one
+     */
+    public EncodedFrame encode(CaptureFrame frame, long inputSequence) {
+        this.inputSequence = inputSequence;
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        boolean sameSize = reference != null && reference.getWidth() == width && reference.getHeight() == height;
+
+        Viewport requested = requestedViewport;
+        Viewport clip = requested == null ? null : requested.alignTo(TILE_SIZE, width, height);
+        if (clip != null && (clip.width == 0 || clip.height == 0)) {
+            clip = null;
+        }
+        // Revealing more of the screen than the client has: start over from a key frame.
+        boolean viewportGrew = viewport != null && (clip == null || clip.width * clip.height > viewport.width * viewport.height);
+        viewport = clip;
+        setJpegQuality(clip != null && clip.width * (long) clip.height < width * (long) height * VIEWPORT_BOOST_AREA
+            ? Math.min(100, baseJpegQuality + VIEWPORT_JPEG_QUALITY_BOOST)
+            : baseJpegQuality);
+
+        Motion motion = null;
+        long dirty = (long) width * height;
+        if (sameSize) {
+            motion = scrollDetector.detect(reference.getData(), frame.getData(), width, height);
+            dirty = damageTracker.compute(reference.getData(), frame.getData(), width, height,
+                scrollDetector.getPreviousRowHashes(), scrollDetector.getCurrentRowHashes(), motion, clip);
+        } else {
+            scrollDetector.reset();
+            scrollDetector.detect(frame.getData(), frame.getData(), width, height);
+        }
+
+        boolean keyFrame = !deltaFramesEnabled
+            || !sameSize
+            || viewportGrew
+            || keyFrameRequested
+            || frame.getTimestampNanos() - lastKeyFrameNanos >= keyFrameIntervalNanos
+            || dirty > width * (long) height * MAX_DELTA_AREA
+            || damageTracker.getRectCount() > MAX_DELTA_RECTS;
+
+        EncodedFrame encoded;
+        if (keyFrame) {
+            keyFrameRequested = false;
+            lastKeyFrameNanos = frame.getTimestampNanos();
+            keyFrames++;
+            quality.reset(width, height, TileQualityMap.LOSSY);
+            byte[] jpeg = encodeFullFrame(frame,
+                constrained ? Math.max(10, baseJpegQuality - BACKGROUND_JPEG_QUALITY_DROP) : baseJpegQuality);
+            encoded = new EncodedFrame(++outputSequence, frame.getTimestampNanos() / 1000,
+                true, width, height, jpeg, jpeg.length, inputSequence);
+        } else {
+            encoded = encodeDelta(frame, motion, true);
+        }
+
+        if (reference != null) {
+            reference.release();
+        }
+        reference = frame.retain();
+        return encoded;
+    }
+
+    /**
+     * @return whether {@link #refine()} would produce a frame. Stale tiles outside
+     *         the viewport don't count: they are not sent until the viewport grows.
+     */
+    public boolean needsRefinement() {
+        return deltaFramesEnabled && reference != null
+            && (quality.hasWithin(TileQualityMap.STALE, viewport)
+                || (refinementEnabled && quality.has(TileQualityMap.LOSSY)));
+    }
+
+    /**
+     * Re-sends stale tiles and lossy low-colour tiles of the unchanged screen.
+     *
+     * @return a delta frame, or {@code null} if nothing is left to refine
+     */
+    public EncodedFrame refine() {
+        if (!needsRefinement()) {
+            return null;
+        }
+        return encodeDelta(reference, null, false);
+    }
+
+    private void setJpegQuality(int quality) {
+        jpegQuality = quality;
+        roiJpegQuality = Math.min(100, quality + ROI_JPEG_QUALITY_BOOST);
+        backgroundJpegQuality = Math.max(10, quality - BACKGROUND_JPEG_QUALITY_DROP);
+    }
+
+    private byte[] encodeFullFrame(CaptureFrame frame, int jpegQuality) {
+        if (fullBitmap == null || fullBitmap.getWidth() != frame.getWidth() || fullBitmap.getHeight() != frame.getHeight()) {
+            if (fullBitmap != null) {
+                fullBitmap.recycle();
+            }
+            fullBitmap = Bitmap.createBitmap(frame.getWidth(), frame.getHeight(), Bitmap.Config.ARGB_8888);
+        }
+        fullBitmap.copyPixelsFromBuffer(ByteBuffer.wrap(frame.getData()));
+        jpegStream.reset();
+        fullBitmap.compress(Bitmap.CompressFormat.JPEG, jpegQuality, jpegStream);
+        return jpegStream.toByteArray();
+    }
+
+    private EncodedFrame encodeDelta(CaptureFrame frame, Motion motion, boolean includeDamage) {
+        long now = System.nanoTime();
+        boolean constrained = this.constrained;
+        boolean flushBackground = !constrained || now - lastBackgroundFlushNanos >= BACKGROUND_REFRESH_NANOS;
+        if (constrained && flushBackground) {
+            lastBackgroundFlushNanos = now;
+        }
+        // A refinement brings no new damage, so it must not age the recently changed tiles.
+        roi.beginFrame(frame.getWidth(), frame.getHeight(), TILE_SIZE, now, includeDamage);
+
+        deltaWriter.begin(outputSequence);
+        if (motion != null) {
+            deltaWriter.copyRect(motion);
+            quality.applyMotion(motion);
+            copyRects++;
+        }
+        if (viewport != null) {
+            quality.markOutside(viewport);
+        }
+        if (includeDamage) {
+            int[] rects = damageTracker.getRects();
+            for (int i = 0; i < damageTracker.getRectCount(); i++) {
+                encodeDamage(frame, rects[i * 4], rects[i * 4 + 1], rects[i * 4 + 2], rects[i * 4 + 3], flushBackground);
+            }
+        }
+        int tilesX = quality.getTilesX();
+        for (int index = quality.next(TileQualityMap.STALE, 0); index >= 0; index = quality.next(TileQualityMap.STALE, index + 1)) {
+            int tileX = index % tilesX;
+            int tileY = index / tilesX;
+            if (viewport != null && !viewport.containsTile(tileX, tileY, TILE_SIZE)) {
+                continue;
+            }
+            boolean interest = roi.isInterest(tileX, tileY);
+            if (interest || flushBackground) {
+                sendTile(frame, tileX, tileY, interest);
+            }
+        }
+        flushJpegRun(frame);
+        if (!constrained && refinementEnabled) {
+            for (int i = 0; i < REFINE_TILES_PER_FRAME; i++) {
+                int index = quality.nextRefinable();
+                if (index < 0) {
+                    break;
+                }
+                refineTile(frame, index % tilesX, index / tilesX);
+            }
+        }
+        if (motion == null && deltaWriter.getOpCount() == 0) {
+            return null;
+        }
+        deltaFrames++;
+        byte[] delta = deltaWriter.finish();
+        return new EncodedFrame(++outputSequence, frame.getTimestampNanos() / 1000,
+            false, frame.getWidth(), frame.getHeight(), delta, delta.length, inputSequence);
+    }
+
+    /**
+     * Codes a tile-aligned damage rect tile by tile, deferring tiles outside the
+     * region of interest when the background is not due for a refresh.
+     */
+    private void encodeDamage(CaptureFrame frame, int x, int y, int w, int h, boolean flushBackground) {
+        for (int ty = y; ty < y + h; ty += TILE_SIZE) {
+            for (int tx = x; tx < x + w; tx += TILE_SIZE) {
+                int tileX = tx / TILE_SIZE;
+                int tileY = ty / TILE_SIZE;
+                boolean interest = roi.isInterest(tileX, tileY);
+                roi.markDamaged(tileX, tileY);
+                if (interest || flushBackground) {
+                    sendTile(frame, tileX, tileY, interest);
+                } else {
+                    quality.set(tileX, tileY, TileQualityMap.STALE);
+                    deferredTiles++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends one tile losslessly if it is screen content, otherwise appends it to
+     * the pending JPEG run. Runs of photographic tiles in a tile row share one
+     * JPEG so they don't each pay for a JPEG header.
+     */
+    private void sendTile(CaptureFrame frame, int tileX, int tileY, boolean interest) {
+        int x = tileX * TILE_SIZE;
+        int y = tileY * TILE_SIZE;
+        int w = Math.min(TILE_SIZE, frame.getWidth() - x);
+        int h = Math.min(TILE_SIZE, frame.getHeight() - y);
+        if (encodeLossless(frame, x, y, w, h)) {
+            return;
+        }
+        int tileQuality = interest ? roiJpegQuality : constrained ? backgroundJpegQuality : jpegQuality;
+        if (runX0 >= 0 && (y != runY || x != runX1 || h != runHeight || tileQuality != runQuality)) {
+            flushJpegRun(frame);
+        }
+        if (runX0 < 0) {
+            runX0 = x;
+            runY = y;
+            runHeight = h;
+            runQuality = tileQuality;
+        }
+        runX1 = x + w;
+    }
+
+    private void refineTile(CaptureFrame frame, int tileX, int tileY) {
+        int x = tileX * TILE_SIZE;
+        int y = tileY * TILE_SIZE;
+        int w = Math.min(TILE_SIZE, frame.getWidth() - x);
+        int h = Math.min(TILE_SIZE, frame.getHeight() - y);
+        if (!encodeLossless(frame, x, y, w, h)) {
+            quality.set(tileX, tileY, TileQualityMap.PHOTO);
+        }
+    }
+
+    private boolean encodeLossless(CaptureFrame frame, int x, int y, int w, int h) {
+        if (!tileCodec.encode(frame.getData(), frame.getStride(), x, y, w, h)
+                || tileCodec.getOutputLength() > w * h * MAX_TILE_BYTES_PER_PIXEL) {
+            return false;
+        }
+        deltaWriter.tileRect(x, y, w, h, tileCodec.getOutput(), tileCodec.getOutputLength());
+        quality.set(x / TILE_SIZE, y / TILE_SIZE, TileQualityMap.EXACT);
+        losslessTiles++;
+        return true;
+    }
+
+    private void flushJpegRun(CaptureFrame frame) {
+        if (runX0 < 0) {
+            return;
+        }
+        encodeRect(frame, runX0, runY, runX1 - runX0, runHeight, runQuality);
+        deltaWriter.jpegRect(runX0, runY, runX1 - runX0, runHeight, jpegStream.buffer(), jpegStream.size());
+        for (int x = runX0; x < runX1; x += TILE_SIZE) {
+            quality.set(x / TILE_SIZE, runY / TILE_SIZE, TileQualityMap.PHOTO);
+            jpegTiles++;
+        }
+        runX0 = -1;
+    }
+
+    private void encodeRect(CaptureFrame frame, int x, int y, int w, int h, int jpegQuality) {
+        int rowBytes = w * 4;
+        ByteBuffer pixels;
+        if (w == frame.getWidth()) {
+            // Full-width strips are already contiguous in the frame buffer.
+            pixels = ByteBuffer.wrap(frame.getData(), y * frame.getStride(), h * rowBytes);
+        } else {
+            if (rectScratch == null || rectScratch.length < h * rowBytes) {
+                rectScratch = new byte[h * rowBytes];
+            }
+            for (int row = 0; row < h; row++) {
+                System.arraycopy(frame.getData(), (y + row) * frame.getStride() + x * 4, rectScratch, row * rowBytes, rowBytes);
+            }
+            pixels = ByteBuffer.wrap(rectScratch, 0, h * rowBytes);
+        }
+        // A run is at most one tile row high and the frame wide; one strip bitmap serves every
+        // run, shrunk in place, so photographic content doesn't allocate a bitmap per run.
+        if (runBitmap == null || runBitmap.getAllocationByteCount() < h * rowBytes) {
+            if (runBitmap != null) {
+                runBitmap.recycle();
+            }
+            runBitmap = Bitmap.createBitmap(frame.getWidth(), TILE_SIZE, Bitmap.Config.ARGB_8888);
+        }
+        runBitmap.reconfigure(w, h, Bitmap.Config.ARGB_8888);
+        runBitmap.copyPixelsFromBuffer(pixels);
+        jpegStream.reset();
+        runBitmap.compress(Bitmap.CompressFormat.JPEG, jpegQuality, jpegStream);
+    }
+
+    public long getKeyFrames() {
+        return keyFrames;
+    }
+
+    public long getDeltaFrames() {
+        return deltaFrames;
+    }
+
+    public long getCopyRects() {
+        return copyRects;
+    }
+
+    public long getLosslessTiles() {
+        return losslessTiles;
+    }
+
+    public long getJpegTiles() {
+        return jpegTiles;
+    }
+
+    public long getDeferredTiles() {
+        return deferredTiles;
+    }
+
+    /**
+     * Allocates the key frame bitmap and runs one throwaway JPEG compression so
+     * the first real frame doesn't pay for native codec set-up.
+     */
+    public void prepare(int width, int height) {
+        if (fullBitmap == null || fullBitmap.getWidth() != width || fullBitmap.getHeight() != height) {
+            if (fullBitmap != null) {
+                fullBitmap.recycle();
+            }
+            fullBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        }
+        jpegStream.reset();
+        fullBitmap.compress(Bitmap.CompressFormat.JPEG, jpegQuality, jpegStream);
+        jpegStream.reset();
+    }
+
+    /** Drops the reference frame; the next frame will be a key frame. */
+    public void reset() {
+        if (reference != null) {
+            reference.release();
+            reference = null;
+        }
+        scrollDetector.reset();
+    }
+
+    public void release() {
+        reset();
+        if (fullBitmap != null) {
+            fullBitmap.recycle();
+            fullBitmap = null;
+        }
+        if (runBitmap != null) {
+            runBitmap.recycle();
+            runBitmap = null;
+        }
+    }
+
+    /** Lets a JPEG run go to the frame writer straight from the stream's buffer, without a copy. */
+    private static final class JpegStream extends ByteArrayOutputStream {
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.screenmirror.samsung.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Detects vertical or horizontal block shifts (scrolling) between consecutive RGBA frames.
+ *
+ * Rows are reduced to hashes; each changed row of the current frame votes for the
+ * offset at which the same row appears in the previous frame. A clear winner
+ * becomes a {@link Motion} spanning the matching rows. If no vertical shift wins,
+ * the same vote runs on column hashes taken over the changed band, which catches
+ * horizontal carousels and pagers.
+ *
+ * All working arrays are sized once per resolution, so {@link #detect} does not
+ * allocate in steady state. Not thread-safe; use one instance per encoder.
+ */
+public final class ScrollDetector {
+
+    private static final int EMPTY = -1;
+
+    private final int maxShift;
+    private final int minMatchingLines;
+
+    private int width;
+    private int height;
+    private int[] prevRowHashes;
+    private int[] curRowHashes;
+    private int[] prevColHashes;
+    private int[] curColHashes;
+    private int[] votes;
+    private int[] tableKeys;
+    private int[] tableValues;
+    private int tableMask;
+    private boolean hasPrevious;
+
+    /**
+     * @param maxShift         largest shift searched, in pixels
+     * @param minMatchingLines rows (or columns) that must agree before a shift is reported
+     */
+    public ScrollDetector(int maxShift, int minMatchingLines) {
+        this.maxShift = maxShift;
+        this.minMatchingLines = minMatchingLines;
+        this.votes = new int[2 * maxShift + 1];
+    }
+
+    /**
+     * Compares {@code current} with the frame passed on the previous call.
+     *
+     * @return the detected shift, or {@code null} for no scroll (or on the first frame)
+     */
+    public Motion detect(byte[] previous, byte[] current, int width, int height) {
+        ensureCapacity(width, height);
+        IntBuffer cur = ByteBuffer.wrap(current).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        if (!hasPrevious) {
+            IntBuffer prev = ByteBuffer.wrap(previous).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            hashRows(prev, prevRowHashes);
+        }
+        hashRows(cur, curRowHashes);
+
+        Motion motion = detectVertical();
+        if (motion == null) {
+            IntBuffer prev = ByteBuffer.wrap(previous).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            motion = detectHorizontal(prev, cur);
+        }
+
+        int[] swap = prevRowHashes;
+        prevRowHashes = curRowHashes;
+        curRowHashes = swap;
+        hasPrevious = true;
+        return motion;
+    }
+
+    /**
+     * Row hashes of the frame most recently passed to {@link #detect}, valid until the next call.
+     */
+    public int[] getCurrentRowHashes() {
+        return prevRowHashes;
+    }
+
+    /**
+     * Row hashes of the frame before that, valid until the next call.
+     */
+    public int[] getPreviousRowHashes() {
+        return curRowHashes;
+    }
+
+    public void reset() {
+        hasPrevious = false;
+    }
+
+    private void ensureCapacity(int width, int height) {
+        if (width == this.width && height == this.height) {
+            return;
+        }
+        this.width = width;
+        this.height = height;
+        prevRowHashes = new int[height];
+        curRowHashes = new int[height];
+        prevColHashes = new int[width];
+        curColHashes = new int[width];
+        int tableSize = Integer.highestOneBit(Math.max(width, height) * 4 - 1) << 1;
+        tableKeys = new int[tableSize];
+        tableValues = new int[tableSize];
+        tableMask = tableSize - 1;
+        hasPrevious = false;
+    }
+
+    private void hashRows(IntBuffer pixels, int[] hashes) {
+        for (int y = 0; y < height; y++) {
+            int h = 0x811C9DC5;
+            int base = y * width;
+            for (int x = 0; x < width; x++) {
+                h = (h ^ pixels.get(base + x)) * 0x01000193;
+            }
+            hashes[y] = h;
+        }
+    }
+
+    private Motion detectVertical() {
+        buildIndex(prevRowHashes, height);
+        Arrays.fill(votes, 0);
+        int changed = 0;
+        for (int y = 0; y < height; y++) {
+            if (curRowHashes[y] == prevRowHashes[y]) {
+                continue;
+            }
+            changed++;
+            int source = lookup(curRowHashes[y]);
+            if (source >= 0 && Math.abs(source - y) <= maxShift) {
+                votes[source - y + maxShift]++;
+            }
+        }
+        int best = bestVote(changed);
+        if (best == 0) {
+            return null;
+        }
+
+        int top = -1;
+        int bottom = -1;
+        for (int y = 0; y < height; y++) {
+            int source = y + best;
+            if (source >= 0 && source < height && curRowHashes[y] == prevRowHashes[source]
+                    && curRowHashes[y] != prevRowHashes[y]) {
+                if (top < 0) {
+                    top = y;
+                }
+                bottom = y + 1;
+            }
+        }
+        return top < 0 ? null : new Motion(0, top, width, bottom - top, 0, best);
+    }
+
+    private Motion detectHorizontal(IntBuffer prev, IntBuffer cur) {
+        int first = -1;
+        int last = -1;
+        for (int y = 0; y < height; y++) {
+            if (curRowHashes[y] != prevRowHashes[y]) {
+                if (first < 0) {
+                    first = y;
+                }
+                last = y;
+            }
+        }
+        if (first < 0 || last - first + 1 < minMatchingLines) {
+            return null;
+        }
+        int bandHeight = last - first + 1;
+        int step = Math.max(1, bandHeight / 64);
+        hashColumns(prev, prevColHashes, first, last, step);
+        hashColumns(cur, curColHashes, first, last, step);
+
+        buildIndex(prevColHashes, width);
+        Arrays.fill(votes, 0);
+        int changed = 0;
+        for (int x = 0; x < width; x++) {
+            if (curColHashes[x] == prevColHashes[x]) {
+                continue;
+            }
+            changed++;
+            int source = lookup(curColHashes[x]);
+            if (source >= 0 && Math.abs(source - x) <= maxShift) {
+                votes[source - x + maxShift]++;
+            }
+        }
+        int best = bestVote(changed);
+        if (best == 0) {
+            return null;
+        }
+        int left = -1;
+        int right = -1;
+        for (int x = 0; x < width; x++) {
+            int source = x + best;
+            if (source >= 0 && source < width && curColHashes[x] == prevColHashes[source]
+                    && curColHashes[x] != prevColHashes[x]) {
+                if (left < 0) {
+                    left = x;
+                }
+                right = x + 1;
+            }
+        }
+        return left < 0 ? null : new Motion(left, first, right - left, bandHeight, best, 0);
+    }
+
+    private void hashColumns(IntBuffer pixels, int[] hashes, int firstRow, int lastRow, int step) {
+        Arrays.fill(hashes, 0x811C9DC5);
+        for (int y = firstRow; y <= lastRow; y += step) {
+            int base = y * width;
+            for (int x = 0; x < width; x++) {
+                hashes[x] = (hashes[x] ^ pixels.get(base + x)) * 0x01000193;
+            }
+        }
+    }
+
+    private int bestVote(int changed) {
+        int best = 0;
+        int bestVotes = 0;
+        for (int i = 0; i < votes.length; i++) {
+            if (i != maxShift && votes[i] > bestVotes) {
+                bestVotes = votes[i];
+                best = i - maxShift;
+            }
+        }
+        // Require an absolute and a relative majority so noise never reads as a scroll.
+        if (bestVotes < minMatchingLines || bestVotes * 4 < changed) {
+            return 0;
+        }
+        return best;
+    }
+
+    /**
+     * Open-addressing hash -> line index table. Lines whose hash occurs more than
+     * once (blank rows, repeated borders) are marked ambiguous and never vote.
+     */
+    private void buildIndex(int[] hashes, int count) {
+        Arrays.fill(tableValues, EMPTY);
+        for (int i = 0; i < count; i++) {
+            int slot = mix(hashes[i]) & tableMask;
+            while (true) {
+                if (tableValues[slot] == EMPTY) {
+                    tableKeys[slot] = hashes[i];
+                    tableValues[slot] = i;
+                    break;
+                }
+                if (tableKeys[slot] == hashes[i]) {
+                    tableValues[slot] = Integer.MIN_VALUE;
+                    break;
+                }
+                slot = (slot + 1) & tableMask;
+            }
+        }
+    }
+
+    private int lookup(int hash) {
+        int slot = mix(hash) & tableMask;
+        while (tableValues[slot] != EMPTY) {
+            if (tableKeys[slot] == hash) {
+                return tableValues[slot] >= 0 ? tableValues[slot] : -1;
+            }
+            slot = (slot + 1) & tableMask;
+        }
+        return -1;
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h;
+    }
+}
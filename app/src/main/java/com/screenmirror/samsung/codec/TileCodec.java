@@ -0,0 +1,149 @@
+package com.screenmirror.samsung.codec;
+
+import java.util.Arrays;
+
+/**
+ * Lossless codec for screen-content tiles (text, icons, flat UI).
+ *
+ * A tile is counted for distinct colours first; anything above
+ * {@code maxColors} is treated as photographic and rejected so the caller can
+ * use JPEG instead. Other tiles are written as:
+ * <pre>
+ *   u8 MODE_SOLID    u8 r, g, b
+ *   u8 MODE_PALETTE  u8 colorCount - 1; colorCount * (u8 r, g, b); {@link Lz77} stream of u8 indices
+ * </pre>
+ * Alpha is dropped: mirrored screens are opaque.
+ *
+ * All buffers are sized for the largest tile up front, so {@link #encode} does
+ * not allocate. Not thread-safe.
+ */
+public final class TileCodec {
+
+    public static final int MODE_SOLID = 0;
+    public static final int MODE_PALETTE = 1;
+
+    private static final int COLOR_TABLE_SIZE = 1024;
+
+    private final int maxPixels;
+    private final int maxColors;
+    private final byte[] indices;
+    private final byte[] output;
+    private final int[] lzTable = new int[Lz77.HASH_TABLE_SIZE];
+    private final int[] colorKeys = new int[COLOR_TABLE_SIZE];
+    private final int[] colorIndex = new int[COLOR_TABLE_SIZE];
+    private final int[] colorStamp = new int[COLOR_TABLE_SIZE];
+    private final int[] palette;
+    private int stamp;
+    private int outputLength;
+
+    /**
+     * @param maxPixels largest tile area that will be encoded
+     * @param maxColors palette limit (at most 256); tiles with more colours are rejected
+     */
+    public TileCodec(int maxPixels, int maxColors) {
+        if (maxColors < 1 || maxColors > 256) {
+            throw new IllegalArgumentException("maxColors must be in 1..256: " + maxColors);
+        }
+        this.maxPixels = maxPixels;
+        this.maxColors = maxColors;
+        this.indices = new byte[maxPixels];
+        this.palette = new int[maxColors];
+        this.output = new byte[2 + maxColors * 3 + Lz77.maxCompressedLength(maxPixels)];
+    }
+
+    /**
+     * Encodes the {@code width x height} tile at ({@code x}, {@code y}) of an RGBA frame.
+     *
+     * @return {@code false} if the tile has too many colours; the output is then undefined
+     */
+    public boolean encode(byte[] rgba, int stride, int x, int y, int width, int height) {
+        if (width * height > maxPixels) {
+            throw new IllegalArgumentException("Tile " + width + "x" + height + " exceeds " + maxPixels + " pixels");
+        }
+        if (++stamp == 0) {
+            Arrays.fill(colorStamp, 0);
+            stamp = 1;
+        }
+        int colors = 0;
+        int pixel = 0;
+        for (int row = 0; row < height; row++) {
+            int offset = (y + row) * stride + x * 4;
+            for (int col = 0; col < width; col++, offset += 4) {
+                int rgb = (rgba[offset] & 0xFF) << 16 | (rgba[offset + 1] & 0xFF) << 8 | (rgba[offset + 2] & 0xFF);
+                int slot = (rgb * 0x9E3779B1) >>> 22;
+                while (colorStamp[slot] == stamp && colorKeys[slot] != rgb) {
+                    slot = (slot + 1) & (COLOR_TABLE_SIZE - 1);
+                }
+                if (colorStamp[slot] != stamp) {
+                    if (colors == maxColors) {
+                        return false;
+                    }
+                    colorStamp[slot] = stamp;
+                    colorKeys[slot] = rgb;
+                    colorIndex[slot] = colors;
+                    palette[colors++] = rgb;
+                }
+                indices[pixel++] = (byte) colorIndex[slot];
+            }
+        }
+
+        if (colors == 1) {
+            output[0] = MODE_SOLID;
+            putRgb(1, palette[0]);
+            outputLength = 4;
+            return true;
+        }
+        output[0] = MODE_PALETTE;
+        output[1] = (byte) (colors - 1);
+        int out = 2;
+        for (int i = 0; i < colors; i++) {
+            putRgb(out, palette[i]);
+            out += 3;
+        }
+        outputLength = out + Lz77.compress(indices, pixel, output, out, lzTable);
+        return true;
+    }
+
+    public byte[] getOutput() {
+        return output;
+    }
+
+    public int getOutputLength() {
+        return outputLength;
+    }
+
+    /**
+     * Reference decoder: expands an encoded tile into tightly packed RGBA.
+     *
+     * @param scratch at least {@code width * height} bytes for the index stream
+     */
+    public static void decode(byte[] src, int offset, int length, int width, int height, byte[] rgba, byte[] scratch) {
+        int pixels = width * height;
+        if ((src[offset] & 0xFF) == MODE_SOLID) {
+            for (int i = 0; i < pixels; i++) {
+                rgba[i * 4] = src[offset + 1];
+                rgba[i * 4 + 1] = src[offset + 2];
+                rgba[i * 4 + 2] = src[offset + 3];
+                rgba[i * 4 + 3] = (byte) 0xFF;
+            }
+            return;
+        }
+        int colors = (src[offset + 1] & 0xFF) + 1;
+        int paletteOffset = offset + 2;
+        int streamOffset = paletteOffset + colors * 3;
+        Lz77.decompress(src, streamOffset, offset + length - streamOffset, scratch, pixels);
+        for (int i = 0; i < pixels; i++) {
+            int entry = paletteOffset + (scratch[i] & 0xFF) * 3;
+            rgba[i * 4] = src[entry];
+            rgba[i * 4 + 1] = src[entry + 1];
+            rgba[i * 4 + 2] = src[entry + 2];
+            rgba[i * 4 + 3] = (byte) 0xFF;
+        }
+    }
+
+    private void putRgb(int offset, int rgb) {
+        output[offset] = (byte) (rgb >>> 16);
+        output[offset + 1] = (byte) (rgb >>> 8);
+        output[offset + 2] = (byte) rgb;
+    }
+}
@@ -0,0 +1,166 @@
+package com.screenmirror.samsung.codec;
+
+import java.util.Arrays;
+
+/**
+ * Tracks, per tile, how faithfully the client's copy matches the captured screen.
+ *
+ * Tiles that arrived as JPEG (key frames and photographic patches) are lossy;
+ * low-colour lossy tiles are later re-sent losslessly while the screen is
+ * otherwise quiet. Tiles whose update was deferred under bandwidth pressure are
+ * stale and are sent before anything else once there is room. Copy-rects move
+ * the state along with the pixels. States are ordered by urgency, so combining
+ * tiles keeps the most urgent one.
+ */
+final class TileQualityMap {
+
+    static final byte EXACT = 0;
+    /** Lossy, but already known to be photographic; not worth refining. */
+    static final byte PHOTO = 1;
+    /** Lossy and not yet classified; a refinement candidate. */
+    static final byte LOSSY = 2;
+    /** The client still shows older content; the tile must be re-sent. */
+    static final byte STALE = 3;
+
+    private final int tileSize;
+    private int tilesX;
+    private int tilesY;
+    private byte[] states = new byte[0];
+    private byte[] scratch = new byte[0];
+    private int cursor;
+    private final int[] counts = new int[STALE + 1];
+
+    TileQualityMap(int tileSize) {
+        this.tileSize = tileSize;
+    }
+
+    void reset(int width, int height, byte state) {
+        tilesX = (width + tileSize - 1) / tileSize;
+        tilesY = (height + tileSize - 1) / tileSize;
+        int count = tilesX * tilesY;
+        if (states.length != count) {
+            states = new byte[count];
+            scratch = new byte[count];
+        }
+        Arrays.fill(states, state);
+        Arrays.fill(counts, 0);
+        counts[state] = count;
+        cursor = 0;
+    }
+
+    void set(int tileX, int tileY, byte state) {
+        int index = tileY * tilesX + tileX;
+        counts[states[index]]--;
+        counts[state]++;
+        states[index] = state;
+    }
+
+    boolean has(byte state) {
+        return counts[state] > 0;
+    }
+
+    /** Like {@link #has}, but only counting tiles inside {@code clip}; {@code null} means everywhere. */
+    boolean hasWithin(byte state, Viewport clip) {
+        if (clip == null || counts[state] == 0) {
+            return has(state);
+        }
+        for (int ty = 0; ty < tilesY; ty++) {
+            for (int tx = 0; tx < tilesX; tx++) {
+                if (states[ty * tilesX + tx] == state && clip.containsTile(tx, ty, tileSize)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the first tile index at or after {@code from} in the given state, or -1.
+     */
+    int next(byte state, int from) {
+        if (counts[state] == 0) {
+            return -1;
+        }
+        for (int i = from; i < states.length; i++) {
+            if (states[i] == state) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index ({@code tileY * tilesX + tileX}) of the next refinement
+     * candidate, scanning round-robin from the last one, or -1 if there is none.
+     */
+    int nextRefinable() {
+        if (counts[LOSSY] == 0) {
+            return -1;
+        }
+        for (int i = 0; i < states.length; i++) {
+            int index = (cursor + i) % states.length;
+            if (states[index] == LOSSY) {
+                cursor = index + 1;
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /** Marks every tile outside {@code clip} stale: the client may be showing anything there. */
+    void markOutside(Viewport clip) {
+        for (int ty = 0; ty < tilesY; ty++) {
+            for (int tx = 0; tx < tilesX; tx++) {
+                if (states[ty * tilesX + tx] != STALE && !clip.containsTile(tx, ty, tileSize)) {
+                    set(tx, ty, STALE);
+                }
+            }
+        }
+    }
+
+    int getTilesX() {
+        return tilesX;
+    }
+
+    int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Moves tile states with a copy-rect. A destination tile takes the worst
+     * state of every source tile it now shows, plus its own if the rect only
+     * partly covers it.
+     */
+    void applyMotion(Motion motion) {
+        System.arraycopy(states, 0, scratch, 0, states.length);
+        int firstX = motion.x / tileSize;
+        int lastX = (motion.x + motion.width - 1) / tileSize;
+        int firstY = motion.y / tileSize;
+        int lastY = (motion.y + motion.height - 1) / tileSize;
+        for (int ty = firstY; ty <= lastY; ty++) {
+            for (int tx = firstX; tx <= lastX; tx++) {
+                int x0 = Math.max(tx * tileSize, motion.x);
+                int x1 = Math.min((tx + 1) * tileSize, motion.x + motion.width);
+                int y0 = Math.max(ty * tileSize, motion.y);
+                int y1 = Math.min((ty + 1) * tileSize, motion.y + motion.height);
+                boolean covered = x0 == tx * tileSize && y0 == ty * tileSize
+                    && x1 - x0 == tileSize && y1 - y0 == tileSize;
+                byte state = covered ? EXACT : scratch[ty * tilesX + tx];
+                int sx0 = clamp((x0 + motion.dx) / tileSize, tilesX);
+                int sx1 = clamp((x1 - 1 + motion.dx) / tileSize, tilesX);
+                int sy0 = clamp((y0 + motion.dy) / tileSize, tilesY);
+                int sy1 = clamp((y1 - 1 + motion.dy) / tileSize, tilesY);
+                for (int sy = sy0; sy <= sy1; sy++) {
+                    for (int sx = sx0; sx <= sx1; sx++) {
+                        state = (byte) Math.max(state, scratch[sy * tilesX + sx]);
+                    }
+                }
+                set(tx, ty, state);
+            }
+        }
+    }
+
+    private static int clamp(int tile, int count) {
+        return Math.max(0, Math.min(count - 1, tile));
+    }
+}
@@ -0,0 +1,84 @@
+package com.screenmirror.samsung.codec;
+
+/**
+ * The part of the screen a zoomed-in client is actually showing, in screen pixels.
+ */
+public final class Viewport {
+
+    public final int x;
+    public final int y;
+    public final int width;
+    public final int height;
+
+    public Viewport(int x, int y, int width, int height) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    /** Smallest viewport covering both; {@code null} stands for the full screen. */
+    public static Viewport union(Viewport a, Viewport b) {
+        if (a == null || b == null) {
+            return null;
+        }
+        int x0 = Math.min(a.x, b.x);
+        int y0 = Math.min(a.y, b.y);
+        int x1 = Math.max(a.x + a.width, b.x + b.width);
+        int y1 = Math.max(a.y + a.height, b.y + b.height);
+        return new Viewport(x0, y0, x1 - x0, y1 - y0);
+    }
+
+    /** The same region in a frame scaled by {@code factor}, e.g. a reduced capture size. */
+    public Viewport scale(float factor) {
+        if (factor == 1f) {
+            return this;
+        }
+        int x0 = (int) Math.floor(x * factor);
+        int y0 = (int) Math.floor(y * factor);
+        int x1 = (int) Math.ceil((x + width) * factor);
+        int y1 = (int) Math.ceil((y + height) * factor);
+        return new Viewport(x0, y0, x1 - x0, y1 - y0);
+    }
+
+    /**
+     * Expands to whole tiles and clips to the screen.
+     *
+     * @return the aligned viewport, or {@code null} if it covers the whole screen
+     */
+    Viewport alignTo(int tileSize, int screenWidth, int screenHeight) {
+        int x0 = Math.max(0, x) / tileSize * tileSize;
+        int y0 = Math.max(0, y) / tileSize * tileSize;
+        int x1 = Math.min(screenWidth, (Math.min(screenWidth, x + width) + tileSize - 1) / tileSize * tileSize);
+        int y1 = Math.min(screenHeight, (Math.min(screenHeight, y + height) + tileSize - 1) / tileSize * tileSize);
+        if (x0 == 0 && y0 == 0 && x1 == screenWidth && y1 == screenHeight) {
+            return null;
+        }
+        return new Viewport(x0, y0, Math.max(0, x1 - x0), Math.max(0, y1 - y0));
+    }
+
+    boolean containsTile(int tileX, int tileY, int tileSize) {
+        int px = tileX * tileSize;
+        int py = tileY * tileSize;
+        return px >= x && px < x + width && py >= y && py < y + height;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Viewport)) {
+            return false;
+        }
+        Viewport other = (Viewport) o;
+        return x == other.x && y == other.y && width == other.width && height == other.height;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((x * 31 + y) * 31 + width) * 31 + height;
+    }
+
+    @Override
+    public String toString() {
+        return "Viewport[" + x + "," + y + " " + width + "x" + height + "]";
+    }
+}
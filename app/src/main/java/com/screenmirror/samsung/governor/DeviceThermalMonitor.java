@@ -0,0 +1,126 @@
+package com.screenmirror.samsung.governor;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Feeds a {@link ThermalGovernor} from {@link PowerManager} and battery broadcasts.
+ *
+ * Thermal status changes and battery updates arrive as callbacks; the headroom
+ * forecast has no callback and is polled. Every observation is evaluated on
+ * {@code handler}, so the governor's listener runs there too.
+ */
+public final class DeviceThermalMonitor {
+
+    private static final String TAG = "DeviceThermalMonitor";
+    // The platform rate-limits headroom queries to about one per second; stay well clear.
+    private static final long POLL_INTERVAL_MS = 5000;
+    private static final int HEADROOM_FORECAST_SECONDS = 10;
+
+    private final Context context;
+    private final Handler handler;
+    private final ThermalGovernor governor;
+    private final PowerManager powerManager;
+
+    private volatile int thermalStatus = ThermalGovernor.THERMAL_STATUS_NONE;
+    private volatile int batteryPercent = -1;
+    private volatile boolean charging = true;
+    private float headroom = Float.NaN;
+    private boolean started;
+
+    private PowerManager.OnThermalStatusChangedListener thermalListener;
+
+    private final BroadcastReceiver batteryReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+            int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+            batteryPercent = level >= 0 && scale > 0 ? level * 100 / scale : -1;
+            charging = intent.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+            evaluate();
+        }
+    };
+
+    private final Runnable pollTask = new Runnable() {
+        @Override
+        public void run() {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R && powerManager != null) {
+                float forecast = powerManager.getThermalHeadroom(HEADROOM_FORECAST_SECONDS);
+                // NaN means "asked too often" or "unsupported"; keep the last real forecast.
+                if (!Float.isNaN(forecast)) {
+                    headroom = forecast;
+                }
+            }
+            evaluate();
+            handler.postDelayed(this, POLL_INTERVAL_MS);
+        }
+    };
+
+    private final Runnable evaluateTask = new Runnable() {
+        @Override
+        public void run() {
+            evaluate();
+        }
+    };
+
+    public DeviceThermalMonitor(Context context, Handler handler, ThermalGovernor governor) {
+        this.context = context.getApplicationContext();
+        this.handler = handler;
+        this.governor = governor;
+        this.powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+    }
+
+    public void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && powerManager != null) {
+            thermalStatus = powerManager.getCurrentThermalStatus();
+            thermalListener = new PowerManager.OnThermalStatusChangedListener() {
+                @Override
+                public void onThermalStatusChanged(int status) {
+                    thermalStatus = status;
+                    handler.post(evaluateTask);
+                }
+            };
+            powerManager.addThermalStatusListener(thermalListener);
+        }
+        context.registerReceiver(batteryReceiver, new IntentFilter(Intent.ACTION_BATTERY_CHANGED), null, handler);
+        handler.post(pollTask);
+    }
+
+    public void stop() {
+        if (!started) {
+            return;
+        }
+        started = false;
+        handler.removeCallbacks(pollTask);
+        handler.removeCallbacks(evaluateTask);
+        if (thermalListener != null) {
+            powerManager.removeThermalStatusListener(thermalListener);
+            thermalListener = null;
+        }
+        context.unregisterReceiver(batteryReceiver);
+    }
+
+    private void evaluate() {
+        if (!started) {
+            return;
+        }
+        int before = governor.getLevel();
+        int after = governor.update(thermalStatus, headroom, batteryPercent, charging, SystemClock.elapsedRealtime());
+        if (after != before) {
+            Log.i(TAG, "Governor level " + before + " -> " + after + " (status " + thermalStatus
+                + ", headroom " + headroom + ", battery " + batteryPercent + "%" + (charging ? " charging" : "") + ")");
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.screenmirror.samsung.governor;
+
+import java.util.Locale;
+
+/**
+ * Upper limits the streaming pipeline must stay within at one governor level.
+ */
+public final class StreamBudget {
+
+    public final int maxFps;
+    /** Capture size relative to the physical display, in (0, 1]. */
+    public final float captureScale;
+    public final int maxJpegQuality;
+
+    public StreamBudget(int maxFps, float captureScale, int maxJpegQuality) {
+        if (maxFps < 1 || !(captureScale > 0 && captureScale <= 1) || maxJpegQuality < 1 || maxJpegQuality > 100) {
+            throw new IllegalArgumentException("Invalid stream budget: " + maxFps + "fps, scale "
+                + captureScale + ", quality " + maxJpegQuality);
+        }
+        this.maxFps = maxFps;
+        this.captureScale = captureScale;
+        this.maxJpegQuality = maxJpegQuality;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof StreamBudget)) {
+            return false;
+        }
+        StreamBudget other = (StreamBudget) o;
+        return maxFps == other.maxFps && captureScale == other.captureScale && maxJpegQuality == other.maxJpegQuality;
+    }
+
+    @Override
+    public int hashCode() {
+        return (maxFps * 31 + Float.floatToIntBits(captureScale)) * 31 + maxJpegQuality;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%dfps scale=%.2f quality<=%d", maxFps, captureScale, maxJpegQuality);
+    }
+}
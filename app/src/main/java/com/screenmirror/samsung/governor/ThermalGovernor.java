@@ -0,0 +1,145 @@
+package com.screenmirror.samsung.governor;
+
+/**
+ * Picks a {@link StreamBudget} level from the device's thermal and battery state.
+ *
+ * Thermal headroom (the platform's forecast, where 1.0 means the OS starts
+ * throttling) lets us step down before the OS does; the coarse thermal status
+ * is the fallback when no forecast is available. A low, discharging battery
+ * also holds a minimum level.
+ *
+ * Stepping down is immediate. Stepping up needs the inputs to clear the
+ * current level's thresholds by a hysteresis margin for a whole cool-down
+ * period, and then moves one level at a time, so a device sitting right at
+ * a threshold doesn't oscillate between two levels.
+ *
+ * Pure Java and clock-free: callers pass the time, so synthetic traces can be
+ * replayed at any speed.
+ */
+public final class ThermalGovernor {
+
+    public interface Listener {
+        void onBudgetChanged(int level, StreamBudget budget);
+    }
+
+    // Mirrors android.os.PowerManager.THERMAL_STATUS_*.
+    public static final int THERMAL_STATUS_NONE = 0;
+    public static final int THERMAL_STATUS_LIGHT = 1;
+    public static final int THERMAL_STATUS_MODERATE = 2;
+    public static final int THERMAL_STATUS_SEVERE = 3;
+
+    /** Headroom forecast at which each level above 0 is entered. */
+    private static final float[] HEADROOM_THRESHOLDS = {0.70f, 0.80f, 0.90f};
+    /** How far below a threshold headroom must fall before the level is left. */
+    private static final float HEADROOM_HYSTERESIS = 0.08f;
+    private static final int LOW_BATTERY_PERCENT = 20;
+    private static final int CRITICAL_BATTERY_PERCENT = 10;
+    /** Battery must recover this far above a threshold before it stops counting. */
+    private static final int BATTERY_HYSTERESIS = 3;
+
+    private final StreamBudget[] levels;
+    private final long coolDownMillis;
+    private final Listener listener;
+
+    private int level;
+    private long coolSinceMillis = -1;
+
+    /**
+     * @param levels         budgets from level 0 (unrestricted) to the most restrictive
+     * @param coolDownMillis how long the device must stay cooler before stepping up one level
+     */
+    public ThermalGovernor(StreamBudget[] levels, long coolDownMillis, Listener listener) {
+        if (levels.length == 0) {
+            throw new IllegalArgumentException("ThermalGovernor needs at least one level");
+        }
+        this.levels = levels.clone();
+        this.coolDownMillis = coolDownMillis;
+        this.listener = listener;
+    }
+
+    /** Budgets tuned for a 60 Hz phone capture: frame rate goes first, then resolution. */
+    public static StreamBudget[] defaultLevels() {
+        return new StreamBudget[] {
+            new StreamBudget(60, 1.0f, 100),
+            new StreamBudget(30, 1.0f, 75),
+            new StreamBudget(24, 0.75f, 65),
+            new StreamBudget(15, 0.5f, 55),
+        };
+    }
+
+    /**
+     * Feeds one observation and returns the resulting level.
+     *
+     * @param thermalStatus  current {@code THERMAL_STATUS_*}
+     * @param headroom       forecast thermal headroom, or {@code NaN} if unavailable
+     * @param batteryPercent battery level 0-100, or a negative value if unknown
+     * @param charging       whether the device is on external power
+     */
+    public synchronized int update(int thermalStatus, float headroom, int batteryPercent, boolean charging, long nowMillis) {
+        int enter = targetLevel(thermalStatus, headroom, batteryPercent, charging, 0f, 0);
+        if (enter > level) {
+            setLevel(enter);
+            coolSinceMillis = -1;
+            return level;
+        }
+        int leave = targetLevel(thermalStatus, headroom, batteryPercent, charging, HEADROOM_HYSTERESIS, BATTERY_HYSTERESIS);
+        if (leave >= level) {
+            coolSinceMillis = -1;
+            return level;
+        }
+        if (coolSinceMillis < 0) {
+            coolSinceMillis = nowMillis;
+        } else if (nowMillis - coolSinceMillis >= coolDownMillis) {
+            setLevel(level - 1);
+            // Each further step needs its own full cool-down.
+            coolSinceMillis = nowMillis;
+        }
+        return level;
+    }
+
+    public synchronized int getLevel() {
+        return level;
+    }
+
+    public synchronized StreamBudget getBudget() {
+        return levels[level];
+    }
+
+    private int targetLevel(int thermalStatus, float headroom, int batteryPercent, boolean charging,
+                            float headroomMargin, int batteryMargin) {
+        int target = 0;
+        if (!Float.isNaN(headroom)) {
+            for (int i = 0; i < HEADROOM_THRESHOLDS.length; i++) {
+                if (headroom >= HEADROOM_THRESHOLDS[i] - headroomMargin) {
+                    target = i + 1;
+                }
+            }
+        }
+        // Status only moves once the OS is already throttling, so it is a floor, not the driver.
+        if (thermalStatus >= THERMAL_STATUS_SEVERE) {
+            target = Math.max(target, 3);
+        } else if (thermalStatus >= THERMAL_STATUS_MODERATE) {
+            target = Math.max(target, 2);
+        } else if (thermalStatus >= THERMAL_STATUS_LIGHT) {
+            target = Math.max(target, 1);
+        }
+        if (!charging && batteryPercent >= 0) {
+            if (batteryPercent <= CRITICAL_BATTERY_PERCENT + batteryMargin) {
+                target = Math.max(target, 2);
+            } else if (batteryPercent <= LOW_BATTERY_PERCENT + batteryMargin) {
+                target = Math.max(target, 1);
+            }
+        }
+        return Math.min(target, levels.length - 1);
+    }
+
+    private void setLevel(int newLevel) {
+        if (newLevel == level) {
+            return;
+        }
+        level = newLevel;
+        if (listener != null) {
+            listener.onBudgetChanged(level, levels[level]);
+        }
+    }
+}
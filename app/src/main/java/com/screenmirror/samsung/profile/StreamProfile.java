@@ -0,0 +1,116 @@
+package com.screenmirror.samsung.profile;
+
+import com.screenmirror.samsung.governor.StreamBudget;
+
+import java.util.Locale;
+
+/**
+ * One complete set of streaming settings, switched as a unit.
+ *
+ * A profile is what a viewer asks for; the {@link StreamBudget} of the thermal
+ * governor caps it, and {@link #limitTo} gives what actually runs. Immutable,
+ * so a profile handed to another thread can never be seen half-changed.
+ */
+public final class StreamProfile {
+
+    /** Tile deltas with copy-rects and lossless tiles; JPEG only for key frames and photos. */
+    public static final String CODEC_DELTA = "delta";
+    /** Every frame a full JPEG key frame: more bytes, but no reference for either side to hold. */
+    public static final String CODEC_JPEG = "jpeg";
+
+    // acquireLatestImage needs one image to hand out and one to drop.
+    public static final int MIN_READER_IMAGES = 2;
+    public static final int MAX_READER_IMAGES = 4;
+    // The interval arrives from viewers; beyond this, joins and recordings starve of key frames.
+    public static final long MAX_KEY_FRAME_INTERVAL_MS = 60000;
+
+    // Key frames reset every tile to lossy JPEG, so keep them rare; lossless refinement fills in text.
+    public static final StreamProfile ULTRA_LOW_LATENCY =
+        new StreamProfile("ultra-low-latency", 60, 0.75f, CODEC_DELTA, 60, 10000, false, 2, true, 4);
+    public static final StreamProfile BALANCED =
+        new StreamProfile("balanced", 60, 1.0f, CODEC_DELTA, 80, 10000, true, 2, true, 8);
+    public static final StreamProfile HIGH_FIDELITY =
+        new StreamProfile("high-fidelity", 60, 1.0f, CODEC_DELTA, 95, 5000, true, 3, true, 8);
+    public static final StreamProfile BATTERY_SAVER =
+        new StreamProfile("battery-saver", 20, 0.5f, CODEC_DELTA, 60, 15000, false, 2, false, 0);
+
+    private static final StreamProfile[] PRESETS = {ULTRA_LOW_LATENCY, BALANCED, HIGH_FIDELITY, BATTERY_SAVER};
+
+    public final String name;
+    public final int maxFps;
+    /** Capture size relative to the physical display, in (0, 1]. */
+    public final float captureScale;
+    public final String codec;
+    public final int jpegQuality;
+    /** In (0, {@link #MAX_KEY_FRAME_INTERVAL_MS}]. */
+    public final long keyFrameIntervalMillis;
+    /** Whether an idle screen's JPEG tiles are re-sent losslessly; refinements compete with live frames. */
+    public final boolean losslessRefinement;
+    /** ImageReader depth: deeper absorbs encoder hiccups, shallower keeps frames fresher. */
+    public final int readerImages;
+    public final boolean audio;
+    /** Default media packets per parity packet for UDP viewers, 0 for no FEC. */
+    public final int udpFecGroup;
+
+    public StreamProfile(String name, int maxFps, float captureScale, String codec, int jpegQuality,
+                         long keyFrameIntervalMillis, boolean losslessRefinement, int readerImages,
+                         boolean audio, int udpFecGroup) {
+        // The scale test is negated so NaN, which optDouble returns for a non-numeric field, fails it.
+        if (name == null || name.isEmpty()
+            || maxFps < 1 || !(captureScale > 0 && captureScale <= 1)
+            || !(CODEC_DELTA.equals(codec) || CODEC_JPEG.equals(codec))
+            || jpegQuality < 1 || jpegQuality > 100
+            || keyFrameIntervalMillis < 1 || keyFrameIntervalMillis > MAX_KEY_FRAME_INTERVAL_MS
+            || readerImages < MIN_READER_IMAGES || readerImages > MAX_READER_IMAGES
+            || udpFecGroup < 0) {
+            throw new IllegalArgumentException("Invalid stream profile: " + name + " " + maxFps + "fps, scale "
+                + captureScale + ", codec " + codec + ", quality " + jpegQuality + ", key frames every "
+                + keyFrameIntervalMillis + "ms, reader " + readerImages + ", FEC " + udpFecGroup);
+        }
+        this.name = name;
+        this.maxFps = maxFps;
+        this.captureScale = captureScale;
+        this.codec = codec;
+        this.jpegQuality = jpegQuality;
+        this.keyFrameIntervalMillis = keyFrameIntervalMillis;
+        this.losslessRefinement = losslessRefinement;
+        this.readerImages = readerImages;
+        this.audio = audio;
+        this.udpFecGroup = udpFecGroup;
+    }
+
+    public static StreamProfile[] presets() {
+        return PRESETS.clone();
+    }
+
+    /** @return the preset called {@code name}, or {@code null} if there is none */
+    public static StreamProfile forName(String name) {
+        for (StreamProfile preset : PRESETS) {
+            if (preset.name.equals(name)) {
+                return preset;
+            }
+        }
+        return null;
+    }
+
+    public boolean usesDeltaFrames() {
+        return CODEC_DELTA.equals(codec);
+    }
+
+    /** This profile with frame rate, scale and quality held within {@code budget}. */
+    public StreamProfile limitTo(StreamBudget budget) {
+        if (maxFps <= budget.maxFps && captureScale <= budget.captureScale && jpegQuality <= budget.maxJpegQuality) {
+            return this;
+        }
+        return new StreamProfile(name, Math.min(maxFps, budget.maxFps), Math.min(captureScale, budget.captureScale),
+            codec, Math.min(jpegQuality, budget.maxJpegQuality), keyFrameIntervalMillis, losslessRefinement,
+            readerImages, audio, udpFecGroup);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s: %dfps scale=%.2f %s quality=%d key=%dms refine=%b reader=%d audio=%b fec=%d",
+            name, maxFps, captureScale, codec, jpegQuality, keyFrameIntervalMillis, losslessRefinement,
+            readerImages, audio, udpFecGroup);
+    }
+}
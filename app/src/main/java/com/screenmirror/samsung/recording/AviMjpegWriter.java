@@ -0,0 +1,301 @@
+package com.screenmirror.samsung.recording;
+
+import com.screenmirror.samsung.stream.EncodedFrame;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Writes JPEG frames into an MJPEG AVI (RIFF) file through a {@link FileChannel}.
+ *
+ * The stream is variable-rate while AVI is not, so each frame is placed on the
+ * nominal frame grid by its pts. Gaps are filled with zero-length chunks, which
+ * players treat as "repeat previous frame", keeping the file's timing faithful
+ * to the live session. Header sizes and counts are patched in {@link #close()}.
+ *
+ * Delta frames are not self-contained JPEGs and are skipped; the slots they
+ * would have taken become filler chunks ahead of the next key frame. The
+ * recording therefore keeps the session's timeline but its picture only
+ * changes at the live stream's key frames, by default every 5 to 15 s. The
+ * live stream is deliberately not changed for the recorder's sake.
+ */
+public final class AviMjpegWriter implements SegmentWriter {
+
+    public static final class Factory implements SegmentWriter.Factory {
+
+        private final int nominalFps;
+
+        public Factory(int nominalFps) {
+            this.nominalFps = nominalFps;
+        }
+
+        @Override
+        public SegmentWriter create(File file) throws IOException {
+            return new AviMjpegWriter(file, nominalFps);
+        }
+
+        @Override
+        public String getFileExtension() {
+            return "avi";
+        }
+    }
+
+    private static final int AVIF_HASINDEX = 0x10;
+    private static final int AVIIF_KEYFRAME = 0x10;
+    // Never emit more than this many filler chunks for a single gap (e.g. a paused screen).
+    private static final int MAX_FILLER_FRAMES = 600;
+
+    // Fixed header layout, see writeHeader().
+    private static final int HEADER_SIZE = 224;
+    private static final int RIFF_SIZE_OFFSET = 4;
+    private static final int AVIH_MAX_BYTES_PER_SEC_OFFSET = 36;
+    private static final int AVIH_TOTAL_FRAMES_OFFSET = 48;
+    private static final int AVIH_SUGGESTED_BUFFER_OFFSET = 60;
+    private static final int AVIH_WIDTH_OFFSET = 64;
+    private static final int STRH_LENGTH_OFFSET = 140;
+    private static final int STRH_SUGGESTED_BUFFER_OFFSET = 144;
+    private static final int STRH_FRAME_RECT_OFFSET = 156;
+    private static final int STRF_WIDTH_OFFSET = 176;
+    private static final int STRF_SIZE_IMAGE_OFFSET = 192;
+    private static final int MOVI_SIZE_OFFSET = 216;
+    private static final int MOVI_FOURCC_OFFSET = 220;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int nominalFps;
+    private final ByteBuffer chunkHeader = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer padding = ByteBuffer.allocate(1);
+
+    // idx1 entries: offset relative to the 'movi' fourcc, size, flags
+    private int[] indexOffsets = new int[1024];
+    private int[] indexSizes = new int[1024];
+    private boolean[] indexKey = new boolean[1024];
+    private int chunkCount;
+
+    private long position = HEADER_SIZE;
+    private int frameCount;
+    private int maxChunkSize;
+    private int width;
+    private int height;
+    private long firstPtsUs = -1;
+    private long nextSlot;
+    private boolean closed;
+
+    public AviMjpegWriter(File file, int nominalFps) throws IOException {
+        if (nominalFps <= 0) {
+            throw new IllegalArgumentException("nominalFps must be positive: " + nominalFps);
+        }
+        this.nominalFps = nominalFps;
+        this.file = new RandomAccessFile(file, "rw");
+        this.file.setLength(0);
+        this.channel = this.file.getChannel();
+        writeHeader();
+    }
+
+    @Override
+    public void writeFrame(EncodedFrame frame) throws IOException {
+        if (closed) {
+            throw new IOException("Writer already closed");
+        }
+        if (!frame.isKeyFrame()) {
+            return;
+        }
+        if (firstPtsUs < 0) {
+            firstPtsUs = frame.getPtsMicros();
+            width = frame.getWidth();
+            height = frame.getHeight();
+        }
+
+        long slot = Math.round((frame.getPtsMicros() - firstPtsUs) * nominalFps / 1_000_000.0);
+        long fillers = Math.min(slot - nextSlot, MAX_FILLER_FRAMES);
+        for (long i = 0; i < fillers; i++) {
+            writeChunk(null, 0, 0, false);
+        }
+        writeChunk(frame.getData(), 0, frame.getLength(), frame.isKeyFrame());
+        nextSlot = Math.max(slot, nextSlot) + 1;
+    }
+
+    private void writeChunk(byte[] data, int offset, int length, boolean keyFrame) throws IOException {
+        appendIndex((int) (position - MOVI_FOURCC_OFFSET), length, keyFrame);
+
+        chunkHeader.clear();
+        chunkHeader.put((byte) '0').put((byte) '0').put((byte) 'd').put((byte) 'c');
+        chunkHeader.putInt(length);
+        chunkHeader.flip();
+        writeFully(chunkHeader);
+        if (length > 0) {
+            writeFully(ByteBuffer.wrap(data, offset, length));
+        }
+        if ((length & 1) != 0) {
+            padding.clear();
+            writeFully(padding);
+        }
+        position += 8 + length + (length & 1);
+        frameCount++;
+        maxChunkSize = Math.max(maxChunkSize, length);
+    }
+
+    private void appendIndex(int offset, int size, boolean keyFrame) {
+        if (chunkCount == indexOffsets.length) {
+            int capacity = chunkCount * 2;
+            indexOffsets = Arrays.copyOf(indexOffsets, capacity);
+            indexSizes = Arrays.copyOf(indexSizes, capacity);
+            indexKey = Arrays.copyOf(indexKey, capacity);
+        }
+        indexOffsets[chunkCount] = offset;
+        indexSizes[chunkCount] = size;
+        indexKey[chunkCount] = keyFrame;
+        chunkCount++;
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return position;
+    }
+
+    @Override
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            long moviEnd = position;
+            writeIndex();
+            patchHeader(moviEnd, channel.size());
+            channel.force(false);
+        } finally {
+            file.close();
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        ByteBuffer index = ByteBuffer.allocate(8 + chunkCount * 16).order(ByteOrder.LITTLE_ENDIAN);
+        putFourCc(index, "idx1");
+        index.putInt(chunkCount * 16);
+        for (int i = 0; i < chunkCount; i++) {
+            putFourCc(index, "00dc");
+            index.putInt(indexKey[i] ? AVIIF_KEYFRAME : 0);
+            index.putInt(indexOffsets[i]);
+            index.putInt(indexSizes[i]);
+        }
+        index.flip();
+        channel.position(position);
+        writeFully(index);
+    }
+
+    private void patchHeader(long moviEnd, long fileSize) throws IOException {
+        putIntAt(RIFF_SIZE_OFFSET, (int) (fileSize - 8));
+        putIntAt(AVIH_MAX_BYTES_PER_SEC_OFFSET, maxChunkSize * nominalFps);
+        putIntAt(AVIH_TOTAL_FRAMES_OFFSET, frameCount);
+        putIntAt(AVIH_SUGGESTED_BUFFER_OFFSET, maxChunkSize + 8);
+        putIntAt(AVIH_WIDTH_OFFSET, width);
+        putIntAt(AVIH_WIDTH_OFFSET + 4, height);
+        putIntAt(STRH_LENGTH_OFFSET, frameCount);
+        putIntAt(STRH_SUGGESTED_BUFFER_OFFSET, maxChunkSize + 8);
+        ByteBuffer rect = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        rect.putShort((short) width).putShort((short) height).flip();
+        channel.write(rect, STRH_FRAME_RECT_OFFSET + 4);
+        putIntAt(STRF_WIDTH_OFFSET, width);
+        putIntAt(STRF_WIDTH_OFFSET + 4, height);
+        putIntAt(STRF_SIZE_IMAGE_OFFSET, width * height * 3);
+        putIntAt(MOVI_SIZE_OFFSET, (int) (moviEnd - MOVI_SIZE_OFFSET - 4));
+    }
+
+    private void putIntAt(long offset, int value) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(value).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, offset + buffer.position());
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        putFourCc(header, "RIFF");
+        header.putInt(0);                       // patched: file size - 8
+        putFourCc(header, "AVI ");
+
+        putFourCc(header, "LIST");
+        header.putInt(192);
+        putFourCc(header, "hdrl");
+
+        putFourCc(header, "avih");
+        header.putInt(56);
+        header.putInt(1_000_000 / nominalFps);  // dwMicroSecPerFrame
+        header.putInt(0);                       // dwMaxBytesPerSec, patched
+        header.putInt(0);                       // dwPaddingGranularity
+        header.putInt(AVIF_HASINDEX);           // dwFlags
+        header.putInt(0);                       // dwTotalFrames, patched
+        header.putInt(0);                       // dwInitialFrames
+        header.putInt(1);                       // dwStreams
+        header.putInt(0);                       // dwSuggestedBufferSize, patched
+        header.putInt(0);                       // dwWidth, patched
+        header.putInt(0);                       // dwHeight, patched
+        header.putInt(0).putInt(0).putInt(0).putInt(0);
+
+        putFourCc(header, "LIST");
+        header.putInt(116);
+        putFourCc(header, "strl");
+
+        putFourCc(header, "strh");
+        header.putInt(56);
+        putFourCc(header, "vids");
+        putFourCc(header, "MJPG");
+        header.putInt(0);                       // dwFlags
+        header.putShort((short) 0);             // wPriority
+        header.putShort((short) 0);             // wLanguage
+        header.putInt(0);                       // dwInitialFrames
+        header.putInt(1);                       // dwScale
+        header.putInt(nominalFps);              // dwRate
+        header.putInt(0);                       // dwStart
+        header.putInt(0);                       // dwLength, patched
+        header.putInt(0);                       // dwSuggestedBufferSize, patched
+        header.putInt(-1);                      // dwQuality
+        header.putInt(0);                       // dwSampleSize
+        header.putShort((short) 0).putShort((short) 0).putShort((short) 0).putShort((short) 0); // rcFrame, patched
+
+        putFourCc(header, "strf");
+        header.putInt(40);
+        header.putInt(40);                      // biSize
+        header.putInt(0);                       // biWidth, patched
+        header.putInt(0);                       // biHeight, patched
+        header.putShort((short) 1);             // biPlanes
+        header.putShort((short) 24);            // biBitCount
+        putFourCc(header, "MJPG");              // biCompression
+        header.putInt(0);                       // biSizeImage, patched
+        header.putInt(0).putInt(0).putInt(0).putInt(0);
+
+        putFourCc(header, "LIST");
+        header.putInt(4);                       // patched: movi payload size
+        putFourCc(header, "movi");
+
+        if (header.position() != HEADER_SIZE) {
+            throw new IllegalStateException("AVI header layout mismatch: " + header.position());
+        }
+        header.flip();
+        writeFully(header);
+    }
+
+    private static void putFourCc(ByteBuffer buffer, String fourCc) {
+        for (int i = 0; i < 4; i++) {
+            buffer.put((byte) fourCc.charAt(i));
+        }
+    }
+}
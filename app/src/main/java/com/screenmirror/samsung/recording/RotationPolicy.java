@@ -0,0 +1,32 @@
+package com.screenmirror.samsung.recording;
+
+/**
+ * Decides when the current recording segment is closed and a new file started.
+ * A limit of zero disables that criterion.
+ */
+public final class RotationPolicy {
+
+    private final long maxBytes;
+    private final long maxDurationMicros;
+
+    public RotationPolicy(long maxBytes, long maxDurationMillis) {
+        if (maxBytes < 0 || maxDurationMillis < 0) {
+            throw new IllegalArgumentException("Rotation limits must not be negative");
+        }
+        this.maxBytes = maxBytes;
+        this.maxDurationMicros = maxDurationMillis * 1000L;
+    }
+
+    /**
+     * @param segmentBytes   bytes already written to the current segment
+     * @param segmentStartUs pts of the first frame in the current segment
+     * @param nextPtsUs      pts of the frame about to be written
+     * @param nextFrameBytes encoded size of the frame about to be written
+     */
+    public boolean shouldRotate(long segmentBytes, long segmentStartUs, long nextPtsUs, int nextFrameBytes) {
+        if (maxBytes > 0 && segmentBytes + nextFrameBytes > maxBytes) {
+            return true;
+        }
+        return maxDurationMicros > 0 && nextPtsUs - segmentStartUs >= maxDurationMicros;
+    }
+}
@@ -0,0 +1,27 @@
+package com.screenmirror.samsung.recording;
+
+import com.screenmirror.samsung.stream.EncodedFrame;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Container writer for one recording segment. Frames are re-muxed as-is,
+ * never decoded or re-encoded.
+ */
+public interface SegmentWriter {
+
+    interface Factory {
+        SegmentWriter create(File file) throws IOException;
+
+        String getFileExtension();
+    }
+
+    void writeFrame(EncodedFrame frame) throws IOException;
+
+    long getBytesWritten();
+
+    int getFrameCount();
+
+    void close() throws IOException;
+}
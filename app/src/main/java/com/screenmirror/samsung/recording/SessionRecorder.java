@@ -0,0 +1,170 @@
+package com.screenmirror.samsung.recording;
+
+import com.screenmirror.samsung.stream.EncodedFrame;
+import com.screenmirror.samsung.stream.EncodedFrameSink;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the already-encoded stream to rotating segment files.
+ *
+ * {@link #onEncodedFrame} only enqueues a reference into a bounded queue, so the
+ * encoder thread never waits on storage. A single writer thread drains the queue
+ * into the current {@link SegmentWriter} and rotates files per {@link RotationPolicy}.
+ * If storage falls behind, the newest frames are dropped and counted.
+ */
+public final class SessionRecorder implements EncodedFrameSink {
+
+    public interface Listener {
+        void onSegmentClosed(File file, int frameCount, long bytes);
+
+        void onError(IOException e);
+    }
+
+    private static final EncodedFrame END_OF_STREAM = new EncodedFrame(-1, 0, false, 0, 0, new byte[0]);
+
+    private final File directory;
+    private final String filePrefix;
+    private final SegmentWriter.Factory writerFactory;
+    private final RotationPolicy rotationPolicy;
+    private final Listener listener;
+    private final BlockingQueue<EncodedFrame> queue;
+    private final Thread writerThread;
+
+    private volatile boolean accepting = true;
+    // Counted by the encoder thread (queue full) and the writer thread (no key frame, I/O error).
+    private final AtomicLong framesDropped = new AtomicLong();
+    private volatile int segmentsWritten;
+
+    // Writer thread state
+    private SegmentWriter currentWriter;
+    private File currentFile;
+    private long segmentStartUs;
+
+    public SessionRecorder(File directory, String filePrefix, SegmentWriter.Factory writerFactory,
+                           RotationPolicy rotationPolicy, int queueCapacity, Listener listener) {
+        this.directory = directory;
+        this.filePrefix = filePrefix;
+        this.writerFactory = writerFactory;
+        this.rotationPolicy = rotationPolicy;
+        this.listener = listener;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drainLoop();
+            }
+        }, "SessionRecorder");
+    }
+
+    public void start() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create recording directory " + directory);
+        }
+        writerThread.start();
+    }
+
+    @Override
+    public void onEncodedFrame(EncodedFrame frame) {
+        if (!accepting || !queue.offer(frame)) {
+            framesDropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Stops accepting frames, flushes what is queued and closes the last segment.
+     */
+    public void stop(long timeoutMillis) throws InterruptedException {
+        accepting = false;
+        if (!queue.offer(END_OF_STREAM, timeoutMillis, TimeUnit.MILLISECONDS)) {
+            writerThread.interrupt();
+        }
+        writerThread.join(timeoutMillis);
+    }
+
+    public long getFramesDropped() {
+        return framesDropped.get();
+    }
+
+    public int getSegmentsWritten() {
+        return segmentsWritten;
+    }
+
+    private void drainLoop() {
+        try {
+            while (true) {
+                EncodedFrame frame = queue.take();
+                if (frame == END_OF_STREAM) {
+                    break;
+                }
+                write(frame);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeSegment();
+        }
+    }
+
+    private void write(EncodedFrame frame) {
+        try {
+            if (currentWriter != null && currentWriter.getFrameCount() > 0
+                    && rotationPolicy.shouldRotate(currentWriter.getBytesWritten(), segmentStartUs,
+                        frame.getPtsMicros(), frame.getLength())) {
+                closeSegment();
+            }
+            if (currentWriter == null) {
+                // A segment must start on a key frame so it decodes on its own.
+                if (!frame.isKeyFrame()) {
+                    framesDropped.incrementAndGet();
+                    return;
+                }
+                openSegment(frame.getPtsMicros());
+            }
+            currentWriter.writeFrame(frame);
+        } catch (IOException e) {
+            framesDropped.incrementAndGet();
+            closeSegment();
+            if (listener != null) {
+                listener.onError(e);
+            }
+        }
+    }
+
+    private void openSegment(long startUs) throws IOException {
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+        currentFile = new File(directory, String.format(Locale.US, "%s-%s-%03d.%s",
+            filePrefix, stamp, segmentsWritten, writerFactory.getFileExtension()));
+        currentWriter = writerFactory.create(currentFile);
+        segmentStartUs = startUs;
+    }
+
+    private void closeSegment() {
+        if (currentWriter == null) {
+            return;
+        }
+        SegmentWriter writer = currentWriter;
+        File file = currentFile;
+        currentWriter = null;
+        currentFile = null;
+        try {
+            writer.close();
+            segmentsWritten++;
+            if (listener != null) {
+                listener.onSegmentClosed(file, writer.getFrameCount(), writer.getBytesWritten());
+            }
+        } catch (IOException e) {
+            if (listener != null) {
+                listener.onError(e);
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
 import android.net.wifi.WifiManager;
+import android.os.Build;
 import android.os.IBinder;
 import android.text.format.Formatter;
 import android.util.Log;
@@ -23,7 +24,8 @@ public class DiscoveryService extends Service {
 
     private static final String TAG = "DiscoveryService";
     private static final int DISCOVERY_SERVER_PORT = 8081; // New port for discovery
-    private static final int STREAMING_SERVICE_PORT = 8080; // Your existing streaming port
+    private static final int STREAMING_SERVICE_PORT = StreamingService.WEBSOCKET_PORT;
+    private static final int CLIENT_READ_TIMEOUT_MS = 1000;
 
     private ExecutorService executor = Executors.newSingleThreadExecutor();
     private ServerSocket discoveryServerSocket; // Socket for discovery server
@@ -87,6 +89,9 @@ public class DiscoveryService extends Service {
                         Socket clientSocket = null;
                         try {
                             clientSocket = discoveryServerSocket.accept(); // Blocks until a client connects
+                            // Clients probe a whole subnet with short deadlines; don't let one stall the rest
+                            clientSocket.setSoTimeout(CLIENT_READ_TIMEOUT_MS);
+                            clientSocket.setTcpNoDelay(true);
                             handleClientRequest(clientSocket);
                         } catch (IOException e) {
                             if (isServerRunning) { // Log error only if server is expected to be running
@@ -142,21 +147,29 @@ public class DiscoveryService extends Service {
                 // Not a valid GET request for our simple server
                 return;
             }
+            // Consume the headers; closing with unread input resets the connection
+            // and the browser drops the response along with it.
+            String header;
+            while ((header = in.readLine()) != null && !header.isEmpty()) {
+                // Nothing in the headers changes the answer.
+            }
 
             // Construct the JSON response with device info
             String deviceIp = getDeviceIpAddress();
-            String jsonResponse = "{\"ipAddress\":\"" + deviceIp + "\", \"port\":" + STREAMING_SERVICE_PORT + "}";
-
-            // Build HTTP response headers
-            String httpResponse = "HTTP/1.1 200 OK\r\n" +
-                                  "Content-Type: application/json\r\n" +
-                                  "Access-Control-Allow-Origin: *\r\n" + // IMPORTANT for CORS in web browsers
-                                  "Content-Length: " + jsonResponse.length() + "\r\n" +
-                                  "Connection: close\r\n" +
-                                  "\r\n" +
-                                  jsonResponse;
-
-            out.write(httpResponse.getBytes("UTF-8"));
+            String jsonResponse = "{\"ipAddress\":\"" + deviceIp + "\", \"port\":" + STREAMING_SERVICE_PORT
+                + ", \"name\":\"" + Build.MODEL.replace("\"", "") + "\"}";
+
+            // Build HTTP response headers; Content-Length counts bytes and the model name may not be ASCII
+            byte[] body = jsonResponse.getBytes("UTF-8");
+            String headers = "HTTP/1.1 200 OK\r\n" +
+                             "Content-Type: application/json\r\n" +
+                             "Cache-Control: no-store\r\n" +
+                             "Access-Control-Allow-Origin: *\r\n" + // IMPORTANT for CORS in web browsers
+                             "Content-Length: " + body.length + "\r\n" +
+                             "Connection: close\r\n" +
+                             "\r\n";
+            out.write(headers.getBytes("UTF-8"));
+            out.write(body);
             out.flush();
             Log.d(TAG, "Responded to discovery request from: " + clientSocket.getInetAddress().getHostAddress());
 
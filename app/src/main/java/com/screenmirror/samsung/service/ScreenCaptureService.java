@@ -6,22 +6,22 @@ import android.app.NotificationManager;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
-import android.graphics.PixelFormat;
-import android.hardware.display.DisplayManager;
-import android.hardware.display.VirtualDisplay;
-import android.media.ImageReader;
 import android.media.projection.MediaProjection;
 import android.media.projection.MediaProjectionManager;
 import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.IBinder;
+import android.os.Process;
 import android.util.DisplayMetrics;
 import android.util.Log;
 import android.view.WindowManager;
 import android.widget.Toast;
 import androidx.core.app.NotificationCompat;
-import java.nio.ByteBuffer;
 
 import com.screenmirror.samsung.R;
+import com.screenmirror.samsung.capture.CaptureEngine;
+import com.screenmirror.samsung.capture.MetricsProbe;
 
 public class ScreenCaptureService extends Service {
 
@@ -32,18 +32,15 @@ public class ScreenCaptureService extends Service {
     public static ScreenCaptureService instance;
 
     private MediaProjection mediaProjection;
-    private VirtualDisplay virtualDisplay;
-    private ImageReader imageReader;
+    // Image and display callbacks run here so frame copies never touch the UI thread.
+    private HandlerThread captureThread;
+    private Handler captureHandler;
     private int screenWidth = 0;
     private int screenHeight = 0;
     private int screenDensity = 0;
 
-    // Callback interface for frame data
-    public interface FrameCallback {
-        void onFrameAvailable(byte[] frameData);
-    }
-
-    private FrameCallback frameCallback;
+    // Frames are fanned out by the shared CaptureEngine; this probe only observes them.
+    private final MetricsProbe metricsProbe = new MetricsProbe(CaptureEngine.getInstance().getFramePool());
 
     @Override
     public void onCreate() {
@@ -171,104 +168,43 @@ public class ScreenCaptureService extends Service {
         Toast.makeText(this, "Service: MediaProjection obtained!", Toast.LENGTH_SHORT).show(); // SIXTH SERVICE TOAST
         Log.d(TAG, "ScreenCaptureService: MediaProjection obtained.");
 
-        imageReader = ImageReader.newInstance(
-            screenWidth,
-            screenHeight,
-            PixelFormat.RGBA_8888,
-            2 // Max images
-        );
+        if (captureThread == null) {
+            captureThread = new HandlerThread("CaptureThread", Process.THREAD_PRIORITY_DISPLAY);
+            captureThread.start();
+            captureHandler = new Handler(captureThread.getLooper());
+        }
 
-        imageReader.setOnImageAvailableListener(new ImageReader.OnImageAvailableListener() {
-            @Override
-            public void onImageAvailable(ImageReader reader) {
-                android.media.Image image = null;
-                try {
-                    // Toast.makeText(ScreenCaptureService.this, "Service: Image Available!", Toast.LENGTH_SHORT).show(); // DEBUG TOAST
-                    image = reader.acquireLatestImage();
-                    if (image != null) {
-                        // Toast.makeText(ScreenCaptureService.this, "Service: Image Acquired!", Toast.LENGTH_SHORT).show(); // DEBUG TOAST
-                        android.media.Image.Plane[] planes = image.getPlanes();
-                        
-                        if (planes != null && planes.length > 0 && planes[0].getBuffer() != null) {
-                            ByteBuffer buffer = planes[0].getBuffer();
-                            int pixelStride = planes[0].getPixelStride();
-                            int rowStride = planes[0].getRowStride();
-
-                            byte[] bitmapData = new byte[buffer.remaining()];
-                            buffer.get(bitmapData);
-
-                            if (frameCallback != null) {
-                                frameCallback.onFrameAvailable(bitmapData);
-                            }
-                            // Toast.makeText(ScreenCaptureService.this, "Service: Frame Sent!", Toast.LENGTH_SHORT).show(); // DEBUG TOAST
-                        } else {
-                            Log.e(TAG, "ScreenCaptureService: Image planes or buffer are null.");
-                            Toast.makeText(ScreenCaptureService.this, "Service: Image planes/buffer null!", Toast.LENGTH_SHORT).show();
-                        }
-                    } else {
-                        Log.w(TAG, "ScreenCaptureService: acquireLatestImage returned null.");
-                        Toast.makeText(ScreenCaptureService.this, "Service: Acquired null image!", Toast.LENGTH_SHORT).show();
-                    }
-                } catch (IllegalStateException e) {
-                    Log.w(TAG, "ScreenCaptureService: ImageReader acquire error (IllegalState): " + e.getMessage());
-                    Toast.makeText(ScreenCaptureService.this, "Service: ImageReader state error!", Toast.LENGTH_SHORT).show();
-                } catch (Exception e) {
-                    Log.e(TAG, "ScreenCaptureService: Error processing image: " + e.getMessage(), e);
-                    Toast.makeText(ScreenCaptureService.this, "Service: Image processing error!", Toast.LENGTH_LONG).show();
-                    // Consider stopping the service here if errors are persistent and critical.
-                } finally {
-                    if (image != null) {
-                        try {
-                            image.close();
-                            Log.d(TAG, "ScreenCaptureService: Image closed.");
-                        } catch (Exception e) {
-                            Log.e(TAG, "ScreenCaptureService: Error closing image: " + e.getMessage(), e);
-                        }
-                    }
-                }
-            }
-        }, null);
-
-        virtualDisplay = mediaProjection.createVirtualDisplay(
-            "ScreenMirror",
-            screenWidth,
-            screenHeight,
-            screenDensity,
-            DisplayManager.VIRTUAL_DISPLAY_FLAG_AUTO_MIRROR,
-            imageReader.getSurface(),
-            null,
-            null
-        );
+        CaptureEngine captureEngine = CaptureEngine.getInstance();
+        captureEngine.addSink(metricsProbe);
+        captureEngine.start(mediaProjection, screenWidth, screenHeight, screenDensity, captureHandler);
 
         Log.d(TAG, "ScreenCaptureService: Screen capture started.");
         Toast.makeText(this, "Service: Screen capture started!", Toast.LENGTH_SHORT).show(); // SEVENTH SERVICE TOAST
     }
 
     private void stopScreenCapture() {
-        if (virtualDisplay != null) {
-            virtualDisplay.release();
-            virtualDisplay = null;
-        }
-
-        if (imageReader != null) {
-            imageReader.close();
-            imageReader = null;
-        }
-
-        if (mediaProjection != null) {
-            mediaProjection.stop();
-            mediaProjection = null;
+        CaptureEngine captureEngine = CaptureEngine.getInstance();
+        captureEngine.stop();
+        captureEngine.removeSink(metricsProbe);
+        // The engine stops the projection it was handed.
+        mediaProjection = null;
+
+        if (captureThread != null) {
+            captureThread.quitSafely();
+            captureThread = null;
+            captureHandler = null;
         }
 
         stopForeground(true);
-        Log.d(TAG, "ScreenCaptureService: Screen capture stopped.");
+        Log.d(TAG, "ScreenCaptureService: Screen capture stopped. " + metricsProbe
+            + " errors: " + captureEngine.getErrorSummary());
     }
 
     public int[] getScreenDimensions() {
         return new int[]{screenWidth, screenHeight};
     }
 
-    public void setFrameCallback(FrameCallback callback) {
-        this.frameCallback = callback;
+    public MetricsProbe getMetricsProbe() {
+        return metricsProbe;
     }
 }
@@ -6,35 +6,60 @@ import android.app.NotificationManager;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
-import android.graphics.Bitmap;
-import android.media.Image;
-import android.media.ImageReader;
-import android.media.projection.MediaProjection;
 import android.os.Build;
 import android.os.Handler;
 import android.os.HandlerThread;
 import android.os.IBinder;
+import android.util.DisplayMetrics;
 import android.util.Log;
-import android.view.Surface;
-import android.hardware.display.DisplayManager;
-import android.hardware.display.VirtualDisplay;
+import android.view.WindowManager;
 import android.net.wifi.WifiManager;
 import android.text.format.Formatter;
 
 import androidx.annotation.Nullable;
 import androidx.core.app.NotificationCompat;
 
-import com.screenmirror.samsung.MainActivity;
 import com.screenmirror.samsung.R;
-import com.screenmirror.samsung.util.ImageUtils;
+import com.screenmirror.samsung.audio.AudioPacketizer;
+import com.screenmirror.samsung.audio.PlaybackAudioCapture;
+import com.screenmirror.samsung.calibration.TouchToPhotonMeter;
+import com.screenmirror.samsung.capture.CaptureEngine;
+import com.screenmirror.samsung.capture.CaptureFrame;
+import com.screenmirror.samsung.capture.FrameSink;
+import com.screenmirror.samsung.capture.StartupMetrics;
+import com.screenmirror.samsung.codec.ScreenEncoder;
+import com.screenmirror.samsung.codec.Viewport;
+import com.screenmirror.samsung.governor.DeviceThermalMonitor;
+import com.screenmirror.samsung.governor.StreamBudget;
+import com.screenmirror.samsung.governor.ThermalGovernor;
+import com.screenmirror.samsung.profile.StreamProfile;
+import com.screenmirror.samsung.recording.AviMjpegWriter;
+import com.screenmirror.samsung.recording.RotationPolicy;
+import com.screenmirror.samsung.recording.SessionRecorder;
+import com.screenmirror.samsung.stream.EncodedFrame;
+import com.screenmirror.samsung.stream.EncodedFrameSink;
+import com.screenmirror.samsung.stream.FrameHistory;
+import com.screenmirror.samsung.stream.ViewerBroadcaster;
+import com.screenmirror.samsung.trace.Tracer;
+import com.screenmirror.samsung.transport.UdpVideoSender;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.ByteBuffer;
 import java.net.InetSocketAddress;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.java_websocket.WebSocket;
 import org.java_websocket.handshake.ClientHandshake;
@@ -44,19 +69,104 @@ public class StreamingService extends Service {
 
     private static final String TAG = "StreamingService";
     private static final String CHANNEL_ID = "ScreenMirroringChannel";
-    private static final int NOTIFICATION_ID = 1001;
-    private static final int WEBSOCKET_PORT = 8080;
+    // Distinct from ScreenCaptureService, which owns the capture notification.
+    private static final int NOTIFICATION_ID = 1002;
+    // Not part of a profile: viewers find it through discovery, and moving it would drop every control channel.
+    public static final int WEBSOCKET_PORT = 8080;
+    private static final long REFINE_DELAY_MS = 50;
+
+    // Recording: re-muxes the encoded JPEG stream, rotating files by size or age.
+    private static final int RECORDING_NOMINAL_FPS = 60;
+    private static final long RECORDING_MAX_SEGMENT_BYTES = 256L * 1024 * 1024;
+    private static final long RECORDING_MAX_SEGMENT_MS = 10 * 60 * 1000;
+    private static final int RECORDING_QUEUE_FRAMES = 30;
+    private static final long RECORDING_STOP_TIMEOUT_MS = 2000;
+
+    // Time-shift history served to joining, reconnecting or replaying viewers.
+    private static final int HISTORY_MAX_FRAMES = 300;
+    private static final long HISTORY_MAX_BYTES = 24L * 1024 * 1024;
+    private static final long REPLAY_MAX_MS = 10000;
+
+    // Thermal/battery governor: a cooler device must stay cooler this long before each step back up.
+    private static final long GOVERNOR_COOL_DOWN_MS = 30000;
+    // Capture timestamps jitter around the vsync period; don't let that halve a frame-rate cap.
+    private static final long FPS_CAP_SLACK_NANOS = 2 * 1000000L;
+
+    private static final Tracer TRACER = Tracer.getInstance();
+    private static final int TRACE_ENCODE = TRACER.event("encode");
+    private static final int TRACE_REFINE = TRACER.event("encode.refine");
+    private static final int TRACE_SEND = TRACER.event("send");
+    private static final int TRACE_FRAME_BYTES = TRACER.event("frame.bytes");
+    private static final int TRACE_MESSAGE = TRACER.event("message.parse");
+    private static final int TRACE_TOUCH = TRACER.event("touch.handle");
 
-    private MediaProjection mediaProjection;
     private WebSocketServer wsServer;
     private HandlerThread imageProcessingThread;
     private Handler imageProcessingHandler;
-    private ImageReader imageReader;
-    private VirtualDisplay virtualDisplay;
-    private Surface surface;
-    private int screenWidth, screenHeight, screenDensity;
+    private final StreamingSink streamingSink = new StreamingSink();
+    private final CopyOnWriteArrayList<EncodedFrameSink> encodedFrameSinks = new CopyOnWriteArrayList<>();
+    // Read on the encoder thread when a profile is applied.
+    private volatile SessionRecorder sessionRecorder;
+    // Viewers in sync with the live stream, plus the time-shift history that gets them there.
+    private final ViewerBroadcaster broadcaster =
+        new ViewerBroadcaster(new FrameHistory(HISTORY_MAX_FRAMES, HISTORY_MAX_BYTES));
+    private volatile int screenWidth, screenHeight;
 
-    private static WebSocket currentClientWebSocket;
+    // Viewers that moved video to the RTP/UDP transport; their socket keeps signalling and input.
+    private final Map<WebSocket, UdpVideoSender> udpSenders = new ConcurrentHashMap<>();
+    // Sequence number of the last viewer touch handed to TouchInputService, echoed in frame headers.
+    private volatile long lastInputSequence;
+    // Visible display region of zoomed-in viewers; viewers without an entry see the full screen.
+    private final Map<WebSocket, Viewport> viewports = new ConcurrentHashMap<>();
+    private final ThermalGovernor thermalGovernor = new ThermalGovernor(ThermalGovernor.defaultLevels(),
+        GOVERNOR_COOL_DOWN_MS, new ThermalGovernor.Listener() {
+            @Override
+            public void onBudgetChanged(int level, StreamBudget budget) {
+                applyStreamProfile();
+            }
+        });
+    // What viewers asked for; the governor's budget caps it when it is applied.
+    private volatile StreamProfile streamProfile = StreamProfile.BALANCED;
+    private DeviceThermalMonitor thermalMonitor;
+    // Playback audio from the same projection, sent to the live viewers next to the video.
+    private PlaybackAudioCapture audioCapture;
+    // Touch-to-photon calibration: at most one viewer runs it, and it gets the results.
+    private volatile WebSocket calibrationViewer;
+    private final TouchToPhotonMeter photonMeter = new TouchToPhotonMeter(new TouchToPhotonMeter.Listener() {
+        @Override
+        public void onTargetReady(int x, int y, int width, int height) {
+            try {
+                JSONObject target = new JSONObject();
+                target.put("x", x);
+                target.put("y", y);
+                target.put("width", width);
+                target.put("height", height);
+                JSONObject message = new JSONObject();
+                message.put("type", "calibration_ready");
+                message.put("target", target);
+                sendToCalibrationViewer(message);
+            } catch (JSONException e) {
+                Log.e(TAG, "Error sending calibration target: " + e.getMessage());
+            }
+        }
+
+        @Override
+        public void onMeasured(TouchToPhotonMeter.Measurement measurement) {
+            Log.d(TAG, "Touch-to-photon: " + measurement);
+            try {
+                JSONObject message = new JSONObject();
+                message.put("type", "calibration_result");
+                message.put("seq", measurement.inputSequence);
+                message.put("frame_sequence", measurement.frameSequence);
+                message.put("dispatch_ms", measurement.dispatchNanos / 1e6);
+                message.put("compositor_ms", measurement.compositorNanos / 1e6);
+                message.put("encode_ms", measurement.encodeNanos / 1e6);
+                sendToCalibrationViewer(message);
+            } catch (JSONException e) {
+                Log.e(TAG, "Error sending calibration result: " + e.getMessage());
+            }
+        }
+    });
 
     // Singleton pattern for easy access from TouchInputService
     private static StreamingService instance;
@@ -68,6 +178,9 @@ public class StreamingService extends Service {
     // Interface for TouchInputService to send touch events
     public interface TouchCallback {
         void onTouchEvent(float x, float y, String action);
+
+        /** Shows the calibration target feeding {@code meter}, or removes it for {@code null}. */
+        void setCalibrationMeter(TouchToPhotonMeter meter);
     }
 
     private TouchCallback touchCallback;
@@ -84,7 +197,7 @@ public class StreamingService extends Service {
         createNotificationChannel();
         Notification notification = new NotificationCompat.Builder(this, CHANNEL_ID)
                 .setContentTitle("Screen Mirroring Active")
-                .setContentText("Streaming your screen to the iPad.")
+                .setContentText("Ready to stream your screen to the iPad.")
                 .setSmallIcon(R.drawable.ic_launcher_foreground)
                 .setPriority(NotificationCompat.PRIORITY_LOW)
                 .build();
@@ -95,28 +208,59 @@ public class StreamingService extends Service {
         imageProcessingHandler = new Handler(imageProcessingThread.getLooper());
 
         startWebSocketServer();
+
+        thermalMonitor = new DeviceThermalMonitor(this, imageProcessingHandler, thermalGovernor);
+        thermalMonitor.start();
+        imageProcessingHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                applyStreamProfile();
+            }
+        });
+
+        audioCapture = new PlaybackAudioCapture(this, new AudioPacketizer.Sink() {
+            @Override
+            public void onAudioPacket(byte[] packet) {
+                broadcaster.broadcastAudio(packet);
+            }
+        });
+
+        // Frames come from the shared CaptureEngine owned by ScreenCaptureService.
+        CaptureEngine.getInstance().addSink(streamingSink);
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
-        if (intent != null) {
-            if (intent.getAction() != null && intent.getAction().equals(MainActivity.ACTION_START_STREAMING)) {
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-                    mediaProjection = intent.getParcelableExtra("mediaProjection");
-                }
-                screenWidth = intent.getIntExtra("width", 1920);
-                screenHeight = intent.getIntExtra("height", 1080);
-                screenDensity = intent.getIntExtra("density", 1);
-                startScreenCapture();
-                Log.d(TAG, "Streaming service started with MediaProjection. Resolution: " + screenWidth + "x" + screenHeight);
-            } else if (intent.getAction() != null && intent.getAction().equals(MainActivity.ACTION_STOP_STREAMING)) {
-                stopSelf();
-                Log.d(TAG, "Streaming service stopped via intent.");
-            }
-        }
+        // Started at app launch and again before the consent prompt; both warm the pipeline.
+        warmUp();
         return START_NOT_STICKY;
     }
 
+    /**
+     * Prepares the frame pool and encoder for the real display size on the encoder
+     * thread, so after consent only the projection itself still has to start.
+     */
+    private void warmUp() {
+        if (CaptureEngine.getInstance().isRunning()) {
+            return;
+        }
+        DisplayMetrics displayMetrics = new DisplayMetrics();
+        WindowManager windowManager = (WindowManager) getSystemService(Context.WINDOW_SERVICE);
+        windowManager.getDefaultDisplay().getRealMetrics(displayMetrics);
+        final int width = displayMetrics.widthPixels;
+        final int height = displayMetrics.heightPixels;
+        imageProcessingHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                CaptureEngine.getInstance().prepare(width, height);
+                streamingSink.prepare(width, height);
+                StartupMetrics.getInstance().markWarm();
+                Log.d(TAG, "Warm start ready in " + (System.nanoTime() - start) / 1000000 + "ms");
+            }
+        });
+    }
+
     private void createNotificationChannel() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             CharSequence name = "Screen Mirroring";
@@ -131,6 +275,7 @@ public class StreamingService extends Service {
 
     private void startWebSocketServer() {
         wsServer = new MyScreenMirrorWebSocketServer(WEBSOCKET_PORT);
+        broadcaster.setServer(wsServer);
         try {
             wsServer.start();
             Log.d(TAG, "WebSocket server started on port " + WEBSOCKET_PORT);
@@ -148,75 +293,536 @@ public class StreamingService extends Service {
         Log.d(TAG, "Device IP Address: " + ipAddressString + ":" + WEBSOCKET_PORT);
     }
 
-    private void startScreenCapture() {
-        if (mediaProjection == null) {
-            Log.e(TAG, "MediaProjection is null, cannot start screen capture.");
-            return;
-        }
+    /**
+     * Encodes frames from the capture engine on {@code imageProcessingThread}.
+     * Only one frame is in flight at a time; newer frames replace a pending one
+     * so a slow encoder never builds a backlog.
+     */
+    private class StreamingSink implements FrameSink {
 
-        imageReader = ImageReader.newInstance(screenWidth, screenHeight,
-                android.graphics.PixelFormat.RGBA_8888, 2);
-        surface = imageReader.getSurface();
+        private final Object lock = new Object();
+        private CaptureFrame pendingFrame;
+        private long pendingInputSequence;
+        private volatile long minFrameIntervalNanos;
+        // Capture thread only.
+        private long lastAcceptedNanos;
+        private final ScreenEncoder encoder = new ScreenEncoder(StreamProfile.BALANCED.jpegQuality,
+            StreamProfile.BALANCED.keyFrameIntervalMillis);
+        // Encoder thread only.
+        private boolean audioEnabled = StreamProfile.BALANCED.audio;
 
-        virtualDisplay = mediaProjection.createVirtualDisplay("ScreenMirrorDisplay",
-                screenWidth, screenHeight, screenDensity,
-                DisplayManager.VIRTUAL_DISPLAY_FLAG_AUTO_MIRROR,
-                surface, null, imageProcessingHandler);
+        private final Runnable resetTask = new Runnable() {
+            @Override
+            public void run() {
+                encoder.reset();
+            }
+        };
 
-        imageReader.setOnImageAvailableListener(reader -> {
-            Image image = null;
-            try {
-                image = reader.acquireLatestImage();
-                if (image != null) {
-                    processImage(image);
+        // Lossless refinement of a static screen; a new captured frame carries it instead.
+        private final Runnable refineTask = new Runnable() {
+            @Override
+            public void run() {
+                synchronized (lock) {
+                    if (pendingFrame != null) {
+                        return;
+                    }
                 }
-            } catch (Exception e) {
-                Log.e(TAG, "Error acquiring or processing image: " + e.getMessage());
-            } finally {
-                if (image != null) {
-                    image.close();
+                if (!hasFrameConsumers()) {
+                    return;
+                }
+                try {
+                    encoder.setConstrained(isLinkConstrained());
+                    long traceStart = TRACER.begin();
+                    EncodedFrame refined = encoder.refine();
+                    TRACER.end(TRACE_REFINE, traceStart);
+                    publish(refined);
+                } catch (Exception e) {
+                    Log.e(TAG, "Error refining frame: " + e.getMessage());
                 }
+                scheduleRefinement();
             }
-        }, imageProcessingHandler);
-        Log.d(TAG, "Screen capture started.");
-    }
+        };
+
+        private final Runnable encodeTask = new Runnable() {
+            @Override
+            public void run() {
+                CaptureFrame frame;
+                long inputSequence;
+                synchronized (lock) {
+                    frame = pendingFrame;
+                    inputSequence = pendingInputSequence;
+                    pendingFrame = null;
+                }
+                if (frame == null) {
+                    return;
+                }
+                try {
+                    processFrame(frame, inputSequence);
+                } catch (Exception e) {
+                    Log.e(TAG, "Error encoding frame: " + e.getMessage());
+                } finally {
+                    frame.release();
+                }
+            }
+        };
+
+        private final Runnable startAudioTask = new Runnable() {
+            @Override
+            public void run() {
+                if (audioEnabled) {
+                    audioCapture.start(CaptureEngine.getInstance().getMediaProjection());
+                }
+            }
+        };
+
+        private final Runnable stopAudioTask = new Runnable() {
+            @Override
+            public void run() {
+                audioCapture.stop();
+            }
+        };
 
-    private void processImage(Image image) {
-        if (currentClientWebSocket != null && currentClientWebSocket.isOpen()) {
-            ByteBuffer buffer = image.getPlanes()[0].getBuffer();
-            byte[] bytes = new byte[buffer.remaining()];
-            buffer.get(bytes);
+        @Override
+        public void onCaptureStarted(int width, int height) {
+            screenWidth = width;
+            screenHeight = height;
+            // Also called on a capture resize; starting audio again is a no-op.
+            imageProcessingHandler.post(startAudioTask);
+            Log.d(TAG, "Capture started, streaming at " + width + "x" + height);
+        }
 
-            Bitmap bitmap = ImageUtils.imageToBitmap(image);
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            bitmap.compress(Bitmap.CompressFormat.JPEG, 80, bos);
-            byte[] jpegBytes = bos.toByteArray();
+        @Override
+        public void onFrame(CaptureFrame frame) {
+            if (!hasFrameConsumers()) {
+                return;
+            }
+            StartupMetrics.getInstance().markFirstFrameAccepted();
+            // Ahead of the frame-rate cap: a skipped frame still shows when the target changed.
+            photonMeter.onFrameCaptured(frame.getData(), frame.getStride(), frame.getWidth(), frame.getHeight(),
+                CaptureEngine.getInstance().getDisplayWidth(), frame.getSequence(), frame.getTimestampNanos());
+            long timestamp = frame.getTimestampNanos();
+            if (timestamp - lastAcceptedNanos < minFrameIntervalNanos - FPS_CAP_SLACK_NANOS) {
+                return;
+            }
+            lastAcceptedNanos = timestamp;
+            // Inputs applied before the frame reached us are the ones it can reflect.
+            long inputSequence = lastInputSequence;
+            CaptureFrame replaced;
+            synchronized (lock) {
+                replaced = pendingFrame;
+                pendingFrame = frame.retain();
+                pendingInputSequence = inputSequence;
+            }
+            if (replaced != null) {
+                replaced.release();
+            } else {
+                imageProcessingHandler.post(encodeTask);
+            }
+        }
 
+        @Override
+        public void onCaptureStopped() {
+            CaptureFrame dropped;
+            synchronized (lock) {
+                dropped = pendingFrame;
+                pendingFrame = null;
+            }
+            if (dropped != null) {
+                dropped.release();
+            }
+            // Hand the reference frame back to the pool; the next session starts on a key frame.
+            imageProcessingHandler.post(resetTask);
+            imageProcessingHandler.post(stopAudioTask);
+        }
+
+        private void processFrame(CaptureFrame frame, long inputSequence) {
+            if (!hasFrameConsumers()) {
+                return;
+            }
+
+            encoder.setConstrained(isLinkConstrained());
+            long traceStart = TRACER.begin();
+            EncodedFrame encoded = encoder.encode(frame, inputSequence);
+            TRACER.end(TRACE_ENCODE, traceStart);
+            publish(encoded);
+            if (encoded != null) {
+                photonMeter.onFrameEncoded(frame.getSequence(), encoded.getSequence(), System.nanoTime());
+            }
+            scheduleRefinement();
+        }
+
+        private void scheduleRefinement() {
+            imageProcessingHandler.removeCallbacks(refineTask);
+            if (encoder.needsRefinement()) {
+                imageProcessingHandler.postDelayed(refineTask, REFINE_DELAY_MS);
+            }
+        }
+
+        private void publish(EncodedFrame encodedFrame) {
+            if (encodedFrame == null) {
+                return;
+            }
+            if (StartupMetrics.getInstance().markFirstFrameEncoded()) {
+                Log.i(TAG, "Startup: " + StartupMetrics.getInstance());
+            }
+            for (EncodedFrameSink sink : encodedFrameSinks) {
+                sink.onEncodedFrame(encodedFrame);
+            }
+
+            TRACER.counter(TRACE_FRAME_BYTES, encodedFrame.getLength());
             try {
-                currentClientWebSocket.send(jpegBytes);
+                long traceStart = TRACER.begin();
+                broadcaster.publish(encodedFrame);
+                TRACER.end(TRACE_SEND, traceStart);
             } catch (Exception e) {
                 Log.e(TAG, "Error sending image over WebSocket: " + e.getMessage());
-            } finally {
-                bitmap.recycle();
-                try {
-                    bos.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
+            }
+        }
+
+        void prepare(int width, int height) {
+            encoder.prepare(width, height);
+        }
+
+        void requestKeyFrame() {
+            encoder.requestKeyFrame();
+        }
+
+        /**
+         * Switches every encoder setting of {@code profile} at once. Encoder
+         * thread only, so it lands between two encodes and no frame is coded
+         * with half of one profile and half of another.
+         */
+        void applyProfile(StreamProfile profile) {
+            minFrameIntervalNanos = 1000000000L / profile.maxFps;
+            encoder.setBaseJpegQuality(profile.jpegQuality);
+            encoder.setKeyFrameInterval(profile.keyFrameIntervalMillis);
+            encoder.setDeltaFrames(profile.usesDeltaFrames());
+            encoder.setLosslessRefinement(profile.losslessRefinement);
+            if (audioEnabled != profile.audio) {
+                audioEnabled = profile.audio;
+                if (!audioEnabled) {
+                    stopAudioTask.run();
+                } else if (CaptureEngine.getInstance().isRunning()) {
+                    startAudioTask.run();
                 }
             }
+            // Refinement may have been switched on over an idle screen.
+            scheduleRefinement();
+        }
+
+        void onTouch(float x, float y) {
+            encoder.onTouch(x, y);
+        }
+
+        void setViewport(Viewport viewport) {
+            encoder.setViewport(viewport);
+        }
+
+        void release() {
+            CaptureFrame dropped;
+            synchronized (lock) {
+                dropped = pendingFrame;
+                pendingFrame = null;
+            }
+            if (dropped != null) {
+                dropped.release();
+            }
+            Log.d(TAG, "Encoder released. Key frames: " + encoder.getKeyFrames() + ", delta frames: " + encoder.getDeltaFrames() + ", copy-rects: " + encoder.getCopyRects() + ", lossless tiles: " + encoder.getLosslessTiles() + ", JPEG tiles: " + encoder.getJpegTiles() + ", deferred tiles: " + encoder.getDeferredTiles());
+            encoder.release();
         }
     }
 
+    private boolean isLinkConstrained() {
+        return broadcaster.isConstrained();
+    }
+
+    private boolean hasFrameConsumers() {
+        return broadcaster.hasViewers() || !encodedFrameSinks.isEmpty();
+    }
+
+    /**
+     * Brings a viewer up to date from the frame history, then adds it to the live
+     * broadcast. Runs on the encoder thread so no live frame can slip in between.
+     */
+    private void syncViewer(final WebSocket conn, final long lastSequence) {
+        imageProcessingHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!conn.isOpen()) {
+                    return;
+                }
+                int frames = broadcaster.join(conn, lastSequence);
+                if (!broadcaster.getHistory().canSync(lastSequence)) {
+                    // Nothing to start from, e.g. the history dropped an overgrown chain.
+                    streamingSink.requestKeyFrame();
+                }
+                applyViewport();
+                Log.d(TAG, "Viewer synced with " + frames + " frame(s) from history, viewers: " + broadcaster.getViewers().size());
+            }
+        });
+    }
+
+    private void replayToViewer(final WebSocket conn, final long durationMillis) {
+        imageProcessingHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                broadcaster.replay(conn, durationMillis);
+            }
+        });
+    }
+
+    private void stopCalibration() {
+        calibrationViewer = null;
+        TouchCallback callback = touchCallback;
+        if (callback != null) {
+            callback.setCalibrationMeter(null);
+        } else {
+            photonMeter.stop();
+        }
+        Log.d(TAG, "Calibration stopped after " + photonMeter.getMeasurements() + " measurement(s)");
+    }
+
+    private void sendToCalibrationViewer(JSONObject message) {
+        WebSocket viewer = calibrationViewer;
+        if (viewer != null && viewer.isOpen()) {
+            viewer.send(message.toString());
+        }
+    }
+
+    /**
+     * Writes the tracer's ring to {@code traces/} as Chrome trace JSON; open it
+     * in chrome://tracing or ui.perfetto.dev after {@code adb pull}.
+     */
+    public File dumpTrace() throws IOException {
+        File directory = new File(getExternalFilesDir(null), "traces");
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create trace directory " + directory);
+        }
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+        File file = new File(directory, "trace-" + stamp + ".json");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) {
+            TRACER.writeChromeTrace(writer);
+        }
+        Log.d(TAG, "Trace written: " + file + ", events: " + TRACER.getRecordedCount());
+        return file;
+    }
+
+    public synchronized boolean startRecording() {
+        if (sessionRecorder != null) {
+            return true;
+        }
+        File directory = new File(getExternalFilesDir(null), "recordings");
+        SessionRecorder recorder = new SessionRecorder(directory, "session",
+            new AviMjpegWriter.Factory(RECORDING_NOMINAL_FPS),
+            new RotationPolicy(RECORDING_MAX_SEGMENT_BYTES, RECORDING_MAX_SEGMENT_MS),
+            RECORDING_QUEUE_FRAMES,
+            new SessionRecorder.Listener() {
+                @Override
+                public void onSegmentClosed(File file, int frameCount, long bytes) {
+                    Log.d(TAG, "Recording segment closed: " + file.getName() + ", frames: " + frameCount + ", bytes: " + bytes);
+                }
+
+                @Override
+                public void onError(IOException e) {
+                    Log.e(TAG, "Recording write error: " + e.getMessage());
+                }
+            });
+        try {
+            recorder.start();
+        } catch (IOException e) {
+            Log.e(TAG, "Could not start recording: " + e.getMessage());
+            return false;
+        }
+        sessionRecorder = recorder;
+        encodedFrameSinks.add(recorder);
+        // Segments open on a key frame; don't make the first one wait for the interval.
+        // After that the recorder keeps the stream's own key frames, and live viewers keep their deltas.
+        streamingSink.requestKeyFrame();
+        Log.d(TAG, "Recording started in " + directory);
+        return true;
+    }
+
+    public synchronized void stopRecording() {
+        if (sessionRecorder == null) {
+            return;
+        }
+        SessionRecorder recorder = sessionRecorder;
+        sessionRecorder = null;
+        encodedFrameSinks.remove(recorder);
+        try {
+            recorder.stop(RECORDING_STOP_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Log.d(TAG, "Recording stopped. Segments: " + recorder.getSegmentsWritten() + ", dropped frames: " + recorder.getFramesDropped());
+    }
+
+    /**
+     * Recomputes the viewport on the encoder thread. Safe to call from any thread.
+     */
+    private void updateViewport() {
+        imageProcessingHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                applyViewport();
+            }
+        });
+    }
+
+    /**
+     * The broadcast stream is shared, so it covers the union of what every viewer shows.
+     * Runs on the encoder thread only, so two recomputes cannot interleave and leave
+     * a stale union in place after viewers, viewports or UDP senders changed.
+     */
+    private void applyViewport() {
+        Viewport union = null;
+        boolean first = true;
+        for (WebSocket viewer : broadcaster.getViewers()) {
+            Viewport viewport = viewports.get(viewer);
+            union = first ? viewport : Viewport.union(union, viewport);
+            first = false;
+        }
+        if (!udpSenders.isEmpty()) {
+            union = null;
+        }
+        streamingSink.setViewport(union == null ? null : union.scale(CaptureEngine.getInstance().getCaptureScale()));
+    }
+
+    /**
+     * Switches the streaming profile for every viewer. The projection, the
+     * sockets and the frame history all stay up; viewers are told through a
+     * "profile" message once it is in effect.
+     */
+    public void setStreamProfile(StreamProfile profile) {
+        streamProfile = profile;
+        imageProcessingHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                applyStreamProfile();
+            }
+        });
+    }
+
+    public StreamProfile getStreamProfile() {
+        return streamProfile;
+    }
+
+    /** The requested profile as capped by the governor's current budget. */
+    private StreamProfile effectiveProfile() {
+        return streamProfile.limitTo(thermalGovernor.getBudget());
+    }
+
+    /**
+     * Applies the requested profile within the governor's budget, after a
+     * profile switch or a governor level change. Runs on the encoder thread;
+     * the capture scale and reader depth change together between two frames
+     * on the capture thread.
+     */
+    private void applyStreamProfile() {
+        StreamProfile profile = effectiveProfile();
+        streamingSink.applyProfile(profile);
+        CaptureEngine.getInstance().configure(profile.captureScale, profile.readerImages);
+        applyViewport();
+        Log.i(TAG, "Stream profile: " + profile + ", budget: " + thermalGovernor.getBudget());
+        if (wsServer != null) {
+            try {
+                wsServer.broadcast(profileMessage().toString());
+            } catch (JSONException e) {
+                Log.e(TAG, "Error sending profile: " + e.getMessage());
+            }
+        }
+    }
+
+    private JSONObject profileMessage() throws JSONException {
+        JSONArray presets = new JSONArray();
+        for (StreamProfile preset : StreamProfile.presets()) {
+            presets.put(preset.name);
+        }
+        JSONObject message = new JSONObject();
+        message.put("type", "profile");
+        message.put("requested", profileJson(streamProfile));
+        message.put("effective", profileJson(effectiveProfile()));
+        message.put("presets", presets);
+        return message;
+    }
+
+    private static JSONObject profileJson(StreamProfile profile) throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("name", profile.name);
+        json.put("fps", profile.maxFps);
+        json.put("scale", (double) profile.captureScale);
+        json.put("codec", profile.codec);
+        json.put("quality", profile.jpegQuality);
+        json.put("key_frame_interval_ms", profile.keyFrameIntervalMillis);
+        json.put("lossless_refinement", profile.losslessRefinement);
+        json.put("reader_images", profile.readerImages);
+        json.put("audio", profile.audio);
+        json.put("fec_group", profile.udpFecGroup);
+        return json;
+    }
+
+    /**
+     * A preset by "name", or the current profile if there is none, with any
+     * of the fields {@link #profileJson} reports overridden.
+     */
+    private StreamProfile parseProfile(JSONObject json) {
+        StreamProfile base = streamProfile;
+        if (json.has("name")) {
+            base = StreamProfile.forName(json.optString("name"));
+            if (base == null) {
+                throw new IllegalArgumentException("Unknown stream profile: " + json.optString("name"));
+            }
+        }
+        return new StreamProfile(base.name,
+            json.optInt("fps", base.maxFps),
+            (float) json.optDouble("scale", base.captureScale),
+            json.optString("codec", base.codec),
+            json.optInt("quality", base.jpegQuality),
+            json.optLong("key_frame_interval_ms", base.keyFrameIntervalMillis),
+            json.optBoolean("lossless_refinement", base.losslessRefinement),
+            json.optInt("reader_images", base.readerImages),
+            json.optBoolean("audio", base.audio),
+            json.optInt("fec_group", base.udpFecGroup));
+    }
+
+    private void subscribeUdp(WebSocket conn, int port, int fecGroupSize) throws IOException {
+        unsubscribeUdp(conn);
+        InetSocketAddress target = new InetSocketAddress(conn.getRemoteSocketAddress().getAddress(), port);
+        UdpVideoSender sender = new UdpVideoSender(target, UdpVideoSender.DEFAULT_MAX_PACKET_SIZE, fecGroupSize);
+        udpSenders.put(conn, sender);
+        broadcaster.remove(conn);
+        encodedFrameSinks.add(sender);
+        updateViewport();
+        streamingSink.requestKeyFrame();
+        Log.d(TAG, "UDP video subscribed: " + target + ", FEC group: " + fecGroupSize);
+    }
+
+    private void unsubscribeUdp(WebSocket conn) {
+        UdpVideoSender sender = udpSenders.remove(conn);
+        if (sender == null) {
+            return;
+        }
+        encodedFrameSinks.remove(sender);
+        updateViewport();
+        try {
+            sender.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Error closing UDP sender: " + e.getMessage());
+        }
+        Log.d(TAG, "UDP video unsubscribed: " + sender.getTarget() + ", sent: " + sender.getPacketsSent() + ", dropped: " + sender.getPacketsDropped());
+    }
+
     private class MyScreenMirrorWebSocketServer extends WebSocketServer {
 
         public MyScreenMirrorWebSocketServer(int port) {
             super(new InetSocketAddress(port));
+            // Nagle holds the tail of each frame for the client's delayed ACK, ~20ms per frame.
+            setTcpNoDelay(true);
         }
 
         @Override
         public void onOpen(WebSocket conn, ClientHandshake handshake) {
             Log.d(TAG, "WebSocket opened. Client connected: " + conn.getRemoteSocketAddress().getAddress().getHostAddress());
-            currentClientWebSocket = conn;
             try {
                 JSONObject welcomeMessage = new JSONObject();
                 welcomeMessage.put("type", "welcome");
@@ -231,35 +837,177 @@ public class StreamingService extends Service {
         @Override
         public void onClose(WebSocket conn, int code, String reason, boolean remote) {
             Log.d(TAG, "WebSocket closed: " + conn.getRemoteSocketAddress().getAddress().getHostAddress() + ", code: " + code + ", reason: " + reason + ", remote: " + remote);
-            if (conn == currentClientWebSocket) {
-                currentClientWebSocket = null;
+            broadcaster.remove(conn);
+            unsubscribeUdp(conn);
+            viewports.remove(conn);
+            updateViewport();
+            if (conn == calibrationViewer) {
+                stopCalibration();
             }
         }
 
         @Override
         public void onMessage(WebSocket conn, String message) {
-            Log.d(TAG, "Received message from " + conn.getRemoteSocketAddress().getAddress().getHostAddress() + ": " + message);
+            // Per-message logging cost more than the parse; use the tracer to see this path.
+            long traceStart = TRACER.begin();
             try {
                 JSONObject json = new JSONObject(message);
+                TRACER.end(TRACE_MESSAGE, traceStart);
                 String type = json.optString("type");
-                if ("touchEvent".equals(type)) {
+                // The web client sends "touch"; "touchEvent" is the older name.
+                if ("touchEvent".equals(type) || "touch".equals(type)) {
+                    long touchStart = TRACER.begin();
+                    float x = (float) json.optDouble("x");
+                    float y = (float) json.optDouble("y");
+                    float captureScale = CaptureEngine.getInstance().getCaptureScale();
+                    streamingSink.onTouch(x * captureScale, y * captureScale);
+                    if (json.optBoolean("calibration") && json.has("seq")) {
+                        // Armed before dispatch; the immediate ack lets the client time the input leg.
+                        photonMeter.arm(json.optLong("seq"), System.nanoTime());
+                        JSONObject ack = new JSONObject();
+                        ack.put("type", "calibration_ack");
+                        ack.put("seq", json.optLong("seq"));
+                        conn.send(ack.toString());
+                    }
                     if (touchCallback != null) {
-                        float x = (float) json.optDouble("x");
-                        float y = (float) json.optDouble("y");
                         String action = json.optString("action");
                         touchCallback.onTouchEvent(x, y, action);
+                        if (json.has("seq")) {
+                            lastInputSequence = json.optLong("seq");
+                        }
                     } else {
                         Log.w(TAG, "TouchCallback not set. Touch event not processed.");
                     }
+                    TRACER.end(TRACE_TOUCH, touchStart);
+                } else if ("connection_request".equals(type)) {
+                    syncViewer(conn, json.optLong("last_sequence", -1));
+                } else if ("key_frame_request".equals(type)) {
+                    // The client lost its reference image (e.g. after a replay) and cannot apply deltas.
+                    streamingSink.requestKeyFrame();
+                } else if ("viewport".equals(type)) {
+                    if (json.has("width") && json.has("height")) {
+                        Viewport viewport = new Viewport(json.getInt("x"), json.getInt("y"),
+                            json.getInt("width"), json.getInt("height"));
+                        // Clients measure in frame pixels; keep display pixels so a capture resize doesn't move it.
+                        int sourceWidth = json.optInt("source_width");
+                        int displayWidth = CaptureEngine.getInstance().getDisplayWidth();
+                        if (sourceWidth > 0 && displayWidth > 0) {
+                            viewport = viewport.scale(displayWidth / (float) sourceWidth);
+                        }
+                        viewports.put(conn, viewport);
+                    } else {
+                        viewports.remove(conn);
+                    }
+                    updateViewport();
+                } else if ("replay".equals(type)) {
+                    long durationMillis = Math.min(REPLAY_MAX_MS, (long) (json.optDouble("seconds", 3) * 1000));
+                    replayToViewer(conn, durationMillis);
+                } else if ("udp_subscribe".equals(type)) {
+                    try {
+                        subscribeUdp(conn, json.getInt("port"), json.optInt("fec_group", streamProfile.udpFecGroup));
+                    } catch (IOException e) {
+                        Log.e(TAG, "Could not open UDP transport: " + e.getMessage());
+                    }
+                } else if ("udp_unsubscribe".equals(type)) {
+                    unsubscribeUdp(conn);
+                    syncViewer(conn, json.optLong("last_sequence", -1));
+                } else if ("profile".equals(type)) {
+                    handleProfileCommand(conn, json);
+                } else if ("calibration".equals(type)) {
+                    handleCalibrationCommand(conn, json.optString("action"));
+                } else if ("trace".equals(type)) {
+                    handleTraceCommand(conn, json.optString("action"));
+                } else if ("start_recording".equals(type)) {
+                    boolean started = startRecording();
+                    sendRecordingStatus(conn, started);
+                } else if ("stop_recording".equals(type)) {
+                    stopRecording();
+                    sendRecordingStatus(conn, false);
                 }
             } catch (JSONException e) {
                 Log.e(TAG, "Error parsing JSON message: " + e.getMessage());
             }
         }
 
+        private void handleCalibrationCommand(WebSocket conn, String action) throws JSONException {
+            if ("start".equals(action)) {
+                if (touchCallback == null) {
+                    JSONObject error = new JSONObject();
+                    error.put("type", "error");
+                    error.put("error", "Calibration needs the touch input accessibility service");
+                    conn.send(error.toString());
+                    return;
+                }
+                calibrationViewer = conn;
+                // The target reports itself through calibration_ready once it is laid out.
+                touchCallback.setCalibrationMeter(photonMeter);
+            } else if ("stop".equals(action) && conn == calibrationViewer) {
+                stopCalibration();
+            }
+        }
+
+        private void handleProfileCommand(WebSocket conn, JSONObject json) throws JSONException {
+            if ("set".equals(json.optString("action"))) {
+                try {
+                    // Every viewer gets the "profile" message once the switch is applied.
+                    setStreamProfile(parseProfile(json));
+                } catch (IllegalArgumentException e) {
+                    JSONObject error = new JSONObject();
+                    error.put("type", "error");
+                    error.put("error", e.getMessage());
+                    conn.send(error.toString());
+                }
+            } else {
+                conn.send(profileMessage().toString());
+            }
+        }
+
+        private void handleTraceCommand(final WebSocket conn, String action) throws JSONException {
+            if ("start".equals(action)) {
+                TRACER.start();
+                sendTraceStatus(conn, "trace_started", null);
+            } else if ("stop".equals(action)) {
+                TRACER.stop();
+                sendTraceStatus(conn, "trace_stopped", null);
+            } else if ("dump".equals(action)) {
+                // Serialising a full ring takes a while; keep it off the socket thread.
+                new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            File file = dumpTrace();
+                            sendTraceStatus(conn, "trace_dumped", file);
+                        } catch (IOException | JSONException e) {
+                            Log.e(TAG, "Could not dump trace: " + e.getMessage());
+                        }
+                    }
+                }, "TraceDump").start();
+            }
+        }
+
+        private void sendTraceStatus(WebSocket conn, String status, File file) throws JSONException {
+            JSONObject message = new JSONObject();
+            message.put("type", "status");
+            message.put("status", status);
+            message.put("events", TRACER.getRecordedCount());
+            if (file != null) {
+                message.put("path", file.getAbsolutePath());
+            }
+            if (conn.isOpen()) {
+                conn.send(message.toString());
+            }
+        }
+
+        private void sendRecordingStatus(WebSocket conn, boolean recording) throws JSONException {
+            JSONObject status = new JSONObject();
+            status.put("type", "status");
+            status.put("status", recording ? "recording_started" : "recording_stopped");
+            conn.send(status.toString());
+        }
+
         @Override
         public void onMessage(WebSocket conn, ByteBuffer message) {
-            Log.d(TAG, "Received binary message from " + conn.getRemoteSocketAddress().getAddress().getHostAddress() + ", length: " + message.remaining());
+            // Viewers send no binary messages; ignore without per-message logging.
         }
 
         @Override
@@ -285,6 +1033,18 @@ public class StreamingService extends Service {
         super.onDestroy();
         Log.d(TAG, "StreamingService onDestroy called.");
         instance = null;
+        CaptureEngine.getInstance().removeSink(streamingSink);
+        if (thermalMonitor != null) {
+            thermalMonitor.stop();
+        }
+        if (audioCapture != null) {
+            audioCapture.stop();
+        }
+        stopRecording();
+        for (WebSocket conn : udpSenders.keySet()) {
+            unsubscribeUdp(conn);
+        }
+        broadcaster.clear();
 
         if (wsServer != null) {
             try {
@@ -295,22 +1055,6 @@ public class StreamingService extends Service {
                 Log.e(TAG, "Error stopping WebSocket server: " + e.getMessage());
             }
         }
-        if (mediaProjection != null) {
-            mediaProjection.stop();
-            Log.d(TAG, "MediaProjection stopped.");
-        }
-        if (virtualDisplay != null) {
-            virtualDisplay.release();
-            Log.d(TAG, "VirtualDisplay released.");
-        }
-        if (imageReader != null) {
-            imageReader.close();
-            Log.d(TAG, "ImageReader closed.");
-        }
-        if (surface != null) {
-            surface.release();
-            Log.d(TAG, "Surface released.");
-        }
         if (imageProcessingThread != null) {
             imageProcessingThread.quitSafely();
             try {
@@ -319,6 +1063,7 @@ public class StreamingService extends Service {
                 e.printStackTrace();
             }
         }
+        streamingSink.release();
         stopForeground(true);
         Log.d(TAG, "Streaming Service destroyed.");
     }
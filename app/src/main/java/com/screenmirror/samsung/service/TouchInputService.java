@@ -8,13 +8,23 @@ import android.os.Looper;
 import android.util.Log;
 import android.view.accessibility.AccessibilityEvent;
 
+import com.screenmirror.samsung.calibration.CalibrationOverlay;
+import com.screenmirror.samsung.calibration.TouchToPhotonMeter;
+import com.screenmirror.samsung.trace.Tracer;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 
 public class TouchInputService extends AccessibilityService implements StreamingService.TouchCallback {
 
     private static final String TAG = "TouchInputService";
+    private static final Tracer TRACER = Tracer.getInstance();
+    private static final int TRACE_GESTURE_DISPATCH = TRACER.event("gesture.dispatch");
+    private static final int TRACE_GESTURE_COMPLETED = TRACER.event("gesture.completed");
+    private static final int TRACE_GESTURE_CANCELLED = TRACER.event("gesture.cancelled");
     private Handler mainHandler;
+    // Main thread only.
+    private CalibrationOverlay calibrationOverlay;
 
     @Override
     public void onCreate() {
@@ -48,6 +58,10 @@ public class TouchInputService extends AccessibilityService implements Streaming
 
     @Override
     public void onDestroy() {
+        if (calibrationOverlay != null) {
+            calibrationOverlay.hide();
+            calibrationOverlay = null;
+        }
         super.onDestroy();
         Log.d(TAG, "TouchInputService disconnected.");
         StreamingService streamingService = StreamingService.getInstance();
@@ -59,9 +73,8 @@ public class TouchInputService extends AccessibilityService implements Streaming
 
     @Override
     public void onTouchEvent(float x, float y, String action) {
-        Log.d(TAG, "Received touch event via callback: x=" + x + ", y=" + y + ", action=" + action);
-
         mainHandler.post(() -> {
+            long traceStart = TRACER.begin();
             Path path = new Path();
             path.moveTo(x, y);
 
@@ -79,16 +92,31 @@ public class TouchInputService extends AccessibilityService implements Streaming
                     @Override
                     public void onGestureCompleted(GestureDescription gestureDescription) {
                         super.onGestureCompleted(gestureDescription);
-                        Log.d(TAG, "Gesture completed for action: " + action);
+                        TRACER.instant(TRACE_GESTURE_COMPLETED);
                     }
 
                     @Override
                     public void onGestureCancelled(GestureDescription gestureDescription) {
                         super.onGestureCancelled(gestureDescription);
-                        Log.w(TAG, "Gesture cancelled for action: " + action);
+                        TRACER.instant(TRACE_GESTURE_CANCELLED);
                     }
                 }, null);
             }
+            TRACER.end(TRACE_GESTURE_DISPATCH, traceStart);
+        });
+    }
+
+    @Override
+    public void setCalibrationMeter(final TouchToPhotonMeter meter) {
+        mainHandler.post(() -> {
+            if (calibrationOverlay != null) {
+                calibrationOverlay.hide();
+                calibrationOverlay = null;
+            }
+            if (meter != null) {
+                calibrationOverlay = new CalibrationOverlay(this, meter);
+                calibrationOverlay.show();
+            }
         });
     }
 }
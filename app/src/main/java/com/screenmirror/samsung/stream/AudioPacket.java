@@ -0,0 +1,42 @@
+package com.screenmirror.samsung.stream;
+
+/**
+ * Binary WebSocket framing for audio, sharing the first 12 bytes of the
+ * {@link FramePacket} header so the client routes both with one read:
+ * <pre>
+ *   u8  type          TYPE_AUDIO_ADPCM
+ *   u8  flags         0
+ *   u16 headerLength  bytes before the payload
+ *   u32 sequence      audio packet sequence number
+ *   u32 ptsMillis     capture time of the first frame, same clock as video, truncated to 32 bits
+ *   u32 sampleRate
+ *   u8  channels
+ *   u8  reserved
+ *   u16 frames        frames in the packet
+ * </pre>
+ * The payload is one {@link com.screenmirror.samsung.audio.ImaAdpcm} block.
+ */
+public final class AudioPacket {
+
+    public static final int TYPE_AUDIO_ADPCM = 3;
+    public static final int HEADER_LENGTH = 20;
+
+    private AudioPacket() {
+    }
+
+    public static byte[] encode(long sequence, long ptsMicros, int sampleRate, int channels, int frames,
+                                byte[] block, int length) {
+        byte[] packet = new byte[HEADER_LENGTH + length];
+        packet[0] = (byte) TYPE_AUDIO_ADPCM;
+        packet[1] = 0;
+        FramePacket.putShort(packet, 2, HEADER_LENGTH);
+        FramePacket.putInt(packet, 4, (int) sequence);
+        FramePacket.putInt(packet, 8, (int) (ptsMicros / 1000));
+        FramePacket.putInt(packet, 12, sampleRate);
+        packet[16] = (byte) channels;
+        packet[17] = 0;
+        FramePacket.putShort(packet, 18, frames);
+        System.arraycopy(block, 0, packet, HEADER_LENGTH, length);
+        return packet;
+    }
+}
@@ -0,0 +1,82 @@
+package com.screenmirror.samsung.stream;
+
+/**
+ * One encoded video frame as produced by the streaming encoder.
+ *
+ * The payload array is never modified after construction, so the same instance
+ * can be handed to the socket, the recorder and any other consumer without copying.
+ * Key frames are self-contained JPEGs; delta frames carry a
+ * {@link com.screenmirror.samsung.codec.DeltaFrameWriter} operation list that only
+ * applies on top of the previously encoded frame.
+ */
+public final class EncodedFrame {
+
+    private final long sequence;
+    private final long ptsMicros;
+    private final boolean keyFrame;
+    private final int width;
+    private final int height;
+    private final byte[] data;
+    private final int length;
+    private final long inputSequence;
+
+    /**
+     * @param inputSequence sequence number of the last viewer input applied before
+     *                      the frame was captured, or 0 if none
+     */
+    public EncodedFrame(long sequence, long ptsMicros, boolean keyFrame, int width, int height,
+                        byte[] data, int length, long inputSequence) {
+        if (length < 0 || length > data.length) {
+            throw new IllegalArgumentException("length " + length + " out of range for " + data.length + " bytes");
+        }
+        this.sequence = sequence;
+        this.ptsMicros = ptsMicros;
+        this.keyFrame = keyFrame;
+        this.width = width;
+        this.height = height;
+        this.data = data;
+        this.length = length;
+        this.inputSequence = inputSequence;
+    }
+
+    public EncodedFrame(long sequence, long ptsMicros, boolean keyFrame, int width, int height, byte[] data, int length) {
+        this(sequence, ptsMicros, keyFrame, width, height, data, length, 0);
+    }
+
+    public EncodedFrame(long sequence, long ptsMicros, boolean keyFrame, int width, int height, byte[] data) {
+        this(sequence, ptsMicros, keyFrame, width, height, data, data.length);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    /** Presentation time on the capture clock, in microseconds. */
+    public long getPtsMicros() {
+        return ptsMicros;
+    }
+
+    public boolean isKeyFrame() {
+        return keyFrame;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public long getInputSequence() {
+        return inputSequence;
+    }
+}
@@ -0,0 +1,12 @@
+package com.screenmirror.samsung.stream;
+
+/**
+ * Consumer of frames after encoding, e.g. the session recorder.
+ *
+ * Called on the encoder thread; implementations must hand the frame off
+ * rather than doing blocking work inline.
+ */
+public interface EncodedFrameSink {
+
+    void onEncodedFrame(EncodedFrame frame);
+}
@@ -0,0 +1,215 @@
+package com.screenmirror.samsung.stream;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded in-memory ring of recently encoded frames, ordered by sequence.
+ *
+ * Lets a joining or reconnecting viewer start from the latest key frame (plus
+ * the deltas after it) or replay the last few seconds, without asking the
+ * encoder for a new key frame. Oldest frames are evicted once either the frame
+ * count or the byte budget is exceeded, but the latest key frame is always kept
+ * so a join can be served: when the key-frame interval is longer than the ring,
+ * the ring grows past {@code maxFrames} until the next key frame lets it shrink
+ * back. That growth stops at {@code CEILING_FACTOR} times either limit: the
+ * whole chain is dropped and later deltas are ignored until the next key frame,
+ * so a long or client-set key-frame interval cannot make memory grow without
+ * bound. Meanwhile {@link #canSync} is false and the caller must ask the
+ * encoder for a key frame instead.
+ */
+public final class FrameHistory implements EncodedFrameSink {
+
+    static final int CEILING_FACTOR = 2;
+
+    private final int maxFrames;
+    private final long maxBytes;
+    private EncodedFrame[] ring;
+
+    private int head;
+    private int size;
+    private long bytes;
+    private long evictedCount;
+    // Set once an overgrown chain is dropped: deltas are undecodable until the next key frame.
+    private boolean awaitingKeyFrame;
+
+    public FrameHistory(int maxFrames, long maxBytes) {
+        if (maxFrames < 1 || maxBytes < 1) {
+            throw new IllegalArgumentException("FrameHistory limits must be positive");
+        }
+        this.maxFrames = maxFrames;
+        this.maxBytes = maxBytes;
+        this.ring = new EncodedFrame[maxFrames];
+    }
+
+    @Override
+    public void onEncodedFrame(EncodedFrame frame) {
+        add(frame);
+    }
+
+    public synchronized void add(EncodedFrame frame) {
+        if (size > 0 && frame.getSequence() <= get(size - 1).getSequence()) {
+            // Sequences restart when capture restarts; old frames are no longer decodable context.
+            clear();
+        }
+        if (awaitingKeyFrame) {
+            if (!frame.isKeyFrame()) {
+                evictedCount++;
+                return;
+            }
+            awaitingKeyFrame = false;
+        }
+        if (size == ring.length) {
+            if (latestKeyFrameIndex() > 0) {
+                evictOldest();
+            } else {
+                // The deltas after the latest key frame are only decodable as a whole chain.
+                grow();
+            }
+        }
+        ring[(head + size) % ring.length] = frame;
+        size++;
+        bytes += frame.getLength();
+
+        int latestKey = latestKeyFrameIndex();
+        while ((size > maxFrames || bytes > maxBytes) && latestKey > 0) {
+            evictOldest();
+            latestKey--;
+        }
+        if (size > maxFrames * CEILING_FACTOR || bytes > maxBytes * CEILING_FACTOR) {
+            evictedCount += size;
+            clear();
+            ring = new EncodedFrame[maxFrames];
+            awaitingKeyFrame = true;
+        }
+    }
+
+    /**
+     * Whether a viewer that last decoded {@code lastSequence} (or nothing, for
+     * {@code lastSequence < 0}) can be brought up to date from the ring. When it
+     * cannot, {@link #framesSince} and {@link #framesForJoin} return nothing
+     * and only a new key frame will do.
+     */
+    public synchronized boolean canSync(long lastSequence) {
+        return (lastSequence >= 0 && indexOfSequence(lastSequence) >= 0) || latestKeyFrameIndex() >= 0;
+    }
+
+    /**
+     * Frames a new viewer needs: the latest key frame and every frame after it.
+     */
+    public synchronized List<EncodedFrame> framesForJoin() {
+        int keyIndex = latestKeyFrameIndex();
+        return keyIndex < 0 ? new ArrayList<EncodedFrame>() : copyRange(keyIndex, size);
+    }
+
+    /**
+     * Frames a reconnecting viewer that last decoded {@code lastSequence} is missing.
+     * Falls back to {@link #framesForJoin()} when the gap is no longer in the ring.
+     */
+    public synchronized List<EncodedFrame> framesSince(long lastSequence) {
+        int index = indexOfSequence(lastSequence);
+        if (index < 0) {
+            return framesForJoin();
+        }
+        return copyRange(index + 1, size);
+    }
+
+    /**
+     * Frames covering roughly the last {@code durationMillis}, starting at a key frame.
+     */
+    public synchronized List<EncodedFrame> framesForReplay(long durationMillis) {
+        if (size == 0) {
+            return new ArrayList<>();
+        }
+        long startPts = get(size - 1).getPtsMicros() - durationMillis * 1000L;
+        int start = -1;
+        for (int i = size - 1; i >= 0; i--) {
+            EncodedFrame frame = get(i);
+            if (frame.isKeyFrame()) {
+                start = i;
+                if (frame.getPtsMicros() <= startPts) {
+                    break;
+                }
+            }
+        }
+        return start < 0 ? new ArrayList<EncodedFrame>() : copyRange(start, size);
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < size; i++) {
+            ring[(head + i) % ring.length] = null;
+        }
+        head = 0;
+        size = 0;
+        bytes = 0;
+        awaitingKeyFrame = false;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized long getEvictedCount() {
+        return evictedCount;
+    }
+
+    private EncodedFrame get(int index) {
+        return ring[(head + index) % ring.length];
+    }
+
+    private void grow() {
+        EncodedFrame[] grown = new EncodedFrame[ring.length * 2];
+        for (int i = 0; i < size; i++) {
+            grown[i] = get(i);
+        }
+        ring = grown;
+        head = 0;
+    }
+
+    private void evictOldest() {
+        EncodedFrame oldest = ring[head];
+        ring[head] = null;
+        head = (head + 1) % ring.length;
+        size--;
+        bytes -= oldest.getLength();
+        evictedCount++;
+    }
+
+    private int latestKeyFrameIndex() {
+        for (int i = size - 1; i >= 0; i--) {
+            if (get(i).isKeyFrame()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOfSequence(long sequence) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midSequence = get(mid).getSequence();
+            if (midSequence < sequence) {
+                low = mid + 1;
+            } else if (midSequence > sequence) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private List<EncodedFrame> copyRange(int from, int to) {
+        List<EncodedFrame> frames = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            frames.add(get(i));
+        }
+        return frames;
+    }
+}
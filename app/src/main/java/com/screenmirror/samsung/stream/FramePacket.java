@@ -0,0 +1,55 @@
+package com.screenmirror.samsung.stream;
+
+/**
+ * Binary WebSocket framing for encoded frames.
+ *
+ * Every binary message starts with a small big-endian header so the client can
+ * route and order frames without parsing the payload:
+ * <pre>
+ *   u8  type          TYPE_VIDEO_JPEG (key frame) | TYPE_VIDEO_DELTA
+ *   u8  flags         FLAG_KEY_FRAME | FLAG_REPLAY
+ *   u16 headerLength  bytes before the payload (lets the header grow)
+ *   u32 sequence      capture sequence number
+ *   u32 ptsMillis     presentation time, capture clock, truncated to 32 bits
+ *   u32 inputSequence last viewer input applied before capture (0 if none)
+ * </pre>
+ * Audio travels on the same connection as {@link AudioPacket}s, type 3.
+ */
+public final class FramePacket {
+
+    public static final int TYPE_VIDEO_JPEG = 1;
+    public static final int TYPE_VIDEO_DELTA = 2;
+
+    public static final int FLAG_KEY_FRAME = 0x01;
+    public static final int FLAG_REPLAY = 0x02;
+
+    public static final int HEADER_LENGTH = 16;
+
+    private FramePacket() {
+    }
+
+    public static byte[] encode(EncodedFrame frame, int extraFlags) {
+        byte[] packet = new byte[HEADER_LENGTH + frame.getLength()];
+        int flags = extraFlags | (frame.isKeyFrame() ? FLAG_KEY_FRAME : 0);
+        packet[0] = (byte) (frame.isKeyFrame() ? TYPE_VIDEO_JPEG : TYPE_VIDEO_DELTA);
+        packet[1] = (byte) flags;
+        putShort(packet, 2, HEADER_LENGTH);
+        putInt(packet, 4, (int) frame.getSequence());
+        putInt(packet, 8, (int) (frame.getPtsMicros() / 1000));
+        putInt(packet, 12, (int) frame.getInputSequence());
+        System.arraycopy(frame.getData(), 0, packet, HEADER_LENGTH, frame.getLength());
+        return packet;
+    }
+
+    static void putShort(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 8);
+        buffer[offset + 1] = (byte) value;
+    }
+
+    static void putInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,151 @@
+package com.screenmirror.samsung.stream;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.server.WebSocketServer;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Fans encoded frames out to WebSocket viewers and keeps joining viewers in sync.
+ *
+ * Every frame is recorded in a {@link FrameHistory} first. A joining or
+ * reconnecting viewer is sent the history it is missing and only then added to
+ * the live broadcast; {@link #publish} and {@link #join} must therefore run on
+ * the same thread (the encoder thread) so no live frame can slip in between.
+ *
+ * Pure Java on top of Java-WebSocket, so the same broadcast path serves the
+ * phone and the load generator on a plain JVM.
+ */
+public final class ViewerBroadcaster implements EncodedFrameSink {
+
+    private final FrameHistory history;
+    private final Set<WebSocket> viewers = new CopyOnWriteArraySet<>();
+    private WebSocketServer server;
+
+    private volatile long framesBroadcast;
+    private volatile long bytesBroadcast;
+    // Written by the audio thread only, so kept apart from the video counters.
+    private volatile long audioPacketsBroadcast;
+    private volatile long audioBytesBroadcast;
+
+    public ViewerBroadcaster(FrameHistory history) {
+        this.history = history;
+    }
+
+    /** The server whose connections are broadcast to; set before the first {@link #publish}. */
+    public void setServer(WebSocketServer server) {
+        this.server = server;
+    }
+
+    @Override
+    public void onEncodedFrame(EncodedFrame frame) {
+        publish(frame);
+    }
+
+    public void publish(EncodedFrame frame) {
+        history.add(frame);
+        if (viewers.isEmpty() || server == null) {
+            return;
+        }
+        byte[] packet = FramePacket.encode(frame, 0);
+        server.broadcast(packet, viewers);
+        framesBroadcast++;
+        bytesBroadcast += (long) packet.length * viewers.size();
+    }
+
+    /**
+     * Sends an {@link AudioPacket} to the live viewers. Audio is not kept in the
+     * history; a joining viewer starts hearing from the next packet. Safe from any thread.
+     */
+    public void broadcastAudio(byte[] packet) {
+        if (viewers.isEmpty() || server == null) {
+            return;
+        }
+        server.broadcast(packet, viewers);
+        audioPacketsBroadcast++;
+        audioBytesBroadcast += (long) packet.length * viewers.size();
+    }
+
+    /**
+     * Sends {@code conn} what it missed since {@code lastSequence} (or the latest
+     * key frame and what follows it, for {@code lastSequence < 0}) and adds it to
+     * the live broadcast.
+     *
+     * @return the number of frames sent from history
+     */
+    public int join(WebSocket conn, long lastSequence) {
+        if (!conn.isOpen()) {
+            return 0;
+        }
+        List<EncodedFrame> frames = lastSequence >= 0
+            ? history.framesSince(lastSequence)
+            : history.framesForJoin();
+        for (EncodedFrame frame : frames) {
+            conn.send(FramePacket.encode(frame, 0));
+        }
+        viewers.add(conn);
+        return frames.size();
+    }
+
+    /** Sends roughly the last {@code durationMillis} again, flagged as replay. */
+    public void replay(WebSocket conn, long durationMillis) {
+        if (!conn.isOpen()) {
+            return;
+        }
+        for (EncodedFrame frame : history.framesForReplay(durationMillis)) {
+            conn.send(FramePacket.encode(frame, FramePacket.FLAG_REPLAY));
+        }
+    }
+
+    public boolean remove(WebSocket conn) {
+        return viewers.remove(conn);
+    }
+
+    /**
+     * A viewer still has the previous frame queued when the next one is ready,
+     * i.e. the link is slower than the capture rate.
+     */
+    public boolean isConstrained() {
+        for (WebSocket viewer : viewers) {
+            if (viewer.hasBufferedData()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean hasViewers() {
+        return !viewers.isEmpty();
+    }
+
+    public Set<WebSocket> getViewers() {
+        return viewers;
+    }
+
+    public FrameHistory getHistory() {
+        return history;
+    }
+
+    public void clear() {
+        viewers.clear();
+        history.clear();
+    }
+
+    public long getFramesBroadcast() {
+        return framesBroadcast;
+    }
+
+    public long getBytesBroadcast() {
+        return bytesBroadcast;
+    }
+
+    public long getAudioPacketsBroadcast() {
+        return audioPacketsBroadcast;
+    }
+
+    public long getAudioBytesBroadcast() {
+        return audioBytesBroadcast;
+    }
+}
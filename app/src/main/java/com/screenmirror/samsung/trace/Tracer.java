@@ -0,0 +1,209 @@
+package com.screenmirror.samsung.trace;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process tracer for the streaming hot paths, exported as Chrome trace JSON
+ * (loads in chrome://tracing and ui.perfetto.dev).
+ *
+ * Events are registered once by name and then recorded by id into a
+ * preallocated ring of primitive arrays: no strings, boxing or allocation per
+ * event. While disabled {@link #begin()} returns 0 and every record call is a
+ * single volatile read. When the ring wraps the oldest events are overwritten.
+ *
+ * <pre>
+ * private static final int TRACE_ENCODE = Tracer.getInstance().event("encode");
+ * long start = tracer.begin();
+ * ...
+ * tracer.end(TRACE_ENCODE, start);
+ * </pre>
+ *
+ * Recording is lock-free and safe from any thread. A dump taken while tracing
+ * is still running may contain a few half-written events at the ring's head.
+ */
+public final class Tracer {
+
+    private static final int CAPACITY = 1 << 16;
+    private static final int MASK = CAPACITY - 1;
+    private static final int MAX_EVENT_TYPES = 256;
+
+    private static final byte PHASE_SPAN = 0;
+    private static final byte PHASE_COUNTER = 1;
+    private static final byte PHASE_INSTANT = 2;
+
+    private static final Tracer INSTANCE = new Tracer();
+
+    public static Tracer getInstance() {
+        return INSTANCE;
+    }
+
+    private final String[] names = new String[MAX_EVENT_TYPES];
+    private int eventCount;
+
+    private final long[] timestamps = new long[CAPACITY];
+    private final long[] values = new long[CAPACITY];
+    private final long[] threadIds = new long[CAPACITY];
+    private final short[] eventIds = new short[CAPACITY];
+    private final byte[] phases = new byte[CAPACITY];
+    private final AtomicLong cursor = new AtomicLong();
+
+    private volatile boolean enabled;
+
+    private Tracer() {
+    }
+
+    /** Registers an event type and returns its id; call once, e.g. from a static initializer. */
+    public synchronized int event(String name) {
+        for (int i = 0; i < eventCount; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        if (eventCount == MAX_EVENT_TYPES) {
+            throw new IllegalStateException("Too many trace event types, cannot add " + name);
+        }
+        names[eventCount] = name;
+        return eventCount++;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Starts recording into an empty ring. */
+    public void start() {
+        cursor.set(0);
+        enabled = true;
+    }
+
+    public void stop() {
+        enabled = false;
+    }
+
+    /** Start timestamp for {@link #end}, or 0 while disabled. */
+    public long begin() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /** Records a span that started at {@code startNanos} (from {@link #begin()}) and ends now. */
+    public void end(int event, long startNanos) {
+        if (startNanos == 0 || !enabled) {
+            return;
+        }
+        record(PHASE_SPAN, event, startNanos, System.nanoTime() - startNanos);
+    }
+
+    public void counter(int event, long value) {
+        if (enabled) {
+            record(PHASE_COUNTER, event, System.nanoTime(), value);
+        }
+    }
+
+    public void instant(int event) {
+        if (enabled) {
+            record(PHASE_INSTANT, event, System.nanoTime(), 0);
+        }
+    }
+
+    /** Events currently held, at most the ring capacity. */
+    public int getRecordedCount() {
+        return (int) Math.min(cursor.get(), CAPACITY);
+    }
+
+    private void record(byte phase, int event, long timestamp, long value) {
+        int slot = (int) (cursor.getAndIncrement() & MASK);
+        timestamps[slot] = timestamp;
+        values[slot] = value;
+        threadIds[slot] = Thread.currentThread().getId();
+        eventIds[slot] = (short) event;
+        phases[slot] = phase;
+    }
+
+    /**
+     * Writes the ring, oldest event first, as a Chrome trace JSON object.
+     * Thread names are resolved from the threads still alive at dump time.
+     */
+    public void writeChromeTrace(Writer out) throws IOException {
+        long end = cursor.get();
+        long begin = Math.max(0, end - CAPACITY);
+        String[] eventNames;
+        synchronized (this) {
+            eventNames = names.clone();
+        }
+
+        Map<Long, String> threadNames = new HashMap<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            threadNames.put(thread.getId(), thread.getName());
+        }
+
+        out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        boolean first = true;
+        Map<Long, Boolean> seenThreads = new HashMap<>();
+        StringBuilder line = new StringBuilder(128);
+        for (long i = begin; i < end; i++) {
+            int slot = (int) (i & MASK);
+            long tid = threadIds[slot];
+            line.setLength(0);
+            if (seenThreads.put(tid, Boolean.TRUE) == null) {
+                String threadName = threadNames.get(tid);
+                line.append(first ? "" : ",").append("\n{\"ph\":\"M\",\"name\":\"thread_name\",\"pid\":1,\"tid\":")
+                    .append(tid).append(",\"args\":{\"name\":");
+                appendString(line, threadName != null ? threadName : "thread-" + tid);
+                line.append("}}");
+                first = false;
+            }
+            line.append(first ? "" : ",").append("\n{\"name\":");
+            appendString(line, eventNames[eventIds[slot]]);
+            line.append(",\"pid\":1,\"tid\":").append(tid).append(",\"ts\":");
+            appendMicros(line, timestamps[slot]);
+            switch (phases[slot]) {
+                case PHASE_SPAN:
+                    line.append(",\"ph\":\"X\",\"dur\":");
+                    appendMicros(line, values[slot]);
+                    break;
+                case PHASE_COUNTER:
+                    line.append(",\"ph\":\"C\",\"args\":{\"value\":").append(values[slot]).append('}');
+                    break;
+                default:
+                    line.append(",\"ph\":\"i\",\"s\":\"t\"");
+                    break;
+            }
+            line.append('}');
+            out.append(line);
+            first = false;
+        }
+        out.write("\n]}\n");
+        out.flush();
+    }
+
+    private static void appendMicros(StringBuilder out, long nanos) {
+        out.append(nanos / 1000).append('.');
+        long fraction = nanos % 1000;
+        if (fraction < 100) {
+            out.append('0');
+        }
+        if (fraction < 10) {
+            out.append('0');
+        }
+        out.append(fraction);
+    }
+
+    private static void appendString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(' ');
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+}
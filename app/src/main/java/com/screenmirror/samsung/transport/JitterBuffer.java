@@ -0,0 +1,174 @@
+package com.screenmirror.samsung.transport;
+
+import com.screenmirror.samsung.stream.EncodedFrame;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reassembles RTP fragments into frames and releases them on a playout schedule.
+ *
+ * A frame's playout deadline is its RTP timestamp mapped onto the local clock
+ * (using the earliest arrival seen so far) plus {@code targetDelayMicros}. Frames
+ * still incomplete at their deadline are dropped; a frame that completes after a
+ * newer frame was released is discarded as late, so one lost packet never holds
+ * back the frames behind it. After a drop, or a sequence gap left by a frame
+ * that lost every packet, delta frames are skipped until the next key frame;
+ * {@link #isWaitingForKeyFrame()} tells the receiver to ask for one. The clock
+ * is passed in, which keeps this deterministic.
+ */
+public final class JitterBuffer {
+
+    private static final class Assembly {
+        final byte[][] fragments;
+        final long rtpTimestamp;
+        final boolean keyFrame;
+        int received;
+        int bytes;
+
+        Assembly(int fragmentCount, long rtpTimestamp, boolean keyFrame) {
+            this.fragments = new byte[fragmentCount][];
+            this.rtpTimestamp = rtpTimestamp;
+            this.keyFrame = keyFrame;
+        }
+
+        boolean isComplete() {
+            return received == fragments.length;
+        }
+    }
+
+    private final long targetDelayMicros;
+    private final int maxPendingFrames;
+    private final TreeMap<Long, Assembly> pending = new TreeMap<>();
+
+    private boolean clockInitialized;
+    private long clockOffsetMicros;
+    private long lastReleasedSequence = -1;
+    private boolean waitingForKeyFrame = true;
+
+    private long framesReleased;
+    private long framesLate;
+    private long framesIncomplete;
+    private long framesSkipped;
+
+    public JitterBuffer(long targetDelayMicros, int maxPendingFrames) {
+        this.targetDelayMicros = targetDelayMicros;
+        this.maxPendingFrames = maxPendingFrames;
+    }
+
+    public void push(RtpPacket packet, long nowMicros) {
+        if (packet.getPayloadType() != RtpPacket.PAYLOAD_TYPE_VIDEO
+                || packet.getPayloadLength() < RtpPacketizer.FRAGMENT_HEADER_LENGTH) {
+            return;
+        }
+        long sequence = RtpPacketizer.frameSequence(packet);
+        if (sequence <= lastReleasedSequence) {
+            framesLate++;
+            return;
+        }
+        long mediaMicros = RtpPacketizer.toMicros(packet.getTimestamp());
+        if (!clockInitialized || nowMicros - mediaMicros < clockOffsetMicros) {
+            // Track the fastest path seen: less queueing means an earlier arrival.
+            clockOffsetMicros = nowMicros - mediaMicros;
+            clockInitialized = true;
+        }
+
+        Assembly assembly = pending.get(sequence);
+        if (assembly == null) {
+            int count = RtpPacketizer.fragmentCount(packet);
+            if (count == 0) {
+                return;
+            }
+            assembly = new Assembly(count, packet.getTimestamp(), RtpPacketizer.isKeyFrame(packet));
+            pending.put(sequence, assembly);
+            while (pending.size() > maxPendingFrames) {
+                pending.pollFirstEntry();
+                framesIncomplete++;
+                waitingForKeyFrame = true;
+            }
+        }
+
+        int index = RtpPacketizer.fragmentIndex(packet);
+        if (index >= assembly.fragments.length || assembly.fragments[index] != null) {
+            return;
+        }
+        int chunk = packet.getPayloadLength() - RtpPacketizer.FRAGMENT_HEADER_LENGTH;
+        byte[] fragment = new byte[chunk];
+        System.arraycopy(packet.getPayload(), packet.getPayloadOffset() + RtpPacketizer.FRAGMENT_HEADER_LENGTH,
+            fragment, 0, chunk);
+        assembly.fragments[index] = fragment;
+        assembly.received++;
+        assembly.bytes += chunk;
+    }
+
+    /**
+     * Returns the next frame due at {@code nowMicros}, or {@code null} if none is ready.
+     */
+    public EncodedFrame poll(long nowMicros) {
+        Iterator<Map.Entry<Long, Assembly>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Assembly> entry = it.next();
+            Assembly assembly = entry.getValue();
+            long deadline = clockOffsetMicros + RtpPacketizer.toMicros(assembly.rtpTimestamp) + targetDelayMicros;
+
+            if (!assembly.isComplete()) {
+                if (nowMicros < deadline) {
+                    return null;
+                }
+                it.remove();
+                framesIncomplete++;
+                waitingForKeyFrame = true;
+                continue;
+            }
+            if (nowMicros < deadline) {
+                return null;
+            }
+            it.remove();
+            if (lastReleasedSequence >= 0 && entry.getKey() != lastReleasedSequence + 1) {
+                // Encoder sequences are contiguous: a frame went missing without a trace.
+                waitingForKeyFrame = true;
+            }
+            lastReleasedSequence = entry.getKey();
+            if (waitingForKeyFrame && !assembly.keyFrame) {
+                framesSkipped++;
+                continue;
+            }
+            waitingForKeyFrame = false;
+            framesReleased++;
+            return toFrame(entry.getKey(), assembly);
+        }
+        return null;
+    }
+
+    private static EncodedFrame toFrame(long sequence, Assembly assembly) {
+        byte[] data = new byte[assembly.bytes];
+        int offset = 0;
+        for (byte[] fragment : assembly.fragments) {
+            System.arraycopy(fragment, 0, data, offset, fragment.length);
+            offset += fragment.length;
+        }
+        return new EncodedFrame(sequence, RtpPacketizer.toMicros(assembly.rtpTimestamp), assembly.keyFrame, 0, 0, data);
+    }
+
+    /** Whether delta frames are being skipped until the next key frame arrives. */
+    public boolean isWaitingForKeyFrame() {
+        return waitingForKeyFrame;
+    }
+
+    public long getFramesReleased() {
+        return framesReleased;
+    }
+
+    public long getFramesLate() {
+        return framesLate;
+    }
+
+    public long getFramesIncomplete() {
+        return framesIncomplete;
+    }
+
+    public long getFramesSkipped() {
+        return framesSkipped;
+    }
+}
@@ -0,0 +1,129 @@
+package com.screenmirror.samsung.transport;
+
+/**
+ * Minimal RTP (RFC 3550) packet: fixed 12-byte header, no CSRCs or extensions.
+ */
+public final class RtpPacket {
+
+    public static final int HEADER_LENGTH = 12;
+    public static final int PAYLOAD_TYPE_VIDEO = 96;
+    public static final int PAYLOAD_TYPE_FEC = 97;
+
+    private static final int VERSION = 2;
+
+    private final int payloadType;
+    private final boolean marker;
+    private final int sequenceNumber;
+    private final long timestamp;
+    private final int ssrc;
+    private final byte[] payload;
+    private final int payloadOffset;
+    private final int payloadLength;
+
+    public RtpPacket(int payloadType, boolean marker, int sequenceNumber, long timestamp, int ssrc,
+                     byte[] payload, int payloadOffset, int payloadLength) {
+        this.payloadType = payloadType & 0x7F;
+        this.marker = marker;
+        this.sequenceNumber = sequenceNumber & 0xFFFF;
+        this.timestamp = timestamp & 0xFFFFFFFFL;
+        this.ssrc = ssrc;
+        this.payload = payload;
+        this.payloadOffset = payloadOffset;
+        this.payloadLength = payloadLength;
+    }
+
+    /**
+     * Parses a datagram, returning {@code null} if it is not a version 2 RTP packet.
+     * The payload is referenced, not copied.
+     */
+    public static RtpPacket parse(byte[] buffer, int offset, int length) {
+        if (length < HEADER_LENGTH || ((buffer[offset] >> 6) & 0x03) != VERSION) {
+            return null;
+        }
+        int csrcCount = buffer[offset] & 0x0F;
+        int headerLength = HEADER_LENGTH + csrcCount * 4;
+        if (length < headerLength) {
+            return null;
+        }
+        boolean marker = (buffer[offset + 1] & 0x80) != 0;
+        int payloadType = buffer[offset + 1] & 0x7F;
+        int sequence = ((buffer[offset + 2] & 0xFF) << 8) | (buffer[offset + 3] & 0xFF);
+        long timestamp = readInt(buffer, offset + 4) & 0xFFFFFFFFL;
+        int ssrc = readInt(buffer, offset + 8);
+        return new RtpPacket(payloadType, marker, sequence, timestamp, ssrc,
+            buffer, offset + headerLength, length - headerLength);
+    }
+
+    public int getLength() {
+        return HEADER_LENGTH + payloadLength;
+    }
+
+    public int writeTo(byte[] buffer, int offset) {
+        buffer[offset] = (byte) (VERSION << 6);
+        buffer[offset + 1] = (byte) ((marker ? 0x80 : 0) | payloadType);
+        buffer[offset + 2] = (byte) (sequenceNumber >>> 8);
+        buffer[offset + 3] = (byte) sequenceNumber;
+        writeInt(buffer, offset + 4, (int) timestamp);
+        writeInt(buffer, offset + 8, ssrc);
+        System.arraycopy(payload, payloadOffset, buffer, offset + HEADER_LENGTH, payloadLength);
+        return getLength();
+    }
+
+    public int getPayloadType() {
+        return payloadType;
+    }
+
+    public boolean isMarker() {
+        return marker;
+    }
+
+    public int getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getSsrc() {
+        return ssrc;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public int getPayloadOffset() {
+        return payloadOffset;
+    }
+
+    public int getPayloadLength() {
+        return payloadLength;
+    }
+
+    static int readInt(byte[] buffer, int offset) {
+        return ((buffer[offset] & 0xFF) << 24) | ((buffer[offset + 1] & 0xFF) << 16)
+            | ((buffer[offset + 2] & 0xFF) << 8) | (buffer[offset + 3] & 0xFF);
+    }
+
+    static void writeInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+
+    static int readShort(byte[] buffer, int offset) {
+        return ((buffer[offset] & 0xFF) << 8) | (buffer[offset + 1] & 0xFF);
+    }
+
+    static void writeShort(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 8);
+        buffer[offset + 1] = (byte) value;
+    }
+
+    /** Signed distance from {@code b} to {@code a} in 16-bit sequence space. */
+    static int sequenceDelta(int a, int b) {
+        return (short) (a - b);
+    }
+}
@@ -0,0 +1,93 @@
+package com.screenmirror.samsung.transport;
+
+import com.screenmirror.samsung.stream.EncodedFrame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits encoded frames into RTP packets that fit one datagram.
+ *
+ * Each payload starts with an 8-byte fragment header so a receiver can
+ * reassemble a frame even when packets arrive out of order:
+ * <pre>
+ *   u32 frameSequence
+ *   u16 fragmentIndex
+ *   u16 fragmentCount   (top bit set on key frames)
+ * </pre>
+ * The RTP marker bit flags the last fragment and the RTP timestamp is the
+ * frame pts on the standard 90 kHz video clock.
+ */
+public final class RtpPacketizer {
+
+    public static final int FRAGMENT_HEADER_LENGTH = 8;
+    public static final int CLOCK_RATE = 90000;
+
+    private static final int KEY_FRAME_BIT = 0x8000;
+    private static final int MAX_FRAGMENTS = 0x7FFF;
+
+    private final int ssrc;
+    private final int maxFragmentPayload;
+    private int nextSequenceNumber;
+
+    /**
+     * @param maxPacketSize largest datagram to emit; keep below the path MTU (about 1200 on Wi-Fi)
+     */
+    public RtpPacketizer(int ssrc, int maxPacketSize) {
+        this.ssrc = ssrc;
+        this.maxFragmentPayload = maxPacketSize - RtpPacket.HEADER_LENGTH - FRAGMENT_HEADER_LENGTH;
+        if (maxFragmentPayload < 1) {
+            throw new IllegalArgumentException("maxPacketSize too small: " + maxPacketSize);
+        }
+    }
+
+    public List<RtpPacket> packetize(EncodedFrame frame) {
+        int length = frame.getLength();
+        int fragmentCount = Math.max(1, (length + maxFragmentPayload - 1) / maxFragmentPayload);
+        if (fragmentCount > MAX_FRAGMENTS) {
+            throw new IllegalArgumentException("Frame of " + length + " bytes needs too many fragments");
+        }
+        long timestamp = toRtpTimestamp(frame.getPtsMicros());
+        int countField = fragmentCount | (frame.isKeyFrame() ? KEY_FRAME_BIT : 0);
+
+        List<RtpPacket> packets = new ArrayList<>(fragmentCount);
+        for (int index = 0; index < fragmentCount; index++) {
+            int offset = index * maxFragmentPayload;
+            int chunk = Math.min(maxFragmentPayload, length - offset);
+            byte[] payload = new byte[FRAGMENT_HEADER_LENGTH + chunk];
+            RtpPacket.writeInt(payload, 0, (int) frame.getSequence());
+            RtpPacket.writeShort(payload, 4, index);
+            RtpPacket.writeShort(payload, 6, countField);
+            System.arraycopy(frame.getData(), offset, payload, FRAGMENT_HEADER_LENGTH, chunk);
+
+            packets.add(new RtpPacket(RtpPacket.PAYLOAD_TYPE_VIDEO, index == fragmentCount - 1,
+                nextSequenceNumber, timestamp, ssrc, payload, 0, payload.length));
+            nextSequenceNumber = (nextSequenceNumber + 1) & 0xFFFF;
+        }
+        return packets;
+    }
+
+    public static long toRtpTimestamp(long ptsMicros) {
+        return (ptsMicros * CLOCK_RATE / 1_000_000L) & 0xFFFFFFFFL;
+    }
+
+    public static long toMicros(long rtpTimestamp) {
+        return rtpTimestamp * 1_000_000L / CLOCK_RATE;
+    }
+
+    static long frameSequence(RtpPacket packet) {
+        return RtpPacket.readInt(packet.getPayload(), packet.getPayloadOffset()) & 0xFFFFFFFFL;
+    }
+
+    static int fragmentIndex(RtpPacket packet) {
+        return RtpPacket.readShort(packet.getPayload(), packet.getPayloadOffset() + 4);
+    }
+
+    static int fragmentCount(RtpPacket packet) {
+        return RtpPacket.readShort(packet.getPayload(), packet.getPayloadOffset() + 6) & MAX_FRAGMENTS;
+    }
+
+    static boolean isKeyFrame(RtpPacket packet) {
+        return (RtpPacket.readShort(packet.getPayload(), packet.getPayloadOffset() + 6) & KEY_FRAME_BIT) != 0;
+    }
+}
@@ -0,0 +1,160 @@
+package com.screenmirror.samsung.transport;
+
+import com.screenmirror.samsung.stream.EncodedFrame;
+import com.screenmirror.samsung.stream.EncodedFrameSink;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.SocketTimeoutException;
+
+/**
+ * Receiving end of {@link UdpVideoSender} for JVM clients and loopback runs.
+ *
+ * A single thread reads datagrams, repairs single losses with {@link XorFec.Decoder},
+ * feeds the {@link JitterBuffer} and delivers frames to {@code sink} at their
+ * playout time. Browsers cannot open raw UDP sockets, so the web client stays on
+ * the WebSocket transport.
+ *
+ * Once the jitter buffer loses its reference it would otherwise show nothing
+ * until the encoder's next scheduled key frame, which can be many seconds away,
+ * so the {@link KeyFrameRequester} is asked for one, at most once per
+ * {@code KEY_FRAME_REQUEST_INTERVAL_MS}, until it arrives. Viewers send it as a
+ * {@code key_frame_request} on their signalling socket.
+ */
+public final class UdpVideoReceiver implements Closeable {
+
+    public interface KeyFrameRequester {
+        void requestKeyFrame();
+    }
+
+    private static final int MAX_DATAGRAM = 2048;
+    private static final int POLL_INTERVAL_MS = 2;
+    // Long enough for a requested key frame to cross the link before asking again.
+    private static final long KEY_FRAME_REQUEST_INTERVAL_MS = 250;
+
+    private final DatagramSocket socket;
+    private final JitterBuffer jitterBuffer;
+    private final XorFec.Decoder fecDecoder = new XorFec.Decoder();
+    private final EncodedFrameSink sink;
+    private final KeyFrameRequester keyFrameRequester;
+    private final Thread thread;
+    private volatile boolean running;
+    private volatile long packetsReceived;
+    private volatile long keyFramesRequested;
+    // Receive thread only; starts at start(), when the sender's first key frame is already on its way.
+    private long lastKeyFrameRequestNanos;
+
+    public UdpVideoReceiver(int port, long targetDelayMicros, EncodedFrameSink sink) throws IOException {
+        this(port, targetDelayMicros, sink, null);
+    }
+
+    /**
+     * @param keyFrameRequester asked for a key frame after a loss the FEC could not repair, or {@code null}
+     */
+    public UdpVideoReceiver(int port, long targetDelayMicros, EncodedFrameSink sink,
+                            KeyFrameRequester keyFrameRequester) throws IOException {
+        this.socket = new DatagramSocket(port);
+        this.socket.setSoTimeout(POLL_INTERVAL_MS);
+        this.jitterBuffer = new JitterBuffer(targetDelayMicros, 64);
+        this.sink = sink;
+        this.keyFrameRequester = keyFrameRequester;
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                receiveLoop();
+            }
+        }, "UdpVideoReceiver");
+    }
+
+    public void start() {
+        lastKeyFrameRequestNanos = System.nanoTime();
+        running = true;
+        thread.start();
+    }
+
+    public int getLocalPort() {
+        return socket.getLocalPort();
+    }
+
+    private void receiveLoop() {
+        while (running) {
+            byte[] buffer = new byte[MAX_DATAGRAM];
+            DatagramPacket datagram = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(datagram);
+                packetsReceived++;
+                handle(RtpPacket.parse(buffer, 0, datagram.getLength()));
+            } catch (SocketTimeoutException e) {
+                // Fall through to drain due frames.
+            } catch (IOException e) {
+                if (running) {
+                    running = false;
+                }
+                break;
+            }
+            drain();
+        }
+    }
+
+    private void handle(RtpPacket packet) {
+        if (packet == null) {
+            return;
+        }
+        long now = System.nanoTime() / 1000;
+        RtpPacket recovered;
+        if (packet.getPayloadType() == RtpPacket.PAYLOAD_TYPE_FEC) {
+            recovered = fecDecoder.onParity(packet);
+        } else {
+            jitterBuffer.push(packet, now);
+            recovered = fecDecoder.onMedia(packet);
+        }
+        if (recovered != null) {
+            jitterBuffer.push(recovered, now);
+        }
+    }
+
+    private void drain() {
+        long now = System.nanoTime() / 1000;
+        EncodedFrame frame;
+        while ((frame = jitterBuffer.poll(now)) != null) {
+            sink.onEncodedFrame(frame);
+        }
+        if (keyFrameRequester != null && jitterBuffer.isWaitingForKeyFrame()) {
+            long nowNanos = System.nanoTime();
+            if (nowNanos - lastKeyFrameRequestNanos >= KEY_FRAME_REQUEST_INTERVAL_MS * 1000000L) {
+                lastKeyFrameRequestNanos = nowNanos;
+                keyFramesRequested++;
+                keyFrameRequester.requestKeyFrame();
+            }
+        }
+    }
+
+    public JitterBuffer getJitterBuffer() {
+        return jitterBuffer;
+    }
+
+    public long getPacketsReceived() {
+        return packetsReceived;
+    }
+
+    public long getKeyFramesRequested() {
+        return keyFramesRequested;
+    }
+
+    public long getPacketsRecovered() {
+        return fecDecoder.getRecoveredCount();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        socket.close();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.screenmirror.samsung.transport;
+
+import com.screenmirror.samsung.stream.EncodedFrame;
+import com.screenmirror.samsung.stream.EncodedFrameSink;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Sends encoded frames to one receiver as RTP datagrams with XOR parity.
+ *
+ * The channel is non-blocking: if the socket buffer is full the datagram is
+ * dropped and counted rather than stalling the encoder thread. Loss is what
+ * the FEC and the receiver's jitter buffer are there to absorb.
+ */
+public final class UdpVideoSender implements EncodedFrameSink, Closeable {
+
+    public static final int DEFAULT_MAX_PACKET_SIZE = 1200;
+
+    private final DatagramChannel channel;
+    private final RtpPacketizer packetizer;
+    private final XorFec.Encoder fecEncoder;
+    private final ByteBuffer sendBuffer;
+    private final InetSocketAddress target;
+
+    private volatile long packetsSent;
+    private volatile long packetsDropped;
+
+    /**
+     * @param fecGroupSize media packets per parity packet, or 0 to disable FEC
+     */
+    public UdpVideoSender(InetSocketAddress target, int maxPacketSize, int fecGroupSize) throws IOException {
+        int ssrc = new Random().nextInt();
+        this.target = target;
+        this.packetizer = new RtpPacketizer(ssrc, maxPacketSize);
+        this.fecEncoder = fecGroupSize > 0 ? new XorFec.Encoder(fecGroupSize, ssrc) : null;
+        // Parity payloads carry an extra header on top of the largest media payload.
+        this.sendBuffer = ByteBuffer.allocate(maxPacketSize + XorFec.FEC_HEADER_LENGTH);
+        this.channel = DatagramChannel.open();
+        this.channel.configureBlocking(false);
+        this.channel.connect(target);
+    }
+
+    @Override
+    public void onEncodedFrame(EncodedFrame frame) {
+        List<RtpPacket> packets = packetizer.packetize(frame);
+        for (RtpPacket packet : packets) {
+            send(packet);
+        }
+        if (fecEncoder != null) {
+            for (RtpPacket parity : fecEncoder.protect(packets)) {
+                send(parity);
+            }
+        }
+    }
+
+    private void send(RtpPacket packet) {
+        sendBuffer.clear();
+        int length = packet.writeTo(sendBuffer.array(), 0);
+        sendBuffer.limit(length);
+        try {
+            if (channel.write(sendBuffer) == 0) {
+                packetsDropped++;
+            } else {
+                packetsSent++;
+            }
+        } catch (IOException e) {
+            // e.g. ICMP port unreachable surfacing on a connected channel
+            packetsDropped++;
+        }
+    }
+
+    public InetSocketAddress getTarget() {
+        return target;
+    }
+
+    public long getPacketsSent() {
+        return packetsSent;
+    }
+
+    public long getPacketsDropped() {
+        return packetsDropped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
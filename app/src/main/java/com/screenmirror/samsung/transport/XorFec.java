@@ -0,0 +1,238 @@
+package com.screenmirror.samsung.transport;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Single-loss XOR forward error correction over groups of consecutive RTP packets.
+ *
+ * One parity packet per group of up to {@code groupSize} media packets lets the
+ * receiver rebuild any one lost packet of that group without a retransmit.
+ * Groups never span frames, so a frame's recovery never waits for the next frame.
+ * Parity packets use {@link RtpPacket#PAYLOAD_TYPE_FEC} and their own sequence space.
+ * <pre>
+ *   u16 baseSequence   first protected media sequence number
+ *   u8  count          protected packets (consecutive)
+ *   u8  markerXor      XOR of the marker bits
+ *   u32 timestampXor   XOR of the RTP timestamps
+ *   u16 lengthXor      XOR of the payload lengths
+ *   u16 reserved
+ *   ... XOR of the payloads, zero-padded to the longest
+ * </pre>
+ */
+public final class XorFec {
+
+    public static final int FEC_HEADER_LENGTH = 12;
+
+    private XorFec() {
+    }
+
+    public static final class Encoder {
+
+        private final int groupSize;
+        private final int ssrc;
+        private int nextSequenceNumber;
+
+        public Encoder(int groupSize, int ssrc) {
+            if (groupSize < 2 || groupSize > 255) {
+                throw new IllegalArgumentException("groupSize must be in [2, 255]: " + groupSize);
+            }
+            this.groupSize = groupSize;
+            this.ssrc = ssrc;
+        }
+
+        /**
+         * Returns the parity packets protecting one frame's media packets.
+         */
+        public List<RtpPacket> protect(List<RtpPacket> framePackets) {
+            List<RtpPacket> parity = new ArrayList<>((framePackets.size() + groupSize - 1) / groupSize);
+            for (int start = 0; start < framePackets.size(); start += groupSize) {
+                int end = Math.min(start + groupSize, framePackets.size());
+                parity.add(buildParity(framePackets, start, end));
+            }
+            return parity;
+        }
+
+        private RtpPacket buildParity(List<RtpPacket> packets, int start, int end) {
+            int maxLength = 0;
+            for (int i = start; i < end; i++) {
+                maxLength = Math.max(maxLength, packets.get(i).getPayloadLength());
+            }
+            byte[] payload = new byte[FEC_HEADER_LENGTH + maxLength];
+            int markerXor = 0;
+            int timestampXor = 0;
+            int lengthXor = 0;
+            for (int i = start; i < end; i++) {
+                RtpPacket packet = packets.get(i);
+                markerXor ^= packet.isMarker() ? 1 : 0;
+                timestampXor ^= (int) packet.getTimestamp();
+                lengthXor ^= packet.getPayloadLength();
+                xorInto(payload, FEC_HEADER_LENGTH, packet.getPayload(), packet.getPayloadOffset(), packet.getPayloadLength());
+            }
+            RtpPacket first = packets.get(start);
+            RtpPacket.writeShort(payload, 0, first.getSequenceNumber());
+            payload[2] = (byte) (end - start);
+            payload[3] = (byte) markerXor;
+            RtpPacket.writeInt(payload, 4, timestampXor);
+            RtpPacket.writeShort(payload, 8, lengthXor);
+
+            RtpPacket fec = new RtpPacket(RtpPacket.PAYLOAD_TYPE_FEC, false, nextSequenceNumber,
+                first.getTimestamp(), ssrc, payload, 0, payload.length);
+            nextSequenceNumber = (nextSequenceNumber + 1) & 0xFFFF;
+            return fec;
+        }
+    }
+
+    /**
+     * Receiver side. Remembers a window of recent media packets and rebuilds a
+     * missing one whenever a parity packet covers exactly one gap.
+     */
+    public static final class Decoder {
+
+        private static final int WINDOW = 1024;
+        private static final int MAX_PENDING_PARITY = 32;
+
+        private final RtpPacket[] window = new RtpPacket[WINDOW];
+        private final List<RtpPacket> pendingParity = new ArrayList<>();
+        private long recoveredCount;
+
+        /**
+         * Records a media packet. May complete a pending parity group, in which
+         * case the recovered packet is returned.
+         */
+        public RtpPacket onMedia(RtpPacket packet) {
+            window[packet.getSequenceNumber() % WINDOW] = packet;
+            Iterator<RtpPacket> it = pendingParity.iterator();
+            while (it.hasNext()) {
+                RtpPacket parity = it.next();
+                int offset = RtpPacket.sequenceDelta(packet.getSequenceNumber(), baseSequence(parity));
+                if (offset < 0) {
+                    continue;
+                }
+                if (offset >= count(parity)) {
+                    if (offset > WINDOW / 2) {
+                        it.remove();
+                    }
+                    continue;
+                }
+                RtpPacket recovered = tryRecover(parity);
+                if (recovered != null || missingCount(parity) == 0) {
+                    it.remove();
+                }
+                if (recovered != null) {
+                    return recovered;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Handles a parity packet; returns the rebuilt packet if exactly one of its group is missing.
+         */
+        public RtpPacket onParity(RtpPacket parity) {
+            if (parity.getPayloadLength() < FEC_HEADER_LENGTH) {
+                return null;
+            }
+            int missing = missingCount(parity);
+            if (missing == 0) {
+                return null;
+            }
+            if (missing == 1) {
+                return tryRecover(parity);
+            }
+            // Reordered media may still fill the group in.
+            if (pendingParity.size() == MAX_PENDING_PARITY) {
+                pendingParity.remove(0);
+            }
+            pendingParity.add(copy(parity));
+            return null;
+        }
+
+        public long getRecoveredCount() {
+            return recoveredCount;
+        }
+
+        private RtpPacket tryRecover(RtpPacket parity) {
+            int base = baseSequence(parity);
+            int count = count(parity);
+            int missingSequence = -1;
+            for (int i = 0; i < count; i++) {
+                int sequence = (base + i) & 0xFFFF;
+                if (lookup(sequence) == null) {
+                    if (missingSequence >= 0) {
+                        return null;
+                    }
+                    missingSequence = sequence;
+                }
+            }
+            if (missingSequence < 0) {
+                return null;
+            }
+
+            byte[] fec = parity.getPayload();
+            int fecOffset = parity.getPayloadOffset();
+            int marker = fec[fecOffset + 3] & 0x01;
+            int timestamp = RtpPacket.readInt(fec, fecOffset + 4);
+            int length = RtpPacket.readShort(fec, fecOffset + 8);
+            byte[] payload = new byte[parity.getPayloadLength() - FEC_HEADER_LENGTH];
+            System.arraycopy(fec, fecOffset + FEC_HEADER_LENGTH, payload, 0, payload.length);
+
+            for (int i = 0; i < count; i++) {
+                RtpPacket packet = lookup((base + i) & 0xFFFF);
+                if (packet == null) {
+                    continue;
+                }
+                marker ^= packet.isMarker() ? 1 : 0;
+                timestamp ^= (int) packet.getTimestamp();
+                length ^= packet.getPayloadLength();
+                xorInto(payload, 0, packet.getPayload(), packet.getPayloadOffset(), packet.getPayloadLength());
+            }
+            if (length < 0 || length > payload.length) {
+                return null;
+            }
+            RtpPacket recovered = new RtpPacket(RtpPacket.PAYLOAD_TYPE_VIDEO, marker != 0, missingSequence,
+                timestamp & 0xFFFFFFFFL, parity.getSsrc(), payload, 0, length);
+            window[missingSequence % WINDOW] = recovered;
+            recoveredCount++;
+            return recovered;
+        }
+
+        private int missingCount(RtpPacket parity) {
+            int base = baseSequence(parity);
+            int missing = 0;
+            for (int i = 0; i < count(parity); i++) {
+                if (lookup((base + i) & 0xFFFF) == null) {
+                    missing++;
+                }
+            }
+            return missing;
+        }
+
+        private RtpPacket lookup(int sequence) {
+            RtpPacket packet = window[sequence % WINDOW];
+            return packet != null && packet.getSequenceNumber() == sequence ? packet : null;
+        }
+
+        private static int baseSequence(RtpPacket parity) {
+            return RtpPacket.readShort(parity.getPayload(), parity.getPayloadOffset());
+        }
+
+        private static int count(RtpPacket parity) {
+            return parity.getPayload()[parity.getPayloadOffset() + 2] & 0xFF;
+        }
+
+        private static RtpPacket copy(RtpPacket packet) {
+            byte[] payload = new byte[packet.getPayloadLength()];
+            System.arraycopy(packet.getPayload(), packet.getPayloadOffset(), payload, 0, payload.length);
+            return new RtpPacket(packet.getPayloadType(), packet.isMarker(), packet.getSequenceNumber(),
+                packet.getTimestamp(), packet.getSsrc(), payload, 0, payload.length);
+        }
+    }
+
+    static void xorInto(byte[] target, int targetOffset, byte[] source, int sourceOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            target[targetOffset + i] ^= source[sourceOffset + i];
+        }
+    }
+}
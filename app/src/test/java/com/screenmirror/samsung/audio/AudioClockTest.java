@@ -0,0 +1,52 @@
+package com.screenmirror.samsung.audio;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AudioClockTest {
+
+    private final AudioClock clock = new AudioClock(48000);
+
+    @Test
+    public void timestampPinsFramesAtTheSampleRate() {
+        clock.onTimestamp(4800, 2_000_000_000L);
+        assertTrue(clock.isAnchoredByTimestamp());
+        assertEquals(2_000_000_000L, clock.ptsNanos(4800));
+        assertEquals(2_100_000_000L, clock.ptsNanos(9600));
+        assertEquals(1_900_000_000L, clock.ptsNanos(0));
+    }
+
+    @Test
+    public void readTimeAnchorsTheNewestFrame() {
+        assertFalse(clock.isAnchored());
+        // 960 frames read so far, the read returned at 5 s: frame 960 is "now", frame 0 is 20 ms earlier.
+        clock.onRead(960, 5_000_000_000L);
+        assertTrue(clock.isAnchored());
+        assertFalse(clock.isAnchoredByTimestamp());
+        assertEquals(5_000_000_000L, clock.ptsNanos(960));
+        assertEquals(4_980_000_000L, clock.ptsNanos(0));
+        // Each read moves the anchor, so a late read cannot make the clock drift.
+        clock.onRead(1920, 5_030_000_000L);
+        assertEquals(5_010_000_000L, clock.ptsNanos(960));
+    }
+
+    @Test
+    public void timestampWinsOverReadTime() {
+        clock.onTimestamp(0, 1_000_000_000L);
+        clock.onRead(48000, 3_000_000_000L);
+        assertEquals(2_000_000_000L, clock.ptsNanos(48000));
+    }
+
+    @Test
+    public void resetDropsTheAnchor() {
+        clock.onTimestamp(0, 1_000_000_000L);
+        clock.reset();
+        assertFalse(clock.isAnchored());
+        assertFalse(clock.isAnchoredByTimestamp());
+        clock.onRead(480, 9_000_000_000L);
+        assertEquals(8_990_000_000L, clock.ptsNanos(0));
+    }
+}
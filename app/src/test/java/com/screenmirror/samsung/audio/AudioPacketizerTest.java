@@ -0,0 +1,100 @@
+package com.screenmirror.samsung.audio;
+
+import com.screenmirror.samsung.stream.AudioPacket;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class AudioPacketizerTest {
+
+    private static final int SAMPLE_RATE = 48000;
+    private static final int CHANNELS = 2;
+    private static final int FRAMES_PER_PACKET = 160;
+
+    private final List<byte[]> packets = new ArrayList<>();
+    private final AudioPacketizer packetizer = new AudioPacketizer(SAMPLE_RATE, CHANNELS, FRAMES_PER_PACKET, packets::add);
+
+    @Test
+    public void cutsUnevenReadsIntoWholePackets() {
+        short[] pcm = tone(1080);
+        int[] reads = {1, 159, 37, 300, 3, 480, 100};
+        int frame = 0;
+        for (int read : reads) {
+            packetizer.getClock().onRead(frame + read, 1_000_000_000L);
+            packetizer.write(Arrays.copyOfRange(pcm, frame * CHANNELS, (frame + read) * CHANNELS), read);
+            frame += read;
+        }
+        assertEquals(1080, packetizer.getFramesRead());
+        assertEquals(6, packets.size());
+        assertEquals(6, packetizer.getPacketsWritten());
+
+        // Payloads match one continuous encode cut at exact packet boundaries.
+        ImaAdpcm reference = new ImaAdpcm(CHANNELS);
+        byte[] block = new byte[ImaAdpcm.blockSize(CHANNELS, FRAMES_PER_PACKET)];
+        for (int i = 0; i < packets.size(); i++) {
+            short[] packetPcm = Arrays.copyOfRange(pcm, i * FRAMES_PER_PACKET * CHANNELS, (i + 1) * FRAMES_PER_PACKET * CHANNELS);
+            int length = reference.encode(packetPcm, FRAMES_PER_PACKET, block, 0);
+            byte[] packet = packets.get(i);
+            assertEquals(AudioPacket.HEADER_LENGTH + length, packet.length);
+            assertArrayEquals(block, Arrays.copyOfRange(packet, AudioPacket.HEADER_LENGTH, packet.length));
+        }
+    }
+
+    @Test
+    public void writesTheHeaderTheClientParses() {
+        packetizer.getClock().onTimestamp(0, 7_250_000_000L);
+        packetizer.write(tone(FRAMES_PER_PACKET), FRAMES_PER_PACKET);
+        assertEquals(1, packets.size());
+
+        ByteBuffer header = ByteBuffer.wrap(packets.get(0));
+        assertEquals(AudioPacket.TYPE_AUDIO_ADPCM, header.get(0));
+        assertEquals(0, header.get(1));
+        assertEquals(AudioPacket.HEADER_LENGTH, header.getShort(2));
+        assertEquals(1, header.getInt(4));
+        assertEquals(7250, header.getInt(8));
+        assertEquals(SAMPLE_RATE, header.getInt(12));
+        assertEquals(CHANNELS, header.get(16));
+        assertEquals(FRAMES_PER_PACKET, header.getShort(18) & 0xFFFF);
+    }
+
+    @Test
+    public void stampsEachPacketWithItsFirstFrame() {
+        // Anchored by a platform timestamp: frame 0 at 1 s.
+        packetizer.getClock().onTimestamp(0, 1_000_000_000L);
+        short[] pcm = tone(FRAMES_PER_PACKET * 5);
+        packetizer.write(pcm, 250);
+        packetizer.write(Arrays.copyOfRange(pcm, 250 * CHANNELS, pcm.length), FRAMES_PER_PACKET * 5 - 250);
+        assertEquals(5, packets.size());
+        for (int i = 0; i < packets.size(); i++) {
+            // 160 frames at 48 kHz are 3.333 ms; the header carries whole milliseconds.
+            long expectedMillis = (1_000_000_000L + i * FRAMES_PER_PACKET * 1_000_000_000L / SAMPLE_RATE) / 1_000_000;
+            assertEquals(expectedMillis, ByteBuffer.wrap(packets.get(i)).getInt(8));
+        }
+    }
+
+    @Test
+    public void resetStartsAFreshPacket() {
+        packetizer.write(tone(100), 100);
+        packetizer.reset();
+        packetizer.write(tone(FRAMES_PER_PACKET), FRAMES_PER_PACKET);
+        assertEquals(1, packets.size());
+        assertEquals(FRAMES_PER_PACKET, packetizer.getFramesRead());
+    }
+
+    /** Interleaved stereo: a tone on the left, a different one on the right. */
+    static short[] tone(int frames) {
+        short[] pcm = new short[frames * CHANNELS];
+        for (int i = 0; i < frames; i++) {
+            pcm[i * CHANNELS] = (short) (12000 * Math.sin(2 * Math.PI * 440 * i / SAMPLE_RATE));
+            pcm[i * CHANNELS + 1] = (short) (8000 * Math.sin(2 * Math.PI * 1000 * i / SAMPLE_RATE));
+        }
+        return pcm;
+    }
+}
@@ -0,0 +1,98 @@
+package com.screenmirror.samsung.audio;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ImaAdpcmTest {
+
+    private static final int FRAMES = 160;
+
+    @Test
+    public void blockSizeCoversHeadersAndNibbles() {
+        assertEquals(2 * 4 + FRAMES, ImaAdpcm.blockSize(2, FRAMES));
+        // An odd sample count still needs its last half byte.
+        assertEquals(4 + 3, ImaAdpcm.blockSize(1, 5));
+    }
+
+    @Test
+    public void tonesDecodeWithinTheErrorBound() {
+        short[] pcm = AudioPacketizerTest.tone(FRAMES * 50);
+        short[] decoded = roundTrip(pcm, 2);
+        // The first block still has the step size ramping up from silence; judge the steady state.
+        double signal = 0;
+        double noise = 0;
+        int maxError = 0;
+        for (int i = FRAMES * 2; i < pcm.length; i++) {
+            int error = Math.abs(pcm[i] - decoded[i]);
+            maxError = Math.max(maxError, error);
+            signal += (double) pcm[i] * pcm[i];
+            noise += (double) error * error;
+        }
+        double snr = 10 * Math.log10(signal / noise);
+        assertTrue("SNR " + snr + " dB", snr > 35);
+        assertTrue("max error " + maxError, maxError < 512);
+    }
+
+    @Test
+    public void silenceStaysSilent() {
+        short[] decoded = roundTrip(new short[FRAMES * 4], 1);
+        for (short sample : decoded) {
+            assertTrue(Math.abs(sample) <= 8);
+        }
+    }
+
+    @Test
+    public void aBlockDecodesWithoutTheOnesBeforeIt() {
+        // Noisy input keeps the step index moving, so a block that leaned on its predecessor would show it.
+        Random random = new Random(9);
+        short[] pcm = new short[FRAMES * 8];
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = (short) (8000 * Math.sin(2 * Math.PI * 300 * i / 48000.0) + random.nextGaussian() * 500);
+        }
+        ImaAdpcm codec = new ImaAdpcm(1);
+        byte[] block = new byte[ImaAdpcm.blockSize(1, FRAMES)];
+        short[] chunk = new short[FRAMES];
+        for (int b = 0; b < 6; b++) {
+            System.arraycopy(pcm, b * FRAMES, chunk, 0, FRAMES);
+            codec.encode(chunk, FRAMES, block, 0);
+        }
+        // Only block 5 arrives; blocks 0-4 were lost.
+        short[] decoded = new short[FRAMES];
+        ImaAdpcm.decode(block, 0, 1, FRAMES, decoded);
+        for (int i = 0; i < FRAMES; i++) {
+            int error = Math.abs(pcm[5 * FRAMES + i] - decoded[i]);
+            assertTrue("sample " + i + " off by " + error, error < 1024);
+        }
+    }
+
+    @Test
+    public void clampsFullScaleSteps() {
+        short[] pcm = new short[FRAMES];
+        for (int i = 0; i < FRAMES; i++) {
+            pcm[i] = (i / 20) % 2 == 0 ? Short.MAX_VALUE : Short.MIN_VALUE;
+        }
+        short[] decoded = roundTrip(pcm, 1);
+        // Once the step size has caught up, the square wave's plateaus come through.
+        assertTrue(decoded[FRAMES - 21] > 30000);
+        assertTrue(decoded[FRAMES - 1] < -30000);
+    }
+
+    /** Encodes {@code pcm} as consecutive blocks of {@code FRAMES}, decoding each block separately. */
+    private static short[] roundTrip(short[] pcm, int channels) {
+        ImaAdpcm codec = new ImaAdpcm(channels);
+        byte[] block = new byte[ImaAdpcm.blockSize(channels, FRAMES)];
+        short[] chunk = new short[FRAMES * channels];
+        short[] decoded = new short[pcm.length];
+        for (int offset = 0; offset < pcm.length; offset += chunk.length) {
+            System.arraycopy(pcm, offset, chunk, 0, chunk.length);
+            codec.encode(chunk, FRAMES, block, 0);
+            ImaAdpcm.decode(block, 0, channels, FRAMES, chunk);
+            System.arraycopy(chunk, 0, decoded, offset, chunk.length);
+        }
+        return decoded;
+    }
+}
@@ -0,0 +1,103 @@
+package com.screenmirror.samsung.codec;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class Lz77Test {
+
+    private final int[] table = new int[Lz77.HASH_TABLE_SIZE];
+
+    @Test
+    public void roundTripsEmptyAndShortInputs() {
+        // Up to one past the 4-byte minimum match.
+        for (int length = 0; length <= 5; length++) {
+            byte[] input = new byte[length];
+            Arrays.fill(input, (byte) 7);
+            assertRoundTrip(input);
+        }
+    }
+
+    @Test
+    public void roundTripsRandomBytes() {
+        Random random = new Random(1);
+        for (int i = 0; i < 200; i++) {
+            byte[] input = new byte[random.nextInt(5000)];
+            random.nextBytes(input);
+            assertRoundTrip(input);
+        }
+    }
+
+    @Test
+    public void roundTripsRandomSmallAlphabets() {
+        // Palette indices: few distinct symbols, lots of short repeats.
+        Random random = new Random(2);
+        for (int i = 0; i < 200; i++) {
+            byte[] input = new byte[1 + random.nextInt(4096)];
+            int symbols = 1 + random.nextInt(8);
+            for (int j = 0; j < input.length; j++) {
+                input[j] = (byte) random.nextInt(symbols);
+            }
+            assertRoundTrip(input);
+        }
+    }
+
+    @Test
+    public void collapsesLongRunsThroughOverlappingMatches() {
+        byte[] input = new byte[4096];
+        Arrays.fill(input, (byte) 3);
+        int compressed = assertRoundTrip(input);
+        assertTrue("run compressed to " + compressed + " bytes", compressed < 32);
+    }
+
+    @Test
+    public void roundTripsLiteralAndMatchLengthsAcrossExtensionBytes() {
+        // 14/15/16 and 269/270/271 sit on the token nibble and first extension byte boundaries.
+        int[] lengths = {14, 15, 16, 269, 270, 271, 600};
+        Random random = new Random(3);
+        for (int literals : lengths) {
+            for (int match : lengths) {
+                byte[] input = new byte[literals + match + 1];
+                random.nextBytes(input);
+                // A run after random literals forces one literal run and one long match.
+                Arrays.fill(input, literals, literals + match, (byte) 0x55);
+                assertRoundTrip(input);
+            }
+        }
+    }
+
+    @Test
+    public void staysWithinMaxCompressedLength() {
+        Random random = new Random(4);
+        for (int length : new int[] {0, 1, 254, 255, 256, 4096, 65536}) {
+            byte[] input = new byte[length];
+            random.nextBytes(input);
+            byte[] output = new byte[Lz77.maxCompressedLength(length)];
+            assertTrue(Lz77.compress(input, length, output, 0, table) <= output.length);
+        }
+    }
+
+    @Test
+    public void writesAtTheRequestedOffset() {
+        byte[] input = "abcabcabcabcabcabc-xyz-xyz-xyz-xyz".getBytes();
+        byte[] output = new byte[8 + Lz77.maxCompressedLength(input.length)];
+        int length = Lz77.compress(input, input.length, output, 8, table);
+        byte[] decoded = new byte[input.length];
+        assertEquals(input.length, Lz77.decompress(output, 8, length, decoded, decoded.length));
+        assertArrayEquals(input, decoded);
+    }
+
+    private int assertRoundTrip(byte[] input) {
+        byte[] output = new byte[Lz77.maxCompressedLength(input.length)];
+        int length = Lz77.compress(input, input.length, output, 0, table);
+        byte[] decoded = new byte[input.length];
+        assertEquals(input.length, Lz77.decompress(output, 0, length, decoded, decoded.length));
+        assertArrayEquals(input, decoded);
+        return length;
+    }
+}
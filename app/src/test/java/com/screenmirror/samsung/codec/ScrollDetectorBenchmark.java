@@ -0,0 +1,110 @@
+package com.screenmirror.samsung.codec;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Cost of {@link ScrollDetector#detect} on synthetic 1080x2400 frame pairs.
+ *
+ * Not a unit test: run its {@code main} from the IDE, or with the test
+ * classpath on a plain JVM. Each case is detected repeatedly after a
+ * warm-up and reported as milliseconds per frame and the share of frames
+ * where a shift was found.
+ */
+public final class ScrollDetectorBenchmark {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 2400;
+    private static final int SCROLL_STEP = 48;
+    private static final int WARMUP_FRAMES = 20;
+    private static final int MEASURED_FRAMES = 100;
+
+    private ScrollDetectorBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        int[] page = textPage(random, WIDTH, HEIGHT * 2);
+        int[] strip = textPage(random, WIDTH * 2, 600);
+
+        byte[] still = window(page, WIDTH, 0, 0);
+        run("static", still, still);
+        run("scroll", window(page, WIDTH, 0, 0), window(page, WIDTH, 0, SCROLL_STEP));
+
+        byte[] before = window(page, WIDTH, 0, 0);
+        byte[] after = window(page, WIDTH, 0, 0);
+        paste(before, strip, WIDTH * 2, 0, 800, 600);
+        paste(after, strip, WIDTH * 2, 120, 800, 600);
+        run("carousel", before, after);
+
+        run("new-page", window(page, WIDTH, 0, 0), window(textPage(random, WIDTH, HEIGHT), WIDTH, 0, 0));
+    }
+
+    /** Alternates the two frames, so the detector sees the shift forwards and then back. */
+    private static void run(String name, byte[] a, byte[] b) {
+        ScrollDetector detector = new ScrollDetector(1024, 32);
+        detect(detector, a, b, WARMUP_FRAMES);
+        long start = System.nanoTime();
+        int hits = detect(detector, a, b, MEASURED_FRAMES);
+        double millis = (System.nanoTime() - start) / 1e6;
+        System.out.println(String.format(Locale.US, "%-9s %7.2f ms/frame  %5.1f%% shifts",
+            name, millis / MEASURED_FRAMES, 100.0 * hits / MEASURED_FRAMES));
+    }
+
+    private static int detect(ScrollDetector detector, byte[] a, byte[] b, int frames) {
+        int hits = 0;
+        for (int f = 0; f < frames; f++) {
+            boolean even = (f & 1) == 0;
+            if (detector.detect(even ? a : b, even ? b : a, WIDTH, HEIGHT) != null) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    /** Lines of glyph-like strokes on white, with the blank gaps real text has. */
+    private static int[] textPage(Random random, int width, int height) {
+        int[] page = new int[width * height];
+        Arrays.fill(page, 0xFAFAFA);
+        int[] shades = {0x202020, 0x606060, 0xA0A0A0, 0xD0D0D0};
+        for (int line = 0; line + 24 < height; line += 36) {
+            for (int x = 16; x < width - 16; x++) {
+                if (random.nextInt(3) == 0) {
+                    continue;
+                }
+                int top = line + random.nextInt(8);
+                int bottom = line + 16 + random.nextInt(8);
+                for (int y = top; y < bottom; y++) {
+                    page[y * width + x] = shades[random.nextInt(shades.length)];
+                }
+            }
+        }
+        return page;
+    }
+
+    private static byte[] window(int[] page, int pageWidth, int left, int top) {
+        byte[] frame = new byte[WIDTH * HEIGHT * 4];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                put(frame, y * WIDTH + x, page[(y + top) * pageWidth + x + left]);
+            }
+        }
+        return frame;
+    }
+
+    private static void paste(byte[] frame, int[] strip, int stripWidth, int left, int top, int height) {
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                put(frame, (top + y) * WIDTH + x, strip[y * stripWidth + x + left]);
+            }
+        }
+    }
+
+    private static void put(byte[] frame, int pixel, int rgb) {
+        frame[pixel * 4] = (byte) (rgb >>> 16);
+        frame[pixel * 4 + 1] = (byte) (rgb >>> 8);
+        frame[pixel * 4 + 2] = (byte) rgb;
+        frame[pixel * 4 + 3] = (byte) 0xFF;
+    }
+}
@@ -0,0 +1,160 @@
+package com.screenmirror.samsung.codec;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ScrollDetectorTest {
+
+    private static final int WIDTH = 360;
+    private static final int HEIGHT = 800;
+    private static final int HEADER = 40;
+
+    private final ScrollDetector detector = new ScrollDetector(1024, 32);
+    private final Random random = new Random(7);
+
+    @Test
+    public void findsAVerticalScroll() {
+        int[] page = page(WIDTH, HEIGHT * 2);
+        byte[] previous = frame(page, WIDTH, 0, 0);
+        byte[] current = frame(page, WIDTH, 0, 120);
+
+        // The pinned header is unchanged; everything under it moved up by 120 rows.
+        assertMotion(detector.detect(previous, current, WIDTH, HEIGHT), 0, HEADER, WIDTH, HEIGHT - HEADER - 120, 0, 120);
+    }
+
+    @Test
+    public void findsAScrollBackUp() {
+        int[] page = page(WIDTH, HEIGHT * 2);
+        byte[] previous = frame(page, WIDTH, 0, 300);
+        byte[] current = frame(page, WIDTH, 0, 250);
+
+        assertMotion(detector.detect(previous, current, WIDTH, HEIGHT), 0, HEADER + 50, WIDTH, HEIGHT - HEADER - 50, 0, -50);
+    }
+
+    @Test
+    public void tracksAScrollAcrossFrames() {
+        int[] page = page(WIDTH, HEIGHT * 2);
+        byte[] first = frame(page, WIDTH, 0, 0);
+        byte[] second = frame(page, WIDTH, 0, 64);
+        byte[] third = frame(page, WIDTH, 0, 96);
+        detector.detect(first, second, WIDTH, HEIGHT);
+        // Row hashes carry over from the previous call.
+        assertMotion(detector.detect(second, third, WIDTH, HEIGHT), 0, HEADER, WIDTH, HEIGHT - HEADER - 32, 0, 32);
+    }
+
+    @Test
+    public void findsAHorizontalCarousel() {
+        int bandTop = 200;
+        int bandHeight = 240;
+        int[] page = page(WIDTH, HEIGHT * 2);
+        int[] strip = page(WIDTH * 2, bandHeight);
+        byte[] previous = frame(page, WIDTH, 0, 0);
+        byte[] current = frame(page, WIDTH, 0, 0);
+        paste(previous, strip, WIDTH * 2, 0, bandTop, bandHeight);
+        paste(current, strip, WIDTH * 2, 90, bandTop, bandHeight);
+
+        assertMotion(detector.detect(previous, current, WIDTH, HEIGHT), 0, bandTop, WIDTH - 90, bandHeight, 90, 0);
+    }
+
+    @Test
+    public void staticFrameIsNoScroll() {
+        byte[] frame = frame(page(WIDTH, HEIGHT), WIDTH, 0, 0);
+        assertNull(detector.detect(frame, frame.clone(), WIDTH, HEIGHT));
+        assertNull(detector.detect(frame, frame.clone(), WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void noiseIsNoScroll() {
+        int[] page = page(WIDTH, HEIGHT * 2);
+        byte[] previous = frame(page, WIDTH, 0, 0);
+        byte[] current = frame(page, WIDTH, 0, 0);
+        // A sparse sprinkle of changed pixels on every row, like a video or a shimmer animation.
+        for (int i = 0; i < WIDTH * HEIGHT / 50; i++) {
+            current[random.nextInt(WIDTH * HEIGHT) * 4] ^= (byte) 0x55;
+        }
+        assertNull(detector.detect(previous, current, WIDTH, HEIGHT));
+
+        byte[] unrelated = frame(page(WIDTH, HEIGHT), WIDTH, 0, 0);
+        assertNull(detector.detect(current, unrelated, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void tooFewMatchingRowsIsNoScroll() {
+        // Blank rows hash alike and never vote, leaving ten rows that moved: under the 32-row minimum.
+        int[] page = new int[WIDTH * HEIGHT * 2];
+        for (int y = 100; y < 110; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                page[y * WIDTH + x] = random.nextInt();
+            }
+        }
+        byte[] previous = frame(page, WIDTH, 0, 0);
+        byte[] current = frame(page, WIDTH, 0, 40);
+        assertNull(detector.detect(previous, current, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void resetForgetsThePreviousFrame() {
+        int[] page = page(WIDTH, HEIGHT * 2);
+        byte[] previous = frame(page, WIDTH, 0, 0);
+        byte[] current = frame(page, WIDTH, 0, 120);
+        detector.detect(previous, previous, WIDTH, HEIGHT);
+        detector.reset();
+        Motion motion = detector.detect(previous, current, WIDTH, HEIGHT);
+        assertNotNull(motion);
+        assertEquals(120, motion.dy);
+    }
+
+    private static void assertMotion(Motion motion, int x, int y, int width, int height, int dx, int dy) {
+        assertNotNull(motion);
+        assertEquals(motion.toString(), x, motion.x);
+        assertEquals(motion.toString(), y, motion.y);
+        assertEquals(motion.toString(), width, motion.width);
+        assertEquals(motion.toString(), height, motion.height);
+        assertEquals(motion.toString(), dx, motion.dx);
+        assertEquals(motion.toString(), dy, motion.dy);
+    }
+
+    /** Random opaque pixels: every row and column is distinct. */
+    private int[] page(int width, int height) {
+        int[] page = new int[width * height];
+        for (int i = 0; i < page.length; i++) {
+            page[i] = random.nextInt() | 0xFF000000;
+        }
+        return page;
+    }
+
+    /**
+     * A {@code WIDTH}x{@code HEIGHT} RGBA window into {@code page} starting at
+     * ({@code left}, {@code top}), under a header pinned to the page's first rows.
+     */
+    private static byte[] frame(int[] page, int pageWidth, int left, int top) {
+        byte[] frame = new byte[WIDTH * HEIGHT * 4];
+        for (int y = 0; y < HEIGHT; y++) {
+            int source = y < HEADER ? y : y + top;
+            for (int x = 0; x < WIDTH; x++) {
+                put(frame, y * WIDTH + x, page[source * pageWidth + x + left]);
+            }
+        }
+        return frame;
+    }
+
+    private static void paste(byte[] frame, int[] strip, int stripWidth, int left, int top, int height) {
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                put(frame, (top + y) * WIDTH + x, strip[y * stripWidth + x + left]);
+            }
+        }
+    }
+
+    private static void put(byte[] frame, int pixel, int argb) {
+        frame[pixel * 4] = (byte) (argb >>> 16);
+        frame[pixel * 4 + 1] = (byte) (argb >>> 8);
+        frame[pixel * 4 + 2] = (byte) argb;
+        frame[pixel * 4 + 3] = (byte) (argb >>> 24);
+    }
+}
@@ -0,0 +1,131 @@
+package com.screenmirror.samsung.codec;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Throughput of {@link TileCodec} and {@link Lz77} on synthetic screen content.
+ *
+ * Not a unit test: run its {@code main} from the IDE, or with the test
+ * classpath on a plain JVM. Each content type is encoded over a 1080x2400
+ * frame in 64x64 tiles, after a warm-up, and reported as tiles per second,
+ * megapixels per second and compressed bytes per pixel.
+ */
+public final class TileCodecBenchmark {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 2400;
+    private static final int TILE = 64;
+    private static final int WARMUP_FRAMES = 20;
+    private static final int MEASURED_FRAMES = 50;
+
+    private TileCodecBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        run("solid", solid());
+        run("text", text(new Random(1)));
+        run("flat-ui", flatUi(new Random(2)));
+        run("photo", photo(new Random(3)));
+    }
+
+    private static void run(String name, byte[] frame) {
+        TileCodec codec = new TileCodec(TILE * TILE, 256);
+        encodeFrame(codec, frame, WARMUP_FRAMES);
+        long start = System.nanoTime();
+        long[] result = encodeFrame(codec, frame, MEASURED_FRAMES);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long tiles = result[0];
+        long encoded = result[1];
+        long bytes = result[2];
+        long pixels = (long) WIDTH * HEIGHT * MEASURED_FRAMES;
+        System.out.println(String.format(Locale.US,
+            "%-8s %9.0f tiles/s %7.1f Mpx/s  lossless %5.1f%%  %.3f bytes/px",
+            name, tiles / seconds, pixels / seconds / 1e6, 100.0 * encoded / tiles,
+            encoded == 0 ? 0 : bytes / (double) (encoded * TILE * TILE)));
+    }
+
+    /** @return tiles attempted, tiles encoded losslessly, bytes written */
+    private static long[] encodeFrame(TileCodec codec, byte[] frame, int frames) {
+        long tiles = 0;
+        long encoded = 0;
+        long bytes = 0;
+        for (int f = 0; f < frames; f++) {
+            for (int y = 0; y < HEIGHT; y += TILE) {
+                for (int x = 0; x < WIDTH; x += TILE) {
+                    tiles++;
+                    if (codec.encode(frame, WIDTH * 4, x, y, Math.min(TILE, WIDTH - x), Math.min(TILE, HEIGHT - y))) {
+                        encoded++;
+                        bytes += codec.getOutputLength();
+                    }
+                }
+            }
+        }
+        return new long[] {tiles, encoded, bytes};
+    }
+
+    private static byte[] solid() {
+        byte[] frame = new byte[WIDTH * HEIGHT * 4];
+        for (int i = 0; i < WIDTH * HEIGHT; i++) {
+            put(frame, i, 0xFAFAFA);
+        }
+        return frame;
+    }
+
+    /** Dark glyph-like strokes with a few anti-aliasing shades on white. */
+    private static byte[] text(Random random) {
+        byte[] frame = solid();
+        int[] shades = {0x202020, 0x606060, 0xA0A0A0, 0xD0D0D0};
+        for (int line = 0; line + 24 < HEIGHT; line += 36) {
+            for (int x = 16; x < WIDTH - 16; x++) {
+                if (random.nextInt(3) == 0) {
+                    continue;
+                }
+                int top = line + random.nextInt(8);
+                int bottom = line + 16 + random.nextInt(8);
+                for (int y = top; y < bottom; y++) {
+                    put(frame, y * WIDTH + x, shades[random.nextInt(shades.length)]);
+                }
+            }
+        }
+        return frame;
+    }
+
+    /** Rectangles of flat colour: cards, buttons, toolbars. */
+    private static byte[] flatUi(Random random) {
+        byte[] frame = solid();
+        for (int i = 0; i < 200; i++) {
+            int x0 = random.nextInt(WIDTH);
+            int y0 = random.nextInt(HEIGHT);
+            int x1 = Math.min(WIDTH, x0 + 20 + random.nextInt(400));
+            int y1 = Math.min(HEIGHT, y0 + 20 + random.nextInt(200));
+            int color = random.nextInt(0x1000000);
+            for (int y = y0; y < y1; y++) {
+                for (int x = x0; x < x1; x++) {
+                    put(frame, y * WIDTH + x, color);
+                }
+            }
+        }
+        return frame;
+    }
+
+    /** Noise over a gradient: far past the palette limit, so every tile is rejected. */
+    private static byte[] photo(Random random) {
+        byte[] frame = new byte[WIDTH * HEIGHT * 4];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int r = (x * 255 / WIDTH + random.nextInt(16)) & 0xFF;
+                int g = (y * 255 / HEIGHT + random.nextInt(16)) & 0xFF;
+                put(frame, y * WIDTH + x, r << 16 | g << 8 | random.nextInt(256));
+            }
+        }
+        return frame;
+    }
+
+    private static void put(byte[] frame, int pixel, int rgb) {
+        frame[pixel * 4] = (byte) (rgb >>> 16);
+        frame[pixel * 4 + 1] = (byte) (rgb >>> 8);
+        frame[pixel * 4 + 2] = (byte) rgb;
+        frame[pixel * 4 + 3] = (byte) 0xFF;
+    }
+}
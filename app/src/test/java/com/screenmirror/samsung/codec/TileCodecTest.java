@@ -0,0 +1,147 @@
+package com.screenmirror.samsung.codec;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TileCodecTest {
+
+    private static final int TILE = 64;
+
+    private final TileCodec codec = new TileCodec(TILE * TILE, 256);
+
+    @Test
+    public void solidTileIsFourBytes() {
+        byte[] frame = frame(TILE, TILE);
+        fill(frame, TILE, 0, 0, TILE, TILE, 0x336699);
+        assertTrue(codec.encode(frame, TILE * 4, 0, 0, TILE, TILE));
+        assertEquals(TileCodec.MODE_SOLID, codec.getOutput()[0]);
+        assertEquals(4, codec.getOutputLength());
+        assertRoundTrip(frame, TILE, 0, 0, TILE, TILE);
+    }
+
+    @Test
+    public void flatUiTileCollapsesToRuns() {
+        // Horizontal bands of flat colour, like a toolbar over a list.
+        byte[] frame = frame(TILE, TILE);
+        int[] colors = {0xFFFFFF, 0xEEEEEE, 0x2196F3, 0x000000};
+        for (int band = 0; band < 4; band++) {
+            fill(frame, TILE, 0, band * 16, TILE, 16, colors[band]);
+        }
+        assertTrue(codec.encode(frame, TILE * 4, 0, 0, TILE, TILE));
+        assertEquals(TileCodec.MODE_PALETTE, codec.getOutput()[0]);
+        assertTrue("encoded to " + codec.getOutputLength() + " bytes", codec.getOutputLength() < 64);
+        assertRoundTrip(frame, TILE, 0, 0, TILE, TILE);
+    }
+
+    @Test
+    public void roundTripsRandomPaletteTiles() {
+        Random random = new Random(5);
+        for (int i = 0; i < 200; i++) {
+            int colors = 2 + random.nextInt(255);
+            int[] palette = new int[colors];
+            for (int c = 0; c < colors; c++) {
+                palette[c] = random.nextInt(0x1000000);
+            }
+            byte[] frame = frame(TILE, TILE);
+            int p = 0;
+            while (p < TILE * TILE) {
+                // Runs of random length, so both literals and matches occur.
+                int color = palette[random.nextInt(colors)];
+                int end = Math.min(p + 1 + random.nextInt(12), TILE * TILE);
+                for (; p < end; p++) {
+                    putPixel(frame, TILE, p % TILE, p / TILE, color);
+                }
+            }
+            assertTrue(codec.encode(frame, TILE * 4, 0, 0, TILE, TILE));
+            assertRoundTrip(frame, TILE, 0, 0, TILE, TILE);
+        }
+    }
+
+    @Test
+    public void roundTripsEdgeSizedTilesInsideALargerFrame() {
+        // Right and bottom edge tiles of a frame that is not a multiple of the tile size.
+        int width = 150;
+        int height = 77;
+        Random random = new Random(6);
+        byte[] frame = frame(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                putPixel(frame, width, x, y, random.nextInt(6) * 0x202020);
+            }
+        }
+        int[][] tiles = {{128, 64, 22, 13}, {0, 64, 64, 13}, {128, 0, 22, 64}, {149, 76, 1, 1}, {0, 0, 1, 64}, {0, 0, 64, 1}};
+        for (int[] tile : tiles) {
+            assertTrue(codec.encode(frame, width * 4, tile[0], tile[1], tile[2], tile[3]));
+            assertRoundTrip(frame, width, tile[0], tile[1], tile[2], tile[3]);
+        }
+    }
+
+    @Test
+    public void rejectsPhotographicTiles() {
+        TileCodec limited = new TileCodec(TILE * TILE, 16);
+        byte[] frame = frame(TILE, TILE);
+        for (int p = 0; p < TILE * TILE; p++) {
+            putPixel(frame, TILE, p % TILE, p / TILE, p * 0x010203);
+        }
+        assertFalse(limited.encode(frame, TILE * 4, 0, 0, TILE, TILE));
+        assertFalse(codec.encode(frame, TILE * 4, 0, 0, TILE, TILE));
+    }
+
+    @Test
+    public void reusesStateAcrossManyTiles() {
+        // The colour table is reused via a per-tile stamp; a stale entry would leak colours between tiles.
+        Random random = new Random(7);
+        byte[] frame = frame(TILE, TILE);
+        for (int i = 0; i < 2000; i++) {
+            int colors = 1 + random.nextInt(4);
+            for (int p = 0; p < TILE * TILE; p++) {
+                putPixel(frame, TILE, p % TILE, p / TILE, (i * 7 + p % colors) & 0xFFFFFF);
+            }
+            assertTrue(codec.encode(frame, TILE * 4, 0, 0, TILE, TILE));
+            assertRoundTrip(frame, TILE, 0, 0, TILE, TILE);
+        }
+    }
+
+    private void assertRoundTrip(byte[] frame, int frameWidth, int x, int y, int width, int height) {
+        byte[] rgba = new byte[width * height * 4];
+        byte[] scratch = new byte[width * height];
+        TileCodec.decode(codec.getOutput(), 0, codec.getOutputLength(), width, height, rgba, scratch);
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                int source = ((y + row) * frameWidth + x + col) * 4;
+                int decoded = (row * width + col) * 4;
+                for (int channel = 0; channel < 3; channel++) {
+                    assertEquals("pixel " + col + "," + row + " of " + width + "x" + height + " at " + x + "," + y,
+                        frame[source + channel], rgba[decoded + channel]);
+                }
+                assertEquals((byte) 0xFF, rgba[decoded + 3]);
+            }
+        }
+    }
+
+    private static byte[] frame(int width, int height) {
+        return new byte[width * height * 4];
+    }
+
+    private static void fill(byte[] frame, int frameWidth, int x, int y, int width, int height, int rgb) {
+        for (int row = y; row < y + height; row++) {
+            for (int col = x; col < x + width; col++) {
+                putPixel(frame, frameWidth, col, row, rgb);
+            }
+        }
+    }
+
+    private static void putPixel(byte[] frame, int frameWidth, int x, int y, int rgb) {
+        int offset = (y * frameWidth + x) * 4;
+        frame[offset] = (byte) (rgb >>> 16);
+        frame[offset + 1] = (byte) (rgb >>> 8);
+        frame[offset + 2] = (byte) rgb;
+        // Alpha is dropped by the codec; make sure it doesn't matter.
+        frame[offset + 3] = (byte) (x * 31 + y);
+    }
+}
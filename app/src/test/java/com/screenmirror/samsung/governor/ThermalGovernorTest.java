@@ -0,0 +1,136 @@
+package com.screenmirror.samsung.governor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Replays synthetic thermal and battery traces through {@link ThermalGovernor}.
+ */
+public class ThermalGovernorTest {
+
+    private static final long COOL_DOWN_MS = 10000;
+    private static final float NO_FORECAST = Float.NaN;
+
+    private final List<Integer> changes = new ArrayList<>();
+    private ThermalGovernor governor;
+
+    @Before
+    public void setUp() {
+        governor = new ThermalGovernor(ThermalGovernor.defaultLevels(), COOL_DOWN_MS, (level, budget) -> changes.add(level));
+    }
+
+    @Test
+    public void stepsDownImmediately() {
+        assertEquals(0, headroom(0.50f, 0));
+        assertEquals(3, headroom(0.95f, 1000));
+        assertEquals(ThermalGovernor.defaultLevels()[3], governor.getBudget());
+        assertChanges(3);
+    }
+
+    @Test
+    public void stepsUpOneLevelPerCoolDown() {
+        headroom(0.95f, 0);
+        // Cool from here on; each level needs its own full cool-down.
+        assertEquals(3, headroom(0.30f, 1000));
+        assertEquals(3, headroom(0.30f, 1000 + COOL_DOWN_MS - 1));
+        assertEquals(2, headroom(0.30f, 1000 + COOL_DOWN_MS));
+        assertEquals(2, headroom(0.30f, 1000 + 2 * COOL_DOWN_MS - 1));
+        assertEquals(1, headroom(0.30f, 1000 + 2 * COOL_DOWN_MS));
+        assertEquals(0, headroom(0.30f, 1000 + 3 * COOL_DOWN_MS));
+        assertChanges(3, 2, 1, 0);
+    }
+
+    @Test
+    public void aWarmSampleRestartsTheCoolDown() {
+        headroom(0.85f, 0);
+        assertEquals(2, headroom(0.30f, 1000));
+        // Back within the hysteresis margin of level 2 just before the cool-down ends.
+        assertEquals(2, headroom(0.75f, 1000 + COOL_DOWN_MS - 1));
+        assertEquals(2, headroom(0.30f, 1000 + COOL_DOWN_MS));
+        assertEquals(2, headroom(0.30f, 1000 + 2 * COOL_DOWN_MS - 1));
+        assertEquals(1, headroom(0.30f, 1000 + 2 * COOL_DOWN_MS));
+    }
+
+    @Test
+    public void doesNotOscillateAtAThreshold() {
+        // Hovering around the 0.70 level-1 threshold, within the hysteresis margin, for ten cool-downs.
+        float[] trace = {0.69f, 0.71f, 0.68f, 0.70f, 0.66f, 0.72f, 0.64f, 0.69f};
+        long now = 0;
+        for (int i = 0; i < 200; i++) {
+            headroom(trace[i % trace.length], now);
+            now += COOL_DOWN_MS / 20;
+        }
+        assertEquals(1, governor.getLevel());
+        assertChanges(1);
+    }
+
+    @Test
+    public void lowAndCriticalBatteryHoldAFloor() {
+        assertEquals(1, battery(20, false, 0));
+        assertEquals(2, battery(10, false, 1000));
+        // On the charger the battery level no longer counts, but stepping up still waits.
+        assertEquals(2, battery(10, true, 2000));
+        assertEquals(1, battery(10, true, 2000 + COOL_DOWN_MS));
+        assertEquals(0, battery(10, true, 2000 + 2 * COOL_DOWN_MS));
+    }
+
+    @Test
+    public void batteryRecoveryNeedsTheHysteresisMargin() {
+        battery(19, false, 0);
+        assertEquals(1, governor.getLevel());
+        // 22% is within the margin above the 20% threshold: stays at level 1.
+        assertEquals(1, battery(22, false, 1000));
+        assertEquals(1, battery(22, false, 1000 + 2 * COOL_DOWN_MS));
+        assertEquals(1, battery(24, false, 1000 + 3 * COOL_DOWN_MS));
+        assertEquals(0, battery(24, false, 1000 + 4 * COOL_DOWN_MS));
+        assertEquals(0, battery(-1, false, 1000 + 5 * COOL_DOWN_MS));
+    }
+
+    @Test
+    public void fallsBackToThermalStatusWithoutAForecast() {
+        assertEquals(0, status(ThermalGovernor.THERMAL_STATUS_NONE, 0));
+        assertEquals(1, status(ThermalGovernor.THERMAL_STATUS_LIGHT, 1000));
+        assertEquals(2, status(ThermalGovernor.THERMAL_STATUS_MODERATE, 2000));
+        assertEquals(3, status(ThermalGovernor.THERMAL_STATUS_SEVERE, 3000));
+        assertEquals(3, status(ThermalGovernor.THERMAL_STATUS_NONE, 4000));
+        assertEquals(2, status(ThermalGovernor.THERMAL_STATUS_NONE, 4000 + COOL_DOWN_MS));
+    }
+
+    @Test
+    public void thermalStatusIsAFloorUnderTheForecast() {
+        // A cool forecast cannot lift the level above what the OS already reports.
+        assertEquals(2, governor.update(ThermalGovernor.THERMAL_STATUS_MODERATE, 0.10f, 100, true, 0));
+        assertEquals(2, governor.update(ThermalGovernor.THERMAL_STATUS_MODERATE, 0.10f, 100, true, 5 * COOL_DOWN_MS));
+    }
+
+    @Test
+    public void clampsToTheMostRestrictiveLevel() {
+        ThermalGovernor twoLevels = new ThermalGovernor(
+            new StreamBudget[] {new StreamBudget(60, 1.0f, 100), new StreamBudget(30, 0.5f, 60)}, COOL_DOWN_MS, null);
+        assertEquals(1, twoLevels.update(ThermalGovernor.THERMAL_STATUS_SEVERE, 0.99f, 5, false, 0));
+    }
+
+    private int headroom(float headroom, long nowMillis) {
+        return governor.update(ThermalGovernor.THERMAL_STATUS_NONE, headroom, 100, true, nowMillis);
+    }
+
+    private int battery(int percent, boolean charging, long nowMillis) {
+        return governor.update(ThermalGovernor.THERMAL_STATUS_NONE, NO_FORECAST, percent, charging, nowMillis);
+    }
+
+    private int status(int thermalStatus, long nowMillis) {
+        return governor.update(thermalStatus, NO_FORECAST, 100, true, nowMillis);
+    }
+
+    private void assertChanges(Integer... expected) {
+        assertEquals(expected.length, changes.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], changes.get(i));
+        }
+    }
+}
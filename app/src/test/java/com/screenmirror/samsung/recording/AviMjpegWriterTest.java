@@ -0,0 +1,116 @@
+package com.screenmirror.samsung.recording;
+
+import com.screenmirror.samsung.stream.EncodedFrame;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Writes a short segment and reads it back, checking the sizes {@code close()} patches in.
+ */
+public class AviMjpegWriterTest {
+
+    private static final int FPS = 10;
+    private static final int MOVI_FOURCC_OFFSET = 220;
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("segment", ".avi");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void patchesRiffAndIndexSizesOnClose() throws IOException {
+        AviMjpegWriter writer = new AviMjpegWriter(file, FPS);
+        writer.writeFrame(frame(0, 0, true, 301));
+        writer.writeFrame(frame(1, 100, true, 400));
+        // Deltas are skipped; the picture only changes at key frames.
+        writer.writeFrame(frame(2, 200, false, 50));
+        // Slots 2 and 3 are held with empty chunks.
+        writer.writeFrame(frame(3, 400, true, 257));
+        assertEquals(5, writer.getFrameCount());
+        long moviEnd = writer.getBytesWritten();
+        writer.close();
+
+        ByteBuffer avi = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+        assertFourCc(avi, 0, "RIFF");
+        assertEquals(avi.capacity() - 8, avi.getInt(4));
+        assertFourCc(avi, 8, "AVI ");
+        assertEquals(5, avi.getInt(48));
+        assertEquals(1080, avi.getInt(64));
+        assertEquals(2400, avi.getInt(68));
+        assertEquals(5, avi.getInt(140));
+
+        assertFourCc(avi, 212, "LIST");
+        assertFourCc(avi, MOVI_FOURCC_OFFSET, "movi");
+        int moviSize = avi.getInt(216);
+        assertEquals(moviEnd - MOVI_FOURCC_OFFSET, moviSize);
+
+        int idx1 = MOVI_FOURCC_OFFSET + moviSize;
+        assertFourCc(avi, idx1, "idx1");
+        assertEquals(5 * 16, avi.getInt(idx1 + 4));
+        assertEquals(avi.capacity(), idx1 + 8 + 5 * 16);
+
+        int[] sizes = {301, 400, 0, 0, 257};
+        int[] sequences = {0, 1, -1, -1, 3};
+        for (int i = 0; i < sizes.length; i++) {
+            int entry = idx1 + 8 + i * 16;
+            assertFourCc(avi, entry, "00dc");
+            assertEquals(sizes[i] > 0 ? 0x10 : 0, avi.getInt(entry + 4));
+            int chunk = MOVI_FOURCC_OFFSET + avi.getInt(entry + 8);
+            assertEquals(sizes[i], avi.getInt(entry + 12));
+            // The index points at the chunk header, and chunks sit back to back with even padding.
+            assertFourCc(avi, chunk, "00dc");
+            assertEquals(sizes[i], avi.getInt(chunk + 4));
+            if (sequences[i] >= 0) {
+                assertEquals((byte) sequences[i], avi.get(chunk + 8));
+            }
+            int next = i + 1 < sizes.length ? MOVI_FOURCC_OFFSET + avi.getInt(entry + 16 + 8) : idx1;
+            assertEquals(chunk + 8 + sizes[i] + (sizes[i] & 1), next);
+        }
+    }
+
+    @Test
+    public void emptySegmentStillHasAValidIndex() throws IOException {
+        AviMjpegWriter writer = new AviMjpegWriter(file, FPS);
+        writer.close();
+
+        ByteBuffer avi = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(avi.capacity() - 8, avi.getInt(4));
+        assertEquals(4, avi.getInt(216));
+        assertFourCc(avi, 224, "idx1");
+        assertEquals(0, avi.getInt(228));
+    }
+
+    private static EncodedFrame frame(long sequence, long ptsMillis, boolean keyFrame, int length) {
+        byte[] data = new byte[length];
+        if (length > 0) {
+            data[0] = (byte) sequence;
+        }
+        return new EncodedFrame(sequence, ptsMillis * 1000, keyFrame, 1080, 2400, data);
+    }
+
+    private static void assertFourCc(ByteBuffer buffer, int offset, String fourCc) {
+        byte[] actual = new byte[4];
+        for (int i = 0; i < 4; i++) {
+            actual[i] = buffer.get(offset + i);
+        }
+        assertEquals(fourCc, new String(actual, StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,48 @@
+package com.screenmirror.samsung.recording;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RotationPolicyTest {
+
+    @Test
+    public void rotatesBeforeTheFrameThatWouldPassTheSizeLimit() {
+        RotationPolicy policy = new RotationPolicy(1000, 0);
+        assertFalse(policy.shouldRotate(900, 0, 1_000_000, 100));
+        assertTrue(policy.shouldRotate(900, 0, 1_000_000, 101));
+    }
+
+    @Test
+    public void rotatesOnceTheDurationIsReached() {
+        RotationPolicy policy = new RotationPolicy(0, 60_000);
+        assertFalse(policy.shouldRotate(1 << 30, 5_000_000, 64_999_999, 100));
+        assertTrue(policy.shouldRotate(0, 5_000_000, 65_000_000, 100));
+    }
+
+    @Test
+    public void eitherLimitRotates() {
+        RotationPolicy policy = new RotationPolicy(1000, 60_000);
+        assertTrue(policy.shouldRotate(950, 0, 1_000_000, 100));
+        assertTrue(policy.shouldRotate(10, 0, 60_000_000, 100));
+        assertFalse(policy.shouldRotate(10, 0, 1_000_000, 100));
+    }
+
+    @Test
+    public void zeroLimitsNeverRotate() {
+        RotationPolicy policy = new RotationPolicy(0, 0);
+        assertFalse(policy.shouldRotate(Long.MAX_VALUE / 2, 0, Long.MAX_VALUE / 2, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void rejectsNegativeLimits() {
+        try {
+            new RotationPolicy(-1, 0);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+}
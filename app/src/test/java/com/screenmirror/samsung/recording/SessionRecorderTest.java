@@ -0,0 +1,201 @@
+package com.screenmirror.samsung.recording;
+
+import com.screenmirror.samsung.stream.EncodedFrame;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SessionRecorderTest {
+
+    private static final long STOP_TIMEOUT_MS = 5000;
+
+    private final List<FakeWriter> writers = new ArrayList<>();
+    private final List<File> closedFiles = new ArrayList<>();
+    private final List<IOException> errors = new ArrayList<>();
+    private File directory;
+
+    /** Set to make the first write of the first segment wait, so the queue backs up behind it. */
+    private CountDownLatch writerEntered;
+    private CountDownLatch releaseWriter;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("recorder").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        directory.delete();
+    }
+
+    @Test
+    public void segmentsStartOnAKeyFrame() throws Exception {
+        SessionRecorder recorder = start(new RotationPolicy(0, 0), 16);
+        offer(recorder, 0, false);
+        offer(recorder, 1, false);
+        offer(recorder, 2, true);
+        offer(recorder, 3, false);
+        offer(recorder, 4, false);
+        recorder.stop(STOP_TIMEOUT_MS);
+
+        assertEquals(1, recorder.getSegmentsWritten());
+        assertEquals(2, recorder.getFramesDropped());
+        assertSegment(0, 2, 3, 4);
+        assertTrue(writers.get(0).closed);
+        assertEquals(1, closedFiles.size());
+        String name = closedFiles.get(0).getName();
+        assertTrue(name, name.startsWith("session-") && name.endsWith("-000.fake"));
+        assertTrue(errors.isEmpty());
+    }
+
+    @Test
+    public void rotatesBySizeAndWaitsForTheNextKeyFrame() throws Exception {
+        // 100-byte frames: the fourth would take the segment past 350 bytes.
+        SessionRecorder recorder = start(new RotationPolicy(350, 0), 16);
+        for (int sequence = 0; sequence < 7; sequence++) {
+            offer(recorder, sequence, sequence % 4 == 0);
+        }
+        recorder.stop(STOP_TIMEOUT_MS);
+
+        assertEquals(2, recorder.getSegmentsWritten());
+        assertSegment(0, 0, 1, 2);
+        // Frame 3 would have opened the new segment with a delta.
+        assertEquals(1, recorder.getFramesDropped());
+        assertSegment(1, 4, 5, 6);
+    }
+
+    @Test
+    public void rotatesByDuration() throws Exception {
+        // 100 ms apart, a key frame every 5, one-second segments.
+        SessionRecorder recorder = start(new RotationPolicy(0, 1000), 64);
+        for (int sequence = 0; sequence < 25; sequence++) {
+            offer(recorder, sequence, sequence % 5 == 0);
+        }
+        recorder.stop(STOP_TIMEOUT_MS);
+
+        assertEquals(3, recorder.getSegmentsWritten());
+        assertEquals(0, recorder.getFramesDropped());
+        assertEquals(10, writers.get(0).sequences.size());
+        assertEquals(10, writers.get(1).sequences.get(0).longValue());
+        assertEquals(20, writers.get(2).sequences.get(0).longValue());
+        assertEquals(5, writers.get(2).sequences.size());
+    }
+
+    @Test
+    public void countsFramesDroppedWhenTheQueueIsFull() throws Exception {
+        writerEntered = new CountDownLatch(1);
+        releaseWriter = new CountDownLatch(1);
+        SessionRecorder recorder = start(new RotationPolicy(0, 0), 2);
+        offer(recorder, 0, true);
+        assertTrue(writerEntered.await(STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+        // The writer is stuck on frame 0: two frames fit in the queue, the rest are dropped.
+        for (int sequence = 1; sequence < 6; sequence++) {
+            offer(recorder, sequence, false);
+        }
+        assertEquals(3, recorder.getFramesDropped());
+
+        releaseWriter.countDown();
+        recorder.stop(STOP_TIMEOUT_MS);
+        assertSegment(0, 0, 1, 2);
+        assertEquals(3, recorder.getFramesDropped());
+    }
+
+    @Test
+    public void countsFramesOfferedAfterStop() throws Exception {
+        SessionRecorder recorder = start(new RotationPolicy(0, 0), 16);
+        offer(recorder, 0, true);
+        recorder.stop(STOP_TIMEOUT_MS);
+        offer(recorder, 1, true);
+
+        assertEquals(1, recorder.getFramesDropped());
+        assertSegment(0, 0);
+    }
+
+    private SessionRecorder start(RotationPolicy policy, int queueCapacity) throws IOException {
+        SessionRecorder recorder = new SessionRecorder(directory, "session", new SegmentWriter.Factory() {
+            @Override
+            public SegmentWriter create(File file) {
+                FakeWriter writer = new FakeWriter();
+                writers.add(writer);
+                return writer;
+            }
+
+            @Override
+            public String getFileExtension() {
+                return "fake";
+            }
+        }, policy, queueCapacity, new SessionRecorder.Listener() {
+            @Override
+            public void onSegmentClosed(File file, int frameCount, long bytes) {
+                closedFiles.add(file);
+            }
+
+            @Override
+            public void onError(IOException e) {
+                errors.add(e);
+            }
+        });
+        recorder.start();
+        return recorder;
+    }
+
+    private static void offer(SessionRecorder recorder, long sequence, boolean keyFrame) {
+        recorder.onEncodedFrame(new EncodedFrame(sequence, sequence * 100_000, keyFrame, 0, 0, new byte[100]));
+    }
+
+    private void assertSegment(int index, long... expected) {
+        List<Long> sequences = writers.get(index).sequences;
+        assertEquals(expected.length, sequences.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], sequences.get(i).longValue());
+        }
+    }
+
+    private final class FakeWriter implements SegmentWriter {
+        final List<Long> sequences = new ArrayList<>();
+        long bytes;
+        boolean closed;
+
+        @Override
+        public void writeFrame(EncodedFrame frame) throws IOException {
+            if (writerEntered != null && writerEntered.getCount() > 0) {
+                writerEntered.countDown();
+                try {
+                    releaseWriter.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            sequences.add(frame.getSequence());
+            bytes += frame.getLength();
+        }
+
+        @Override
+        public long getBytesWritten() {
+            return bytes;
+        }
+
+        @Override
+        public int getFrameCount() {
+            return sequences.size();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.screenmirror.samsung.stream;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FrameHistoryTest {
+
+    @Test
+    public void joinStartsAtTheLatestKeyFrame() {
+        FrameHistory history = new FrameHistory(100, 1 << 20);
+        addFrames(history, 0, 10, 4, 100);
+        assertSequences(history.framesForJoin(), 8, 9);
+        assertSequences(history.framesSince(5), 6, 7, 8, 9);
+        assertSequences(history.framesSince(9));
+        assertTrue(history.canSync(-1));
+    }
+
+    @Test
+    public void joinIsEmptyBeforeTheFirstKeyFrame() {
+        FrameHistory history = new FrameHistory(100, 1 << 20);
+        history.add(frame(0, false, 100));
+        assertTrue(history.framesForJoin().isEmpty());
+        assertFalse(history.canSync(-1));
+        assertFalse(history.canSync(7));
+    }
+
+    @Test
+    public void evictsOldestFramesByCount() {
+        FrameHistory history = new FrameHistory(10, 1 << 20);
+        addFrames(history, 0, 30, 5, 100);
+        assertEquals(10, history.size());
+        assertEquals(20, history.getEvictedCount());
+        assertSequences(history.framesForJoin(), 25, 26, 27, 28, 29);
+        // The gap is no longer in the ring: fall back to a join.
+        assertSequences(history.framesSince(3), 25, 26, 27, 28, 29);
+    }
+
+    @Test
+    public void evictsOldestFramesByBytes() {
+        FrameHistory history = new FrameHistory(100, 1000);
+        addFrames(history, 0, 20, 2, 100);
+        assertEquals(10, history.size());
+        assertEquals(1000, history.getBytes());
+    }
+
+    @Test
+    public void keepsTheLatestKeyFrameChainPastTheBudget() {
+        FrameHistory history = new FrameHistory(10, 1 << 20);
+        // One key frame followed by more deltas than maxFrames, still under the ceiling.
+        addFrames(history, 0, 15, 1000, 100);
+        assertEquals(15, history.size());
+        List<EncodedFrame> join = history.framesForJoin();
+        assertEquals(15, join.size());
+        assertEquals(0, join.get(0).getSequence());
+        // The next key frame lets the ring shrink back to the budget.
+        history.add(frame(15, true, 100));
+        assertEquals(10, history.size());
+        assertSequences(history.framesForJoin(), 15);
+    }
+
+    @Test
+    public void dropsAChainThatOutgrowsTheCeiling() {
+        FrameHistory history = new FrameHistory(10, 1 << 20);
+        addFrames(history, 0, 10 * FrameHistory.CEILING_FACTOR, 1000, 100);
+        assertEquals(10 * FrameHistory.CEILING_FACTOR, history.size());
+
+        history.add(frame(20, false, 100));
+        assertEquals(0, history.size());
+        assertEquals(0, history.getBytes());
+        assertTrue(history.framesForJoin().isEmpty());
+        assertFalse(history.canSync(-1));
+        assertFalse(history.canSync(19));
+
+        // Deltas cut against the dropped chain are ignored until a key frame restarts it.
+        history.add(frame(21, false, 100));
+        assertEquals(0, history.size());
+        history.add(frame(22, true, 100));
+        history.add(frame(23, false, 100));
+        assertSequences(history.framesForJoin(), 22, 23);
+        assertTrue(history.canSync(-1));
+    }
+
+    @Test
+    public void dropsAChainThatOutgrowsTheByteCeiling() {
+        FrameHistory history = new FrameHistory(100, 1000);
+        addFrames(history, 0, 20, 1000, 100);
+        assertEquals(20, history.size());
+        history.add(frame(20, false, 100));
+        assertEquals(0, history.size());
+        assertFalse(history.canSync(-1));
+    }
+
+    @Test
+    public void clearsWhenSequencesRestart() {
+        FrameHistory history = new FrameHistory(100, 1 << 20);
+        addFrames(history, 0, 10, 5, 100);
+        history.add(frame(0, true, 100));
+        history.add(frame(1, false, 100));
+        assertEquals(2, history.size());
+        assertSequences(history.framesForJoin(), 0, 1);
+        assertSequences(history.framesSince(8), 0, 1);
+    }
+
+    @Test
+    public void replayStartsAtAKeyFrameCoveringTheDuration() {
+        FrameHistory history = new FrameHistory(100, 1 << 20);
+        // 10 ms apart, key frames every 10 frames.
+        addFrames(history, 0, 40, 10, 100);
+        assertEquals(20, history.framesForReplay(150).get(0).getSequence());
+        assertEquals(30, history.framesForReplay(50).get(0).getSequence());
+        assertEquals(0, history.framesForReplay(10000).get(0).getSequence());
+    }
+
+    private static void addFrames(FrameHistory history, int first, int count, int keyInterval, int length) {
+        for (int sequence = first; sequence < first + count; sequence++) {
+            history.add(frame(sequence, sequence % keyInterval == 0, length));
+        }
+    }
+
+    private static EncodedFrame frame(long sequence, boolean keyFrame, int length) {
+        return new EncodedFrame(sequence, sequence * 10000, keyFrame, 0, 0, new byte[length]);
+    }
+
+    private static void assertSequences(List<EncodedFrame> frames, long... expected) {
+        assertEquals(expected.length, frames.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], frames.get(i).getSequence());
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.screenmirror.samsung.transport;
+
+import com.screenmirror.samsung.stream.EncodedFrame;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link UdpVideoSender} to {@link UdpVideoReceiver} over loopback, through a relay
+ * socket in between that drops and reorders datagrams with a seeded {@link Random}.
+ *
+ * The relay works one frame at a time: it takes every datagram the sender wrote
+ * for a frame, impairs the batch and forwards what is left, so each test decides
+ * exactly which packets the receiver never sees.
+ */
+public class UdpLoopbackTest {
+
+    private static final int MAX_PACKET_SIZE = 1200;
+    private static final int FEC_GROUP = 4;
+    private static final long TIMEOUT_MS = 3000;
+
+    private final BlockingQueue<EncodedFrame> delivered = new LinkedBlockingQueue<>();
+    private final CountDownLatch keyFrameRequested = new CountDownLatch(1);
+
+    private DatagramSocket relay;
+    private UdpVideoSender sender;
+    private UdpVideoReceiver receiver;
+    private InetSocketAddress receiverAddress;
+
+    @Before
+    public void setUp() throws IOException {
+        relay = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        relay.setSoTimeout((int) TIMEOUT_MS);
+        sender = new UdpVideoSender(new InetSocketAddress(InetAddress.getLoopbackAddress(), relay.getLocalPort()),
+            MAX_PACKET_SIZE, FEC_GROUP);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (receiver != null) {
+            receiver.close();
+        }
+        sender.close();
+        relay.close();
+    }
+
+    @Test
+    public void fecRecoversOneLossPerGroup() throws Exception {
+        startReceiver(100_000);
+        Random random = new Random(11);
+        List<EncodedFrame> sent = new ArrayList<>();
+        int dropped = 0;
+        for (int sequence = 0; sequence < 40; sequence++) {
+            EncodedFrame frame = frame(sequence, sequence == 0, 1 + random.nextInt(12000), random);
+            sent.add(frame);
+            List<RtpPacket> packets = send(frame);
+            List<RtpPacket> media = media(packets);
+            // Lose one media packet out of every FEC group; groups never span frames.
+            for (int start = 0; start < media.size(); start += FEC_GROUP) {
+                int end = Math.min(start + FEC_GROUP, media.size());
+                packets.remove(media.get(start + random.nextInt(end - start)));
+                dropped++;
+            }
+            reorder(packets, random);
+            forward(packets);
+        }
+
+        for (EncodedFrame expected : sent) {
+            EncodedFrame frame = take();
+            assertEquals(expected.getSequence(), frame.getSequence());
+            assertEquals(expected.isKeyFrame(), frame.isKeyFrame());
+            assertArrayEquals(expected.getData(), frame.getData());
+        }
+        assertEquals(dropped, receiver.getPacketsRecovered());
+        JitterBuffer buffer = receiver.getJitterBuffer();
+        assertEquals(0, buffer.getFramesIncomplete());
+        assertEquals(0, buffer.getFramesSkipped());
+        assertEquals(0, receiver.getKeyFramesRequested());
+    }
+
+    @Test
+    public void discardsAFrameThatCompletesAfterANewerOne() throws Exception {
+        startReceiver(30_000);
+        Random random = new Random(12);
+        forward(send(frame(0, true, 3000, random)));
+        forward(send(frame(1, false, 3000, random)));
+        List<RtpPacket> held = send(frame(2, false, 3000, random));
+        forward(send(frame(3, false, 3000, random)));
+
+        assertEquals(0, take().getSequence());
+        assertEquals(1, take().getSequence());
+        // Frame 3 plays out with frame 2 missing, and as a delta it is skipped.
+        JitterBuffer buffer = receiver.getJitterBuffer();
+        awaitTrue("frame 3 skipped", () -> buffer.getFramesSkipped() == 1);
+
+        forward(held);
+        int heldMedia = media(held).size();
+        awaitTrue("frame 2 discarded as late", () -> buffer.getFramesLate() == heldMedia);
+        assertNull(delivered.poll(200, TimeUnit.MILLISECONDS));
+        assertTrue(buffer.isWaitingForKeyFrame());
+    }
+
+    @Test
+    public void skipsDeltasAfterAnUnrepairedLossUntilTheRequestedKeyFrame() throws Exception {
+        startReceiver(30_000);
+        Random random = new Random(13);
+        for (int sequence = 0; sequence < 4; sequence++) {
+            forward(send(frame(sequence, sequence == 0, 2000, random)));
+        }
+        // Two losses in one group are beyond XOR parity: frame 4 never completes.
+        List<RtpPacket> packets = send(frame(4, false, 5000, random));
+        List<RtpPacket> media = media(packets);
+        assertTrue(media.size() >= 2);
+        packets.remove(media.get(0));
+        packets.remove(media.get(1));
+        forward(packets);
+        forward(send(frame(5, false, 2000, random)));
+        forward(send(frame(6, false, 2000, random)));
+
+        assertTrue("no key frame request", keyFrameRequested.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        forward(send(frame(7, true, 6000, random)));
+        forward(send(frame(8, false, 2000, random)));
+
+        for (long expected : new long[] {0, 1, 2, 3, 7, 8}) {
+            assertEquals(expected, take().getSequence());
+        }
+        JitterBuffer buffer = receiver.getJitterBuffer();
+        assertEquals(1, buffer.getFramesIncomplete());
+        assertEquals(2, buffer.getFramesSkipped());
+        assertTrue(receiver.getKeyFramesRequested() >= 1);
+        assertFalse(buffer.isWaitingForKeyFrame());
+    }
+
+    private void startReceiver(long targetDelayMicros) throws IOException {
+        receiver = new UdpVideoReceiver(0, targetDelayMicros, delivered::add, keyFrameRequested::countDown);
+        receiverAddress = new InetSocketAddress(InetAddress.getLoopbackAddress(), receiver.getLocalPort());
+        receiver.start();
+    }
+
+    private static EncodedFrame frame(long sequence, boolean keyFrame, int length, Random random) {
+        byte[] data = new byte[length];
+        random.nextBytes(data);
+        return new EncodedFrame(sequence, System.nanoTime() / 1000, keyFrame, 0, 0, data);
+    }
+
+    /** Sends {@code frame} and returns what reached the relay, media then parity, in send order. */
+    private List<RtpPacket> send(EncodedFrame frame) throws IOException {
+        long before = sender.getPacketsSent();
+        sender.onEncodedFrame(frame);
+        assertEquals(0, sender.getPacketsDropped());
+        List<RtpPacket> packets = new ArrayList<>();
+        for (long i = before; i < sender.getPacketsSent(); i++) {
+            byte[] buffer = new byte[MAX_PACKET_SIZE + XorFec.FEC_HEADER_LENGTH];
+            DatagramPacket datagram = new DatagramPacket(buffer, buffer.length);
+            relay.receive(datagram);
+            RtpPacket packet = RtpPacket.parse(buffer, 0, datagram.getLength());
+            assertNotNull(packet);
+            packets.add(packet);
+        }
+        return packets;
+    }
+
+    private void forward(List<RtpPacket> packets) throws IOException {
+        for (RtpPacket packet : packets) {
+            byte[] buffer = new byte[packet.getLength()];
+            packet.writeTo(buffer, 0);
+            relay.send(new DatagramPacket(buffer, buffer.length, receiverAddress));
+        }
+    }
+
+    private static List<RtpPacket> media(List<RtpPacket> packets) {
+        List<RtpPacket> media = new ArrayList<>();
+        for (RtpPacket packet : packets) {
+            if (packet.getPayloadType() == RtpPacket.PAYLOAD_TYPE_VIDEO) {
+                media.add(packet);
+            }
+        }
+        return media;
+    }
+
+    /** Swaps neighbours at random, so parity can arrive ahead of the media it covers. */
+    private static void reorder(List<RtpPacket> packets, Random random) {
+        for (int i = 1; i < packets.size(); i++) {
+            if (random.nextInt(3) == 0) {
+                Collections.swap(packets, i - 1, i);
+            }
+        }
+    }
+
+    private EncodedFrame take() throws InterruptedException {
+        EncodedFrame frame = delivered.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        if (frame == null) {
+            fail("no frame delivered within " + TIMEOUT_MS + "ms");
+        }
+        return frame;
+    }
+
+    private static void awaitTrue(String what, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("timed out waiting for " + what);
+            }
+            Thread.sleep(5);
+        }
+    }
+}
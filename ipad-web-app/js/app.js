@@ -5,7 +5,60 @@ this.webrtcClient = new WebRTCClient({
     onConnectionStateChange: (state) => this.handleConnectionStateChange(state),
     onVideoFrame: (frame) => this.videoDisplay.displayFrame(frame),
     onError: (error) => this.handleWebRTCError(error),
-    onLatencyUpdate: (latency) => this.updateLatencyDisplay(latency)
+    onLatencyUpdate: (latency) => this.updateLatencyDisplay(latency),
+    resolveReconnectTarget: () => this.deviceDiscovery.reconnect(),
+    onCalibrationMessage: (message) => this.latencyCalibrator.handleMessage(message),
+    onAudioPacket: (buffer) => this.audioPlayer.handlePacket(buffer),
+    onProfileChange: (message) => {
+        document.getElementById('profileSelect').value = message.requested.name;
+    }
+});
+
+// Samsung playback audio, scheduled to line up with the video already on screen
+this.audioPlayer = new AudioPlayer({
+    onStats: (stats) => console.log('🔵 Audio sync:', stats)
+});
+
+// Reconnects ask this.deviceDiscovery (the existing DeviceDiscovery) where the Samsung is now.
+// After any successful connect (discovered or manual IP), keep it for the fast path:
+this.deviceDiscovery.rememberDevice({ ipAddress, port });
+
+// Delta frames need a way back to a key frame when the display loses its reference.
+// While zoomed in, the visible Samsung region drives both touch mapping and server cropping:
+this.videoDisplay = new VideoDisplay('videoCanvas', {
+    onKeyFrameNeeded: () => this.webrtcClient.requestKeyFrame(),
+    onFrameReceived: (frame) => {
+        this.touchPredictor.reconcile(frame.inputSequence);
+        this.latencyCalibrator.onFramePresented(frame);
+        this.audioPlayer.onVideoPresented(frame);
+    },
+    onViewportChange: (rect) => {
+        this.coordinateMapper.setViewport(rect);
+        this.webrtcClient.sendViewport(rect);
+    }
+});
+
+// Local touch echo: trail and drag translate until the Samsung frame catches up
+this.touchPredictor = new TouchPredictor(this.videoDisplay);
+
+// Touch-to-photon benchmark: taps a Samsung test target and reports latency histograms
+this.latencyCalibrator = new LatencyCalibrator(this.webrtcClient, {
+    onProgress: (done, total) => {
+        document.getElementById('calibrationReport').textContent = `Measuring... ${done}/${total}`;
+    },
+    onReport: (report) => {
+        const lines = Object.entries(report.components).map(([name, stats]) =>
+            `${name.padEnd(10)} p50 ${stats.p50.toFixed(1)}  p90 ${stats.p90.toFixed(1)}  max ${stats.max.toFixed(1)} ms`);
+        document.getElementById('calibrationReport').textContent = lines.join('\n');
+    }
+});
+
+// Pinch zooms the mirrored image on the iPad instead of on the Samsung:
+this.touchHandler = new TouchHandler('videoCanvas', {
+    coordinateMapper: this.coordinateMapper,
+    onTouch: (touchData) => this.handleTouchEvent(touchData),
+    localZoom: true,
+    onZoom: (zoom) => this.videoDisplay.zoomAt(zoom.factor, zoom.x, zoom.y)
 });
 
 // Add this new method for handling Samsung resolution updates:
@@ -28,6 +81,17 @@ handleSamsungResolutionUpdate(event) {
 window.addEventListener('samsungResolutionUpdate', (event) => {
     this.handleSamsungResolutionUpdate(event);
 });
+// iOS only lets a user gesture start Web Audio
+document.addEventListener('touchend', () => this.audioPlayer.unlock(), { once: true });
+// Switches the Samsung's streaming profile live, for every viewer
+document.getElementById('profileSelect').addEventListener('change', (event) => {
+    this.webrtcClient.setStreamProfile(event.target.value);
+});
+document.getElementById('calibrateBtn').addEventListener('click', () => {
+    this.latencyCalibrator.run().catch((error) => {
+        document.getElementById('calibrationReport').textContent = error.message;
+    });
+});
 
 // Update the handleTouchEvent method for enhanced touch data:
 handleTouchEvent(touchData) {
@@ -46,7 +110,10 @@ handleTouchEvent(touchData) {
     };
     
     // Send touch data to Samsung device via WebSocket
-    this.webrtcClient.sendTouchData(enhancedTouchData);
+    const seq = this.webrtcClient.sendTouchData(enhancedTouchData);
+    if (seq) {
+        this.touchPredictor.onLocalTouch({ ...touchData, seq: seq });
+    }
     
     // Show touch indicator if enabled
     if (this.settings.showTouchIndicator) {
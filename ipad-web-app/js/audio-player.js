@@ -0,0 +1,205 @@
+/**
+ * 🧪 Audio Player - ALCHEMICAL EDITION
+ * 🔴 Plays the Samsung's IMA ADPCM audio packets through Web Audio
+ * 🔵 Adaptive jitter buffer that follows the video instead of delaying it
+ *
+ * Audio and video packets carry capture timestamps on the same Samsung clock,
+ * so (local time - pts) is directly comparable between the two streams. Video
+ * is drawn as soon as it decodes; audio is scheduled to play when the video of
+ * the same instant is on screen, unless its own network jitter needs more room,
+ * in which case it plays as early as it safely can.
+ */
+
+const AUDIO_TYPE_ADPCM = 3;
+const AUDIO_HEADER_LENGTH = 20;
+
+const IMA_STEP_TABLE = [
+    7, 8, 9, 10, 11, 12, 13, 14, 16, 17, 19, 21, 23, 25, 28, 31, 34, 37, 41, 45,
+    50, 55, 60, 66, 73, 80, 88, 97, 107, 118, 130, 143, 157, 173, 190, 209, 230, 253, 279, 307,
+    337, 371, 408, 449, 494, 544, 598, 658, 724, 796, 876, 963, 1060, 1166, 1282, 1411, 1552, 1707, 1878, 2066,
+    2272, 2499, 2749, 3024, 3327, 3660, 4026, 4428, 4871, 5358, 5894, 6484, 7132, 7845, 8630, 9493, 10442, 11487, 12635, 13899,
+    15289, 16818, 18500, 20350, 22385, 24623, 27086, 29794, 32767
+];
+const IMA_INDEX_TABLE = [-1, -1, -1, -1, 2, 4, 6, 8, -1, -1, -1, -1, 2, 4, 6, 8];
+
+class AudioPlayer {
+    constructor(options = {}) {
+        this.options = {
+            onStats: options.onStats || (() => {})
+        };
+
+        // 🔴 CRIMSON VARIABLES - Playback State
+        this.context = null;
+        this.nextPlayTime = 0; // context seconds where the last scheduled packet ends
+        this.ptsBase = null;
+
+        // 🔵 AZURE VARIABLES - Jitter Buffer
+        this.arrivalDelays = []; // recent (arrival - pts) of audio packets, ms
+        this.arrivalWindow = 100; // packets, one second at 10 ms each
+        this.videoDelay = null; // smoothed (present - pts) of video frames, ms
+        this.targetDelay = null; // committed (play - pts), ms; rises at once, falls slowly
+        this.targetDecay = 0.1; // ms per packet, i.e. 10 ms per second of audio
+        this.safetyMargin = 5; // ms on top of the measured jitter
+        this.maxBuffer = 150; // ms; beyond this audio stops chasing a stalled video
+        this.snapTolerance = 0.015; // s; closer than this, play gapless instead of exactly on time
+
+        // ⚗️ HERMETIC VARIABLES - Statistics
+        this.stats = { packetsPlayed: 0, packetsLate: 0, packetsSkipped: 0, gaps: 0, bufferMs: 0, skewMs: 0 };
+
+        console.log('🧪 Audio Player initialized - Sonic transmutation ready');
+    }
+
+    unlock() {
+        // 🔴 iOS only starts audio from a user gesture
+        if (!this.context) {
+            const AudioContextClass = window.AudioContext || window.webkitAudioContext;
+            if (!AudioContextClass) return;
+            this.context = new AudioContextClass({ latencyHint: 'interactive' });
+        }
+        if (this.context.state !== 'running') {
+            this.context.resume();
+        }
+    }
+
+    relativePts(pts) {
+        // 🧪 ptsMillis is 32-bit; a signed difference against the first one survives the wrap
+        if (this.ptsBase === null) {
+            this.ptsBase = pts;
+        }
+        return (pts - this.ptsBase) | 0;
+    }
+
+    onVideoPresented(frame) {
+        if (frame.pts === undefined) return;
+        const delay = performance.now() - this.relativePts(frame.pts);
+        this.videoDelay = this.videoDelay === null ? delay : this.videoDelay + 0.1 * (delay - this.videoDelay);
+    }
+
+    handlePacket(buffer) {
+        if (!this.context || this.context.state !== 'running') return;
+        if (buffer.byteLength < AUDIO_HEADER_LENGTH) return;
+
+        const header = new DataView(buffer, 0, AUDIO_HEADER_LENGTH);
+        if (header.getUint8(0) !== AUDIO_TYPE_ADPCM) return;
+        const headerLength = header.getUint16(2);
+        const pts = this.relativePts(header.getUint32(8));
+        const sampleRate = header.getUint32(12);
+        const channels = header.getUint8(16);
+        const frames = header.getUint16(18);
+
+        const now = performance.now();
+        const targetDelay = this.updateTargetDelay(now - pts);
+
+        // 🔵 Where this packet should start, on the AudioContext clock
+        const outputLatency = this.context.outputLatency || this.context.baseLatency || 0;
+        let startTime = this.context.currentTime + (pts + targetDelay - now) / 1000 - outputLatency;
+        const duration = frames / sampleRate;
+
+        if (this.nextPlayTime > 0 && Math.abs(startTime - this.nextPlayTime) < this.snapTolerance) {
+            // 🧪 Close enough: stay gapless
+            startTime = this.nextPlayTime;
+        } else if (this.nextPlayTime > 0 && startTime < this.nextPlayTime) {
+            // ⚗️ Running behind the target: skip a packet to catch up rather than overlap
+            this.stats.packetsSkipped++;
+            return;
+        } else if (this.nextPlayTime > 0) {
+            this.stats.gaps++;
+        }
+        if (startTime < this.context.currentTime) {
+            this.stats.packetsLate++;
+            this.nextPlayTime = 0;
+            return;
+        }
+
+        const audioBuffer = this.context.createBuffer(channels, frames, sampleRate);
+        this.decodeAdpcm(new Uint8Array(buffer, headerLength), channels, frames, audioBuffer);
+        const source = this.context.createBufferSource();
+        source.buffer = audioBuffer;
+        source.connect(this.context.destination);
+        source.start(startTime);
+
+        this.nextPlayTime = startTime + duration;
+        this.stats.packetsPlayed++;
+        this.stats.bufferMs = (startTime - this.context.currentTime) * 1000;
+        if (this.videoDelay !== null) {
+            // 🔴 Positive: audio plays after the video of the same instant
+            const playDelay = (startTime + outputLatency - this.context.currentTime) * 1000 + now - pts;
+            this.stats.skewMs = playDelay - this.videoDelay;
+        }
+        if (this.stats.packetsPlayed % 100 === 0) {
+            this.options.onStats(this.getStats());
+        }
+    }
+
+    updateTargetDelay(arrivalDelay) {
+        this.arrivalDelays.push(arrivalDelay);
+        if (this.arrivalDelays.length > this.arrivalWindow) {
+            this.arrivalDelays.shift();
+        }
+
+        // 🔵 Earliest safe play-out: the fastest arrival plus the spread of the slow ones
+        const sorted = this.arrivalDelays.slice().sort((a, b) => a - b);
+        const fastest = sorted[0];
+        const slow = sorted[Math.floor(sorted.length * 0.95)];
+        const safeDelay = slow + this.safetyMargin;
+
+        // ⚗️ Match the video when it is later; never wait on it for more than maxBuffer
+        const desired = this.videoDelay === null
+            ? safeDelay
+            : Math.max(safeDelay, Math.min(this.videoDelay, fastest + this.maxBuffer));
+
+        // 🔴 A late packet is a click, an early one only latency: rise at once, fall gently
+        if (this.targetDelay === null || desired > this.targetDelay) {
+            this.targetDelay = desired;
+        } else {
+            this.targetDelay = Math.max(desired, this.targetDelay - this.targetDecay);
+        }
+        return this.targetDelay;
+    }
+
+    decodeAdpcm(bytes, channels, frames, audioBuffer) {
+        // 🧪 Mirrors ImaAdpcm.decode on the Samsung side
+        const outputs = [];
+        const predictor = [];
+        const index = [];
+        let position = 0;
+        for (let channel = 0; channel < channels; channel++) {
+            outputs.push(audioBuffer.getChannelData(channel));
+            predictor.push(((bytes[position + 1] << 8) | bytes[position]) << 16 >> 16);
+            index.push(Math.min(IMA_STEP_TABLE.length - 1, bytes[position + 2]));
+            position += 4;
+        }
+
+        const samples = frames * channels;
+        for (let i = 0; i < samples; i++) {
+            const channel = i % channels;
+            const nibble = (bytes[position + (i >> 1)] >> ((i & 1) * 4)) & 0x0F;
+            const step = IMA_STEP_TABLE[index[channel]];
+            let delta = step >> 3;
+            if (nibble & 4) delta += step;
+            if (nibble & 2) delta += step >> 1;
+            if (nibble & 1) delta += step >> 2;
+            let value = (nibble & 8) ? predictor[channel] - delta : predictor[channel] + delta;
+            value = Math.max(-32768, Math.min(32767, value));
+            predictor[channel] = value;
+            index[channel] = Math.max(0, Math.min(IMA_STEP_TABLE.length - 1, index[channel] + IMA_INDEX_TABLE[nibble]));
+            outputs[channel][(i / channels) | 0] = value / 32768;
+        }
+    }
+
+    getStats() {
+        return { ...this.stats, videoDelayMs: this.videoDelay };
+    }
+
+    close() {
+        if (this.context) {
+            this.context.close();
+            this.context = null;
+        }
+        this.nextPlayTime = 0;
+        this.arrivalDelays = [];
+        this.videoDelay = null;
+        this.targetDelay = null;
+        this.ptsBase = null;
+    }
+}
@@ -20,6 +20,9 @@ class CoordinateMapper {
         this.offsetX = 0;
         this.offsetY = 0;
         
+        // 🔵 Visible Samsung region while the display is zoomed; null means the full screen
+        this.viewport = null;
+        
         // 🧪 ALCHEMICAL SETTINGS
         this.aspectRatioCorrection = true;
         this.touchSensitivity = 1.0;
@@ -50,10 +53,27 @@ class CoordinateMapper {
         this.calculateTransformation();
     }
     
+    setViewport(viewport) {
+        // 🔵 Frame pixels -> Samsung screen pixels (frames may be a scaled-down capture)
+        if (viewport && viewport.sourceWidth && viewport.sourceHeight) {
+            const sx = this.targetWidth / viewport.sourceWidth;
+            const sy = this.targetHeight / viewport.sourceHeight;
+            viewport = {
+                x: viewport.x * sx,
+                y: viewport.y * sy,
+                width: viewport.width * sx,
+                height: viewport.height * sy
+            };
+        }
+        this.viewport = viewport;
+        this.calculateTransformation();
+    }
+    
     calculateTransformation() {
-        // 🔴 Calculate scaling factors
-        this.scaleX = this.targetWidth / this.sourceWidth;
-        this.scaleY = this.targetHeight / this.sourceHeight;
+        // 🔴 Calculate scaling factors against the visible part of the Samsung screen
+        const region = this.viewport || { x: 0, y: 0, width: this.targetWidth, height: this.targetHeight };
+        this.scaleX = region.width / this.sourceWidth;
+        this.scaleY = region.height / this.sourceHeight;
         
         if (this.aspectRatioCorrection) {
             // 🔵 Maintain aspect ratio - use uniform scaling
@@ -65,11 +85,11 @@ class CoordinateMapper {
             const scaledWidth = this.sourceWidth * this.scaleX;
             const scaledHeight = this.sourceHeight * this.scaleY;
             
-            this.offsetX = (this.targetWidth - scaledWidth) / 2;
-            this.offsetY = (this.targetHeight - scaledHeight) / 2;
+            this.offsetX = region.x + (region.width - scaledWidth) / 2;
+            this.offsetY = region.y + (region.height - scaledHeight) / 2;
         } else {
-            this.offsetX = 0;
-            this.offsetY = 0;
+            this.offsetX = region.x;
+            this.offsetY = region.y;
         }
         
         console.log('🧪 Transformation matrix updated:', {
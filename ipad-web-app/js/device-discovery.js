@@ -1,9 +1,16 @@
 /**
  * 🧪 Device Discovery - ALCHEMICAL EDITION
- * 🔴 Simplified discovery for direct IP connection
+ * 🔴 Last-known device first, then parallel probes of the Samsung discovery endpoint
  * 🔵 Optimized for iPad Air 2 performance constraints
+ *
+ * The Samsung side (DiscoveryService) answers a plain HTTP GET on port 8081 with
+ * its streaming address, which is far cheaper to probe than a WebSocket handshake.
+ * Probes run with bounded concurrency and every probe still in flight is aborted
+ * as soon as one of them finds the device.
  */
 
+const DISCOVERY_STORAGE_KEY = 'crucible.lastDevice';
+
 class DeviceDiscovery {
     constructor(options = {}) {
         this.options = {
@@ -11,107 +18,272 @@ class DeviceDiscovery {
             onDeviceLost: options.onDeviceLost || (() => {}),
             onError: options.onError || (() => {})
         };
-        
+
         // 🔴 CRIMSON VARIABLES - Discovery State
         this.isDiscovering = false;
         this.discoveredDevices = new Map();
         this.discoveryInterval = null;
-        
+        this.activeScan = null;
+        this.scanController = null;
+
         // 🔵 AZURE VARIABLES - Network Configuration
-        this.commonPorts = [8080, 8081, 8082, 8888, 9090];
-        this.networkTimeout = 3000;
+        this.discoveryPort = options.discoveryPort || 8081;
+        this.probeTimeout = options.probeTimeout || 750;
         this.discoveryFrequency = 10000; // 10 seconds
-        
+        this.staleThreshold = 30000; // 30 seconds
+        this.commonSubnets = ['192.168.1', '192.168.0', '10.0.0'];
+
         // ⚗️ HERMETIC VARIABLES - iPad Air 2 Optimization
-        this.maxConcurrentChecks = 3; // Limit concurrent requests
-        this.activeChecks = 0;
-        
+        this.maxConcurrentChecks = options.maxConcurrentChecks || 16; // Probes in flight at once
+
         console.log('🧪 Device Discovery initialized - Alchemical scanning ready');
     }
-    
+
     start() {
         if (this.isDiscovering) {
             console.log('⚗️ Discovery already active');
             return;
         }
-        
+
         console.log('🔴 Starting alchemical device discovery...');
         this.isDiscovering = true;
-        
+
         // 🧪 Start immediate discovery
         this.performDiscovery();
-        
+
         // 🔵 Set up periodic discovery
         this.discoveryInterval = setInterval(() => {
             this.performDiscovery();
         }, this.discoveryFrequency);
     }
-    
+
     stop() {
         console.log('🔴 Stopping alchemical device discovery...');
         this.isDiscovering = false;
-        
+
         if (this.discoveryInterval) {
             clearInterval(this.discoveryInterval);
             this.discoveryInterval = null;
         }
-        
+
+        // ⚗️ Abort a scan still in flight
+        if (this.scanController) {
+            this.scanController.abort();
+        }
+
         // 🧪 Clear discovered devices
         this.discoveredDevices.clear();
     }
-    
+
     async performDiscovery() {
         if (!this.isDiscovering) return;
-        
+
         try {
-            // 🔴 Get local network range
-            const networkRange = await this.getLocalNetworkRange();
-            
-            if (networkRange) {
-                console.log('🧪 Scanning network range:', networkRange);
-                await this.scanNetworkRange(networkRange);
-            } else {
-                console.log('🔵 Using common device discovery methods');
-                await this.performCommonDiscovery();
+            if (this.discoveredDevices.size > 0) {
+                // 🔵 Known devices only need a liveness check, not a rescan
+                await this.refreshKnownDevices();
+                return;
+            }
+
+            const device = await this.findDevice();
+            if (device) {
+                this.handleDeviceFound(device);
             }
-            
+
         } catch (error) {
             console.error('🔴 Discovery error:', error);
             this.options.onError(error);
         }
     }
-    
-    async getLocalNetworkRange() {
-        // 🧪 Simplified network detection for web environment
-        // In a real implementation, this would use more sophisticated methods
-        
+
+    /**
+     * Finds the Samsung device again after the link dropped, e.g. on Wi-Fi
+     * roaming. Resolves with the device (possibly at a new address) or null.
+     */
+    async reconnect() {
+        const startTime = performance.now();
+        const device = await this.findDevice();
+
+        if (device) {
+            this.handleDeviceFound(device);
+            console.log(`🔵 Samsung device relocated at ${device.ipAddress} in ${Math.round(performance.now() - startTime)}ms`);
+        }
+        return device;
+    }
+
+    findDevice() {
+        // 🧪 Periodic discovery and reconnect share one scan
+        if (!this.activeScan) {
+            this.activeScan = this.runScan().finally(() => {
+                this.activeScan = null;
+            });
+        }
+        return this.activeScan;
+    }
+
+    async runScan() {
+        const controller = new AbortController();
+        this.scanController = controller;
+
         try {
-            // 🔴 Try to detect local IP via WebRTC
-            const localIP = await this.getLocalIPAddress();
+            // 🔴 Fast path: the last device usually kept its address
+            const lastDevice = this.loadLastDevice();
+            if (lastDevice) {
+                const device = await this.probe(lastDevice.ipAddress, controller.signal);
+                if (device) {
+                    return device;
+                }
+            }
+
+            // 🔵 WebRTC address detection is slow; let it run while the first phase scans
+            const localIPPromise = this.getLocalIPAddress().catch(() => null);
+            const scannedSubnets = new Set();
+
+            // 🧪 DHCP tends to hand out nearby addresses, so scan outwards from the old one
+            if (lastDevice) {
+                const [subnet, host] = this.splitAddress(lastDevice.ipAddress);
+                scannedSubnets.add(subnet);
+                // ⚗️ The old address itself was just probed
+                const device = await this.probeAll(this.subnetAddresses(subnet, host).slice(1), controller);
+                if (device || controller.signal.aborted) {
+                    return device;
+                }
+            }
+
+            const localIP = await localIPPromise;
+            const subnets = [];
             if (localIP) {
-                const parts = localIP.split('.');
-                if (parts.length === 4) {
-                    const baseIP = `${parts[0]}.${parts[1]}.${parts[2]}`;
-                    return { baseIP, start: 1, end: 254 };
+                subnets.push(this.splitAddress(localIP));
+            }
+            this.commonSubnets.forEach(subnet => subnets.push([subnet, 100]));
+
+            for (const [subnet, host] of subnets) {
+                if (scannedSubnets.has(subnet)) continue;
+                scannedSubnets.add(subnet);
+
+                console.log('🧪 Scanning network range:', `${subnet}.1-254`);
+                const device = await this.probeAll(this.subnetAddresses(subnet, host), controller);
+                if (device || controller.signal.aborted) {
+                    return device;
                 }
             }
+
+            return null;
+
+        } finally {
+            if (this.scanController === controller) {
+                this.scanController = null;
+            }
+        }
+    }
+
+    async probeAll(addresses, controller) {
+        let next = 0;
+        let found = null;
+
+        // ⚗️ A fixed pool of workers keeps at most maxConcurrentChecks probes in flight
+        const worker = async () => {
+            while (!found && !controller.signal.aborted && next < addresses.length) {
+                const device = await this.probe(addresses[next++], controller.signal);
+                if (device && !found) {
+                    found = device;
+                    // 🔴 Early cancellation: abort every other probe still waiting
+                    controller.abort();
+                }
+            }
+        };
+
+        const workers = [];
+        for (let i = 0; i < Math.min(this.maxConcurrentChecks, addresses.length); i++) {
+            workers.push(worker());
+        }
+        await Promise.all(workers);
+
+        return found;
+    }
+
+    async probe(ipAddress, scanSignal) {
+        // 🔵 Each probe has its own deadline but also dies with the scan
+        const controller = new AbortController();
+        const abort = () => controller.abort();
+        const timeout = setTimeout(abort, this.probeTimeout);
+        if (scanSignal) {
+            scanSignal.addEventListener('abort', abort);
+        }
+
+        try {
+            const response = await fetch(`http://${ipAddress}:${this.discoveryPort}/`, {
+                signal: controller.signal,
+                cache: 'no-store'
+            });
+            if (!response.ok) {
+                return null;
+            }
+
+            const info = await response.json();
+            if (typeof info.port !== 'number') {
+                return null;
+            }
+
+            return {
+                id: `${ipAddress}:${info.port}`,
+                name: info.name || 'Samsung Galaxy S22 Ultra',
+                // 🧪 The address that answered; the device may report 0.0.0.0 mid-roam
+                ipAddress: ipAddress,
+                port: info.port,
+                capabilities: info.capabilities || [],
+                lastSeen: Date.now()
+            };
         } catch (error) {
-            console.warn('⚗️ Could not detect local network range:', error);
+            // 🧪 Timeouts, refusals and aborts all just mean "not here"
+            return null;
+        } finally {
+            clearTimeout(timeout);
+            if (scanSignal) {
+                scanSignal.removeEventListener('abort', abort);
+            }
         }
-        
-        return null;
     }
-    
+
+    async refreshKnownDevices() {
+        const devices = Array.from(this.discoveredDevices.values());
+        const results = await Promise.all(devices.map(device => this.probe(device.ipAddress, null)));
+
+        results.forEach((result, index) => {
+            if (result) {
+                devices[index].lastSeen = Date.now();
+            }
+        });
+        this.removeStaleDevices();
+    }
+
+    subnetAddresses(subnet, nearHost) {
+        // 🔴 Hosts 1-254 ordered by distance from nearHost, nearHost itself first
+        const addresses = [];
+        addresses.push(`${subnet}.${nearHost}`);
+        for (let offset = 1; offset < 254; offset++) {
+            if (nearHost + offset <= 254) addresses.push(`${subnet}.${nearHost + offset}`);
+            if (nearHost - offset >= 1) addresses.push(`${subnet}.${nearHost - offset}`);
+        }
+        return addresses;
+    }
+
+    splitAddress(ipAddress) {
+        const parts = ipAddress.split('.');
+        const host = parseInt(parts[3], 10);
+        return [parts.slice(0, 3).join('.'), host >= 1 && host <= 254 ? host : 100];
+    }
+
     async getLocalIPAddress() {
         return new Promise((resolve) => {
             // 🔵 Use WebRTC to get local IP
             const pc = new RTCPeerConnection({
                 iceServers: [{ urls: 'stun:stun.l.google.com:19302' }]
             });
-            
+
             pc.createDataChannel('');
             pc.createOffer().then(offer => pc.setLocalDescription(offer));
-            
+
             pc.onicecandidate = (event) => {
                 if (event.candidate) {
                     const candidate = event.candidate.candidate;
@@ -123,7 +295,7 @@ class DeviceDiscovery {
                     }
                 }
             };
-            
+
             // 🧪 Timeout after 5 seconds
             setTimeout(() => {
                 pc.close();
@@ -131,138 +303,44 @@ class DeviceDiscovery {
             }, 5000);
         });
     }
-    
-    async scanNetworkRange(range) {
-        const { baseIP, start, end } = range;
-        const promises = [];
-        
-        // 🔴 Limit concurrent scans for iPad Air 2
-        for (let i = start; i <= end; i += this.maxConcurrentChecks) {
-            const batch = [];
-            
-            for (let j = 0; j < this.maxConcurrentChecks && (i + j) <= end; j++) {
-                const ip = `${baseIP}.${i + j}`;
-                batch.push(this.checkDevice(ip));
+
+    loadLastDevice() {
+        try {
+            const stored = JSON.parse(localStorage.getItem(DISCOVERY_STORAGE_KEY));
+            if (stored && typeof stored.ipAddress === 'string' && /^\d+\.\d+\.\d+\.\d+$/.test(stored.ipAddress)) {
+                return stored;
             }
-            
-            // 🧪 Process batch and wait before next
-            const results = await Promise.allSettled(batch);
-            results.forEach(result => {
-                if (result.status === 'fulfilled' && result.value) {
-                    this.handleDeviceFound(result.value);
-                }
-            });
-            
-            // ⚗️ Small delay to prevent overwhelming iPad Air 2
-            await new Promise(resolve => setTimeout(resolve, 100));
+        } catch (error) {
+            // ⚗️ Private browsing or corrupt entry - no fast path
         }
+        return null;
     }
-    
-    async performCommonDiscovery() {
-        // 🔵 Check common local addresses
-        const commonIPs = [
-            '192.168.1.1', '192.168.1.100', '192.168.1.101', '192.168.1.102',
-            '192.168.0.1', '192.168.0.100', '192.168.0.101', '192.168.0.102',
-            '10.0.0.1', '10.0.0.100', '10.0.0.101', '10.0.0.102'
-        ];
-        
-        for (const ip of commonIPs) {
-            try {
-                const device = await this.checkDevice(ip);
-                if (device) {
-                    this.handleDeviceFound(device);
-                }
-            } catch (error) {
-                // 🧪 Ignore individual check failures
-            }
-            
-            // ⚗️ Small delay between checks
-            await new Promise(resolve => setTimeout(resolve, 50));
+
+    rememberDevice(device) {
+        // 🔵 Also called for manual connections so they get the fast path next time
+        try {
+            localStorage.setItem(DISCOVERY_STORAGE_KEY, JSON.stringify({
+                ipAddress: device.ipAddress,
+                port: device.port,
+                name: device.name
+            }));
+        } catch (error) {
+            console.warn('⚗️ Could not remember Samsung device:', error);
         }
     }
-    
-    async checkDevice(ipAddress) {
-        // 🔴 Check each common port for Samsung device
-        for (const port of this.commonPorts) {
-            try {
-                const device = await this.testConnection(ipAddress, port);
-                if (device) {
-                    return device;
-                }
-            } catch (error) {
-                // 🧪 Continue to next port
-            }
+
+    forgetDevice() {
+        try {
+            localStorage.removeItem(DISCOVERY_STORAGE_KEY);
+        } catch (error) {
+            // 🧪 Nothing stored
         }
-        
-        return null;
     }
-    
-    async testConnection(ipAddress, port) {
-        return new Promise((resolve) => {
-            const wsUrl = `ws://${ipAddress}:${port}`;
-            const ws = new WebSocket(wsUrl);
-            
-            const timeout = setTimeout(() => {
-                ws.close();
-                resolve(null);
-            }, this.networkTimeout);
-            
-            ws.onopen = () => {
-                clearTimeout(timeout);
-                
-                // 🔵 Send discovery message
-                const discoveryMessage = {
-                    type: 'discovery_request',
-                    client: 'Crystal Crucible iPad',
-                    timestamp: Date.now()
-                };
-                
-                ws.send(JSON.stringify(discoveryMessage));
-                
-                // 🧪 Wait for response
-                const responseTimeout = setTimeout(() => {
-                    ws.close();
-                    resolve(null);
-                }, 2000);
-                
-                ws.onmessage = (event) => {
-                    clearTimeout(responseTimeout);
-                    
-                    try {
-                        const response = JSON.parse(event.data);
-                        if (response.type === 'discovery_response') {
-                            const device = {
-                                id: `${ipAddress}:${port}`,
-                                name: response.device_name || 'Samsung Galaxy S22 Ultra',
-                                ipAddress: ipAddress,
-                                port: port,
-                                capabilities: response.capabilities || [],
-                                lastSeen: Date.now()
-                            };
-                            
-                            ws.close();
-                            resolve(device);
-                        } else {
-                            ws.close();
-                            resolve(null);
-                        }
-                    } catch (error) {
-                        ws.close();
-                        resolve(null);
-                    }
-                };
-            };
-            
-            ws.onerror = () => {
-                clearTimeout(timeout);
-                resolve(null);
-            };
-        });
-    }
-    
+
     handleDeviceFound(device) {
         const existingDevice = this.discoveredDevices.get(device.id);
-        
+        this.rememberDevice(device);
+
         if (!existingDevice) {
             // 🔴 New device discovered
             this.discoveredDevices.set(device.id, device);
@@ -273,21 +351,20 @@ class DeviceDiscovery {
             existingDevice.lastSeen = Date.now();
         }
     }
-    
+
     getDeviceCount() {
         return this.discoveredDevices.size;
     }
-    
+
     getDevices() {
         return Array.from(this.discoveredDevices.values());
     }
-    
+
     removeStaleDevices() {
         const now = Date.now();
-        const staleThreshold = 30000; // 30 seconds
-        
+
         for (const [id, device] of this.discoveredDevices) {
-            if (now - device.lastSeen > staleThreshold) {
+            if (now - device.lastSeen > this.staleThreshold) {
                 this.discoveredDevices.delete(id);
                 this.options.onDeviceLost(device);
                 console.log('⚗️ Samsung device lost:', device.name);
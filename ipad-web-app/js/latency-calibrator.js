@@ -0,0 +1,233 @@
+/**
+ * 🧪 Latency Calibrator - ALCHEMICAL EDITION
+ * 🔴 Touch-to-photon benchmark: tagged taps on a Samsung test target, timed until the change is on screen
+ * 🔵 Splits every tap into input transport, gesture dispatch, compositor and stream return
+ *
+ * The Samsung shows a target that flips colour on every touch and reports, per
+ * tagged tap, when the gesture reached it, when a captured frame first showed
+ * the flip and which frame sequence carries it. The iPad times the rest:
+ *   input transport  - half the round trip of the immediate calibration_ack
+ *   stream return    - the remainder up to presenting that frame (encode, network, decode, draw)
+ */
+
+const CALIBRATION_BUCKETS_MS = [4, 8, 12, 16, 24, 32, 48, 64, 96, 128, 192, 256, 384, 512, Infinity];
+const CALIBRATION_COMPONENTS = ['total', 'input', 'dispatch', 'compositor', 'stream'];
+
+class LatencyHistogram {
+    constructor() {
+        this.counts = new Array(CALIBRATION_BUCKETS_MS.length).fill(0);
+        this.samples = [];
+    }
+
+    record(ms) {
+        this.samples.push(ms);
+        const bucket = CALIBRATION_BUCKETS_MS.findIndex(bound => ms < bound);
+        this.counts[bucket]++;
+    }
+
+    percentile(p) {
+        if (this.samples.length === 0) return NaN;
+        const sorted = this.samples.slice().sort((a, b) => a - b);
+        return sorted[Math.min(sorted.length - 1, Math.floor(p / 100 * sorted.length))];
+    }
+
+    summary() {
+        const buckets = {};
+        let lower = 0;
+        CALIBRATION_BUCKETS_MS.forEach((bound, index) => {
+            if (this.counts[index] > 0) {
+                buckets[bound === Infinity ? `${lower}+` : `${lower}-${bound}`] = this.counts[index];
+            }
+            lower = bound;
+        });
+        return {
+            count: this.samples.length,
+            p50: this.percentile(50),
+            p90: this.percentile(90),
+            p99: this.percentile(99),
+            max: this.samples.length ? Math.max(...this.samples) : NaN,
+            buckets: buckets
+        };
+    }
+}
+
+class LatencyCalibrator {
+    constructor(webrtcClient, options = {}) {
+        this.client = webrtcClient;
+        this.options = {
+            probes: options.probes || 50,
+            interval: options.interval || 300, // ms between taps; lets the screen settle
+            timeout: options.timeout || 2000,
+            onProgress: options.onProgress || (() => {}),
+            onReport: options.onReport || (() => {})
+        };
+
+        // 🔴 CRIMSON VARIABLES - Run State
+        this.isRunning = false;
+        this.target = null;
+        this.readyResolver = null;
+        this.probe = null;
+        this.timeouts = 0;
+
+        // 🔵 AZURE VARIABLES - Presentation times of recent frames by sequence
+        this.presentTimes = new Map();
+        this.maxPresentTimes = 240;
+
+        this.histograms = {};
+
+        console.log('🧪 Latency Calibrator initialized - Photon timing ready');
+    }
+
+    async run() {
+        if (this.isRunning) {
+            console.log('⚗️ Calibration already running');
+            return null;
+        }
+        this.isRunning = true;
+        this.timeouts = 0;
+        CALIBRATION_COMPONENTS.forEach(name => { this.histograms[name] = new LatencyHistogram(); });
+
+        try {
+            console.log('🔴 Starting touch-to-photon calibration...');
+            this.target = await this.requestTarget();
+
+            for (let i = 0; i < this.options.probes && this.isRunning; i++) {
+                const result = await this.runProbe();
+                if (result) {
+                    CALIBRATION_COMPONENTS.forEach(name => this.histograms[name].record(result[name]));
+                } else {
+                    this.timeouts++;
+                }
+                this.options.onProgress(i + 1, this.options.probes, result);
+                await new Promise(resolve => setTimeout(resolve, this.options.interval));
+            }
+
+            const report = this.buildReport();
+            console.log('🔵 Touch-to-photon report:');
+            console.table(Object.fromEntries(CALIBRATION_COMPONENTS.map(name => {
+                const { count, p50, p90, p99, max } = report.components[name];
+                return [name, { count, p50, p90, p99, max }];
+            })));
+            this.options.onReport(report);
+            return report;
+
+        } finally {
+            this.stop();
+        }
+    }
+
+    stop() {
+        if (!this.isRunning) return;
+        this.isRunning = false;
+        this.client.sendAlchemicalMessage({ type: 'calibration', action: 'stop' });
+        if (this.probe) {
+            this.probe.resolve(null);
+        }
+    }
+
+    requestTarget() {
+        return new Promise((resolve, reject) => {
+            const timer = setTimeout(() => {
+                this.readyResolver = null;
+                reject(new Error('Samsung calibration target did not appear'));
+            }, this.options.timeout);
+            this.readyResolver = (target) => {
+                clearTimeout(timer);
+                resolve(target);
+            };
+            this.client.sendAlchemicalMessage({ type: 'calibration', action: 'start' });
+        });
+    }
+
+    runProbe() {
+        return new Promise((resolve) => {
+            const probe = { seq: 0, sentAt: performance.now(), ackAt: 0, result: null, presentedAt: 0 };
+            const timer = setTimeout(() => probe.resolve(null), this.options.timeout);
+            probe.resolve = (value) => {
+                clearTimeout(timer);
+                this.probe = null;
+                resolve(value);
+            };
+            this.probe = probe;
+
+            // 🧪 A single down is a complete tap in TouchInputService's gesture path
+            probe.seq = this.client.sendTouchData({
+                action: 'down',
+                x: this.target.x + this.target.width / 2,
+                y: this.target.y + this.target.height / 2,
+                calibration: true
+            });
+            if (!probe.seq) {
+                probe.resolve(null);
+            }
+        });
+    }
+
+    handleMessage(message) {
+        // 🔵 Timing-sensitive: called straight from the socket handler, not the message queue
+        const now = performance.now();
+        if (message.type === 'calibration_ready') {
+            if (this.readyResolver) {
+                this.readyResolver(message.target);
+                this.readyResolver = null;
+            }
+            return;
+        }
+
+        const probe = this.probe;
+        if (!probe || message.seq !== probe.seq) return;
+
+        if (message.type === 'calibration_ack') {
+            probe.ackAt = now;
+        } else if (message.type === 'calibration_result') {
+            probe.result = message;
+            probe.presentedAt = this.presentTimes.get(message.frame_sequence) || 0;
+        }
+        this.completeProbe(probe);
+    }
+
+    onFramePresented(frame) {
+        if (frame.sequence === undefined) return;
+        const now = performance.now();
+        this.presentTimes.set(frame.sequence, now);
+        if (this.presentTimes.size > this.maxPresentTimes) {
+            this.presentTimes.delete(this.presentTimes.keys().next().value);
+        }
+
+        // ⚗️ The result message can beat its frame through decode
+        const probe = this.probe;
+        if (probe && probe.result && !probe.presentedAt && frame.sequence === probe.result.frame_sequence) {
+            probe.presentedAt = now;
+            this.completeProbe(probe);
+        }
+    }
+
+    completeProbe(probe) {
+        if (!probe.ackAt || !probe.result || !probe.presentedAt) return;
+
+        const total = probe.presentedAt - probe.sentAt;
+        const input = (probe.ackAt - probe.sentAt) / 2;
+        const dispatch = probe.result.dispatch_ms;
+        const compositor = probe.result.compositor_ms;
+        probe.resolve({
+            total: total,
+            input: input,
+            dispatch: dispatch,
+            compositor: compositor,
+            // 🔴 Includes the Samsung's encode time, reported separately as encode_ms
+            stream: total - input - dispatch - compositor,
+            encode: probe.result.encode_ms
+        });
+    }
+
+    buildReport() {
+        const components = {};
+        CALIBRATION_COMPONENTS.forEach(name => { components[name] = this.histograms[name].summary(); });
+        return {
+            probes: this.options.probes,
+            timeouts: this.timeouts,
+            bucketsMs: CALIBRATION_BUCKETS_MS.filter(bound => bound !== Infinity),
+            components: components
+        };
+    }
+}
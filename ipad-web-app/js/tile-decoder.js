@@ -0,0 +1,104 @@
+/**
+ * 🧪 Tile Decoder - ALCHEMICAL EDITION
+ * 🔴 Lossless palette + LZ tiles from the Samsung TileCodec
+ * 🔵 Keeps small text sharp where JPEG would smear it
+ */
+
+const TILE_MODE_SOLID = 0;
+const TILE_MODE_PALETTE = 1;
+const TILE_LZ_MIN_MATCH = 4;
+
+class TileDecoder {
+    constructor() {
+        // ⚗️ Reused between tiles; almost every tile has the same 64x64 size
+        this.indices = new Uint8Array(64 * 64);
+        this.imageData = null;
+    }
+    
+    decode(ctx, bytes, width, height) {
+        const pixels = width * height;
+        const imageData = this.imageDataFor(ctx, width, height);
+        const rgba = imageData.data;
+        
+        if (bytes[0] === TILE_MODE_SOLID) {
+            for (let i = 0, o = 0; i < pixels; i++, o += 4) {
+                rgba[o] = bytes[1];
+                rgba[o + 1] = bytes[2];
+                rgba[o + 2] = bytes[3];
+                rgba[o + 3] = 255;
+            }
+            return imageData;
+        }
+        if (bytes[0] !== TILE_MODE_PALETTE) {
+            throw new Error(`Unknown tile mode ${bytes[0]}`);
+        }
+        
+        const colors = bytes[1] + 1;
+        const paletteOffset = 2;
+        const streamOffset = paletteOffset + colors * 3;
+        if (this.indices.length < pixels) {
+            this.indices = new Uint8Array(pixels);
+        }
+        this.decompress(bytes, streamOffset, this.indices, pixels);
+        
+        // 🔴 Palette lookup straight into the ImageData buffer
+        for (let i = 0, o = 0; i < pixels; i++, o += 4) {
+            const entry = paletteOffset + this.indices[i] * 3;
+            rgba[o] = bytes[entry];
+            rgba[o + 1] = bytes[entry + 1];
+            rgba[o + 2] = bytes[entry + 2];
+            rgba[o + 3] = 255;
+        }
+        return imageData;
+    }
+    
+    decompress(src, offset, dst, dstLength) {
+        // 🧪 Mirrors Lz77 on the Samsung side: token, literals, u16 offset, match
+        let inPos = offset;
+        let out = 0;
+        while (inPos < src.length) {
+            const token = src[inPos++];
+            let literals = token >>> 4;
+            if (literals === 15) {
+                let b;
+                do {
+                    b = src[inPos++];
+                    literals += b;
+                } while (b === 255);
+            }
+            literals = Math.min(literals, dstLength - out);
+            dst.set(src.subarray(inPos, inPos + literals), out);
+            inPos += literals;
+            out += literals;
+            if (inPos >= src.length || out >= dstLength) break;
+            
+            const distance = (src[inPos] << 8) | src[inPos + 1];
+            inPos += 2;
+            let matchLength = token & 0x0f;
+            if (matchLength === 15) {
+                let b;
+                do {
+                    b = src[inPos++];
+                    matchLength += b;
+                } while (b === 255);
+            }
+            matchLength = Math.min(matchLength + TILE_LZ_MIN_MATCH, dstLength - out);
+            // ⚗️ Byte by byte: runs overlap their own output
+            for (let k = 0; k < matchLength; k++, out++) {
+                dst[out] = dst[out - distance];
+            }
+        }
+        return out;
+    }
+    
+    imageDataFor(ctx, width, height) {
+        if (this.imageData && this.imageData.width === width && this.imageData.height === height) {
+            return this.imageData;
+        }
+        const imageData = ctx.createImageData(width, height);
+        if (width === 64 && height === 64) {
+            this.imageData = imageData;
+        }
+        return imageData;
+    }
+}
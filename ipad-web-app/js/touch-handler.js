@@ -13,6 +13,9 @@ class TouchHandler {
             showIndicator: options.showIndicator !== false,
             hapticFeedback: options.hapticFeedback !== false,
             onTouch: options.onTouch || (() => {}),
+            // 🔵 Pinch zooms the mirrored image locally instead of being sent to the Samsung
+            localZoom: options.localZoom === true,
+            onZoom: options.onZoom || (() => {}),
             coordinateMapper: options.coordinateMapper
         };
         
@@ -138,6 +141,14 @@ class TouchHandler {
         
         if (!this.isTracking) return;
         
+        if (this.lastPinchDistance) {
+            // ⚗️ A local zoom pinch is not a Samsung gesture
+            this.lastPinchDistance = 0;
+            this.isTracking = false;
+            this.touchSequence = [];
+            return;
+        }
+        
         const endTime = Date.now();
         const duration = endTime - this.touchStartTime;
         
@@ -170,6 +181,7 @@ class TouchHandler {
     handleTouchCancel(event) {
         event.preventDefault();
         this.isTracking = false;
+        this.lastPinchDistance = 0;
         this.touchSequence = [];
         console.log('⚗️ Touch sequence cancelled');
     }
@@ -186,6 +198,18 @@ class TouchHandler {
                 y: (touch1.y + touch2.y) / 2
             };
             
+            if (this.options.localZoom) {
+                // ⚗️ Report incremental scale so the display can keep the pinch centre fixed
+                if (phase === 'start' || !this.lastPinchDistance) {
+                    this.lastPinchDistance = distance;
+                    return;
+                }
+                const factor = distance / this.lastPinchDistance;
+                this.lastPinchDistance = distance;
+                this.options.onZoom({ factor: factor, x: center.x, y: center.y });
+                return;
+            }
+            
             const gesture = {
                 type: 'pinch',
                 action: phase,
@@ -232,6 +256,9 @@ class TouchHandler {
                 action: touch.action,
                 x: mappedCoords.x,
                 y: mappedCoords.y,
+                // 🔵 Unmapped canvas position for the local prediction overlay
+                canvasX: touch.x,
+                canvasY: touch.y,
                 pressure: 1.0,
                 timestamp: touch.timestamp
             };
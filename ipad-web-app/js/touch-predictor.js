@@ -0,0 +1,176 @@
+/**
+ * 🧪 Touch Predictor - ALCHEMICAL EDITION
+ * 🔴 Instant local feedback while the Samsung round trip is in flight
+ * 🔵 Reconciles against frames tagged with the last applied input sequence
+ */
+
+class TouchPredictor {
+    constructor(videoDisplay, options = {}) {
+        this.videoDisplay = videoDisplay;
+        this.canvas = videoDisplay.canvas;
+        this.options = {
+            trailLifetime: options.trailLifetime || 400,
+            // ⚗️ Give up on an input the Samsung never acknowledges (e.g. no accessibility service)
+            predictionTimeout: options.predictionTimeout || 1000,
+            predictDragTranslate: options.predictDragTranslate !== false
+        };
+        
+        // 🔴 CRIMSON VARIABLES - Prediction State
+        this.trail = [];
+        this.dragOrigin = null;
+        this.dragOffset = { x: 0, y: 0 };
+        // Offset we had predicted at each unacknowledged input sequence
+        this.pendingInputs = [];
+        this.lastAcknowledged = 0;
+        this.animationFrame = null;
+        
+        this.createOverlay();
+        console.log('🧪 Touch Predictor initialized - Local echo ready');
+    }
+    
+    createOverlay() {
+        // 🔵 Transparent canvas stacked over the video for the touch trail
+        this.overlay = document.createElement('canvas');
+        this.overlay.className = 'touch-prediction-overlay';
+        this.overlay.style.position = 'absolute';
+        this.overlay.style.pointerEvents = 'none';
+        this.overlayCtx = this.overlay.getContext('2d');
+        
+        const parent = this.canvas.parentElement;
+        if (parent) {
+            if (getComputedStyle(parent).position === 'static') {
+                parent.style.position = 'relative';
+            }
+            parent.appendChild(this.overlay);
+        }
+        this.syncOverlayBounds();
+    }
+    
+    syncOverlayBounds() {
+        this.overlay.style.left = `${this.canvas.offsetLeft}px`;
+        this.overlay.style.top = `${this.canvas.offsetTop}px`;
+        this.overlay.style.width = `${this.canvas.clientWidth}px`;
+        this.overlay.style.height = `${this.canvas.clientHeight}px`;
+        this.overlay.width = this.canvas.clientWidth;
+        this.overlay.height = this.canvas.clientHeight;
+    }
+    
+    onLocalTouch(touch) {
+        // 🧪 touch: { canvasX, canvasY, action, seq } in canvas CSS pixels
+        if (touch.canvasX === undefined || touch.seq === undefined) return;
+        
+        const now = performance.now();
+        if (touch.action === 'start') {
+            this.syncOverlayBounds();
+            this.dragOrigin = { x: touch.canvasX, y: touch.canvasY };
+            this.trail = [];
+        }
+        this.trail.push({ x: touch.canvasX, y: touch.canvasY, time: now, seq: touch.seq });
+        
+        if (this.options.predictDragTranslate && this.dragOrigin && touch.action === 'move') {
+            // 🔴 Content under a dragging finger follows it (scrolling lists, pagers)
+            this.dragOffset = {
+                x: touch.canvasX - this.dragOrigin.x,
+                y: touch.canvasY - this.dragOrigin.y
+            };
+        }
+        if (touch.action === 'end') {
+            this.dragOrigin = null;
+        }
+        
+        this.pendingInputs.push({ seq: touch.seq, offset: { ...this.dragOffset }, time: now });
+        this.applyPredictedOffset();
+        this.scheduleDraw();
+    }
+    
+    reconcile(inputSequence) {
+        // 🔵 The frame already shows every input up to inputSequence
+        if (!inputSequence || inputSequence <= this.lastAcknowledged) {
+            this.expireStalePredictions();
+            return;
+        }
+        this.lastAcknowledged = inputSequence;
+        
+        let acknowledged = null;
+        while (this.pendingInputs.length > 0 && this.pendingInputs[0].seq <= inputSequence) {
+            acknowledged = this.pendingInputs.shift();
+        }
+        if (acknowledged) {
+            // ⚗️ Keep only the part of the drag the Samsung has not rendered yet
+            this.dragOffset.x -= acknowledged.offset.x;
+            this.dragOffset.y -= acknowledged.offset.y;
+            if (this.dragOrigin) {
+                this.dragOrigin.x += acknowledged.offset.x;
+                this.dragOrigin.y += acknowledged.offset.y;
+            }
+            this.pendingInputs.forEach((input) => {
+                input.offset.x -= acknowledged.offset.x;
+                input.offset.y -= acknowledged.offset.y;
+            });
+        }
+        this.expireStalePredictions();
+        this.applyPredictedOffset();
+        this.scheduleDraw();
+    }
+    
+    expireStalePredictions() {
+        const oldest = this.pendingInputs[0];
+        if (oldest && performance.now() - oldest.time > this.options.predictionTimeout) {
+            this.reset();
+        }
+    }
+    
+    applyPredictedOffset() {
+        const scaleX = this.canvas.width / (this.canvas.clientWidth || this.canvas.width);
+        const scaleY = this.canvas.height / (this.canvas.clientHeight || this.canvas.height);
+        this.videoDisplay.setPredictedOffset(this.dragOffset.x * scaleX, this.dragOffset.y * scaleY);
+    }
+    
+    scheduleDraw() {
+        if (this.animationFrame) return;
+        this.animationFrame = requestAnimationFrame(() => {
+            this.animationFrame = null;
+            this.drawTrail();
+        });
+    }
+    
+    drawTrail() {
+        const now = performance.now();
+        const ctx = this.overlayCtx;
+        ctx.clearRect(0, 0, this.overlay.width, this.overlay.height);
+        
+        // 🧪 Acknowledged points fade quickly; the Samsung frame now shows the real result
+        this.trail = this.trail.filter((point) => now - point.time < this.options.trailLifetime);
+        if (this.trail.length === 0) return;
+        
+        ctx.lineCap = 'round';
+        ctx.lineJoin = 'round';
+        for (let i = 1; i < this.trail.length; i++) {
+            const from = this.trail[i - 1];
+            const to = this.trail[i];
+            const age = (now - to.time) / this.options.trailLifetime;
+            const alpha = (to.seq <= this.lastAcknowledged ? 0.3 : 0.7) * (1 - age);
+            ctx.strokeStyle = `rgba(255, 255, 255, ${alpha})`;
+            ctx.lineWidth = 6;
+            ctx.beginPath();
+            ctx.moveTo(from.x, from.y);
+            ctx.lineTo(to.x, to.y);
+            ctx.stroke();
+        }
+        
+        const head = this.trail[this.trail.length - 1];
+        ctx.fillStyle = 'rgba(255, 255, 255, 0.6)';
+        ctx.beginPath();
+        ctx.arc(head.x, head.y, 14, 0, Math.PI * 2);
+        ctx.fill();
+        
+        this.scheduleDraw();
+    }
+    
+    reset() {
+        this.pendingInputs = [];
+        this.dragOrigin = null;
+        this.dragOffset = { x: 0, y: 0 };
+        this.applyPredictedOffset();
+    }
+}
@@ -4,6 +4,11 @@
  * 🔵 Enhanced for Samsung Galaxy S22 Ultra video streaming
  */
 
+// 🔵 Delta frame operations, see DeltaFrameWriter on the Samsung side
+const DELTA_OP_COPY_RECT = 1;
+const DELTA_OP_JPEG_RECT = 2;
+const DELTA_OP_TILE_RECT = 3;
+
 class VideoDisplay {
     constructor(canvasId, options = {}) {
         this.canvas = document.getElementById(canvasId);
@@ -11,7 +16,9 @@ class VideoDisplay {
         
         this.options = {
             onFrameReceived: options.onFrameReceived || (() => {}),
-            onError: options.onError || (() => {})
+            onError: options.onError || (() => {}),
+            onKeyFrameNeeded: options.onKeyFrameNeeded || (() => {}),
+            onViewportChange: options.onViewportChange || (() => {})
         };
         
         // 🔴 CRIMSON VARIABLES - Display State
@@ -30,7 +37,22 @@ class VideoDisplay {
         };
         
         // ⚗️ HERMETIC VARIABLES - iPad Air 2 Memory Management
+        // frameBuffer holds the Samsung screen at source resolution; deltas are applied to it
         this.frameBuffer = null;
+        this.renderQueue = [];
+        this.maxRenderQueue = 4; // Frames waiting on decode before we give up on catching up
+        this.isRendering = false;
+        this.lastRenderedSequence = -1;
+        this.awaitingKeyFrame = false;
+        this.tileDecoder = new TileDecoder();
+        
+        // 🔴 Local zoom: scale plus visible centre, normalised to the Samsung screen
+        this.zoom = { scale: 1, centerX: 0.5, centerY: 0.5 };
+        this.maxZoom = 4;
+        this.viewportReportTimer = null;
+        
+        // 🔵 Provisional translate from TouchPredictor, in canvas pixels
+        this.predictedOffset = { x: 0, y: 0 };
         this.maxFrameSize = 1920 * 1080; // Limit for iPad Air 2
         this.compressionLevel = 0.8;
         
@@ -69,14 +91,17 @@ class VideoDisplay {
         
         const startTime = performance.now();
         
+        if (frameData.delta || frameData.blob) {
+            this.queueStreamFrame(frameData);
+            return;
+        }
+        
         try {
             // 🧪 Process frame based on type
             if (frameData.canvas) {
                 this.displayCanvasFrame(frameData);
             } else if (frameData.imageData) {
                 this.displayImageDataFrame(frameData);
-            } else if (frameData.blob) {
-                this.displayBlobFrame(frameData);
             } else {
                 console.warn('⚗️ Unknown frame data type');
                 return;
@@ -123,33 +148,253 @@ class VideoDisplay {
         this.ctx.drawImage(this.frameBuffer, 0, 0, this.canvas.width, this.canvas.height);
     }
     
+    queueStreamFrame(frameData) {
+        // 🔴 A key frame supersedes everything still waiting; deltas only skip once we're too far behind
+        if (frameData.keyFrame && this.renderQueue.length > 0) {
+            this.performanceStats.framesDropped += this.renderQueue.length;
+            this.renderQueue = [];
+        }
+        this.renderQueue.push(frameData);
+        if (this.renderQueue.length > this.maxRenderQueue) {
+            // 🔵 Decoding has fallen behind: skipping deltas breaks the chain, so jump to a fresh key frame
+            this.performanceStats.framesDropped += this.renderQueue.length - 1;
+            this.renderQueue = this.renderQueue.slice(-1);
+            this.invalidateReference();
+        }
+        if (!this.isRendering) {
+            this.pumpRenderQueue();
+        }
+    }
+    
+    async pumpRenderQueue() {
+        this.isRendering = true;
+        while (this.renderQueue.length > 0) {
+            const frameData = this.renderQueue.shift();
+            const startTime = performance.now();
+            try {
+                const rendered = frameData.delta
+                    ? await this.displayDeltaFrame(frameData)
+                    : await this.displayBlobFrame(frameData);
+                if (!rendered) continue;
+                
+                this.updatePerformanceStats(startTime);
+                this.frameCount++;
+                this.lastFrameTime = Date.now();
+                this.options.onFrameReceived(frameData);
+            } catch (error) {
+                console.error('🔴 Frame display error:', error);
+                this.performanceStats.framesDropped++;
+                this.invalidateReference();
+                this.options.onError(error);
+            }
+        }
+        this.isRendering = false;
+    }
+    
     async displayBlobFrame(frameData) {
-        const { blob } = frameData;
+        // 🧪 Key frame: replaces the whole reference image
+        const image = await this.decodeImage(frameData.blob);
+        try {
+            const width = image.width || image.naturalWidth;
+            const height = image.height || image.naturalHeight;
+            if (this.frameBuffer.width !== width || this.frameBuffer.height !== height) {
+                this.frameBuffer.width = width;
+                this.frameBuffer.height = height;
+            }
+            this.frameBufferCtx.drawImage(image, 0, 0);
+        } finally {
+            this.releaseImage(image);
+        }
         
-        // 🧪 Create image from blob
-        const img = new Image();
+        this.lastRenderedSequence = frameData.sequence !== undefined ? frameData.sequence : -1;
+        this.awaitingKeyFrame = false;
+        this.presentFrameBuffer();
+        return true;
+    }
+    
+    async displayDeltaFrame(frameData) {
+        const view = frameData.delta;
+        const baseSequence = view.getUint32(0);
+        if (this.awaitingKeyFrame || baseSequence !== this.lastRenderedSequence) {
+            // ⚗️ Our reference is not the one this delta was cut against
+            this.performanceStats.framesDropped++;
+            this.invalidateReference();
+            return false;
+        }
         
-        return new Promise((resolve, reject) => {
-            img.onload = () => {
-                try {
-                    // 🔴 Draw image to canvas
-                    this.ctx.drawImage(img, 0, 0, this.canvas.width, this.canvas.height);
-                    URL.revokeObjectURL(img.src); // Clean up memory
-                    resolve();
-                } catch (error) {
-                    reject(error);
+        const ops = this.parseDeltaOps(view);
+        
+        // 🔵 Decode every patch in parallel, then draw strictly in op order
+        const images = await Promise.all(ops.map((op) => op.blob ? this.decodeImage(op.blob) : null));
+        try {
+            ops.forEach((op, index) => {
+                if (op.type === DELTA_OP_COPY_RECT) {
+                    // 🔴 Canvas self-blit: the spec copies the source region before drawing
+                    this.frameBufferCtx.drawImage(this.frameBuffer,
+                        op.x + op.dx, op.y + op.dy, op.width, op.height,
+                        op.x, op.y, op.width, op.height);
+                } else if (op.type === DELTA_OP_JPEG_RECT) {
+                    this.frameBufferCtx.drawImage(images[index], op.x, op.y, op.width, op.height);
+                } else if (op.type === DELTA_OP_TILE_RECT) {
+                    const imageData = this.tileDecoder.decode(this.frameBufferCtx, op.bytes, op.width, op.height);
+                    this.frameBufferCtx.putImageData(imageData, op.x, op.y);
                 }
+            });
+        } finally {
+            images.forEach((image) => image && this.releaseImage(image));
+        }
+        
+        this.lastRenderedSequence = frameData.sequence;
+        this.presentFrameBuffer();
+        return true;
+    }
+    
+    parseDeltaOps(view) {
+        // 🧪 Layout mirrors DeltaFrameWriter on the Samsung side (big-endian)
+        const ops = [];
+        const opCount = view.getUint16(4);
+        let offset = 6;
+        for (let i = 0; i < opCount; i++) {
+            const type = view.getUint8(offset);
+            const op = {
+                type: type,
+                x: view.getUint16(offset + 1),
+                y: view.getUint16(offset + 3),
+                width: view.getUint16(offset + 5),
+                height: view.getUint16(offset + 7)
             };
-            
+            offset += 9;
+            if (type === DELTA_OP_COPY_RECT) {
+                op.dx = view.getInt16(offset);
+                op.dy = view.getInt16(offset + 2);
+                offset += 4;
+            } else if (type === DELTA_OP_JPEG_RECT) {
+                const length = view.getUint32(offset);
+                offset += 4;
+                op.blob = new Blob([new Uint8Array(view.buffer, view.byteOffset + offset, length)], { type: 'image/jpeg' });
+                offset += length;
+            } else if (type === DELTA_OP_TILE_RECT) {
+                const length = view.getUint32(offset);
+                offset += 4;
+                op.bytes = new Uint8Array(view.buffer, view.byteOffset + offset, length);
+                offset += length;
+            } else {
+                throw new Error(`Unknown delta op ${type}`);
+            }
+            ops.push(op);
+        }
+        return ops;
+    }
+    
+    decodeImage(blob) {
+        if (window.createImageBitmap) {
+            return createImageBitmap(blob);
+        }
+        
+        // 🔵 Older Safari: decode through an <img> element
+        const img = new Image();
+        return new Promise((resolve, reject) => {
+            img.onload = () => resolve(img);
             img.onerror = () => {
                 URL.revokeObjectURL(img.src);
                 reject(new Error('Failed to load image from blob'));
             };
-            
             img.src = URL.createObjectURL(blob);
         });
     }
     
+    releaseImage(image) {
+        // 🧪 Clean up memory
+        if (image.close) {
+            image.close();
+        } else if (image.src) {
+            URL.revokeObjectURL(image.src);
+        }
+    }
+    
+    invalidateReference() {
+        if (this.awaitingKeyFrame) return;
+        this.awaitingKeyFrame = true;
+        this.options.onKeyFrameNeeded();
+    }
+    
+    presentFrameBuffer() {
+        const rect = this.getVisibleSourceRect() || {
+            x: 0, y: 0, width: this.frameBuffer.width, height: this.frameBuffer.height
+        };
+        const offset = this.predictedOffset;
+        if (offset.x !== 0 || offset.y !== 0) {
+            this.ctx.clearRect(0, 0, this.canvas.width, this.canvas.height);
+        }
+        this.ctx.drawImage(this.frameBuffer, rect.x, rect.y, rect.width, rect.height,
+            offset.x, offset.y, this.canvas.width, this.canvas.height);
+    }
+    
+    setPredictedOffset(x, y) {
+        if (x === this.predictedOffset.x && y === this.predictedOffset.y) return;
+        this.predictedOffset = { x: x, y: y };
+        if (this.lastRenderedSequence >= 0) {
+            this.presentFrameBuffer();
+        }
+    }
+    
+    getVisibleSourceRect() {
+        if (this.zoom.scale <= 1 || this.frameBuffer.width <= 1) return null;
+        
+        const width = Math.round(this.frameBuffer.width / this.zoom.scale);
+        const height = Math.round(this.frameBuffer.height / this.zoom.scale);
+        return {
+            x: Math.round(this.zoom.centerX * this.frameBuffer.width - width / 2),
+            y: Math.round(this.zoom.centerY * this.frameBuffer.height - height / 2),
+            width: width,
+            height: height,
+            sourceWidth: this.frameBuffer.width,
+            sourceHeight: this.frameBuffer.height
+        };
+    }
+    
+    zoomAt(factor, canvasX, canvasY) {
+        // 🧪 Keep the Samsung pixel under the pinch centre where it is
+        const before = this.canvasToSource(canvasX, canvasY);
+        const scale = Math.max(1, Math.min(this.maxZoom, this.zoom.scale * factor));
+        const fx = canvasX / (this.canvas.clientWidth || this.canvas.width);
+        const fy = canvasY / (this.canvas.clientHeight || this.canvas.height);
+        this.setZoom(scale,
+            before.x + (0.5 - fx) / scale,
+            before.y + (0.5 - fy) / scale);
+    }
+    
+    canvasToSource(canvasX, canvasY) {
+        // 🔵 Normalised Samsung coordinates of a canvas point at the current zoom
+        const scale = this.zoom.scale;
+        return {
+            x: this.zoom.centerX + (canvasX / (this.canvas.clientWidth || this.canvas.width) - 0.5) / scale,
+            y: this.zoom.centerY + (canvasY / (this.canvas.clientHeight || this.canvas.height) - 0.5) / scale
+        };
+    }
+    
+    setZoom(scale, centerX, centerY) {
+        const half = 0.5 / scale;
+        this.zoom = {
+            scale: scale,
+            centerX: Math.max(half, Math.min(1 - half, centerX)),
+            centerY: Math.max(half, Math.min(1 - half, centerY))
+        };
+        if (this.lastRenderedSequence >= 0) {
+            this.presentFrameBuffer();
+        }
+        
+        // ⚗️ Debounced: the server re-crops once the pinch settles
+        clearTimeout(this.viewportReportTimer);
+        this.viewportReportTimer = setTimeout(() => {
+            this.options.onViewportChange(this.getVisibleSourceRect());
+        }, 150);
+    }
+    
+    resetZoom() {
+        this.setZoom(1, 0.5, 0.5);
+    }
+    
     resizeCanvas(width, height) {
         // 🔵 Calculate optimal display size for iPad Air 2
         const maxWidth = Math.min(width, this.maxFrameSize / height);
@@ -232,6 +477,9 @@ class VideoDisplay {
     stop() {
         this.isActive = false;
         this.isPaused = false;
+        this.renderQueue = [];
+        this.lastRenderedSequence = -1;
+        this.awaitingKeyFrame = false;
         
         // 🔵 Clear canvas
         if (this.ctx) {
@@ -4,13 +4,77 @@
  * 🔵 Optimized for iPad Air 2 memory constraints
  */
 
+/**
+ * ⚗️ Fixed-size ring buffer for JSON control messages
+ * 🔵 Slots are allocated once; a full ring overwrites its oldest entry
+ * instead of shifting the whole array on every message
+ */
+class ControlMessageRing {
+    constructor(capacity) {
+        this.capacity = capacity;
+        this.slots = new Array(capacity);
+        this.head = 0;
+        this.length = 0;
+        this.dropped = 0;
+    }
+    
+    push(message) {
+        if (this.length === this.capacity) {
+            // 🔴 Overwrite oldest slot
+            this.slots[this.head] = message;
+            this.head = (this.head + 1) % this.capacity;
+            this.dropped++;
+            return false;
+        }
+        
+        this.slots[(this.head + this.length) % this.capacity] = message;
+        this.length++;
+        return true;
+    }
+    
+    shift() {
+        if (this.length === 0) return undefined;
+        
+        const message = this.slots[this.head];
+        this.slots[this.head] = undefined;
+        this.head = (this.head + 1) % this.capacity;
+        this.length--;
+        return message;
+    }
+    
+    clear() {
+        for (let i = 0; i < this.capacity; i++) {
+            this.slots[i] = undefined;
+        }
+        this.head = 0;
+        this.length = 0;
+        this.dropped = 0;
+    }
+}
+
+/**
+ * 🔴 Binary frame header written by the Samsung FramePacket encoder (big-endian)
+ * u8 type | u8 flags | u16 headerLength | u32 sequence | u32 ptsMillis [| u32 inputSequence]
+ */
+const FRAME_TYPE_VIDEO_JPEG = 1;
+const FRAME_TYPE_VIDEO_DELTA = 2;
+const FRAME_TYPE_AUDIO_ADPCM = 3;
+const FRAME_FLAG_KEY_FRAME = 0x01;
+const FRAME_FLAG_REPLAY = 0x02;
+const FRAME_HEADER_MIN_LENGTH = 12;
+
 class WebRTCClient {
     constructor(options = {}) {
         this.options = {
             onConnectionStateChange: options.onConnectionStateChange || (() => {}),
             onVideoFrame: options.onVideoFrame || (() => {}),
             onError: options.onError || (() => {}),
-            onLatencyUpdate: options.onLatencyUpdate || (() => {})
+            onLatencyUpdate: options.onLatencyUpdate || (() => {}),
+            // 🔵 Resolves where the Samsung device is now, e.g. DeviceDiscovery.reconnect()
+            resolveReconnectTarget: options.resolveReconnectTarget || (() => Promise.resolve(null)),
+            onCalibrationMessage: options.onCalibrationMessage || (() => {}),
+            onAudioPacket: options.onAudioPacket || (() => {}),
+            onProfileChange: options.onProfileChange || (() => {})
         };
         
         // 🔴 CRIMSON VARIABLES - Core Connection State
@@ -24,11 +88,21 @@ class WebRTCClient {
         this.latencyInterval = null;
         this.lastPingTime = 0;
         this.connectionStartTime = 0;
+        this.binaryFramesReceived = 0;
+        
+        // 🧪 TIME-SHIFT VARIABLES - Resume and replay from the Samsung frame history
+        this.lastFrameSequence = -1;
+        this.replayFrames = [];
+        this.replayTimer = null;
+        this.isReplaying = false;
+        
+        // 🔴 Tags each touch so mirrored frames can acknowledge it
+        this.inputSequence = 0;
         
         // ⚗️ HERMETIC VARIABLES - iPad Air 2 Optimization
-        this.messageQueue = [];
-        this.isProcessingQueue = false;
         this.maxQueueSize = 50; // Memory constraint for iPad Air 2
+        this.messageQueue = new ControlMessageRing(this.maxQueueSize);
+        this.isProcessingQueue = false;
         
         console.log('🧪 WebRTC Client initialized - Alchemical protocol ready');
     }
@@ -57,6 +131,8 @@ class WebRTCClient {
             console.log(`🧪 Establishing alchemical link: ${wsUrl}`);
             
             this.websocket = new WebSocket(wsUrl);
+            // 🔵 Binary frames arrive as ArrayBuffer - no Blob wrapping by the browser
+            this.websocket.binaryType = 'arraybuffer';
             
             this.websocket.onopen = () => {
                 console.log('🔵 Alchemical WebSocket link established');
@@ -79,10 +155,11 @@ class WebRTCClient {
             
             this.websocket.onclose = (event) => {
                 console.log('⚗️ Alchemical link severed:', event.code, event.reason);
+                const wasConnected = this.isConnected;
                 this.handleDisconnection();
                 
                 // 🔵 Auto-reconnection alchemy for unstable connections
-                if (this.isConnected && this.reconnectAttempts < this.maxReconnectAttempts) {
+                if (wasConnected && this.reconnectAttempts < this.maxReconnectAttempts) {
                     this.attemptReconnection(ipAddress, port);
                 }
             };
@@ -111,27 +188,145 @@ class WebRTCClient {
             timestamp: Date.now()
         };
         
+        // 🔵 On reconnect, ask only for the frames we missed
+        if (this.lastFrameSequence >= 0) {
+            handshake.last_sequence = this.lastFrameSequence;
+        }
+        
         this.sendAlchemicalMessage(handshake);
+        if (this.currentViewport) {
+            this.sendViewport(this.currentViewport);
+        }
         console.log('🧪 Connection handshake transmitted');
     }
     
     handleAlchemicalMessage(data) {
+        // 🔴 Binary payloads are encoded frames - hand them straight to the renderer
+        if (typeof data !== 'string') {
+            this.handleBinaryFrame(data);
+            return;
+        }
+        
+        let message;
         try {
-            const message = JSON.parse(data);
-            console.log('🔵 Received alchemical message:', message.type);
-            
-            // 🧪 Add to processing queue for iPad Air 2 memory management
-            if (this.messageQueue.length >= this.maxQueueSize) {
-                this.messageQueue.shift(); // Remove oldest message
-                console.warn('⚗️ Message queue overflow - discarding old messages');
-            }
-            
-            this.messageQueue.push(message);
-            this.processMessageQueue();
-            
+            message = JSON.parse(data);
         } catch (error) {
             console.error('🔴 Failed to parse alchemical message:', error);
+            return;
         }
+        
+        // ⚗️ Latency calibration times these on arrival; the queue would add its own delay
+        if (message.type && message.type.startsWith('calibration_')) {
+            this.options.onCalibrationMessage(message);
+            return;
+        }
+        
+        // 🧪 Ring buffer bounds memory for iPad Air 2 without shifting arrays
+        if (!this.messageQueue.push(message)) {
+            console.warn('⚗️ Message queue overflow - discarding old messages');
+        }
+        
+        this.processMessageQueue();
+    }
+    
+    handleBinaryFrame(buffer) {
+        // 🔵 Hot path: fixed-offset header reads, no queueing, no per-frame logging
+        if (buffer.byteLength < FRAME_HEADER_MIN_LENGTH) return;
+        
+        const header = new DataView(buffer, 0, FRAME_HEADER_MIN_LENGTH);
+        const type = header.getUint8(0);
+        if (type === FRAME_TYPE_AUDIO_ADPCM) {
+            // 🧪 Audio shares the connection; replayed video has no audio to match
+            if (!this.isReplaying) {
+                this.options.onAudioPacket(buffer);
+            }
+            return;
+        }
+        if (type !== FRAME_TYPE_VIDEO_JPEG && type !== FRAME_TYPE_VIDEO_DELTA) return;
+        
+        const flags = header.getUint8(1);
+        const headerLength = header.getUint16(2);
+        const frame = {
+            sequence: header.getUint32(4),
+            pts: header.getUint32(8),
+            // 🔴 Last touch the Samsung had applied when this frame was captured
+            inputSequence: headerLength >= 16 ? new DataView(buffer, 12, 4).getUint32(0) : 0,
+            keyFrame: (flags & FRAME_FLAG_KEY_FRAME) !== 0,
+            timestamp: Date.now()
+        };
+        if (type === FRAME_TYPE_VIDEO_JPEG) {
+            frame.blob = new Blob([new Uint8Array(buffer, headerLength)], { type: 'image/jpeg' });
+        } else {
+            // ⚗️ Copy-rect + patch operations, applied by VideoDisplay onto its last frame
+            frame.delta = new DataView(buffer, headerLength);
+        }
+        this.binaryFramesReceived++;
+        
+        if (flags & FRAME_FLAG_REPLAY) {
+            this.queueReplayFrame(frame);
+            return;
+        }
+        
+        this.lastFrameSequence = frame.sequence;
+        if (!this.isReplaying) {
+            this.options.onVideoFrame(frame);
+        }
+    }
+    
+    sendViewport(rect) {
+        // 🔵 Zoomed in: the Samsung only encodes this region; null restores the full screen
+        this.currentViewport = rect;
+        this.sendAlchemicalMessage(rect
+            ? {
+                type: 'viewport', x: rect.x, y: rect.y, width: rect.width, height: rect.height,
+                // 🧪 Frame size the rect was measured in; the Samsung may be capturing scaled down
+                source_width: rect.sourceWidth, source_height: rect.sourceHeight
+            }
+            : { type: 'viewport' });
+    }
+    
+    requestKeyFrame() {
+        // 🔴 The display lost its reference image; deltas stay unusable until the next key frame
+        this.sendAlchemicalMessage({ type: 'key_frame_request', timestamp: Date.now() });
+    }
+    
+    requestReplay(seconds = 3) {
+        // 🧪 Samsung resends the last N seconds from its ring, flagged as replay
+        this.sendAlchemicalMessage({ type: 'replay', seconds: seconds, timestamp: Date.now() });
+    }
+    
+    queueReplayFrame(frame) {
+        this.replayFrames.push(frame);
+        if (!this.isReplaying) {
+            this.isReplaying = true;
+            this.playNextReplayFrame();
+        }
+    }
+    
+    playNextReplayFrame() {
+        const frame = this.replayFrames.shift();
+        if (!frame) {
+            // ⚗️ Replay drained - live frames resume on the next arrival
+            this.isReplaying = false;
+            this.replayTimer = null;
+            return;
+        }
+        
+        this.options.onVideoFrame(frame);
+        
+        // 🔴 Pace replay with the original capture spacing
+        const next = this.replayFrames[0];
+        const delay = next ? Math.max(0, Math.min(200, next.pts - frame.pts)) : 0;
+        this.replayTimer = setTimeout(() => this.playNextReplayFrame(), delay);
+    }
+    
+    stopReplay() {
+        if (this.replayTimer) {
+            clearTimeout(this.replayTimer);
+            this.replayTimer = null;
+        }
+        this.replayFrames = [];
+        this.isReplaying = false;
     }
     
     async processMessageQueue() {
@@ -181,6 +376,12 @@ class WebRTCClient {
                 this.handlePongMessage(message);
                 break;
                 
+            case 'profile':
+                // 🔵 Sent to every viewer when anyone switches, and when the Samsung throttles itself
+                console.log('🧪 Streaming profile:', message.effective.name, message.effective);
+                this.options.onProfileChange(message);
+                break;
+                
             case 'error':
                 console.error('🔴 Samsung device error:', message.error);
                 this.options.onError(new Error(message.error));
@@ -250,13 +451,15 @@ class WebRTCClient {
     sendTouchData(touchData) {
         if (!this.isConnected || !this.websocket || this.websocket.readyState !== WebSocket.OPEN) {
             console.warn('⚗️ Cannot send touch data - alchemical link not established');
-            return;
+            return 0;
         }
         
         try {
             // 🔴 Enhanced touch message for Samsung processing
+            const seq = ++this.inputSequence;
             const touchMessage = {
                 type: 'touch',
+                seq: seq,
                 action: touchData.action,
                 x: touchData.x,
                 y: touchData.y,
@@ -274,10 +477,17 @@ class WebRTCClient {
                 touchMessage.gesture = touchData.gesture;
             }
             
+            // 🔵 Calibration taps arm the Samsung's touch-to-photon meter
+            if (touchData.calibration) {
+                touchMessage.calibration = true;
+            }
+            
             this.sendAlchemicalMessage(touchMessage);
+            return seq;
             
         } catch (error) {
             console.error('🔴 Failed to transmit touch data:', error);
+            return 0;
         }
     }
     
@@ -321,17 +531,30 @@ class WebRTCClient {
         this.reconnectAttempts++;
         console.log(`🧪 Attempting alchemical reconnection ${this.reconnectAttempts}/${this.maxReconnectAttempts}`);
         
-        setTimeout(() => {
-            this.connect(ipAddress, port).catch(error => {
+        // 🔴 First retry is immediate - a Wi-Fi roam is over long before a 2s backoff
+        setTimeout(async () => {
+            // ⚗️ After roaming the Samsung may have a new address; ask discovery first
+            let target = null;
+            try {
+                target = await this.options.resolveReconnectTarget(ipAddress, port);
+            } catch (error) {
+                console.warn('⚗️ Could not relocate Samsung device:', error);
+            }
+            const nextIP = target ? target.ipAddress : ipAddress;
+            const nextPort = target ? target.port : port;
+            
+            this.connect(nextIP, nextPort).catch(error => {
                 console.error('🔴 Reconnection failed:', error);
                 
                 if (this.reconnectAttempts >= this.maxReconnectAttempts) {
                     console.error('⚗️ Maximum reconnection attempts reached');
                     this.options.onConnectionStateChange('failed');
                     this.options.onError(new Error('Connection lost - maximum reconnection attempts reached'));
+                } else {
+                    this.attemptReconnection(nextIP, nextPort);
                 }
             });
-        }, this.reconnectDelay * this.reconnectAttempts);
+        }, this.reconnectDelay * (this.reconnectAttempts - 1));
     }
     
     updateVideoQuality(quality) {
@@ -346,6 +569,15 @@ class WebRTCClient {
         console.log('🧪 Video quality change requested:', quality);
     }
     
+    setStreamProfile(name, overrides = {}) {
+        // ⚗️ Overrides use the field names of the Samsung's "profile" message, e.g. { fps: 30, quality: 70 }
+        this.sendAlchemicalMessage({ type: 'profile', action: 'set', name: name, ...overrides });
+    }
+    
+    requestStreamProfile() {
+        this.sendAlchemicalMessage({ type: 'profile', action: 'get' });
+    }
+    
     async disconnect() {
         console.log('🔴 Initiating disconnection ritual...');
         
@@ -375,8 +607,10 @@ class WebRTCClient {
         }
         
         // 🧪 Clear message queue for memory cleanup
-        this.messageQueue = [];
+        this.messageQueue.clear();
         this.isProcessingQueue = false;
+        this.stopReplay();
+        this.lastFrameSequence = -1;
         
         this.options.onConnectionStateChange('disconnected');
         console.log('🔴 Alchemical disconnection complete');
@@ -403,6 +637,9 @@ class WebRTCClient {
             isConnected: this.isConnected,
             reconnectAttempts: this.reconnectAttempts,
             messageQueueLength: this.messageQueue.length,
+            messagesDropped: this.messageQueue.dropped,
+            binaryFramesReceived: this.binaryFramesReceived,
+            lastFrameSequence: this.lastFrameSequence,
             connectionDuration: this.isConnected ? Date.now() - this.connectionStartTime : 0,
             websocketState: this.websocket ? this.websocket.readyState : 'null'
         };
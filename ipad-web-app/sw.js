@@ -16,9 +16,13 @@ const STATIC_FILES = [
     '/js/app.js',
     '/js/webrtc-client.js',
     '/js/touch-handler.js',
+    '/js/tile-decoder.js',
     '/js/video-display.js',
     '/js/device-discovery.js',
     '/js/coordinate-mapper.js',
+    '/js/touch-predictor.js',
+    '/js/latency-calibrator.js',
+    '/js/audio-player.js',
     '/js/webrtc-adapter.js'
 ];
 
@@ -93,6 +97,12 @@ self.addEventListener('fetch', (event) => {
         return;
     }
     
+    // Skip cross-origin requests: discovery probes the Samsung on the LAN and a
+    // cached answer from an old address must never stand in for a live one
+    if (url.origin !== self.location.origin) {
+        return;
+    }
+    
     // Handle different types of requests
     if (isNetworkOnly(request.url)) {
         // Network only resources
@@ -0,0 +1,36 @@
+package com.screenmirror.samsung.loadgen;
+
+import java.util.Arrays;
+
+/**
+ * Collects latency samples in a growable primitive array and reports percentiles.
+ * Not thread-safe; each client records from its own read thread and the report
+ * is taken after the run.
+ */
+final class LatencyRecorder {
+
+    private long[] samples = new long[1024];
+    private int count;
+
+    void record(long micros) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = micros;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    /** @param percentile 0-100; returns milliseconds, or NaN without samples */
+    double percentileMillis(double percentile) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.min(count - 1, Math.max(0, Math.ceil(percentile / 100.0 * count) - 1));
+        return sorted[index] / 1000.0;
+    }
+}
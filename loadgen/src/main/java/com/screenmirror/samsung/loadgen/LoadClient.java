@@ -0,0 +1,215 @@
+package com.screenmirror.samsung.loadgen;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One headless viewer: joins like the iPad client, sends touches and measures
+ * what comes back.
+ *
+ * A bandwidth cap is enforced on the read thread: after each frame the thread
+ * sleeps until the cap allows the bytes it just read, so TCP pushes back on the
+ * server exactly like a slow Wi-Fi link would. Artificial latency delays every
+ * outgoing message and is added to every incoming frame's measured latency.
+ */
+final class LoadClient extends WebSocketClient {
+
+    // Mirrors FramePacket.
+    private static final int HEADER_SEQUENCE_OFFSET = 4;
+    private static final int HEADER_PTS_OFFSET = 8;
+    private static final int HEADER_INPUT_SEQUENCE_OFFSET = 12;
+    private static final int HEADER_MIN_LENGTH = 12;
+    private static final int MAX_PENDING_TOUCHES = 256;
+
+    private final int id;
+    private final long bandwidthBitsPerSecond;
+    private final long latencyMillis;
+    private final ScheduledExecutorService scheduler;
+
+    private final LatencyRecorder frameLatency = new LatencyRecorder();
+    private final LatencyRecorder touchLatency = new LatencyRecorder();
+    // Send time (nanos) of each touch by seq, as a ring; read thread and scheduler both touch it.
+    private final long[] touchSentNanos = new long[MAX_PENDING_TOUCHES];
+    private volatile long touchSequence;
+    private long lastAcknowledgedTouch;
+
+    private volatile long framesReceived;
+    private volatile long bytesReceived;
+    private volatile long sequenceGaps;
+    private long lastSequence = -1;
+    private long firstFrameNanos;
+    private long lastFrameNanos;
+    // Earliest time the capped link has delivered everything read so far.
+    private long linkFreeNanos;
+
+    LoadClient(int id, URI uri, long bandwidthBitsPerSecond, long latencyMillis, ScheduledExecutorService scheduler) {
+        super(uri);
+        this.id = id;
+        this.bandwidthBitsPerSecond = bandwidthBitsPerSecond;
+        this.latencyMillis = latencyMillis;
+        this.scheduler = scheduler;
+        // Browsers disable Nagle on WebSockets; so does the iPad client.
+        setTcpNoDelay(true);
+    }
+
+    @Override
+    public void onOpen(ServerHandshake handshake) {
+        sendDelayed(controlMessage("connection_request"));
+    }
+
+    /** Sends one synthetic touch; called from the scheduler. */
+    void sendTouch(float x, float y) {
+        if (!isOpen()) {
+            return;
+        }
+        long seq;
+        synchronized (touchSentNanos) {
+            seq = ++touchSequence;
+            touchSentNanos[(int) (seq % MAX_PENDING_TOUCHES)] = System.nanoTime();
+        }
+        try {
+            JSONObject touch = new JSONObject();
+            touch.put("type", "touch");
+            touch.put("action", "move");
+            touch.put("x", x);
+            touch.put("y", y);
+            touch.put("seq", seq);
+            sendDelayed(touch.toString());
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void sendDelayed(final String message) {
+        if (latencyMillis <= 0) {
+            send(message);
+            return;
+        }
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (isOpen()) {
+                    send(message);
+                }
+            }
+        }, latencyMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void onMessage(String message) {
+    }
+
+    @Override
+    public void onMessage(ByteBuffer bytes) {
+        int length = bytes.remaining();
+        if (length < HEADER_MIN_LENGTH) {
+            return;
+        }
+        throttle(length);
+
+        long now = System.nanoTime();
+        int base = bytes.position();
+        long sequence = bytes.getInt(base + HEADER_SEQUENCE_OFFSET) & 0xFFFFFFFFL;
+        int ptsMillis = bytes.getInt(base + HEADER_PTS_OFFSET);
+        int headerLength = bytes.getShort(base + 2) & 0xFFFF;
+        long inputSequence = headerLength >= 16 ? bytes.getInt(base + HEADER_INPUT_SEQUENCE_OFFSET) & 0xFFFFFFFFL : 0;
+
+        // Same clock on loopback; the header carries it truncated to 32 bits of millis.
+        int ageMillis = (int) (now / 1000000L) - ptsMillis;
+        frameLatency.record(ageMillis * 1000L + latencyMillis * 1000L);
+
+        if (inputSequence > lastAcknowledgedTouch) {
+            long sentNanos;
+            synchronized (touchSentNanos) {
+                sentNanos = touchSequence - inputSequence < MAX_PENDING_TOUCHES
+                    ? touchSentNanos[(int) (inputSequence % MAX_PENDING_TOUCHES)] : 0;
+            }
+            if (sentNanos != 0) {
+                // The touch travelled up and the frame back down, each with the artificial delay.
+                touchLatency.record((now - sentNanos) / 1000 + latencyMillis * 1000L);
+            }
+            lastAcknowledgedTouch = inputSequence;
+        }
+
+        if (lastSequence >= 0 && sequence != lastSequence + 1) {
+            sequenceGaps++;
+        }
+        lastSequence = sequence;
+        if (firstFrameNanos == 0) {
+            firstFrameNanos = now;
+        }
+        lastFrameNanos = now;
+        framesReceived++;
+        bytesReceived += length;
+    }
+
+    private void throttle(int length) {
+        if (bandwidthBitsPerSecond <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        long transferNanos = length * 8L * 1000000000L / bandwidthBitsPerSecond;
+        linkFreeNanos = Math.max(linkFreeNanos, now) + transferNanos;
+        long waitNanos = linkFreeNanos - now;
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void onClose(int code, String reason, boolean remote) {
+    }
+
+    @Override
+    public void onError(Exception ex) {
+        System.err.println("Client " + id + " error: " + ex);
+    }
+
+    private static String controlMessage(String type) {
+        try {
+            return new JSONObject().put("type", type).put("last_sequence", -1).toString();
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    int getId() {
+        return id;
+    }
+
+    long getFramesReceived() {
+        return framesReceived;
+    }
+
+    long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    long getSequenceGaps() {
+        return sequenceGaps;
+    }
+
+    double getAverageFps() {
+        long span = lastFrameNanos - firstFrameNanos;
+        return span > 0 ? (framesReceived - 1) * 1e9 / span : 0;
+    }
+
+    LatencyRecorder getFrameLatency() {
+        return frameLatency;
+    }
+
+    LatencyRecorder getTouchLatency() {
+        return touchLatency;
+    }
+}
@@ -0,0 +1,201 @@
+package com.screenmirror.samsung.loadgen;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the streaming server and N headless viewers on loopback and reports how
+ * the server holds up: per-viewer frame rate and latency percentiles, touch
+ * round trips, and the server's own CPU time and allocation rate.
+ *
+ * <pre>
+ * gradlew :loadgen:run --args="--clients=8 --seconds=30 --bandwidth-kbps=20000 --latency-ms=20"
+ * </pre>
+ *
+ * Server cost is measured per thread (the Java-WebSocket selector and workers
+ * plus the encoder thread), so the clients sharing the JVM don't inflate it.
+ */
+public final class LoadGenerator {
+
+    private static final String[] SERVER_THREAD_PREFIXES = {
+        "WebSocketSelector-", "WebSocketWorker-", LoadTestServer.ENCODER_THREAD_NAME
+    };
+    private static final long WARM_UP_MS = 2000;
+
+    private LoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        int clients = intOption(options, "clients", 4);
+        int seconds = intOption(options, "seconds", 20);
+        int port = intOption(options, "port", 18080);
+        int fps = intOption(options, "fps", 60);
+        int width = intOption(options, "width", 1440);
+        int height = intOption(options, "height", 3088);
+        int keyFrameKb = intOption(options, "key-frame-kb", 350);
+        int deltaFrameKb = intOption(options, "delta-frame-kb", 25);
+        int keyFrameInterval = intOption(options, "key-frame-interval", fps * 10);
+        long bandwidthKbps = intOption(options, "bandwidth-kbps", 0);
+        long latencyMs = intOption(options, "latency-ms", 0);
+        double touchHz = Double.parseDouble(stringOption(options, "touch-hz", "30"));
+
+        System.out.printf(Locale.US, "Load test: %d client(s), %ds, %dfps %dx%d, key %dKB every %d, delta %dKB, "
+                + "cap %s, latency %dms, touches %.0f/s%n",
+            clients, seconds, fps, width, height, keyFrameKb, keyFrameInterval, deltaFrameKb,
+            bandwidthKbps > 0 ? bandwidthKbps + "kbit/s" : "none", latencyMs, touchHz);
+
+        SyntheticFrameSource source = new SyntheticFrameSource(width, height,
+            keyFrameKb * 1024, deltaFrameKb * 1024, keyFrameInterval);
+        LoadTestServer server = new LoadTestServer(new InetSocketAddress("127.0.0.1", port), source, fps);
+        server.start();
+
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+        List<LoadClient> viewers = new ArrayList<>();
+        URI uri = new URI("ws://127.0.0.1:" + port);
+        for (int i = 0; i < clients; i++) {
+            LoadClient client = new LoadClient(i, uri, bandwidthKbps * 1000, latencyMs, scheduler);
+            if (!client.connectBlocking(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Client " + i + " could not connect to " + uri);
+            }
+            viewers.add(client);
+        }
+        if (touchHz > 0) {
+            scheduleTouches(viewers, touchHz, width, height, scheduler);
+        }
+
+        Thread.sleep(WARM_UP_MS);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        ServerCost before = ServerCost.sample(threads);
+        long startNanos = System.nanoTime();
+        long framesBefore = server.getFramesBroadcast();
+        long bytesBefore = server.getBytesBroadcast();
+
+        Thread.sleep(seconds * 1000L);
+
+        ServerCost after = ServerCost.sample(threads);
+        double elapsed = (System.nanoTime() - startNanos) / 1e9;
+        long frames = server.getFramesBroadcast() - framesBefore;
+        long bytes = server.getBytesBroadcast() - bytesBefore;
+
+        scheduler.shutdownNow();
+        for (LoadClient client : viewers) {
+            client.closeBlocking();
+        }
+        server.shutdown();
+
+        System.out.println();
+        System.out.println("client  frames    fps   MB/s  gaps  lat p50   p95   p99   max  | touch n   p50   p95");
+        for (LoadClient client : viewers) {
+            LatencyRecorder latency = client.getFrameLatency();
+            LatencyRecorder touch = client.getTouchLatency();
+            System.out.printf(Locale.US, "%6d %7d %6.1f %6.2f %5d  %6.1f %5.1f %5.1f %5.1f  | %5d %5.1f %5.1f%n",
+                client.getId(), client.getFramesReceived(), client.getAverageFps(),
+                client.getBytesReceived() / (elapsed + WARM_UP_MS / 1000.0) / 1e6, client.getSequenceGaps(),
+                latency.percentileMillis(50), latency.percentileMillis(95), latency.percentileMillis(99),
+                latency.percentileMillis(100), touch.getCount(), touch.percentileMillis(50), touch.percentileMillis(95));
+        }
+        System.out.println();
+        System.out.printf(Locale.US, "server: %.1f frames/s broadcast, %.2f MB/s out, %d touch events, %d frame(s) sent while a viewer was backed up%n",
+            frames / elapsed, bytes / elapsed / 1e6, server.getTouchEvents(), server.getFramesWhileConstrained());
+        if (after.supported) {
+            System.out.printf(Locale.US, "server: CPU %.1f%% of one core, allocation %.1f MB/s%n",
+                (after.cpuNanos - before.cpuNanos) / (elapsed * 1e9) * 100,
+                (after.allocatedBytes - before.allocatedBytes) / elapsed / 1e6);
+        } else {
+            System.out.println("server: per-thread CPU/allocation accounting not supported by this JVM");
+        }
+    }
+
+    private static void scheduleTouches(final List<LoadClient> viewers, double touchHz, final int width, final int height,
+                                        ScheduledExecutorService scheduler) {
+        final Random random = new Random(7);
+        long periodMicros = (long) (1e6 / touchHz);
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                for (LoadClient client : viewers) {
+                    client.sendTouch(random.nextInt(width), random.nextInt(height));
+                }
+            }
+        }, periodMicros, periodMicros, TimeUnit.MICROSECONDS);
+    }
+
+    /** CPU time and allocated bytes summed over the server's threads. */
+    private static final class ServerCost {
+
+        final boolean supported;
+        final long cpuNanos;
+        final long allocatedBytes;
+
+        private ServerCost(boolean supported, long cpuNanos, long allocatedBytes) {
+            this.supported = supported;
+            this.cpuNanos = cpuNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        static ServerCost sample(ThreadMXBean threads) {
+            if (!threads.isThreadCpuTimeSupported()
+                    || !(threads instanceof com.sun.management.ThreadMXBean)) {
+                return new ServerCost(false, 0, 0);
+            }
+            com.sun.management.ThreadMXBean extended = (com.sun.management.ThreadMXBean) threads;
+            long cpu = 0;
+            long allocated = 0;
+            for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+                if (info == null || !isServerThread(info.getThreadName())) {
+                    continue;
+                }
+                cpu += Math.max(0, threads.getThreadCpuTime(info.getThreadId()));
+                allocated += Math.max(0, extended.getThreadAllocatedBytes(info.getThreadId()));
+            }
+            return new ServerCost(true, cpu, allocated);
+        }
+
+        private static boolean isServerThread(String name) {
+            for (String prefix : SERVER_THREAD_PREFIXES) {
+                if (name.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+
+    private static String stringOption(Map<String, String> options, String name, String fallback) {
+        String value = options.get(name);
+        return value != null ? value : fallback;
+    }
+
+    private static int intOption(Map<String, String> options, String name, int fallback) {
+        return Integer.parseInt(stringOption(options, name, String.valueOf(fallback)));
+    }
+}
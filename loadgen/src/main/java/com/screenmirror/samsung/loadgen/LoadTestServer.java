@@ -0,0 +1,169 @@
+package com.screenmirror.samsung.loadgen;
+
+import com.screenmirror.samsung.stream.FrameHistory;
+import com.screenmirror.samsung.stream.ViewerBroadcaster;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The phone's streaming server on a plain JVM.
+ *
+ * Speaks the same protocol as {@code StreamingService}'s WebSocket server (welcome,
+ * {@code connection_request}, {@code key_frame_request}, {@code replay}, touches with
+ * {@code seq}) and broadcasts through the same {@link ViewerBroadcaster} and
+ * {@link FrameHistory}; only capture and encoding are replaced by a
+ * {@link SyntheticFrameSource} ticking on a single encoder thread.
+ */
+final class LoadTestServer extends WebSocketServer {
+
+    static final String ENCODER_THREAD_NAME = "LoadTestEncoder";
+
+    private static final int HISTORY_MAX_FRAMES = 300;
+    private static final long HISTORY_MAX_BYTES = 24L * 1024 * 1024;
+    private static final long REPLAY_MAX_MS = 10000;
+
+    private final SyntheticFrameSource source;
+    private final long frameIntervalNanos;
+    private final ViewerBroadcaster broadcaster =
+        new ViewerBroadcaster(new FrameHistory(HISTORY_MAX_FRAMES, HISTORY_MAX_BYTES));
+    private final ScheduledExecutorService encoder = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, ENCODER_THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private volatile long lastInputSequence;
+    private final AtomicLong touchEvents = new AtomicLong();
+    private volatile long framesWhileConstrained;
+
+    LoadTestServer(InetSocketAddress address, SyntheticFrameSource source, int fps) {
+        super(address);
+        this.source = source;
+        this.frameIntervalNanos = 1000000000L / fps;
+        broadcaster.setServer(this);
+        setReuseAddr(true);
+        // Same socket options as the phone's server.
+        setTcpNoDelay(true);
+    }
+
+    @Override
+    public void onStart() {
+        encoder.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                encodeFrame();
+            }
+        }, 0, frameIntervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void encodeFrame() {
+        if (!broadcaster.hasViewers()) {
+            return;
+        }
+        try {
+            broadcaster.publish(source.next(lastInputSequence));
+        } catch (RuntimeException e) {
+            System.err.println("Broadcast failed: " + e);
+        }
+        if (broadcaster.isConstrained()) {
+            framesWhileConstrained++;
+        }
+    }
+
+    @Override
+    public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        try {
+            JSONObject welcome = new JSONObject();
+            welcome.put("type", "welcome");
+            welcome.put("screenWidth", source.getWidth());
+            welcome.put("screenHeight", source.getHeight());
+            conn.send(welcome.toString());
+        } catch (JSONException e) {
+            System.err.println("Error sending welcome: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+        broadcaster.remove(conn);
+    }
+
+    @Override
+    public void onMessage(final WebSocket conn, String message) {
+        try {
+            JSONObject json = new JSONObject(message);
+            String type = json.optString("type");
+            if ("touchEvent".equals(type) || "touch".equals(type)) {
+                touchEvents.incrementAndGet();
+                if (json.has("seq")) {
+                    lastInputSequence = json.optLong("seq");
+                }
+            } else if ("connection_request".equals(type)) {
+                final long lastSequence = json.optLong("last_sequence", -1);
+                encoder.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        broadcaster.join(conn, lastSequence);
+                    }
+                });
+            } else if ("key_frame_request".equals(type)) {
+                source.requestKeyFrame();
+            } else if ("replay".equals(type)) {
+                final long durationMillis = Math.min(REPLAY_MAX_MS, (long) (json.optDouble("seconds", 3) * 1000));
+                encoder.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        broadcaster.replay(conn, durationMillis);
+                    }
+                });
+            }
+        } catch (JSONException e) {
+            System.err.println("Error parsing JSON message: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(WebSocket conn, ByteBuffer message) {
+    }
+
+    @Override
+    public void onError(WebSocket conn, Exception ex) {
+        System.err.println("Server error on " + (conn != null ? conn.getRemoteSocketAddress() : "server") + ": " + ex);
+    }
+
+    void shutdown() throws InterruptedException {
+        encoder.shutdownNow();
+        stop(1000);
+    }
+
+    long getTouchEvents() {
+        return touchEvents.get();
+    }
+
+    long getFramesBroadcast() {
+        return broadcaster.getFramesBroadcast();
+    }
+
+    long getBytesBroadcast() {
+        return broadcaster.getBytesBroadcast();
+    }
+
+    long getFramesWhileConstrained() {
+        return framesWhileConstrained;
+    }
+}
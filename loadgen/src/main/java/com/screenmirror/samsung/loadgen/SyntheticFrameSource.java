@@ -0,0 +1,71 @@
+package com.screenmirror.samsung.loadgen;
+
+import com.screenmirror.samsung.stream.EncodedFrame;
+
+import java.util.Random;
+
+/**
+ * Stands in for capture plus {@code ScreenEncoder}: produces key and delta frames
+ * with realistic sizes at a fixed cadence, without a screen or a codec.
+ *
+ * Payloads are random bytes, so frames cost the server exactly what real ones
+ * do to copy, frame and send, and nothing to produce beyond one allocation.
+ * Timestamps use {@link System#nanoTime()}, the same clock the clients read,
+ * so on loopback a client can measure end-to-end latency from the header alone.
+ */
+final class SyntheticFrameSource {
+
+    private final int width;
+    private final int height;
+    private final int keyFrameBytes;
+    private final int deltaFrameBytes;
+    private final int keyFrameInterval;
+    private final Random random = new Random(42);
+    // Reused noise; each frame copies a window of it instead of generating fresh bytes.
+    private final byte[] noise;
+
+    private long sequence;
+    private volatile boolean keyFrameRequested = true;
+
+    SyntheticFrameSource(int width, int height, int keyFrameBytes, int deltaFrameBytes, int keyFrameInterval) {
+        this.width = width;
+        this.height = height;
+        this.keyFrameBytes = keyFrameBytes;
+        this.deltaFrameBytes = deltaFrameBytes;
+        this.keyFrameInterval = keyFrameInterval;
+        this.noise = new byte[Math.max(keyFrameBytes, deltaFrameBytes) * 2];
+        random.nextBytes(noise);
+    }
+
+    void requestKeyFrame() {
+        keyFrameRequested = true;
+    }
+
+    EncodedFrame next(long inputSequence) {
+        boolean keyFrame = keyFrameRequested || sequence % keyFrameInterval == 0;
+        keyFrameRequested = false;
+        // +-25% around the nominal size, like real content changes.
+        int nominal = keyFrame ? keyFrameBytes : deltaFrameBytes;
+        int length = Math.max(16, nominal * 3 / 4 + random.nextInt(nominal / 2 + 1));
+        byte[] data = new byte[length];
+        System.arraycopy(noise, random.nextInt(noise.length - length + 1), data, 0, length);
+        if (!keyFrame) {
+            // Delta payloads start with their base sequence, like DeltaFrameWriter output.
+            long base = sequence;
+            data[0] = (byte) (base >>> 24);
+            data[1] = (byte) (base >>> 16);
+            data[2] = (byte) (base >>> 8);
+            data[3] = (byte) base;
+        }
+        return new EncodedFrame(++sequence, System.nanoTime() / 1000, keyFrame, width, height,
+            data, length, inputSequence);
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+}